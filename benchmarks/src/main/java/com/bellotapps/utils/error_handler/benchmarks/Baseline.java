@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the documented baseline (see the module's README): every benchmark in this module,
+ * with the {@link GCProfiler} enabled (for allocation rates), once for each amount of concurrent threads.
+ * Results of each run are written in JSON format into {@code baseline-<threads>-threads.json}.
+ * <p>
+ * Any extra argument is interpreted as a JMH command line option (e.g a benchmark regexp, or {@code -p depth=1}),
+ * which allows running a subset of the baseline.
+ */
+public final class Baseline {
+
+    /**
+     * The amounts of concurrent threads with which the benchmarks are run.
+     */
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private Baseline() {
+    }
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        for (final int threads : THREADS) {
+            final ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("baseline-" + threads + "-threads.json");
+            if (commandLineOptions.getIncludes().isEmpty()) {
+                options.include(Baseline.class.getPackage().getName() + ".*Benchmark");
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
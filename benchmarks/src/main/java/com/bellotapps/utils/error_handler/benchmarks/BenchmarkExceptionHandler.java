@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ExceptionHandler;
+import com.bellotapps.utils.error_handler.HandlingResult;
+
+/**
+ * Base class for the {@link ExceptionHandler}s that are generated for the benchmarks.
+ * Generated subclasses only bind the {@code T} type argument, so the library resolves which {@link Throwable}
+ * they handle, and they all return the same constant {@link HandlingResult}.
+ *
+ * @param <T> The concrete type of {@link Throwable} handled by the generated subclass.
+ */
+public abstract class BenchmarkExceptionHandler<T extends Throwable> implements ExceptionHandler<T, String> {
+
+    /**
+     * The result returned by every generated handler.
+     */
+    private static final HandlingResult<String> RESULT = HandlingResult.withPayload(400, "benchmark");
+
+    @Override
+    public HandlingResult<String> handle(final T exception) {
+        return RESULT;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.boundary.ErrorBoundary;
+import com.bellotapps.utils.error_handler.boundary.Outcome;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks calls made through an {@link ErrorBoundary} against the same calls wrapped in a hand-written try/catch,
+ * both when the call succeeds (where the boundary must add nothing, see {@code gc.alloc.rate.norm})
+ * and when it fails (so the exception is handled).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundaryBenchmark {
+
+    /**
+     * Whether the call fails.
+     */
+    @Param({"false", "true"})
+    private boolean fail;
+
+    /**
+     * The {@link ErrorHandler} that handles the exceptions.
+     */
+    private ErrorHandler errorHandler;
+
+    /**
+     * The {@link ErrorBoundary} backed by the {@code errorHandler}.
+     */
+    private ErrorBoundary boundary;
+
+    /**
+     * The exception thrown by the failing calls (created once, so its creation is not measured).
+     */
+    private IllegalStateException exception;
+
+    /**
+     * The value returned by the successful calls.
+     */
+    private Integer value;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.errorHandler = new ErrorHandlerFactory(getClass().getClassLoader(), new StaticListableBeanFactory())
+                .createErrorHandler();
+        this.boundary = new ErrorBoundary(errorHandler);
+        this.exception = new IllegalStateException("Order 1234 not found");
+        this.value = 1234;
+    }
+
+
+    @Benchmark
+    public int handWritten() {
+        try {
+            return compute();
+        } catch (final IllegalStateException e) {
+            final HandlingResult<Object> result = errorHandler.handle(e);
+            return result.getHttpErrorCode();
+        }
+    }
+
+    @Benchmark
+    public int boundaryWithFallback() {
+        return boundary.get(this::compute, HandlingResult::getHttpErrorCode);
+    }
+
+    @Benchmark
+    public int boundaryOutcome() {
+        final Outcome<Integer> outcome = boundary.get(this::compute);
+        return outcome.isSuccess() ? outcome.getValue() : outcome.getFailure().get().getHttpErrorCode();
+    }
+
+    /**
+     * The measured call.
+     *
+     * @return The {@code value}.
+     * @throws IllegalStateException If the call must {@code fail}.
+     */
+    private Integer compute() throws IllegalStateException {
+        if (fail) {
+            throw exception;
+        }
+        return value;
+    }
+}
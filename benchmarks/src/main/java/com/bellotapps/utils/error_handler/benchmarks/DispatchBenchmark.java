@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ErrorHandler#handle(Throwable)} for different hierarchy depths and amount of handlers,
+ * both when there is a handler for the received exception and when it falls back to the {@link Throwable} handler.
+ * <p>
+ * The handled exception is a generated class that is {@code depth} levels below {@link RuntimeException}.
+ * The rest of the handlers are registered for unrelated siblings of that hierarchy.
+ * Run with {@code -t <threads>} to measure contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    /**
+     * Indicates which handler must handle the benchmarked exception.
+     */
+    public enum Target {
+        /**
+         * There is a handler registered for the exact class of the exception.
+         */
+        HIT,
+        /**
+         * There is no handler in the exception's hierarchy, so it falls back to the {@link Throwable} handler.
+         */
+        FALLBACK,
+    }
+
+    /**
+     * The package in which classes are generated.
+     */
+    private static final String PACKAGE = "com.bellotapps.utils.error_handler.benchmarks.generated.dispatch";
+
+    /**
+     * Amount of levels between {@link RuntimeException} and the handled exception.
+     */
+    @Param({"1", "5", "10", "20"})
+    public int depth;
+
+    /**
+     * Total amount of registered handlers (including the one for {@link Throwable}).
+     */
+    @Param({"5", "50", "500"})
+    public int handlers;
+
+    /**
+     * Which handler must handle the exception.
+     */
+    @Param({"HIT", "FALLBACK"})
+    public Target target;
+
+    /**
+     * The generated classes.
+     */
+    private SyntheticClasses classes;
+
+    /**
+     * The benchmarked {@link ErrorHandler}.
+     */
+    private ErrorHandler errorHandler;
+
+    /**
+     * The exception being handled.
+     */
+    private Throwable exception;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.classes = new SyntheticClasses();
+
+        String leaf = RuntimeException.class.getName();
+        for (int level = 1; level <= depth; level++) {
+            leaf = classes.exceptionClass(PACKAGE, "Level" + level + "Exception", leaf);
+        }
+        final int siblings = handlers - (target == Target.HIT ? 2 : 1);
+        for (int i = 0; i < siblings; i++) {
+            final String sibling = classes.exceptionClass(PACKAGE, "Sibling" + i + "Exception",
+                    RuntimeException.class.getName());
+            classes.handlerClass(PACKAGE, "Sibling" + i + "ExceptionHandler", sibling);
+        }
+        if (target == Target.HIT) {
+            classes.handlerClass(PACKAGE, "LeafExceptionHandler", leaf);
+        }
+        classes.handlerClass(PACKAGE, "ThrowableHandler", Throwable.class.getName());
+
+        this.errorHandler = new ErrorHandlerFactory(classes.classLoader(), new StaticListableBeanFactory())
+                .createErrorHandler(PACKAGE);
+        this.exception = classes.newThrowable(leaf);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        classes.close();
+    }
+
+
+    @Benchmark
+    public HandlingResult<Object> handle() {
+        return errorHandler.handle(exception);
+    }
+}
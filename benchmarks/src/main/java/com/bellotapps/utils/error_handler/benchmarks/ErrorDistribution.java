@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A captured distribution of exceptions, replayed by {@link Replay}.
+ * <p>
+ * It is read from a file with an entry per line ({@code #} starts a comment), with comma separated fields:
+ * <pre>
+ * # class name, depth, weight[, burst]
+ * java.lang.IllegalArgumentException, 0, 60
+ * com.example.generated.UpstreamTimeoutException, 4, 30, 200
+ * </pre>
+ * The weight is the relative frequency of the exception, and the burst is the amount of times it is thrown in a row
+ * once picked (1 by default), which models error storms (e.g a failing dependency) without changing the frequencies.
+ * Classes that can not be loaded are generated, {@code depth} levels below {@link RuntimeException}
+ * (the depth of the loadable ones is the actual one, so it is ignored).
+ * Instances are immutable.
+ */
+/* package */ final class ErrorDistribution {
+
+    /**
+     * The entries of this distribution.
+     */
+    private final List<Entry> entries;
+
+    /**
+     * The cumulative probabilities of picking each entry (i.e of starting a burst of it).
+     */
+    private final double[] cumulative;
+
+
+    /**
+     * Constructor.
+     *
+     * @param entries The entries of this distribution (not copied).
+     */
+    private ErrorDistribution(final List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.cumulative = new double[entries.size()];
+        // Entries are picked with probability weight / burst, so each one is thrown with its relative frequency
+        final double total = entries.stream().mapToDouble(entry -> entry.weight / entry.burst).sum();
+        double accumulated = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            accumulated += entries.get(i).weight / entries.get(i).burst / total;
+            cumulative[i] = accumulated;
+        }
+        cumulative[cumulative.length - 1] = 1;
+    }
+
+
+    /**
+     * @return The entries of this distribution.
+     */
+    /* package */ List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Picks the index of the entry that starts the next burst.
+     *
+     * @param random The {@link SplittableRandom} of the calling thread.
+     * @return The index of the picked entry.
+     */
+    /* package */ int pick(final SplittableRandom random) {
+        final double value = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (cumulative[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * Reads the distribution in the given {@code file}.
+     *
+     * @param file The file with the distribution.
+     * @return The read {@link ErrorDistribution}.
+     * @throws IOException              If the file could not be read.
+     * @throws IllegalArgumentException If an entry is malformed, or there are no entries.
+     */
+    /* package */ static ErrorDistribution read(final Path file) throws IOException, IllegalArgumentException {
+        final List<Entry> entries = new ArrayList<>();
+        int lineNumber = 0;
+        for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            final int commentStart = line.indexOf('#');
+            final String content = (commentStart < 0 ? line : line.substring(0, commentStart)).trim();
+            if (!content.isEmpty()) {
+                entries.add(parse(content, lineNumber));
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("The distribution " + file + " has no entries");
+        }
+        return new ErrorDistribution(entries);
+    }
+
+    /**
+     * Parses an entry.
+     *
+     * @param content    The content of the line.
+     * @param lineNumber The number of the line (for error messages).
+     * @return The parsed {@link Entry}.
+     * @throws IllegalArgumentException If the entry is malformed.
+     */
+    private static Entry parse(final String content, final int lineNumber) throws IllegalArgumentException {
+        final String[] fields = content.split("\\s*,\\s*");
+        if (fields.length < 3 || fields.length > 4) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected class name, depth, weight[, burst]");
+        }
+        try {
+            final int depth = Integer.parseInt(fields[1]);
+            final double weight = Double.parseDouble(fields[2]);
+            final int burst = fields.length == 4 ? Integer.parseInt(fields[3]) : 1;
+            if (depth < 0 || !(weight > 0) || burst < 1) {
+                throw new IllegalArgumentException("Line " + lineNumber
+                        + ": the depth must not be negative, the weight must be positive and the burst at least 1");
+            }
+            return new Entry(fields[0], depth, weight, burst);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": malformed number", e);
+        }
+    }
+
+
+    /**
+     * An entry of a distribution.
+     */
+    /* package */ static final class Entry {
+
+        /**
+         * The binary name of the exception class.
+         */
+        private final String className;
+
+        /**
+         * The levels between {@link RuntimeException} and the class, if it must be generated.
+         */
+        private final int depth;
+
+        /**
+         * The relative frequency of the exception.
+         */
+        private final double weight;
+
+        /**
+         * The amount of times the exception is thrown in a row once picked.
+         */
+        private final int burst;
+
+
+        /**
+         * Constructor.
+         *
+         * @param className The binary name of the exception class.
+         * @param depth     The levels between {@link RuntimeException} and the class, if it must be generated.
+         * @param weight    The relative frequency of the exception.
+         * @param burst     The amount of times the exception is thrown in a row once picked.
+         */
+        private Entry(final String className, final int depth, final double weight, final int burst) {
+            this.className = className;
+            this.depth = depth;
+            this.weight = weight;
+            this.burst = burst;
+        }
+
+
+        /**
+         * @return The binary name of the exception class.
+         */
+        /* package */ String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return The levels between {@link RuntimeException} and the class, if it must be generated.
+         */
+        /* package */ int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return The amount of times the exception is thrown in a row once picked.
+         */
+        /* package */ int getBurst() {
+            return burst;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ErrorHandlerFactory#createErrorHandler(java.util.Collection)},
+ * both scanning {@code packages} packages from scratch (i.e startup) and reusing the factory's cache.
+ * Each package holds {@code handlersPerPackage} generated {@link com.bellotapps.utils.error_handler.ExceptionHandler}s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorHandlerFactoryBenchmark {
+
+    /**
+     * The prefix of the packages in which classes are generated.
+     */
+    private static final String PACKAGE_PREFIX = "com.bellotapps.utils.error_handler.benchmarks.generated.scan.p";
+
+    /**
+     * Amount of packages to be scanned.
+     */
+    @Param({"1", "10", "50"})
+    public int packages;
+
+    /**
+     * Amount of handlers in each package.
+     */
+    @Param({"10"})
+    public int handlersPerPackage;
+
+    /**
+     * The generated classes.
+     */
+    private SyntheticClasses classes;
+
+    /**
+     * The {@link BeanFactory} passed to the {@link ErrorHandlerFactory} (it holds no beans).
+     */
+    private BeanFactory beanFactory;
+
+    /**
+     * The names of the packages to be scanned.
+     */
+    private List<String> packageNames;
+
+    /**
+     * An {@link ErrorHandlerFactory} whose cache already holds all the packages.
+     */
+    private ErrorHandlerFactory warmFactory;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.classes = new SyntheticClasses();
+        this.packageNames = new ArrayList<>(packages);
+        for (int p = 0; p < packages; p++) {
+            final String pkg = PACKAGE_PREFIX + p;
+            for (int i = 0; i < handlersPerPackage; i++) {
+                final String exception = classes.exceptionClass(pkg, "Scanned" + i + "Exception",
+                        RuntimeException.class.getName());
+                classes.handlerClass(pkg, "Scanned" + i + "ExceptionHandler", exception);
+            }
+            packageNames.add(pkg);
+        }
+        classes.handlerClass(PACKAGE_PREFIX + 0, "ThrowableHandler", Throwable.class.getName());
+
+        this.beanFactory = new StaticListableBeanFactory();
+        this.warmFactory = new ErrorHandlerFactory(classes.classLoader(), beanFactory);
+        this.warmFactory.createErrorHandler(packageNames);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        classes.close();
+    }
+
+
+    @Benchmark
+    public ErrorHandler scanPackages() {
+        return new ErrorHandlerFactory(classes.classLoader(), beanFactory).createErrorHandler(packageNames);
+    }
+
+    @Benchmark
+    public ErrorHandler fromCache() {
+        return warmFactory.createErrorHandler(packageNames);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ExceptionFingerprint;
+import com.bellotapps.utils.error_handler.ExceptionFingerprinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks fingerprinting a freshly created exception thrown {@code depth} frames deep,
+ * with the {@link ExceptionFingerprinter} (top {@code frames} frames),
+ * against hashing the whole {@link Throwable#getStackTrace()} (i.e what was done outside the library).
+ * {@link #create()} measures just creating the exception, to be subtracted from the others.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FingerprintBenchmark {
+
+    /**
+     * Amount of frames below the benchmark method when the exception is created.
+     */
+    @Param({"10", "50", "200"})
+    public int depth;
+
+    /**
+     * Amount of frames hashed by the {@link ExceptionFingerprinter}.
+     */
+    @Param({"8"})
+    public int frames;
+
+    /**
+     * The {@link ExceptionFingerprinter} being benchmarked.
+     */
+    private ExceptionFingerprinter fingerprinter;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.fingerprinter = new ExceptionFingerprinter(frames);
+    }
+
+
+    @Benchmark
+    public Throwable create() {
+        return createAt(depth);
+    }
+
+    @Benchmark
+    public int fullStackTraceHash() {
+        final Throwable exception = createAt(depth);
+        return exception.getClass().getName().hashCode() * 31 + Arrays.hashCode(exception.getStackTrace());
+    }
+
+    @Benchmark
+    public ExceptionFingerprint fingerprint() {
+        return fingerprinter.fingerprint(createAt(depth));
+    }
+
+
+    /**
+     * Creates an exception {@code remaining} frames deeper.
+     *
+     * @param remaining The amount of frames to go deeper.
+     * @return The created exception.
+     */
+    private static Throwable createAt(final int remaining) {
+        if (remaining == 0) {
+            return new IllegalStateException("Order 1234 not found");
+        }
+        return createAt(remaining - 1);
+    }
+}
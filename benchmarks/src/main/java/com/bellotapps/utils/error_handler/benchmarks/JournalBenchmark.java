@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.HandledErrorListener;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.journal.ErrorJournal;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks handling an exception with and without an {@link ErrorJournal} registered
+ * (the difference with {@link #withListener()} being the cost of appending a record).
+ * The same exception is handled each time, so its fingerprint is computed just once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+
+    /**
+     * The directory of the journal.
+     */
+    private Path directory;
+
+    /**
+     * The journal.
+     */
+    private ErrorJournal journal;
+
+    /**
+     * An {@link ErrorHandler} without listeners.
+     */
+    private ErrorHandler plain;
+
+    /**
+     * An {@link ErrorHandler} with a listener that just gets the fingerprint (i.e the cost of notifying listeners).
+     */
+    private ErrorHandler listened;
+
+    /**
+     * An {@link ErrorHandler} recording into the {@code journal}.
+     */
+    private ErrorHandler journaled;
+
+    /**
+     * The handled exception.
+     */
+    private Throwable exception;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("error-journal-benchmark");
+        this.journal = new ErrorJournal(directory, 1 << 30, 2);
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        this.plain = new ErrorHandlerFactory(getClass().getClassLoader(), beanFactory).createErrorHandler();
+        final StaticListableBeanFactory listenerBeanFactory = new StaticListableBeanFactory();
+        listenerBeanFactory.addBean("listener", (HandledErrorListener) HandledError::getFingerprint);
+        this.listened = new ErrorHandlerFactory(getClass().getClassLoader(), listenerBeanFactory).createErrorHandler();
+        beanFactory.addBean("errorJournal", journal);
+        this.journaled = new ErrorHandlerFactory(getClass().getClassLoader(), beanFactory).createErrorHandler();
+        this.exception = new IllegalStateException("Order 1234 not found");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+
+    @Benchmark
+    public HandlingResult<Object> withoutJournal() {
+        return plain.handle(exception);
+    }
+
+    @Benchmark
+    public HandlingResult<Object> withListener() {
+        return listened.handle(exception);
+    }
+
+    @Benchmark
+    public HandlingResult<Object> withJournal() {
+        return journaled.handle(exception);
+    }
+}
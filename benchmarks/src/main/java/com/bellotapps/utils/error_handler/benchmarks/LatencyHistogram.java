@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+/**
+ * A log-linear histogram of latencies, in nanoseconds, with a relative error of at most 1/{@value #SUB_BUCKETS}
+ * (i.e values are grouped in powers of two, each one split into {@value #SUB_BUCKETS} linear buckets).
+ * Recording does not allocate. Not thread safe: each thread records into its own histogram,
+ * and they are merged when the run is over.
+ */
+/* package */ final class LatencyHistogram {
+
+    /**
+     * The amount of linear buckets into which each power of two is split (a power of two).
+     */
+    private static final int SUB_BUCKETS = 32;
+
+    /**
+     * The base two logarithm of {@link #SUB_BUCKETS}.
+     */
+    private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+    /**
+     * The counts of each bucket.
+     */
+    private final long[] counts;
+
+    /**
+     * The total amount of recorded values.
+     */
+    private long count;
+
+    /**
+     * The maximum recorded value.
+     */
+    private long max;
+
+
+    /**
+     * Constructor.
+     */
+    /* package */ LatencyHistogram() {
+        this.counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    }
+
+
+    /**
+     * Records the given latency.
+     *
+     * @param nanos The latency, in nanoseconds (negative values are recorded as zero).
+     */
+    /* package */ void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+        counts[index(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the values recorded by the given {@code other} histogram into this one.
+     *
+     * @param other The other {@link LatencyHistogram}.
+     */
+    /* package */ void merge(final LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return The total amount of recorded values.
+     */
+    /* package */ long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The maximum recorded value, in nanoseconds.
+     */
+    /* package */ long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the value at the given {@code percentile} (i.e the upper bound of its bucket).
+     *
+     * @param percentile The percentile (e.g 99.9).
+     * @return The value at the percentile, in nanoseconds (zero if nothing was recorded).
+     */
+    /* package */ long getPercentile(final double percentile) {
+        final long rank = (long) Math.ceil(count * percentile / 100);
+        long accumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            accumulated += counts[i];
+            if (accumulated >= Math.max(rank, 1)) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * @param value A non negative value.
+     * @return The index of the bucket of the value.
+     */
+    private static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * @param index The index of a bucket.
+     * @return The greatest value of the bucket.
+     */
+    private static long upperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        return ((SUB_BUCKETS + (long) (index % SUB_BUCKETS) + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.HandledErrorListener;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.logging.LogLineEncoder;
+import com.bellotapps.utils.error_handler.logging.StructuredErrorLogger;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks handling an exception with a {@link StructuredErrorLogger} registered, against a listener that just gets
+ * the fingerprint (the difference in {@code gc.alloc.rate.norm} must be zero, as logging allocates nothing),
+ * and encoding a line alone. Lines are written into a stream that discards them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+
+    /**
+     * An {@link OutputStream} that discards what is written.
+     */
+    private static final OutputStream NULL_OUTPUT_STREAM = new OutputStream() {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    };
+
+    /**
+     * An {@link ErrorHandler} with a listener that just gets the fingerprint (i.e the cost of notifying listeners).
+     */
+    private ErrorHandler listened;
+
+    /**
+     * An {@link ErrorHandler} logging with a {@link StructuredErrorLogger}.
+     */
+    private ErrorHandler logged;
+
+    /**
+     * The handled exception.
+     */
+    private Throwable exception;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final StaticListableBeanFactory listenerBeanFactory = new StaticListableBeanFactory();
+        listenerBeanFactory.addBean("listener", (HandledErrorListener) HandledError::getFingerprint);
+        this.listened = new ErrorHandlerFactory(getClass().getClassLoader(), listenerBeanFactory).createErrorHandler();
+        final StaticListableBeanFactory loggerBeanFactory = new StaticListableBeanFactory();
+        loggerBeanFactory.addBean("structuredErrorLogger", new StructuredErrorLogger(NULL_OUTPUT_STREAM));
+        this.logged = new ErrorHandlerFactory(getClass().getClassLoader(), loggerBeanFactory).createErrorHandler();
+        this.exception = new IllegalStateException("Order 1234 not found");
+    }
+
+
+    @Benchmark
+    public HandlingResult<Object> withListener() {
+        return listened.handle(exception);
+    }
+
+    @Benchmark
+    public HandlingResult<Object> withStructuredLogger() {
+        return logged.handle(exception);
+    }
+
+    @Benchmark
+    public void encodeOnly(final EncoderState state) throws IOException {
+        state.encoder.reset()
+                .field("ts", System.currentTimeMillis())
+                .field("exception", exception.getClass().getName())
+                .field("status", 500)
+                .hexField("fingerprint", 0x1234ABCDL)
+                .field("message", exception.getMessage())
+                .threadNameField("thread")
+                .writeLineTo(NULL_OUTPUT_STREAM);
+    }
+
+
+    /**
+     * Holds the {@link LogLineEncoder} of each benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class EncoderState {
+
+        /**
+         * The encoder.
+         */
+        private final LogLineEncoder encoder = new LogLineEncoder(StructuredErrorLogger.DEFAULT_LINE_CAPACITY);
+    }
+}
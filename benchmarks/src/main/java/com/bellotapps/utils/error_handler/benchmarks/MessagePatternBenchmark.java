@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.MessagePattern;
+import com.bellotapps.utils.error_handler.benchmarks.patterns.PatternBenchmarkHandler;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks routing by message with a {@link com.bellotapps.utils.error_handler.MessagePatternExceptionHandler}
+ * (i.e all the patterns found in one pass) against evaluating the same patterns one by one, as a handler would.
+ * Half of the patterns are literals, and the other half regular expressions.
+ * The message matches the last pattern, after some text that matches none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessagePatternBenchmark {
+
+    /**
+     * The amount of patterns.
+     */
+    @Param({"4", "32", "256"})
+    private int patterns;
+
+    /**
+     * The {@link ErrorHandler} with the patterns handler.
+     */
+    private ErrorHandler errorHandler;
+
+    /**
+     * The patterns, compiled one by one.
+     */
+    private Pattern[] series;
+
+    /**
+     * The handled exception (created once, so its creation is not measured).
+     */
+    private IllegalStateException exception;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Set<MessagePattern> messagePatterns = new LinkedHashSet<>();
+        this.series = new Pattern[patterns];
+        for (int i = 0; i < patterns; i++) {
+            final MessagePattern pattern = i % 2 == 0 ?
+                    MessagePattern.literal("upstream service " + i + " unavailable") :
+                    MessagePattern.regex("quota " + i + " exceeded after \\d+ calls");
+            messagePatterns.add(pattern);
+            series[i] = Pattern.compile(pattern.isRegex() ? pattern.getValue() : Pattern.quote(pattern.getValue()));
+        }
+        PatternBenchmarkHandler.setPatterns(messagePatterns);
+        this.errorHandler = new ErrorHandlerFactory(getClass().getClassLoader(), new StaticListableBeanFactory())
+                .createErrorHandler(PatternBenchmarkHandler.class.getPackage().getName());
+        final int last = patterns - 1;
+        final String cause = last % 2 == 0 ?
+                "upstream service " + last + " unavailable" :
+                "quota " + last + " exceeded after 3 calls";
+        this.exception = new IllegalStateException("Request 8f14e45f failed while calling the billing API: " + cause);
+    }
+
+
+    @Benchmark
+    public HandlingResult<Object> handle() {
+        return errorHandler.handle(exception);
+    }
+
+    @Benchmark
+    public int regexSeries() {
+        final String message = exception.getMessage();
+        for (int i = 0; i < series.length; i++) {
+            if (series[i].matcher(message).find()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
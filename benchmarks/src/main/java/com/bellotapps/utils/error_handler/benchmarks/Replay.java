@@ -0,0 +1,436 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.ExceptionMapping;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a captured {@link ErrorDistribution} against an {@link ErrorHandler}, at a target rate across threads,
+ * reporting throughput, latency percentiles and allocation, so capacity can be sized for error storms,
+ * and releases can be compared with the real mix of errors of an application.
+ * <p>
+ * The error handler is created like in an application (i.e scanning the given packages,
+ * and loading the given mapping files), so the handlers of the application must be in the classpath.
+ * An instance of each exception is created before the run (so creating them is not measured).
+ * Latencies are measured from the time each exception was scheduled to be handled,
+ * so the time spent behind schedule (e.g during a stall) is accounted for.
+ * <p>
+ * Usage (every option but the distribution is optional):
+ * <pre>
+ * java -cp target/benchmarks.jar:&lt;application classpath&gt; com.bellotapps.utils.error_handler.benchmarks.Replay
+ *     --distribution errors.csv --packages com.example.handlers --mappings classpath:error-mappings.properties
+ *     --threads 8 --rate 50000 --warmup 10 --duration 30 --seed 42
+ * </pre>
+ * The rate is the total amount of exceptions per second (0, the default, replays as fast as possible).
+ * The warm-up and duration are in seconds (10 and 30 by default).
+ */
+public final class Replay {
+
+    /**
+     * The package in which missing exception classes are generated, unless they have one.
+     */
+    private static final String PACKAGE = "com.bellotapps.utils.error_handler.benchmarks.generated.replay";
+
+    /**
+     * How close to the schedule workers stop parking and start spinning.
+     */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * The percentiles of the latencies that are reported.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private Replay() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+        final ErrorDistribution distribution = ErrorDistribution.read(Paths.get(required(options, "distribution")));
+        final int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+        final double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        final long warmUpNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "10")));
+        final long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+        final long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        try (final SyntheticClasses classes = new SyntheticClasses()) {
+            final Throwable[] exceptions = synthesize(distribution, classes);
+            final ErrorHandlerFactory factory =
+                    new ErrorHandlerFactory(classes.classLoader(), new StaticListableBeanFactory());
+            final List<ExceptionMapping> mappings = factory.loadMappings(list(options.get("mappings")));
+            final ErrorHandler errorHandler = factory.createErrorHandler(list(options.get("packages")), mappings);
+
+            final Worker[] workers = new Worker[threads];
+            final long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(threads) / rate) : 0;
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Worker(errorHandler, distribution, exceptions, new SplittableRandom(seed + i),
+                        intervalNanos, warmUpNanos, durationNanos);
+            }
+            run(workers);
+            report(distribution, exceptions, errorHandler, workers, durationNanos, rate);
+        }
+    }
+
+
+    /**
+     * Creates an instance of each exception of the given {@code distribution},
+     * generating the classes that can not be loaded.
+     *
+     * @param distribution The {@link ErrorDistribution}.
+     * @param classes      The {@link SyntheticClasses} into which missing classes are generated.
+     * @return The instances, in the order of the entries of the distribution.
+     * @throws IOException                  If a class could not be generated.
+     * @throws ReflectiveOperationException If an exception could not be instantiated.
+     */
+    private static Throwable[] synthesize(final ErrorDistribution distribution, final SyntheticClasses classes)
+            throws IOException, ReflectiveOperationException {
+        final List<ErrorDistribution.Entry> entries = distribution.getEntries();
+        final String[] generated = new String[entries.size()];
+        for (int i = 0; i < generated.length; i++) {
+            if (!isLoadable(entries.get(i).getClassName())) {
+                generated[i] = generate(entries.get(i), classes);
+            }
+        }
+        final Throwable[] exceptions = new Throwable[entries.size()];
+        for (int i = 0; i < exceptions.length; i++) {
+            exceptions[i] = generated[i] != null ?
+                    classes.newThrowable(generated[i]) :
+                    instantiate(Class.forName(entries.get(i).getClassName()));
+        }
+        return exceptions;
+    }
+
+    /**
+     * Generates the exception class of the given {@code entry}, and the levels between it and
+     * {@link RuntimeException} (named after the class).
+     *
+     * @param entry   The {@link ErrorDistribution.Entry} whose class must be generated.
+     * @param classes The {@link SyntheticClasses} into which the classes are generated.
+     * @return The binary name of the generated class.
+     * @throws IOException If a class could not be generated.
+     */
+    private static String generate(final ErrorDistribution.Entry entry, final SyntheticClasses classes)
+            throws IOException {
+        final String name = entry.getClassName();
+        final int separator = name.lastIndexOf('.');
+        final String pkg = separator < 0 ? PACKAGE : name.substring(0, separator);
+        final String simpleName = name.substring(separator + 1);
+        String superclass = RuntimeException.class.getName();
+        for (int level = 1; level < entry.getDepth(); level++) {
+            superclass = classes.exceptionClass(pkg, simpleName + "Level" + level, superclass);
+        }
+        return classes.exceptionClass(pkg, simpleName, superclass);
+    }
+
+    /**
+     * Instantiates the given exception class, with its {@code (String)} or no-arguments constructor.
+     *
+     * @param klass The exception class.
+     * @return The new instance.
+     * @throws ReflectiveOperationException If the class could not be instantiated.
+     */
+    private static Throwable instantiate(final Class<?> klass) throws ReflectiveOperationException {
+        try {
+            return (Throwable) klass.getConstructor(String.class).newInstance("replayed");
+        } catch (NoSuchMethodException e) {
+            return (Throwable) klass.getConstructor().newInstance();
+        }
+    }
+
+    /**
+     * @param className A binary class name.
+     * @return {@code true} if the class can be loaded, or {@code false} otherwise.
+     */
+    private static boolean isLoadable(final String className) {
+        try {
+            Class.forName(className, false, Replay.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the given {@code workers}, each in its own thread, waiting for all of them to finish.
+     *
+     * @param workers The {@link Worker}s.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void run(final Worker[] workers) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            final Worker worker = workers[i];
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                worker.run();
+            }, "replay-" + i);
+            threads[i].start();
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Prints the report of the run.
+     *
+     * @param distribution  The replayed {@link ErrorDistribution}.
+     * @param exceptions    The replayed exceptions.
+     * @param errorHandler  The {@link ErrorHandler} that handled them.
+     * @param workers       The {@link Worker}s that replayed them.
+     * @param durationNanos The duration of the measurement.
+     * @param rate          The target rate (0 if none).
+     */
+    private static void report(final ErrorDistribution distribution, final Throwable[] exceptions,
+                               final ErrorHandler errorHandler, final Worker[] workers,
+                               final long durationNanos, final double rate) {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final long[] counts = new long[exceptions.length];
+        long allocatedBytes = 0;
+        boolean allocationMeasured = true;
+        for (final Worker worker : workers) {
+            latencies.merge(worker.latencies);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += worker.counts[i];
+            }
+            allocatedBytes += worker.allocatedBytes;
+            allocationMeasured &= worker.allocatedBytes >= 0;
+        }
+        final long total = latencies.getCount();
+        final double seconds = durationNanos / 1e9;
+
+        System.out.printf("Replayed %d exceptions in %.1f s with %d threads (target rate: %s)%n", total, seconds,
+                workers.length, rate > 0 ? String.format("%.0f/s", rate) : "none");
+        System.out.printf("Throughput: %.1f ops/s%n", total / seconds);
+        final StringBuilder percentiles = new StringBuilder("Latency (us):");
+        for (final double percentile : PERCENTILES) {
+            percentiles.append(String.format(" p%s=%.2f", percentile % 1 == 0 ? String.valueOf((int) percentile) :
+                    String.valueOf(percentile), latencies.getPercentile(percentile) / 1e3));
+        }
+        System.out.println(percentiles.append(String.format(" max=%.2f", latencies.getMax() / 1e3)));
+        System.out.println(allocationMeasured && total > 0 ?
+                String.format("Allocation: %.1f B/op", (double) allocatedBytes / total) :
+                "Allocation: not measured (unsupported by the JVM)");
+        System.out.println("Exceptions (class, handled count, share, status):");
+        final List<ErrorDistribution.Entry> entries = distribution.getEntries();
+        for (int i = 0; i < exceptions.length; i++) {
+            System.out.printf("  %s %d %.2f%% %d%n", entries.get(i).getClassName(), counts[i],
+                    total == 0 ? 0 : counts[i] * 100.0 / total, errorHandler.handle(exceptions[i]).getHttpErrorCode());
+        }
+    }
+
+    /**
+     * Parses the {@code --name value} options.
+     *
+     * @param args The command line arguments.
+     * @return The options, by name.
+     * @throws IllegalArgumentException If an argument is not an option with a value.
+     */
+    private static Map<String, String> parseOptions(final String[] args) throws IllegalArgumentException {
+        final Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --<option> <value>, but got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * @param options The options.
+     * @param name    The name of a required option.
+     * @return The value of the option.
+     * @throws IllegalArgumentException If the option is missing.
+     */
+    private static String required(final Map<String, String> options, final String name)
+            throws IllegalArgumentException {
+        return Optional.ofNullable(options.get(name))
+                .orElseThrow(() -> new IllegalArgumentException("The --" + name + " option is required"));
+    }
+
+    /**
+     * @param value A comma separated list (null if none).
+     * @return The elements of the list.
+     */
+    private static List<String> list(final String value) {
+        return value == null ? Collections.emptyList() : Arrays.asList(value.split("\\s*,\\s*"));
+    }
+
+
+    /**
+     * Replays the distribution in a thread, recording into its own histogram and counters.
+     */
+    private static final class Worker implements Runnable {
+
+        /**
+         * The {@link ErrorHandler} that handles the exceptions.
+         */
+        private final ErrorHandler errorHandler;
+
+        /**
+         * The replayed {@link ErrorDistribution}.
+         */
+        private final ErrorDistribution distribution;
+
+        /**
+         * The instances of the exceptions of the distribution.
+         */
+        private final Throwable[] exceptions;
+
+        /**
+         * The {@link SplittableRandom} used to pick the exceptions.
+         */
+        private final SplittableRandom random;
+
+        /**
+         * The time between two scheduled exceptions (0 to replay as fast as possible).
+         */
+        private final long intervalNanos;
+
+        /**
+         * The duration of the warm-up.
+         */
+        private final long warmUpNanos;
+
+        /**
+         * The duration of the measurement.
+         */
+        private final long durationNanos;
+
+        /**
+         * The latencies measured (after the warm-up).
+         */
+        private final LatencyHistogram latencies;
+
+        /**
+         * The amount of handled instances of each exception (after the warm-up).
+         */
+        private final long[] counts;
+
+        /**
+         * The bytes allocated by the thread during the measurement (-1 if it could not be measured).
+         */
+        private long allocatedBytes;
+
+
+        /**
+         * Constructor.
+         *
+         * @param errorHandler  The {@link ErrorHandler} that handles the exceptions.
+         * @param distribution  The replayed {@link ErrorDistribution}.
+         * @param exceptions    The instances of the exceptions of the distribution.
+         * @param random        The {@link SplittableRandom} used to pick the exceptions.
+         * @param intervalNanos The time between two scheduled exceptions (0 to replay as fast as possible).
+         * @param warmUpNanos   The duration of the warm-up.
+         * @param durationNanos The duration of the measurement.
+         */
+        private Worker(final ErrorHandler errorHandler, final ErrorDistribution distribution,
+                       final Throwable[] exceptions, final SplittableRandom random, final long intervalNanos,
+                       final long warmUpNanos, final long durationNanos) {
+            this.errorHandler = errorHandler;
+            this.distribution = distribution;
+            this.exceptions = exceptions;
+            this.random = random;
+            this.intervalNanos = intervalNanos;
+            this.warmUpNanos = warmUpNanos;
+            this.durationNanos = durationNanos;
+            this.latencies = new LatencyHistogram();
+            this.counts = new long[exceptions.length];
+            this.allocatedBytes = -1;
+        }
+
+        @Override
+        public void run() {
+            final List<ErrorDistribution.Entry> entries = distribution.getEntries();
+            final long start = System.nanoTime();
+            final long measurementStart = start + warmUpNanos;
+            final long end = measurementStart + durationNanos;
+            long scheduled = start;
+            long startAllocatedBytes = -1;
+            int current = 0;
+            int remaining = 0;
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                if (intervalNanos > 0) {
+                    scheduled += intervalNanos;
+                    // Park while far from the schedule, and spin close to it, as parking overshoots
+                    while (now < scheduled) {
+                        if (scheduled - now > SPIN_NANOS) {
+                            LockSupport.parkNanos(scheduled - now - SPIN_NANOS);
+                        }
+                        now = System.nanoTime();
+                    }
+                } else {
+                    scheduled = now;
+                }
+                if (remaining == 0) {
+                    current = distribution.pick(random);
+                    remaining = entries.get(current).getBurst();
+                }
+                remaining--;
+                final boolean measured = scheduled >= measurementStart;
+                if (measured && startAllocatedBytes < 0) {
+                    startAllocatedBytes = allocatedBytes();
+                }
+                errorHandler.handle(exceptions[current]);
+                if (measured) {
+                    latencies.record(System.nanoTime() - scheduled);
+                    counts[current]++;
+                }
+            }
+            final long endAllocatedBytes = allocatedBytes();
+            if (startAllocatedBytes >= 0 && endAllocatedBytes >= 0) {
+                this.allocatedBytes = endAllocatedBytes - startAllocatedBytes;
+            }
+        }
+
+        /**
+         * @return The bytes allocated by the current thread so far (-1 if it can not be measured).
+         */
+        private static long allocatedBytes() {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) threadMXBean)
+                        .getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks;
+
+import com.bellotapps.utils.error_handler.ExceptionHandlerObject;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generates exception and {@link BenchmarkExceptionHandler} classes into a temporary directory,
+ * so benchmarks can build hierarchies and handler sets of any size that can be scanned like real ones.
+ * Generated classes are loaded by a dedicated {@link ClassLoader}, which is discarded when this object is closed.
+ */
+/* package */ final class SyntheticClasses implements Closeable {
+
+    /**
+     * Internal name of the base class of the generated handlers.
+     */
+    private static final String HANDLER_SUPERCLASS = Type.getInternalName(BenchmarkExceptionHandler.class);
+
+    /**
+     * Descriptor of the annotation that makes the generated handlers visible to package scanning.
+     */
+    private static final String HANDLER_ANNOTATION = Type.getDescriptor(ExceptionHandlerObject.class);
+
+    /**
+     * The directory in which the generated classes are written.
+     */
+    private final Path directory;
+
+    /**
+     * The {@link URLClassLoader} that loads the generated classes (created on first use).
+     */
+    private URLClassLoader classLoader;
+
+
+    /**
+     * Constructor.
+     *
+     * @throws IOException If the temporary directory could not be created.
+     */
+    /* package */ SyntheticClasses() throws IOException {
+        this.directory = Files.createTempDirectory("error-handler-benchmarks");
+    }
+
+
+    /**
+     * Generates an exception class with a public no-arguments constructor.
+     *
+     * @param pkg            The package of the class.
+     * @param simpleName     The simple name of the class.
+     * @param superclassName The binary name of the superclass (a {@link Throwable}).
+     * @return The binary name of the generated class.
+     * @throws IOException If the class file could not be written.
+     */
+    /* package */ String exceptionClass(final String pkg, final String simpleName, final String superclassName)
+            throws IOException {
+        final String name = pkg + "." + simpleName;
+        final String superclass = internalName(superclassName);
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName(name), null, superclass, null);
+        defaultConstructor(writer, superclass);
+        writer.visitEnd();
+        write(name, writer.toByteArray());
+        return name;
+    }
+
+    /**
+     * Generates an {@link ExceptionHandlerObject} annotated subclass of {@link BenchmarkExceptionHandler}
+     * that handles the given exception class.
+     *
+     * @param pkg                The package of the class.
+     * @param simpleName         The simple name of the class.
+     * @param exceptionClassName The binary name of the handled exception class.
+     * @return The binary name of the generated class.
+     * @throws IOException If the class file could not be written.
+     */
+    /* package */ String handlerClass(final String pkg, final String simpleName, final String exceptionClassName)
+            throws IOException {
+        final String name = pkg + "." + simpleName;
+        final String signature = "L" + HANDLER_SUPERCLASS + "<L" + internalName(exceptionClassName) + ";>;";
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName(name), signature,
+                HANDLER_SUPERCLASS, null);
+        writer.visitAnnotation(HANDLER_ANNOTATION, true).visitEnd();
+        defaultConstructor(writer, HANDLER_SUPERCLASS);
+        writer.visitEnd();
+        write(name, writer.toByteArray());
+        return name;
+    }
+
+    /**
+     * @return The {@link ClassLoader} from which the generated classes can be loaded.
+     * Classes generated after the first call to this method might not be visible to it.
+     */
+    /* package */ ClassLoader classLoader() {
+        if (classLoader == null) {
+            try {
+                classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()},
+                        SyntheticClasses.class.getClassLoader());
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not create the class loader for generated classes", e);
+            }
+        }
+        return classLoader;
+    }
+
+    /**
+     * Instantiates a generated {@link Throwable} class using its no-arguments constructor.
+     *
+     * @param name The binary name of the class.
+     * @return The new instance.
+     * @throws ReflectiveOperationException If the class could not be loaded or instantiated.
+     */
+    /* package */ Throwable newThrowable(final String name) throws ReflectiveOperationException {
+        return (Throwable) Class.forName(name, true, classLoader()).getConstructor().newInstance();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (classLoader != null) {
+            classLoader.close();
+        }
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+
+    /**
+     * Writes the bytecode of the given class in the directory (creating the package directories as needed).
+     *
+     * @param name     The binary name of the class.
+     * @param bytecode The class bytecode.
+     * @throws IOException If the file could not be written.
+     */
+    private void write(final String name, final byte[] bytecode) throws IOException {
+        final Path file = directory.resolve(internalName(name) + ".class");
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytecode);
+    }
+
+    /**
+     * Adds a public no-arguments constructor that calls the superclass' no-arguments constructor.
+     *
+     * @param writer     The {@link ClassWriter} of the class being generated.
+     * @param superclass The internal name of the superclass.
+     */
+    private static void defaultConstructor(final ClassWriter writer, final String superclass) {
+        final MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, superclass, "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+    }
+
+    /**
+     * @param binaryName A binary class name (e.g {@code java.lang.Throwable}).
+     * @return The internal name of the class (e.g {@code java/lang/Throwable}).
+     */
+    private static String internalName(final String binaryName) {
+        return binaryName.replace('.', '/');
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.benchmarks.patterns;
+
+import com.bellotapps.utils.error_handler.ExceptionHandlerObject;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.MessagePattern;
+import com.bellotapps.utils.error_handler.MessagePatternExceptionHandler;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The {@link MessagePatternExceptionHandler} scanned by the
+ * {@link com.bellotapps.utils.error_handler.benchmarks.MessagePatternBenchmark}, whose patterns are set by the
+ * benchmark before creating the error handler (as they depend on its parameters).
+ */
+@ExceptionHandlerObject
+public class PatternBenchmarkHandler implements MessagePatternExceptionHandler<IllegalStateException, String> {
+
+    /**
+     * The result returned by this handler.
+     */
+    private static final HandlingResult<String> RESULT = HandlingResult.withPayload(503, "benchmark");
+
+    /**
+     * The patterns of the handler.
+     */
+    private static volatile Set<MessagePattern> patterns = Collections.emptySet();
+
+    @Override
+    public Set<MessagePattern> getPatterns() {
+        return patterns;
+    }
+
+    @Override
+    public HandlingResult<String> handle(final IllegalStateException exception) {
+        return RESULT;
+    }
+
+    /**
+     * Sets the patterns of the handlers created after this call.
+     *
+     * @param patterns The patterns.
+     */
+    public static void setPatterns(final Set<MessagePattern> patterns) {
+        PatternBenchmarkHandler.patterns = patterns;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.grpc;
+
+import com.bellotapps.utils.error_handler.HandlingContext;
+import io.grpc.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * gRPC {@link ServerInterceptor} that routes the failures of the calls through a {@link GrpcErrorMapper}
+ * (and so, through an {@link com.bellotapps.utils.error_handler.ErrorHandler}), closing them with the mapped
+ * {@link Status} and trailers.
+ * <p>
+ * Failures are exceptions thrown by the service methods, and calls closed with a non OK {@link Status} that has a
+ * cause (e.g passed to {@code StreamObserver#onError}), unless the cause already is a
+ * {@link StatusException} or a {@link StatusRuntimeException} (i.e the service chose the status).
+ * Thrown {@link StatusRuntimeException}s close the call with their own {@link Status} and trailers.
+ * Exceptions are handled in an {@link HandlingContext#empty()} context.
+ */
+public final class ErrorHandlerServerInterceptor implements ServerInterceptor {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ErrorHandlerServerInterceptor.class);
+
+    /**
+     * The {@link GrpcErrorMapper} that handles and maps the failures.
+     */
+    private final GrpcErrorMapper mapper;
+
+
+    /**
+     * Constructor.
+     *
+     * @param mapper The {@link GrpcErrorMapper} that handles and maps the failures.
+     */
+    public ErrorHandlerServerInterceptor(final GrpcErrorMapper mapper) {
+        Assert.notNull(mapper, "The mapper must not be null");
+        this.mapper = mapper;
+    }
+
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(final ServerCall<Q, R> call, final Metadata headers,
+                                                       final ServerCallHandler<Q, R> next) {
+        final MappingServerCall<Q, R> mappingCall = new MappingServerCall<>(call);
+        return new MappingListener<>(next.startCall(mappingCall, headers), mappingCall);
+    }
+
+
+    /**
+     * {@link ServerCall} that maps the failures with which it is closed.
+     *
+     * @param <Q> The type of request messages.
+     * @param <R> The type of response messages.
+     */
+    private final class MappingServerCall<Q, R> extends ForwardingServerCall.SimpleForwardingServerCall<Q, R> {
+
+        /**
+         * Constructor.
+         *
+         * @param delegate The actual {@link ServerCall}.
+         */
+        private MappingServerCall(final ServerCall<Q, R> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            final Throwable cause = status.getCause();
+            if (status.isOk() || cause == null
+                    || cause instanceof StatusException || cause instanceof StatusRuntimeException) {
+                super.close(status, trailers);
+                return;
+            }
+            fail(cause);
+        }
+
+        /**
+         * Closes the call with the {@link GrpcError} into which the given {@code failure} is mapped.
+         *
+         * @param failure The failure.
+         */
+        private void fail(final Throwable failure) {
+            if (failure instanceof StatusRuntimeException) {
+                // The service chose the status (gRPC would otherwise close the call with UNKNOWN)
+                final StatusRuntimeException statusException = (StatusRuntimeException) failure;
+                final Metadata trailers = statusException.getTrailers();
+                super.close(statusException.getStatus(), trailers == null ? new Metadata() : trailers);
+                return;
+            }
+            final GrpcError error = mapper.map(failure, HandlingContext.empty());
+            LOGGER.debug("Closing call with {}, as {} was thrown", error.getStatus(), failure.getClass().getName());
+            super.close(error.getStatus(), error.newTrailers());
+        }
+    }
+
+    /**
+     * {@link ServerCall.Listener} that maps the exceptions thrown by the service methods.
+     *
+     * @param <Q> The type of request messages.
+     * @param <R> The type of response messages.
+     */
+    private static final class MappingListener<Q, R>
+            extends ForwardingServerCallListener.SimpleForwardingServerCallListener<Q> {
+
+        /**
+         * The call, that is closed when an exception is thrown.
+         */
+        private final MappingServerCall<Q, R> call;
+
+        /**
+         * Constructor.
+         *
+         * @param delegate The actual {@link ServerCall.Listener}.
+         * @param call     The call, that is closed when an exception is thrown.
+         */
+        private MappingListener(final ServerCall.Listener<Q> delegate, final MappingServerCall<Q, R> call) {
+            super(delegate);
+            this.call = call;
+        }
+
+        @Override
+        public void onMessage(final Q message) {
+            try {
+                super.onMessage(message);
+            } catch (RuntimeException e) {
+                call.fail(e);
+            }
+        }
+
+        @Override
+        public void onHalfClose() {
+            try {
+                super.onHalfClose();
+            } catch (RuntimeException e) {
+                call.fail(e);
+            }
+        }
+
+        @Override
+        public void onReady() {
+            try {
+                super.onReady();
+            } catch (RuntimeException e) {
+                call.fail(e);
+            }
+        }
+    }
+}
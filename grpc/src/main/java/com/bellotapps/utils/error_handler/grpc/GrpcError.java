@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.grpc;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+
+/**
+ * A {@link com.bellotapps.utils.error_handler.HandlingResult} mapped into gRPC terms:
+ * the {@link Status} with which the call is closed, and the encoded entity sent as trailers (if any).
+ * Instances are immutable, so they are cached for constant results.
+ *
+ * @see GrpcErrorMapper
+ */
+public final class GrpcError {
+
+    /**
+     * The {@link Status} with which the call is closed.
+     */
+    private final Status status;
+
+    /**
+     * The encoded entity (null if none, or entities are not sent).
+     */
+    private final byte[] entity;
+
+    /**
+     * The media type of the encoded entity (null if none).
+     */
+    private final String entityType;
+
+
+    /**
+     * Constructor.
+     *
+     * @param status     The {@link Status} with which the call is closed.
+     * @param entity     The encoded entity (null if none, or entities are not sent).
+     * @param entityType The media type of the encoded entity (null if none).
+     */
+    /* package */ GrpcError(final Status status, final byte[] entity, final String entityType) {
+        this.status = status;
+        this.entity = entity;
+        this.entityType = entityType;
+    }
+
+
+    /**
+     * @return The {@link Status} with which the call is closed.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Creates the trailers of the call (a new {@link Metadata} each time, as it is mutable),
+     * holding the encoded entity (if any) in {@link GrpcErrorMapper#ENTITY_KEY},
+     * and its media type in {@link GrpcErrorMapper#ENTITY_TYPE_KEY}.
+     * The encoded entity is not copied.
+     *
+     * @return The trailers.
+     */
+    public Metadata newTrailers() {
+        final Metadata trailers = new Metadata();
+        if (entity != null) {
+            trailers.put(GrpcErrorMapper.ENTITY_KEY, entity);
+            trailers.put(GrpcErrorMapper.ENTITY_TYPE_KEY, entityType);
+        }
+        return trailers;
+    }
+
+    @Override
+    public String toString() {
+        return "GrpcError{status=" + status + ", entityType=" + entityType + "}";
+    }
+}
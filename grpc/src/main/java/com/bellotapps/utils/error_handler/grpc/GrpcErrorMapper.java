@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.grpc;
+
+import com.bellotapps.utils.error_handler.EncodedEntity;
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.HandlingContext;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Handles exceptions with an {@link ErrorHandler}, mapping the {@link HandlingResult}s into {@link GrpcError}s.
+ * <p>
+ * The code of the {@link Status} is taken from a {@link GrpcStatusMapping}, and text entities are set as its
+ * description. Optionally, the entity is sent encoded in the {@link #ENTITY_KEY} binary trailer
+ * ({@link EncodedEntity}s as they are, other entities as UTF-8 text).
+ * <p>
+ * The last {@link GrpcError} of each exception class is cached together with the result it was mapped from,
+ * so constant results (e.g cached variants, or results kept in constants) are mapped and encoded just once.
+ */
+public final class GrpcErrorMapper {
+
+    /**
+     * The binary trailer holding the encoded entity.
+     */
+    public static final Metadata.Key<byte[]> ENTITY_KEY =
+            Metadata.Key.of("error-entity-bin", Metadata.BINARY_BYTE_MARSHALLER);
+
+    /**
+     * The trailer holding the media type of the encoded entity.
+     */
+    public static final Metadata.Key<String> ENTITY_TYPE_KEY =
+            Metadata.Key.of("error-entity-type", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * The media type of the entities that are not {@link EncodedEntity}s.
+     */
+    private static final String TEXT_TYPE = "text/plain;charset=UTF-8";
+
+    /**
+     * The {@link ErrorHandler} that handles the exceptions.
+     */
+    private final ErrorHandler errorHandler;
+
+    /**
+     * The {@link GrpcStatusMapping} used to map the HTTP status codes.
+     */
+    private final GrpcStatusMapping statusMapping;
+
+    /**
+     * Indicates whether entities are sent as trailers.
+     */
+    private final boolean entityTrailers;
+
+    /**
+     * The last mapped result of each exception class.
+     */
+    private final ClassValue<Slot> lastMapped;
+
+
+    /**
+     * Constructor, using the {@link GrpcStatusMapping#defaults()}, and sending entities as trailers.
+     *
+     * @param errorHandler The {@link ErrorHandler} that handles the exceptions.
+     */
+    public GrpcErrorMapper(final ErrorHandler errorHandler) {
+        this(errorHandler, GrpcStatusMapping.defaults(), true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param errorHandler   The {@link ErrorHandler} that handles the exceptions.
+     * @param statusMapping  The {@link GrpcStatusMapping} used to map the HTTP status codes.
+     * @param entityTrailers Indicates whether entities are sent as trailers.
+     */
+    public GrpcErrorMapper(final ErrorHandler errorHandler, final GrpcStatusMapping statusMapping,
+                           final boolean entityTrailers) {
+        Assert.notNull(errorHandler, "The error handler must not be null");
+        Assert.notNull(statusMapping, "The status mapping must not be null");
+        this.errorHandler = errorHandler;
+        this.statusMapping = statusMapping;
+        this.entityTrailers = entityTrailers;
+        this.lastMapped = new ClassValue<Slot>() {
+            @Override
+            protected Slot computeValue(final Class<?> type) {
+                return new Slot();
+            }
+        };
+    }
+
+
+    /**
+     * Handles the given {@code exception}, and maps the result into a {@link GrpcError}.
+     *
+     * @param exception The exception to be handled.
+     * @param context   The {@link HandlingContext} in which the exception is handled.
+     * @return The {@link GrpcError}.
+     */
+    public GrpcError map(final Throwable exception, final HandlingContext context) {
+        final HandlingResult<?> result = errorHandler.handle(exception, context);
+        if (result == null) {
+            return new GrpcError(Status.INTERNAL, null, null);
+        }
+        final Slot slot = lastMapped.get(exception.getClass());
+        final Mapped mapped = slot.mapped;
+        if (mapped != null && mapped.result == result) {
+            return mapped.error;
+        }
+        final GrpcError error = toGrpcError(result);
+        slot.mapped = new Mapped(result, error);
+        return error;
+    }
+
+
+    /**
+     * Maps the given {@code result} into a {@link GrpcError}.
+     *
+     * @param result The {@link HandlingResult}.
+     * @return The {@link GrpcError}.
+     */
+    private GrpcError toGrpcError(final HandlingResult<?> result) {
+        final Object entity = result.getErrorRepresentationEntity();
+        Status status = statusMapping.toGrpcCode(result.getHttpErrorCode()).toStatus();
+        if (entity instanceof CharSequence) {
+            status = status.withDescription(entity.toString());
+        }
+        if (!entityTrailers || entity == null) {
+            return new GrpcError(status, null, null);
+        }
+        if (entity instanceof EncodedEntity) {
+            final EncodedEntity encoded = (EncodedEntity) entity;
+            return new GrpcError(status, encoded.toByteArray(), encoded.getMediaType().toString());
+        }
+        return new GrpcError(status, entity.toString().getBytes(StandardCharsets.UTF_8), TEXT_TYPE);
+    }
+
+
+    /**
+     * Holds the last mapped result of an exception class.
+     */
+    private static final class Slot {
+
+        /**
+         * The last mapped result (null if none).
+         */
+        private volatile Mapped mapped;
+    }
+
+    /**
+     * A {@link HandlingResult}, together with the {@link GrpcError} it was mapped into.
+     */
+    private static final class Mapped {
+
+        /**
+         * The {@link HandlingResult}.
+         */
+        private final HandlingResult<?> result;
+
+        /**
+         * The {@link GrpcError}.
+         */
+        private final GrpcError error;
+
+        /**
+         * Constructor.
+         *
+         * @param result The {@link HandlingResult}.
+         * @param error  The {@link GrpcError}.
+         */
+        private Mapped(final HandlingResult<?> result, final GrpcError error) {
+            this.result = result;
+            this.error = error;
+        }
+    }
+}
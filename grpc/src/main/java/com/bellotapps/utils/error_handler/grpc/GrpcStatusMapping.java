@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.grpc;
+
+import io.grpc.Status;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Table that maps the HTTP status codes of the {@link com.bellotapps.utils.error_handler.HandlingResult}s
+ * into gRPC {@link Status.Code}s. Instances are immutable.
+ * <p>
+ * The {@link #defaults()} follow the usual equivalences (e.g 404 is {@link Status.Code#NOT_FOUND}).
+ * Codes without a mapping are {@link Status.Code#UNKNOWN}.
+ */
+public final class GrpcStatusMapping {
+
+    /**
+     * The amount of HTTP status codes that can be mapped (i.e from 0 to 599).
+     */
+    private static final int HTTP_CODES = 600;
+
+    /**
+     * The default mapping.
+     */
+    private static final GrpcStatusMapping DEFAULTS = new GrpcStatusMapping(new Status.Code[HTTP_CODES])
+            .with(400, Status.Code.INVALID_ARGUMENT)
+            .with(401, Status.Code.UNAUTHENTICATED)
+            .with(403, Status.Code.PERMISSION_DENIED)
+            .with(404, Status.Code.NOT_FOUND)
+            .with(408, Status.Code.DEADLINE_EXCEEDED)
+            .with(409, Status.Code.ALREADY_EXISTS)
+            .with(412, Status.Code.FAILED_PRECONDITION)
+            .with(416, Status.Code.OUT_OF_RANGE)
+            .with(429, Status.Code.RESOURCE_EXHAUSTED)
+            .with(499, Status.Code.CANCELLED)
+            .with(500, Status.Code.INTERNAL)
+            .with(501, Status.Code.UNIMPLEMENTED)
+            .with(503, Status.Code.UNAVAILABLE)
+            .with(504, Status.Code.DEADLINE_EXCEEDED);
+
+    /**
+     * The gRPC code of each HTTP status code (null if not mapped).
+     */
+    private final Status.Code[] codes;
+
+
+    /**
+     * Constructor.
+     *
+     * @param codes The gRPC code of each HTTP status code (null if not mapped).
+     */
+    private GrpcStatusMapping(final Status.Code[] codes) {
+        this.codes = codes;
+    }
+
+
+    /**
+     * Returns the gRPC code of the given {@code httpStatusCode}.
+     *
+     * @param httpStatusCode The HTTP status code.
+     * @return The mapped {@link Status.Code} ({@link Status.Code#UNKNOWN} if it is not mapped).
+     */
+    public Status.Code toGrpcCode(final int httpStatusCode) {
+        if (httpStatusCode < 0 || httpStatusCode >= HTTP_CODES || codes[httpStatusCode] == null) {
+            return Status.Code.UNKNOWN;
+        }
+        return codes[httpStatusCode];
+    }
+
+    /**
+     * Returns a copy of this mapping, mapping the given {@code httpStatusCode} into the given {@code grpcCode}.
+     *
+     * @param httpStatusCode The HTTP status code (from 0 to 599).
+     * @param grpcCode       The gRPC {@link Status.Code}.
+     * @return The new {@link GrpcStatusMapping}.
+     */
+    public GrpcStatusMapping with(final int httpStatusCode, final Status.Code grpcCode) {
+        Assert.isTrue(httpStatusCode >= 0 && httpStatusCode < HTTP_CODES, "The HTTP status code must be below 600");
+        Assert.notNull(grpcCode, "The gRPC code must not be null");
+        final Status.Code[] copy = Arrays.copyOf(codes, HTTP_CODES);
+        copy[httpStatusCode] = grpcCode;
+        return new GrpcStatusMapping(copy);
+    }
+
+
+    /**
+     * @return The default {@link GrpcStatusMapping}.
+     */
+    public static GrpcStatusMapping defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Creates a {@link GrpcStatusMapping} with just the given mappings.
+     *
+     * @param mappings A {@link Map} holding the gRPC {@link Status.Code} of each HTTP status code (from 0 to 599).
+     * @return The created {@link GrpcStatusMapping}.
+     */
+    public static GrpcStatusMapping of(final Map<Integer, Status.Code> mappings) {
+        Assert.notNull(mappings, "The mappings must not be null");
+        GrpcStatusMapping mapping = new GrpcStatusMapping(new Status.Code[HTTP_CODES]);
+        for (final Map.Entry<Integer, Status.Code> entry : mappings.entrySet()) {
+            mapping = mapping.with(entry.getKey(), entry.getValue());
+        }
+        return mapping;
+    }
+}
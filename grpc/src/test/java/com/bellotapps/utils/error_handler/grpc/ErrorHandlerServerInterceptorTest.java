@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.grpc;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.HandlingContext;
+import com.bellotapps.utils.error_handler.grpc.handlers.IllegalStateExceptionHandler;
+import io.grpc.*;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Testing class for {@link ErrorHandlerServerInterceptor} and {@link GrpcErrorMapper},
+ * using the in-process transport.
+ */
+public class ErrorHandlerServerInterceptorTest {
+
+    private static final String HANDLERS_PACKAGE = IllegalStateExceptionHandler.class.getPackage().getName();
+
+    private static final String SERVICE_NAME = "test.Failing";
+
+    private static final MethodDescriptor.Marshaller<String> STRING_MARSHALLER =
+            new MethodDescriptor.Marshaller<String>() {
+                @Override
+                public InputStream stream(String value) {
+                    return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public String parse(InputStream stream) {
+                    try {
+                        return StreamUtils.copyToString(stream, StandardCharsets.UTF_8);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+
+    private static final MethodDescriptor<String, String> FAIL_METHOD = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "Fail"))
+            .setRequestMarshaller(STRING_MARSHALLER)
+            .setResponseMarshaller(STRING_MARSHALLER)
+            .build();
+
+    private ErrorHandler errorHandler;
+
+    private Server server;
+
+    private ManagedChannel channel;
+
+    @Before
+    public void setUp() throws IOException {
+        this.errorHandler = new ErrorHandlerFactory(getClass().getClassLoader(), new StaticListableBeanFactory())
+                .createErrorHandler(HANDLERS_PACKAGE);
+        final ServerServiceDefinition service = ServerServiceDefinition.builder(SERVICE_NAME)
+                .addMethod(FAIL_METHOD, ServerCalls.asyncUnaryCall((request, responseObserver) -> {
+                    switch (request) {
+                        case "throw":
+                            throw new IllegalStateException("order");
+                        case "on-error":
+                            responseObserver.onError(new UnsupportedOperationException());
+                            return;
+                        case "status":
+                            throw Status.PERMISSION_DENIED.withDescription("chosen").asRuntimeException();
+                        default:
+                            responseObserver.onNext(request);
+                            responseObserver.onCompleted();
+                    }
+                }))
+                .build();
+        final String name = InProcessServerBuilder.generateName();
+        this.server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(service,
+                        new ErrorHandlerServerInterceptor(new GrpcErrorMapper(errorHandler))))
+                .build()
+                .start();
+        this.channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @After
+    public void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    public void testThrownExceptionsAreMapped() {
+        final StatusRuntimeException failure = call("throw");
+        Assert.assertEquals(Status.Code.NOT_FOUND, failure.getStatus().getCode());
+        Assert.assertEquals("not found: order", failure.getStatus().getDescription());
+        Assert.assertEquals("not found: order", new String(
+                failure.getTrailers().get(GrpcErrorMapper.ENTITY_KEY), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReportedExceptionsAreMapped() {
+        final StatusRuntimeException failure = call("on-error");
+        Assert.assertEquals(Status.Code.UNIMPLEMENTED, failure.getStatus().getCode());
+        Assert.assertEquals("application/json", failure.getTrailers().get(GrpcErrorMapper.ENTITY_TYPE_KEY));
+        Assert.assertEquals("{\"message\":\"unsupported\"}", new String(
+                failure.getTrailers().get(GrpcErrorMapper.ENTITY_KEY), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChosenStatusesAreKept() {
+        final StatusRuntimeException failure = call("status");
+        Assert.assertEquals(Status.Code.PERMISSION_DENIED, failure.getStatus().getCode());
+        Assert.assertEquals("chosen", failure.getStatus().getDescription());
+        Assert.assertEquals("ok", ClientCalls.blockingUnaryCall(channel, FAIL_METHOD, CallOptions.DEFAULT, "ok"));
+    }
+
+    @Test
+    public void testConstantResultsAreMappedOnce() {
+        final GrpcErrorMapper mapper = new GrpcErrorMapper(errorHandler,
+                GrpcStatusMapping.defaults().with(404, Status.Code.FAILED_PRECONDITION), false);
+        final GrpcError error = mapper.map(new UnsupportedOperationException(), HandlingContext.empty());
+        Assert.assertSame("The constant result was mapped again",
+                error, mapper.map(new UnsupportedOperationException(), HandlingContext.empty()));
+        Assert.assertNull("Entities were sent", error.newTrailers().get(GrpcErrorMapper.ENTITY_KEY));
+
+        final GrpcError illegalState = mapper.map(new IllegalStateException("order"), HandlingContext.empty());
+        Assert.assertEquals(Status.Code.FAILED_PRECONDITION, illegalState.getStatus().getCode());
+    }
+
+    /**
+     * Calls the failing method with the given {@code request}, expecting it to fail.
+     *
+     * @param request The request.
+     * @return The {@link StatusRuntimeException} with which the call failed.
+     */
+    private StatusRuntimeException call(final String request) {
+        try {
+            ClientCalls.blockingUnaryCall(channel, FAIL_METHOD, CallOptions.DEFAULT, request);
+        } catch (StatusRuntimeException e) {
+            return e;
+        }
+        throw new AssertionError("The call did not fail");
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.grpc.handlers;
+
+import com.bellotapps.utils.error_handler.EncodedEntity;
+import com.bellotapps.utils.error_handler.ExceptionHandler;
+import com.bellotapps.utils.error_handler.ExceptionHandlerObject;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * An {@link ExceptionHandler} for {@link UnsupportedOperationException}, that returns a constant result.
+ */
+@ExceptionHandlerObject
+public class UnsupportedOperationExceptionHandler
+        implements ExceptionHandler<UnsupportedOperationException, EncodedEntity> {
+
+    private static final HandlingResult<EncodedEntity> RESULT = HandlingResult.withPayload(501,
+            EncodedEntity.of(MimeTypeUtils.APPLICATION_JSON, "{\"message\":\"unsupported\"}"));
+
+    @Override
+    public HandlingResult<EncodedEntity> handle(UnsupportedOperationException exception) {
+        return RESULT;
+    }
+}
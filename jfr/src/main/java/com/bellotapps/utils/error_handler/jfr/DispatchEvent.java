@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.jfr;
+
+import com.bellotapps.utils.error_handler.ErrorHandlerTracer;
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event of the resolution of the handlers of an exception by an error handler.
+ * Its duration is the one of the resolution (i.e short when cached), and it records the chosen handler.
+ * Emitted for each handled exception, so it is disabled by default, and has no stack trace.
+ */
+@Name("com.bellotapps.errorhandler.Dispatch")
+@Label("Error Dispatch")
+@Description("Resolution of the handler of an exception")
+@Category(FlightRecorderTracer.CATEGORY)
+@Enabled(false)
+@StackTrace(false)
+/* package */ final class DispatchEvent extends Event implements ErrorHandlerTracer.DispatchSpan {
+
+    @Label("Exception Class")
+    /* package */ Class<?> exceptionClass;
+
+    @Label("Handler Class")
+    @Description("The class of the handler that handled the exception")
+    /* package */ Class<?> handlerClass;
+
+    @Label("Cached")
+    @Description("Whether the handlers of the exception class were already resolved")
+    /* package */ boolean cached;
+
+    @Label("Declined")
+    @Description("The amount of handlers that declined the exception before the chosen one")
+    /* package */ int declined;
+
+    @Override
+    public void commit(final Class<?> exceptionClass, final Class<?> handlerClass, final boolean cached,
+                       final int declined) {
+        if (shouldCommit()) {
+            this.exceptionClass = exceptionClass;
+            this.handlerClass = handlerClass;
+            this.cached = cached;
+            this.declined = declined;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.jfr;
+
+import com.bellotapps.utils.error_handler.ErrorHandlerTracer;
+
+/**
+ * {@link ErrorHandlerTracer} that records the spans as JDK Flight Recorder events
+ * ({@link DispatchEvent}, {@link HandlerExecutionEvent}, {@link PackageScanEvent}
+ * and {@link HandlerInstantiationEvent}). It is declared as a service, so it is used just by being in the classpath.
+ * <p>
+ * Events are only begun when enabled in a recording
+ * (i.e when no recording enables them, the cost is an allocation that is usually scalar-replaced, and a check).
+ */
+public final class FlightRecorderTracer implements ErrorHandlerTracer {
+
+    /**
+     * The category of the events.
+     */
+    /* package */ static final String CATEGORY = "Error Handler";
+
+    @Override
+    public DispatchSpan beginDispatch() {
+        final DispatchEvent event = new DispatchEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public HandlerExecutionSpan beginHandlerExecution() {
+        final HandlerExecutionEvent event = new HandlerExecutionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public PackageScanSpan beginPackageScan() {
+        final PackageScanEvent event = new PackageScanEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public HandlerInstantiationSpan beginHandlerInstantiation() {
+        final HandlerInstantiationEvent event = new HandlerInstantiationEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public String toString() {
+        return "FlightRecorderTracer";
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.jfr;
+
+import com.bellotapps.utils.error_handler.ErrorHandlerTracer;
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event of the execution of an exception handler (within its budget, if it has one).
+ * Only executions longer than the threshold (1 ms by default) are recorded, without stack trace.
+ */
+@Name("com.bellotapps.errorhandler.HandlerExecution")
+@Label("Exception Handler Execution")
+@Description("Execution of an exception handler")
+@Category(FlightRecorderTracer.CATEGORY)
+@Threshold("1 ms")
+@StackTrace(false)
+/* package */ final class HandlerExecutionEvent extends Event implements ErrorHandlerTracer.HandlerExecutionSpan {
+
+    @Label("Exception Class")
+    /* package */ Class<?> exceptionClass;
+
+    @Label("Handler Class")
+    /* package */ Class<?> handlerClass;
+
+    @Label("Declined")
+    @Description("Whether the handler declined the exception")
+    /* package */ boolean declined;
+
+    @Label("Status")
+    @Description("The HTTP status code of the result (-1 if none)")
+    /* package */ int status;
+
+    @Override
+    public void end(final Class<?> exceptionClass, final Class<?> handlerClass, final boolean declined,
+                    final int status) {
+        end();
+        if (shouldCommit()) {
+            this.exceptionClass = exceptionClass;
+            this.handlerClass = handlerClass;
+            this.declined = declined;
+            this.status = status;
+            commit();
+        }
+    }
+}
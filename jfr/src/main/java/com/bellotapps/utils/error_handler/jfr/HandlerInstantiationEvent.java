@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.jfr;
+
+import com.bellotapps.utils.error_handler.ErrorHandlerTracer;
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event of getting (from the bean factory) or instantiating an exception handler
+ * found by an error handler factory. Recorded without stack trace (it is always within a package scan).
+ */
+@Name("com.bellotapps.errorhandler.HandlerInstantiation")
+@Label("Exception Handler Instantiation")
+@Description("Getting or instantiating an exception handler")
+@Category(FlightRecorderTracer.CATEGORY)
+@StackTrace(false)
+/* package */ final class HandlerInstantiationEvent extends Event
+        implements ErrorHandlerTracer.HandlerInstantiationSpan {
+
+    @Label("Handler Class")
+    /* package */ Class<?> handlerClass;
+
+    @Label("From Bean")
+    @Description("Whether the handler is a bean of the bean factory")
+    /* package */ boolean fromBean;
+
+    @Override
+    public void end(final Class<?> handlerClass, final boolean fromBean) {
+        end();
+        if (shouldCommit()) {
+            this.handlerClass = handlerClass;
+            this.fromBean = fromBean;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.jfr;
+
+import com.bellotapps.utils.error_handler.ErrorHandlerTracer;
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event of the scanning of a package for exception handlers by an error handler factory
+ * (including getting or instantiating them). Recorded with its stack trace (i.e who triggered the scan).
+ */
+@Name("com.bellotapps.errorhandler.PackageScan")
+@Label("Exception Handlers Package Scan")
+@Description("Scanning of a package for exception handlers")
+@Category(FlightRecorderTracer.CATEGORY)
+@StackTrace(true)
+/* package */ final class PackageScanEvent extends Event implements ErrorHandlerTracer.PackageScanSpan {
+
+    @Label("Package")
+    /* package */ String packageName;
+
+    @Label("Handlers")
+    @Description("The amount of handlers found in the package")
+    /* package */ int handlers;
+
+    @Override
+    public void end(final String packageName, final int handlers) {
+        end();
+        if (shouldCommit()) {
+            this.packageName = packageName;
+            this.handlers = handlers;
+            commit();
+        }
+    }
+}
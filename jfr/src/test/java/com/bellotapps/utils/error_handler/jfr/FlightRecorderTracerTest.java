@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.jfr;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.jfr.handlers.UnsupportedOperationExceptionHandler;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Testing class for the {@link FlightRecorderTracer}.
+ */
+public class FlightRecorderTracerTest {
+
+    private static final String SCANNED_PACKAGE = UnsupportedOperationExceptionHandler.class.getPackage().getName();
+
+    @Test
+    public void testEventsAreRecorded() throws IOException {
+        final Path file = Files.createTempFile("error-handler", ".jfr");
+        try (final Recording recording = new Recording()) {
+            recording.enable(DispatchEvent.class);
+            recording.enable(HandlerExecutionEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(PackageScanEvent.class);
+            recording.enable(HandlerInstantiationEvent.class);
+            recording.start();
+            final ErrorHandler errorHandler = new ErrorHandlerFactory(getClass().getClassLoader(),
+                    new StaticListableBeanFactory()).createErrorHandler(SCANNED_PACKAGE);
+            errorHandler.handle(new UnsupportedOperationException("first"));
+            errorHandler.handle(new UnsupportedOperationException("second"));
+            recording.stop();
+            recording.dump(file);
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            final List<RecordedEvent> dispatches = ofType(events, "com.bellotapps.errorhandler.Dispatch");
+            Assert.assertEquals(2, dispatches.size());
+            Assert.assertFalse("The first resolution was cached", dispatches.get(0).getBoolean("cached"));
+            Assert.assertTrue("The second resolution was not cached", dispatches.get(1).getBoolean("cached"));
+            Assert.assertEquals(UnsupportedOperationExceptionHandler.class.getName(),
+                    dispatches.get(0).getClass("handlerClass").getName());
+            Assert.assertNull("Dispatches recorded their stack trace", dispatches.get(0).getStackTrace());
+            final List<RecordedEvent> executions = ofType(events, "com.bellotapps.errorhandler.HandlerExecution");
+            Assert.assertEquals(2, executions.size());
+            Assert.assertEquals(501, executions.get(0).getInt("status"));
+            final List<RecordedEvent> scans = ofType(events, "com.bellotapps.errorhandler.PackageScan");
+            Assert.assertEquals(1, scans.size());
+            Assert.assertEquals(SCANNED_PACKAGE, scans.get(0).getString("packageName"));
+            Assert.assertEquals(1, scans.get(0).getInt("handlers"));
+            Assert.assertNotNull("The scan did not record its stack trace", scans.get(0).getStackTrace());
+            final List<RecordedEvent> instantiations =
+                    ofType(events, "com.bellotapps.errorhandler.HandlerInstantiation");
+            Assert.assertEquals(1, instantiations.size());
+            Assert.assertFalse(instantiations.get(0).getBoolean("fromBean"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testNothingIsBegunWhenNotRecording() {
+        final FlightRecorderTracer tracer = new FlightRecorderTracer();
+        Assert.assertNull(tracer.beginDispatch());
+        Assert.assertNull(tracer.beginHandlerExecution());
+        Assert.assertNull(tracer.beginPackageScan());
+        Assert.assertNull(tracer.beginHandlerInstantiation());
+    }
+
+    /**
+     * Returns the given {@code events} of the given type, in order.
+     *
+     * @param events The recorded events.
+     * @param type   The name of the type of event.
+     * @return The events of the given type, sorted by start time.
+     */
+    private static List<RecordedEvent> ofType(final List<RecordedEvent> events, final String type) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(type))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.jfr.handlers;
+
+import com.bellotapps.utils.error_handler.ExceptionHandler;
+import com.bellotapps.utils.error_handler.ExceptionHandlerObject;
+import com.bellotapps.utils.error_handler.HandlingResult;
+
+/**
+ * An {@link ExceptionHandler} for {@link UnsupportedOperationException}.
+ */
+@ExceptionHandlerObject
+public class UnsupportedOperationExceptionHandler implements ExceptionHandler<UnsupportedOperationException, String> {
+
+    @Override
+    public HandlingResult<String> handle(UnsupportedOperationException exception) {
+        return HandlingResult.withPayload(501, "not implemented: " + exception.getMessage());
+    }
+}
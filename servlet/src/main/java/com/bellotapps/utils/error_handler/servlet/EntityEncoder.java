@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.servlet;
+
+import com.bellotapps.utils.error_handler.EncodedEntity;
+import com.bellotapps.utils.error_handler.HandlingContext;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the entities of the {@link com.bellotapps.utils.error_handler.HandlingResult}s
+ * that are not already encoded (i.e those that are not {@link EncodedEntity}s), in order to write them in a response.
+ * <p>
+ * Handlers that return the same representation each time should return {@link EncodedEntity}s instead
+ * (e.g through a {@link com.bellotapps.utils.error_handler.VariantExceptionHandler}),
+ * so they are encoded just once, and written as they are.
+ */
+@FunctionalInterface
+public interface EntityEncoder {
+
+    /**
+     * Encodes entities as plain text (i.e their {@link Object#toString()}), in UTF-8.
+     */
+    EntityEncoder TEXT = new EntityEncoder() {
+
+        /**
+         * The media type of the encoded entities.
+         */
+        private final MimeType textPlain = new MimeType("text", "plain", StandardCharsets.UTF_8);
+
+        @Override
+        public EncodedEntity encode(final Object entity, final HandlingContext context) {
+            return EncodedEntity.of(textPlain, entity.toString());
+        }
+    };
+
+    /**
+     * Encodes the given {@code entity}.
+     *
+     * @param entity  The entity to be encoded (never null).
+     * @param context The {@link HandlingContext} in which the exception was handled
+     *                (e.g to select the media type according to the accepted ones).
+     * @return The {@link EncodedEntity}.
+     */
+    EncodedEntity encode(final Object entity, final HandlingContext context);
+}
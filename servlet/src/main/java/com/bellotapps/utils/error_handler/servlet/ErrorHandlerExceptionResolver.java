@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.util.Assert;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Spring MVC {@link HandlerExceptionResolver} that resolves every exception thrown by the controllers
+ * with an {@link ErrorResponseWriter} (i.e the response is completely written, so no view is rendered).
+ * <p>
+ * Register it as a bean in the web application context. By default it has the highest precedence,
+ * so it is used instead of the resolvers of Spring MVC (e.g those of {@code @ExceptionHandler} methods).
+ */
+public final class ErrorHandlerExceptionResolver implements HandlerExceptionResolver, Ordered {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ErrorHandlerExceptionResolver.class);
+
+    /**
+     * The {@link ErrorResponseWriter} that handles the exceptions and writes the responses.
+     */
+    private final ErrorResponseWriter writer;
+
+    /**
+     * The order of this resolver among the others.
+     */
+    private final int order;
+
+
+    /**
+     * Constructor, with the highest precedence.
+     *
+     * @param writer The {@link ErrorResponseWriter} that handles the exceptions and writes the responses.
+     */
+    public ErrorHandlerExceptionResolver(final ErrorResponseWriter writer) {
+        this(writer, Ordered.HIGHEST_PRECEDENCE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param writer The {@link ErrorResponseWriter} that handles the exceptions and writes the responses.
+     * @param order  The order of this resolver among the others.
+     */
+    public ErrorHandlerExceptionResolver(final ErrorResponseWriter writer, final int order) {
+        Assert.notNull(writer, "The writer must not be null");
+        this.writer = writer;
+        this.order = order;
+    }
+
+
+    @Override
+    public ModelAndView resolveException(final HttpServletRequest request, final HttpServletResponse response,
+                                         final Object handler, final Exception exception) {
+        if (response.isCommitted()) {
+            return null; // Nothing can be written
+        }
+        try {
+            writer.handle(exception, request, response);
+        } catch (IOException e) {
+            LOGGER.debug("Could not write the response for {}", exception.getClass().getName(), e);
+        }
+        return new ModelAndView(); // The response is already written
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Servlet {@link Filter} that handles the exceptions thrown by the rest of the chain
+ * (i.e servlets and filters after it) with an {@link ErrorResponseWriter}.
+ * <p>
+ * {@link ServletException}s with a root cause are unwrapped, so the cause is handled.
+ * Exceptions thrown once the response is committed can not be written, so they are rethrown.
+ * Register it as the first filter, in order to handle the exceptions of the other ones.
+ */
+public final class ErrorHandlerFilter implements Filter {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ErrorHandlerFilter.class);
+
+    /**
+     * The {@link ErrorResponseWriter} that handles the exceptions and writes the responses.
+     */
+    private final ErrorResponseWriter writer;
+
+
+    /**
+     * Constructor.
+     *
+     * @param writer The {@link ErrorResponseWriter} that handles the exceptions and writes the responses.
+     */
+    public ErrorHandlerFilter(final ErrorResponseWriter writer) {
+        Assert.notNull(writer, "The writer must not be null");
+        this.writer = writer;
+    }
+
+
+    @Override
+    public void init(final FilterConfig filterConfig) {
+        // Nothing to initialize
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            if (response.isCommitted()
+                    || !(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+                throw e;
+            }
+            final Throwable exception = unwrap(e);
+            LOGGER.debug("Handling {} thrown when serving a request", exception.getClass().getName());
+            writer.handle(exception, (HttpServletRequest) request, (HttpServletResponse) response);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to destroy
+    }
+
+
+    /**
+     * Unwraps the given {@code exception} if it is a {@link ServletException} with a root cause.
+     *
+     * @param exception The exception thrown by the chain.
+     * @return The exception to be handled.
+     */
+    private static Throwable unwrap(final Throwable exception) {
+        Throwable unwrapped = exception;
+        while (unwrapped instanceof ServletException && ((ServletException) unwrapped).getRootCause() != null) {
+            unwrapped = ((ServletException) unwrapped).getRootCause();
+        }
+        return unwrapped;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.servlet;
+
+import com.bellotapps.utils.error_handler.EncodedEntity;
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.HandlingContext;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.RetryPolicy;
+import com.bellotapps.utils.error_handler.problem.Problem;
+import org.springframework.util.Assert;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Handles exceptions with an {@link ErrorHandler}, writing the {@link HandlingResult} into the servlet response:
+ * the status is set from {@link HandlingResult#getHttpErrorCode()}, and the entity (if any) is written as the body.
+ * <p>
+ * The {@link HandlingContext} is built from the {@code Accept} header and the locale of the request.
+ * Entities that are {@link EncodedEntity}s (e.g cached variants) are written straight to the response stream,
+ * without being copied, and {@link Problem}s are written as their constant part followed by the members of the
+ * occurrence. Only the other ones are encoded, with an {@link EntityEncoder}.
+ * The {@code Retry-After} header is set when the {@link RetryPolicy} of the result has a retry-after delay.
+ *
+ * @see ErrorHandlerFilter
+ * @see ErrorHandlerExceptionResolver
+ */
+public final class ErrorResponseWriter {
+
+    /**
+     * The status set when the handler returned no result.
+     */
+    private static final int NO_RESULT_STATUS = 500;
+
+    /**
+     * The header set with the {@link RetryPolicy#getRetryAfterSeconds()} of the result (if any).
+     */
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    /**
+     * The {@link ErrorHandler} that handles the exceptions.
+     */
+    private final ErrorHandler errorHandler;
+
+    /**
+     * The {@link EntityEncoder} of the entities that are not already encoded.
+     */
+    private final EntityEncoder entityEncoder;
+
+
+    /**
+     * Constructor, encoding the entities that are not already encoded with {@link EntityEncoder#TEXT}.
+     *
+     * @param errorHandler The {@link ErrorHandler} that handles the exceptions.
+     */
+    public ErrorResponseWriter(final ErrorHandler errorHandler) {
+        this(errorHandler, EntityEncoder.TEXT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param errorHandler  The {@link ErrorHandler} that handles the exceptions.
+     * @param entityEncoder The {@link EntityEncoder} of the entities that are not already encoded.
+     */
+    public ErrorResponseWriter(final ErrorHandler errorHandler, final EntityEncoder entityEncoder) {
+        Assert.notNull(errorHandler, "The error handler must not be null");
+        Assert.notNull(entityEncoder, "The entity encoder must not be null");
+        this.errorHandler = errorHandler;
+        this.entityEncoder = entityEncoder;
+    }
+
+
+    /**
+     * Handles the given {@code exception}, thrown when serving the given {@code request},
+     * and writes the result into the given {@code response} (which must not be committed).
+     *
+     * @param exception The exception to be handled.
+     * @param request   The {@link HttpServletRequest} being served.
+     * @param response  The {@link HttpServletResponse} into which the result is written.
+     * @throws IOException If the body can not be written.
+     */
+    public void handle(final Throwable exception, final HttpServletRequest request,
+                       final HttpServletResponse response) throws IOException {
+        final HandlingContext context =
+                HandlingContext.fromAcceptHeader(request.getHeader("Accept"), request.getLocale());
+        final HandlingResult<Object> result = errorHandler.handle(exception, context);
+        write(result, context, response);
+    }
+
+    /**
+     * Writes the given {@code result} into the given {@code response} (which must not be committed).
+     *
+     * @param result   The {@link HandlingResult} to be written (if null, just a 500 status is set).
+     * @param context  The {@link HandlingContext} in which the exception was handled.
+     * @param response The {@link HttpServletResponse} into which the result is written.
+     * @throws IOException If the body can not be written.
+     */
+    public void write(final HandlingResult<?> result, final HandlingContext context,
+                      final HttpServletResponse response) throws IOException {
+        response.resetBuffer();
+        if (result == null) {
+            response.setStatus(NO_RESULT_STATUS);
+            return;
+        }
+        response.setStatus(result.getHttpErrorCode());
+        final long retryAfterSeconds = result.getRetryPolicy().map(RetryPolicy::getRetryAfterSeconds).orElse(-1L);
+        if (retryAfterSeconds >= 0) {
+            response.setHeader(RETRY_AFTER_HEADER, Long.toString(retryAfterSeconds));
+        }
+        final Object entity = result.getErrorRepresentationEntity();
+        if (entity == null) {
+            return;
+        }
+        if (entity instanceof Problem) {
+            final Problem problem = (Problem) entity;
+            response.setContentType(problem.getMediaType().toString());
+            response.setContentLength(problem.getLength());
+            problem.writeTo(response.getOutputStream());
+            return;
+        }
+        final EncodedEntity encoded = entity instanceof EncodedEntity ?
+                (EncodedEntity) entity : entityEncoder.encode(entity, context);
+        response.setContentType(encoded.getMediaType().toString());
+        response.setContentLength(encoded.getLength());
+        encoded.writeTo(response.getOutputStream());
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.servlet;
+
+import com.bellotapps.utils.error_handler.ErrorHandlerFactory;
+import com.bellotapps.utils.error_handler.servlet.handlers.IllegalStateExceptionHandler;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Testing class for {@link ErrorHandlerFilter} and {@link ErrorHandlerExceptionResolver},
+ * against an embedded Tomcat.
+ */
+public class ErrorHandlerAdaptersTest {
+
+    private static final String HANDLERS_PACKAGE = IllegalStateExceptionHandler.class.getPackage().getName();
+
+    private static Tomcat tomcat;
+
+    private static String baseUrl;
+
+    @BeforeClass
+    public static void startTomcat() throws Exception {
+        final ErrorResponseWriter writer = new ErrorResponseWriter(new ErrorHandlerFactory(
+                ErrorHandlerAdaptersTest.class.getClassLoader(), new StaticListableBeanFactory())
+                .createErrorHandler(HANDLERS_PACKAGE));
+        final File baseDir = Files.createTempDirectory("error-handler-tomcat").toFile();
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(0);
+        final Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+
+        // A plain servlet, behind the filter
+        Tomcat.addServlet(context, "failing", new FailingServlet());
+        context.addServletMappingDecoded("/servlet/*", "failing");
+        final FilterDef filterDef = new FilterDef();
+        filterDef.setFilterName("errorHandlerFilter");
+        filterDef.setFilter(new ErrorHandlerFilter(writer));
+        context.addFilterDef(filterDef);
+        final FilterMap filterMap = new FilterMap();
+        filterMap.setFilterName("errorHandlerFilter");
+        filterMap.addURLPattern("/servlet/*");
+        context.addFilterMap(filterMap);
+
+        // Spring MVC, with the resolver
+        final AnnotationConfigWebApplicationContext applicationContext = new AnnotationConfigWebApplicationContext();
+        applicationContext.register(FailingController.class);
+        applicationContext.addBeanFactoryPostProcessor(beanFactory -> beanFactory
+                .registerSingleton("errorHandlerExceptionResolver", new ErrorHandlerExceptionResolver(writer)));
+        Tomcat.addServlet(context, "dispatcher", new DispatcherServlet(applicationContext));
+        context.addServletMappingDecoded("/", "dispatcher");
+
+        tomcat.getConnector(); // Creates the default connector
+        tomcat.start();
+        baseUrl = "http://localhost:" + tomcat.getConnector().getLocalPort();
+    }
+
+    @AfterClass
+    public static void stopTomcat() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    public void testFilterEncodesEntities() throws IOException {
+        final HttpURLConnection connection = get("/servlet/illegal-state", "*/*");
+        Assert.assertEquals(409, connection.getResponseCode());
+        Assert.assertTrue(connection.getContentType().startsWith("text/plain"));
+        Assert.assertEquals("conflict: servlet", body(connection));
+    }
+
+    @Test
+    public void testFilterWritesEncodedEntities() throws IOException {
+        final HttpURLConnection connection = get("/servlet/unsupported", "application/json");
+        Assert.assertEquals(501, connection.getResponseCode());
+        Assert.assertEquals("application/json", connection.getContentType());
+        Assert.assertEquals("{\"message\":\"unsupported\"}", body(connection));
+    }
+
+    @Test
+    public void testFilterSetsTheStatusOfResultsWithoutEntity() throws IOException {
+        final HttpURLConnection connection = get("/servlet/other", "*/*");
+        Assert.assertEquals("The default handler was not used", 500, connection.getResponseCode());
+        Assert.assertEquals("", body(connection));
+    }
+
+    @Test
+    public void testResolverHandlesControllerExceptions() throws IOException {
+        final HttpURLConnection illegalState = get("/mvc/illegal-state", "*/*");
+        Assert.assertEquals(409, illegalState.getResponseCode());
+        Assert.assertEquals("conflict: mvc", body(illegalState));
+
+        final HttpURLConnection unsupported = get("/mvc/unsupported", "application/json");
+        Assert.assertEquals(501, unsupported.getResponseCode());
+        Assert.assertEquals("application/json", unsupported.getContentType());
+        Assert.assertEquals("{\"message\":\"unsupported\"}", body(unsupported));
+    }
+
+    /**
+     * Performs a GET request to the given {@code path} of the embedded Tomcat.
+     *
+     * @param path   The path.
+     * @param accept The value of the {@code Accept} header.
+     * @return The {@link HttpURLConnection}.
+     * @throws IOException If the request can not be performed.
+     */
+    private static HttpURLConnection get(final String path, final String accept) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestProperty("Accept", accept);
+        return connection;
+    }
+
+    /**
+     * Reads the body of the response of the given {@code connection}.
+     *
+     * @param connection The {@link HttpURLConnection}.
+     * @return The body of the response.
+     * @throws IOException If the body can not be read.
+     */
+    private static String body(final HttpURLConnection connection) throws IOException {
+        try (final InputStream body = connection.getResponseCode() >= 400 ?
+                connection.getErrorStream() : connection.getInputStream()) {
+            return body == null ? "" : StreamUtils.copyToString(body, StandardCharsets.UTF_8);
+        }
+    }
+
+
+    /**
+     * A servlet that throws an exception according to the path.
+     */
+    private static final class FailingServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(final HttpServletRequest request, final HttpServletResponse response) {
+            final String path = request.getPathInfo();
+            if ("/illegal-state".equals(path)) {
+                throw new IllegalStateException("servlet");
+            }
+            if ("/unsupported".equals(path)) {
+                throw new UnsupportedOperationException();
+            }
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * A controller that throws exceptions.
+     */
+    @Controller
+    public static class FailingController {
+
+        @RequestMapping("/mvc/illegal-state")
+        public void illegalState() {
+            throw new IllegalStateException("mvc");
+        }
+
+        @RequestMapping("/mvc/unsupported")
+        public void unsupported() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
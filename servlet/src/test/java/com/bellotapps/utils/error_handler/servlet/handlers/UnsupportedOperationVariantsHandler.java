@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bellotapps.utils.error_handler.servlet.handlers;
+
+import com.bellotapps.utils.error_handler.EncodedEntity;
+import com.bellotapps.utils.error_handler.ExceptionHandlerObject;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.VariantExceptionHandler;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A {@link VariantExceptionHandler} for {@link UnsupportedOperationException}, with a constant JSON variant.
+ */
+@ExceptionHandlerObject
+public class UnsupportedOperationVariantsHandler implements VariantExceptionHandler<UnsupportedOperationException> {
+
+    @Override
+    public List<MimeType> getProducibleMediaTypes() {
+        return Collections.singletonList(MimeTypeUtils.APPLICATION_JSON);
+    }
+
+    @Override
+    public HandlingResult<EncodedEntity> handle(UnsupportedOperationException exception,
+                                                MimeType mediaType, Locale locale) {
+        return HandlingResult.withPayload(501, EncodedEntity.of(mediaType, "{\"message\":\"unsupported\"}"));
+    }
+
+    @Override
+    public boolean isConstant(MimeType mediaType) {
+        return true;
+    }
+}
@@ -26,7 +26,9 @@ import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.util.Assert;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 /**
  * Abstract configuration class for {@link ErrorHandler} creation.
@@ -54,6 +56,11 @@ public abstract class AbstractErrorHandlerCreationConfigurer implements ImportAw
      */
     private final Collection<String> packagesCollection;
 
+    /**
+     * A {@link Collection} of locations of files declaring {@link ExceptionMapping}s.
+     */
+    private final Collection<String> mappingLocations;
+
     /**
      * Indicates whether the configurer class is initialized.
      */
@@ -67,6 +74,7 @@ public abstract class AbstractErrorHandlerCreationConfigurer implements ImportAw
     protected AbstractErrorHandlerCreationConfigurer(final ErrorHandlerFactory errorHandlerFactory) {
         this.errorHandlerFactory = errorHandlerFactory;
         this.packagesCollection = new HashSet<>();
+        this.mappingLocations = new LinkedHashSet<>();
         this.initialized = false;
     }
 
@@ -82,7 +90,8 @@ public abstract class AbstractErrorHandlerCreationConfigurer implements ImportAw
     /* package */ ErrorHandler errorHandler() {
         Assert.state(initialized && errorHandlerFactory != null,
                 "The ErrorHandlerCreationConfigurer was not correctly initialized");
-        return errorHandlerFactory.createErrorHandler(packagesCollection);
+        return errorHandlerFactory.createErrorHandler(packagesCollection,
+                errorHandlerFactory.loadMappings(mappingLocations));
     }
 
     @Override
@@ -94,6 +103,7 @@ public abstract class AbstractErrorHandlerCreationConfigurer implements ImportAw
     public void afterPropertiesSet() throws Exception {
         LOGGER.info("Starting ErrorHandler configuration, imported by class {}", importMetadata.getClassName());
         initializePackagesCollection();
+        this.mappingLocations.addAll(getMappingLocations());
         this.initialized = true;
     }
 
@@ -114,4 +124,16 @@ public abstract class AbstractErrorHandlerCreationConfigurer implements ImportAw
      * @throws Exception In case some error occurs in this process.
      */
     protected abstract Collection<String> getPackagesCollection() throws Exception;
+
+    /**
+     * Returns a {@link Collection} of locations of the files declaring the {@link ExceptionMapping}s
+     * to be applied by the {@link ErrorHandler}.
+     *
+     * @return The {@link Collection} of locations (empty by default).
+     * @throws Exception In case some error occurs in this process.
+     * @see ExceptionMappings
+     */
+    protected Collection<String> getMappingLocations() throws Exception {
+        return Collections.emptyList();
+    }
 }
@@ -21,6 +21,7 @@ import org.springframework.core.annotation.AnnotationUtils;
 
 import java.lang.annotation.Annotation;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Optional;
 
 /**
@@ -44,6 +45,11 @@ public abstract class AnnotationErrorHandlerCreationConfigurer<A extends Annotat
         return getPackagesCollectionFromAnnotation(retrieveAnnotation());
     }
 
+    @Override
+    protected Collection<String> getMappingLocations() throws ClassNotFoundException {
+        return getMappingLocationsFromAnnotation(retrieveAnnotation());
+    }
+
     /**
      * Finds the {@link EnableErrorHandler} that was used to import this {@link Configuration} class.
      *
@@ -66,6 +72,18 @@ public abstract class AnnotationErrorHandlerCreationConfigurer<A extends Annotat
      */
     protected abstract Collection<String> getPackagesCollectionFromAnnotation(final A annotation);
 
+    /**
+     * Retrieves a {@link Collection} of locations of files declaring {@link ExceptionMapping}s
+     * from the given {@code annotation}.
+     *
+     * @param annotation The annotation from which locations will be retrieved.
+     * @return A {@link Collection} of locations to be retrieved by the {@link #getMappingLocations()} method
+     * (empty by default).
+     */
+    protected Collection<String> getMappingLocationsFromAnnotation(final A annotation) {
+        return Collections.emptyList();
+    }
+
     /**
      * @return The {@link Class} of the annotation used to retrieve packages from.
      */
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.time.Duration;
+
+/**
+ * An {@link ExceptionHandler} that must handle exceptions within a time budget
+ * (e.g one that performs a lookup that might be slow).
+ * <p>
+ * The {@link ErrorHandler} runs it in a shared pool of threads, and waits for it at most the budget.
+ * If it takes longer, or throws an exception, the fallback result is returned instead
+ * (a handler going over budget is interrupted, and its result is discarded), and the violation is counted
+ * (see {@link ErrorHandlerImpl#getBudgetViolations()}).
+ * Handlers should stop when interrupted, as those that ignore it keep a thread of the pool busy until they finish.
+ * Deadlines are tracked by a shared timer wheel, so there is no thread or scheduled task for each call.
+ * <p>
+ * Note that running the handler in another thread has a cost (a few microseconds),
+ * so only handlers that might be slow should implement this interface.
+ * It can be combined with the other types of handlers (e.g {@link ContextualExceptionHandler}).
+ *
+ * @param <T> The concrete type of {@link Throwable} that will be handled by the object implementing this interface.
+ * @param <E> The concrete type of entity being sent in the handling result.
+ */
+public interface BudgetedExceptionHandler<T extends Throwable, E> extends ExceptionHandler<T, E> {
+
+    /**
+     * @return The maximum time the {@link ErrorHandler} waits for this handler (at least one millisecond is waited).
+     */
+    Duration getBudget();
+
+    /**
+     * Returns the result used when this handler goes over budget, or throws an exception.
+     * Must be fast, as it is called in the thread handling the exception.
+     *
+     * @param exception The exception being handled.
+     * @return The fallback {@link HandlingResult}.
+     * @implNote The default implementation returns just a 500 error code.
+     */
+    default HandlingResult<E> getFallbackResult(final T exception) {
+        return HandlingResult.justErrorCode(500);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+/**
+ * An {@link ExceptionHandler} that takes into account the {@link HandlingContext} in which a {@link Throwable}
+ * is handled (e.g to select the representation of the error according to the accepted media types and the locale).
+ *
+ * @param <T> The concrete type of {@link Throwable} that will be handled by the object implementing this interface.
+ * @param <E> The concrete type of entity being sent in the handling result.
+ * @see ErrorHandler#handle(Throwable, HandlingContext)
+ * @see VariantExceptionHandler
+ */
+@FunctionalInterface
+public interface ContextualExceptionHandler<T extends Throwable, E> extends ExceptionHandler<T, E> {
+
+    /**
+     * Handles the given {@code exception} in the given {@code context}.
+     *
+     * @param exception The exception to be handled.
+     * @param context   The {@link HandlingContext} in which the exception is handled.
+     * @return The {@link HandlingResult} of handling the given {@code exception},
+     * or {@link HandlingResult#decline()} to pass it to the handler of the closest supertype.
+     */
+    HandlingResult<E> handle(final T exception, final HandlingContext context);
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Handles it in an {@link HandlingContext#empty()} context.
+     */
+    @Override
+    default HandlingResult<E> handle(final T exception) {
+        return handle(exception, HandlingContext.empty());
+    }
+}
@@ -0,0 +1,584 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Index used to route a {@link Throwable} to the {@link ExceptionHandler} in charge of handling it.
+ * <p>
+ * There is a node for each {@link Throwable} type with handlers, holding a table for each key of
+ * the {@link KeyedExceptionHandler}s and {@link IntKeyedExceptionHandler}s of the said type
+ * (i.e for each declared key name, or for each key extractor of the handlers that declare no name),
+ * a {@link MessageMatcher} for the patterns of its {@link MessagePatternExceptionHandler}s,
+ * together with the (non keyed) handler of the type, which is used as fallback when no key matches.
+ * For each received {@link Throwable} type, the {@link Candidate}s of its hierarchy (i.e the tables and fallback handlers
+ * of each node, from the most specific type to {@link Throwable}) are resolved just once and cached
+ * in a {@link ClassValue} (so the index does not keep the class loaders of the exceptions alive),
+ * and routing an exception costs a class lookup plus a lookup in each table,
+ * and falling through to the next candidate (i.e when a handler declines) costs an array step.
+ * <p>
+ * An index can be layered over a parent index
+ * (see {@link ErrorHandlerFactory#createChildErrorHandler(ErrorHandler, String...)}), holding just its overriding
+ * handlers: for each type of the hierarchy, the candidates of its own node are followed by those of the parent
+ * for the same type. The parent is shared (not copied), and only the merged resolutions are
+ * cached in the child, so each layer costs its overrides plus the types it actually handled.
+ */
+/* package */ final class DispatchIndex {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DispatchIndex.class);
+
+    /**
+     * The {@link Node}s of this index, by {@link Throwable} type.
+     */
+    private final Map<Class<?>, Node> nodes;
+
+    /**
+     * The parent {@link DispatchIndex}, whose candidates follow those of this index for each type (null if none).
+     */
+    private final DispatchIndex parent;
+
+    /**
+     * Cache of {@link Resolution}s (i.e the {@link Candidate}s of the nodes in the hierarchy of each
+     * {@link Throwable} type, sorted from the most specific type to {@link Throwable}).
+     */
+    private final ClassValue<Resolution> resolutions;
+
+
+    /**
+     * Constructor.
+     *
+     * @param fallbackHandlers The (non keyed) {@link ExceptionHandler}s, by the {@link Throwable} type they handle.
+     *                         Must contain a handler for {@link Throwable}.
+     * @param keyedHandlers    The {@link KeyedExceptionHandler}s, {@link IntKeyedExceptionHandler}s
+     *                         and {@link MessagePatternExceptionHandler}s.
+     */
+    /* package */ DispatchIndex(final Map<Class<? extends Throwable>, ExceptionHandler<?, ?>> fallbackHandlers,
+                                final List<ExceptionHandler<? extends Throwable, ?>> keyedHandlers) {
+        this(null, fallbackHandlers, keyedHandlers);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param parent           The parent {@link DispatchIndex}, whose candidates follow those of this index
+     *                         for each type (null if none).
+     * @param fallbackHandlers The (non keyed) {@link ExceptionHandler}s, by the {@link Throwable} type they handle.
+     *                         Must contain a handler for {@link Throwable} if there is no parent.
+     * @param keyedHandlers    The {@link KeyedExceptionHandler}s, {@link IntKeyedExceptionHandler}s
+     *                         and {@link MessagePatternExceptionHandler}s.
+     */
+    /* package */ DispatchIndex(final DispatchIndex parent,
+                                final Map<Class<? extends Throwable>, ExceptionHandler<?, ?>> fallbackHandlers,
+                                final List<ExceptionHandler<? extends Throwable, ?>> keyedHandlers) {
+        Assert.isTrue(parent != null || fallbackHandlers.containsKey(Throwable.class),
+                "A handler for Throwable must be set");
+        final Map<Class<?>, NodeBuilder> builders = new LinkedHashMap<>();
+        fallbackHandlers.forEach((exceptionClass, handler) ->
+                builders.computeIfAbsent(exceptionClass, NodeBuilder::new).fallbackHandler = handler);
+        keyedHandlers.forEach(handler ->
+                builders.computeIfAbsent(resolveExceptionClass(handler.getClass()), NodeBuilder::new).add(handler));
+
+        final Map<Class<?>, Node> nodes = new HashMap<>();
+        builders.forEach((exceptionClass, builder) -> nodes.put(exceptionClass, builder.build()));
+        this.nodes = Collections.unmodifiableMap(nodes);
+        this.parent = parent;
+        this.resolutions = new ClassValue<Resolution>() {
+            @Override
+            protected Resolution computeValue(final Class<?> type) {
+                return new Resolution();
+            }
+        };
+    }
+
+
+    /**
+     * @return The {@link Throwable} types that have at least one {@link ExceptionHandler}.
+     */
+    /* package */ Set<Class<?>> getHandledClasses() {
+        if (parent == null) {
+            return nodes.keySet();
+        }
+        final Set<Class<?>> handledClasses = new HashSet<>(parent.getHandledClasses());
+        handledClasses.addAll(nodes.keySet());
+        return Collections.unmodifiableSet(handledClasses);
+    }
+
+    /**
+     * Indicates whether the {@link Candidate}s of the given {@code exceptionClass} are already resolved (and cached).
+     *
+     * @param exceptionClass The {@link Throwable} type.
+     * @return {@code true} if they are resolved, or {@code false} otherwise.
+     */
+    /* package */ boolean isResolved(final Class<?> exceptionClass) {
+        return resolutions.get(exceptionClass).candidates != null;
+    }
+
+    /**
+     * Returns the {@link Candidate}s to handle exceptions of the given {@code exceptionClass},
+     * in the order in which they must be tried (i.e from the most specific type to {@link Throwable}),
+     * calculating them if not already cached.
+     *
+     * @param exceptionClass The {@link Throwable} type whose {@link Candidate}s must be returned.
+     * @return The {@link Candidate}s for the given {@code exceptionClass}. The returned array must not be modified.
+     */
+    /* package */ Candidate[] resolve(final Class<?> exceptionClass) {
+        final Resolution resolution = resolutions.get(exceptionClass);
+        final Candidate[] cached = resolution.candidates;
+        if (cached != null) {
+            return cached;
+        }
+        // Resolving is idempotent, so concurrent resolutions of the same type are harmless
+        final List<Candidate> candidates = new LinkedList<>();
+        for (Class<?> actual = exceptionClass; actual != null; actual = actual.getSuperclass()) {
+            addCandidatesOf(actual, candidates);
+        }
+        final Candidate[] result = candidates.toArray(new Candidate[candidates.size()]);
+        resolution.candidates = result;
+        return result;
+    }
+
+    /**
+     * Adds the {@link Candidate}s of the node of the given {@code exceptionClass} (if any) to the given list,
+     * followed by those of the parent (and so on).
+     *
+     * @param exceptionClass The {@link Throwable} type whose {@link Candidate}s must be added.
+     * @param candidates     The {@link List} to which the {@link Candidate}s are added.
+     */
+    private void addCandidatesOf(final Class<?> exceptionClass, final List<Candidate> candidates) {
+        Optional.ofNullable(nodes.get(exceptionClass)).map(Node::getCandidates).ifPresent(candidates::addAll);
+        if (parent != null) {
+            parent.addCandidatesOf(exceptionClass, candidates);
+        }
+    }
+
+
+    /**
+     * Resolves the {@link Throwable} type handled by the given {@code handler}
+     * (i.e the mapped class for the handlers of {@link ExceptionMapping}s).
+     *
+     * @param handler The {@link ExceptionHandler}.
+     * @param <T>     The concrete subtype of {@link Throwable}.
+     * @return The {@link Throwable} subtype class.
+     */
+    /* package */
+    @SuppressWarnings("unchecked")
+    static <T extends Throwable> Class<T> resolveExceptionClass(final ExceptionHandler<?, ?> handler) {
+        if (handler instanceof MappedExceptionHandler) {
+            return (Class<T>) ((MappedExceptionHandler) handler).getExceptionClass();
+        }
+        return resolveExceptionClass(handler.getClass());
+    }
+
+    /**
+     * Resolves the {@link Throwable} type handled by the given {@link ExceptionHandler} class.
+     *
+     * @param handlerClass The {@link ExceptionHandler} class.
+     * @param <T>          The concrete subtype of {@link Throwable}.
+     * @return The {@link Throwable} subtype class.
+     */
+    /* package */
+    @SuppressWarnings("unchecked")
+    static <T extends Throwable> Class<T> resolveExceptionClass(final Class<?> handlerClass) {
+        return (Class<T>) ResolvableType.forClass(ExceptionHandler.class, handlerClass).getGeneric(0).resolve();
+    }
+
+
+    /**
+     * Defines behaviour for an element of the chain of handlers resolved for a {@link Throwable} type.
+     */
+    /* package */ interface Candidate {
+
+        /**
+         * Selects the handler of this candidate for the given {@code exception}.
+         *
+         * @param exception The {@link Throwable} to be handled.
+         * @return The handler of this candidate for the given {@code exception}, or {@code null} if there is none.
+         */
+        ExceptionHandler<Throwable, Object> select(final Throwable exception);
+    }
+
+    /**
+     * The resolution of the {@link Candidate}s of a {@link Throwable} type (created when the type is first routed).
+     */
+    private static final class Resolution {
+
+        /**
+         * The resolved {@link Candidate}s (null until resolved).
+         */
+        private volatile Candidate[] candidates;
+    }
+
+    /**
+     * A node of the index, holding the handlers of a given {@link Throwable} type.
+     */
+    private static final class Node {
+
+        /**
+         * The {@link Candidate}s of this node (i.e its {@link KeyTable}s, followed by its fallback handler).
+         */
+        private final List<Candidate> candidates;
+
+        /**
+         * Constructor.
+         *
+         * @param keyTables       The {@link KeyTable}s of this node (one for each key extractor,
+         *                        and one for the message patterns).
+         * @param fallbackHandler The handler to be used when the exception's key is not in any table. Can be null.
+         */
+        private Node(final List<KeyTable> keyTables, final ExceptionHandler<Throwable, Object> fallbackHandler) {
+            final List<Candidate> candidates = new LinkedList<>(keyTables);
+            Optional.ofNullable(fallbackHandler)
+                    .<Candidate>map(handler -> ignored -> handler)
+                    .ifPresent(candidates::add);
+            this.candidates = Collections.unmodifiableList(candidates);
+        }
+
+        /**
+         * @return The {@link Candidate}s of this node (i.e its {@link KeyTable}s, followed by its fallback handler).
+         */
+        private List<Candidate> getCandidates() {
+            return candidates;
+        }
+    }
+
+    /**
+     * A {@link Candidate} that maps the key extracted from a {@link Throwable} to a handler.
+     */
+    private interface KeyTable extends Candidate {
+    }
+
+    /**
+     * {@link KeyTable} for objects keys, backed by a {@link HashMap}.
+     */
+    private static final class ObjectKeyTable implements KeyTable {
+
+        /**
+         * Extracts the key from the {@link Throwable}.
+         */
+        private final Function<Object, ?> keyExtractor;
+
+        /**
+         * The handlers, by key.
+         */
+        private final Map<Object, ExceptionHandler<Throwable, Object>> handlers;
+
+        /**
+         * Constructor.
+         *
+         * @param keyExtractor Extracts the key from the {@link Throwable}.
+         * @param handlers     The handlers, by key.
+         */
+        private ObjectKeyTable(final Function<Object, ?> keyExtractor,
+                               final Map<Object, ExceptionHandler<Throwable, Object>> handlers) {
+            this.keyExtractor = keyExtractor;
+            this.handlers = new HashMap<>(handlers);
+        }
+
+        @Override
+        public ExceptionHandler<Throwable, Object> select(final Throwable exception) {
+            return handlers.get(keyExtractor.apply(exception));
+        }
+    }
+
+    /**
+     * {@link KeyTable} for the messages, backed by a {@link MessageMatcher}.
+     */
+    private static final class MessagePatternTable implements KeyTable {
+
+        /**
+         * Finds the patterns in the messages.
+         */
+        private final MessageMatcher matcher;
+
+        /**
+         * The handlers, in the order of the patterns of the matcher.
+         */
+        private final ExceptionHandler<Throwable, Object>[] handlers;
+
+        /**
+         * Constructor.
+         *
+         * @param handlers The handlers, by pattern.
+         */
+        private MessagePatternTable(final Map<MessagePattern, ExceptionHandler<Throwable, Object>> handlers) {
+            this.matcher = new MessageMatcher(new ArrayList<>(handlers.keySet()));
+            @SuppressWarnings("unchecked")
+            final ExceptionHandler<Throwable, Object>[] array =
+                    (ExceptionHandler<Throwable, Object>[]) new ExceptionHandler<?, ?>[handlers.size()];
+            this.handlers = handlers.values().toArray(array);
+        }
+
+        @Override
+        public ExceptionHandler<Throwable, Object> select(final Throwable exception) {
+            final String message = exception.getMessage();
+            if (message == null) {
+                return null;
+            }
+            final int pattern = matcher.match(message);
+            return pattern < 0 ? null : handlers[pattern];
+        }
+    }
+
+    /**
+     * {@link KeyTable} for {@code int} keys, backed by an open addressing (linear probing) table.
+     */
+    private static final class IntKeyTable implements KeyTable {
+
+        /**
+         * Extracts the key from the {@link Throwable}.
+         */
+        private final ToIntFunction<Object> keyExtractor;
+
+        /**
+         * The keys in the table.
+         */
+        private final int[] keys;
+
+        /**
+         * The handlers in the table ({@code null} for empty slots).
+         */
+        private final ExceptionHandler<Throwable, Object>[] handlers;
+
+        /**
+         * Mask used to get a slot from a hash (the table's length is a power of two).
+         */
+        private final int mask;
+
+        /**
+         * Constructor.
+         *
+         * @param keyExtractor Extracts the key from the {@link Throwable}.
+         * @param handlers     The handlers, by key.
+         */
+        private IntKeyTable(final ToIntFunction<Object> keyExtractor,
+                            final Map<Integer, ExceptionHandler<Throwable, Object>> handlers) {
+            // Keep the load factor at 0.5 at most
+            final int capacity = Integer.highestOneBit(Math.max(handlers.size(), 1) * 4 - 1);
+            this.keyExtractor = keyExtractor;
+            this.keys = new int[capacity];
+            @SuppressWarnings("unchecked")
+            final ExceptionHandler<Throwable, Object>[] table =
+                    (ExceptionHandler<Throwable, Object>[]) new ExceptionHandler<?, ?>[capacity];
+            this.handlers = table;
+            this.mask = capacity - 1;
+            handlers.forEach((key, handler) -> {
+                int slot = slot(key);
+                while (this.handlers[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = key;
+                this.handlers[slot] = handler;
+            });
+        }
+
+        @Override
+        public ExceptionHandler<Throwable, Object> select(final Throwable exception) {
+            final int key = keyExtractor.applyAsInt(exception);
+            for (int slot = slot(key); handlers[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return handlers[slot];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @param key A key.
+         * @return The slot in which the lookup of the given {@code key} starts.
+         */
+        private int slot(final int key) {
+            final int hash = key * 0x9E3779B9; // Fibonacci hashing, to spread consecutive keys
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    /**
+     * Helper class used to group handlers of a {@link Throwable} type when building a {@link Node}.
+     */
+    private static final class NodeBuilder {
+
+        /**
+         * The {@link Throwable} type of the node being built.
+         */
+        private final Class<?> exceptionClass;
+
+        /**
+         * The handlers of {@link KeyedExceptionHandler}s, by table (see {@link #tableOf(String, Object)})
+         * and then by key.
+         */
+        private final Map<Object, Map<Object, ExceptionHandler<Throwable, Object>>> objectTables;
+
+        /**
+         * The key extractor of each table of {@link KeyedExceptionHandler}s (i.e the one of its first handler).
+         */
+        private final Map<Object, Function<Object, ?>> objectExtractors;
+
+        /**
+         * The handlers of {@link IntKeyedExceptionHandler}s, by table (see {@link #tableOf(String, Object)})
+         * and then by key.
+         */
+        private final Map<Object, Map<Integer, ExceptionHandler<Throwable, Object>>> intTables;
+
+        /**
+         * The key extractor of each table of {@link IntKeyedExceptionHandler}s (i.e the one of its first handler).
+         */
+        private final Map<Object, ToIntFunction<Object>> intExtractors;
+
+        /**
+         * The handlers of {@link MessagePatternExceptionHandler}s, by pattern (in declaration order).
+         */
+        private final Map<MessagePattern, ExceptionHandler<Throwable, Object>> patterns;
+
+        /**
+         * The (non keyed) handler of the node. Can be null.
+         */
+        private ExceptionHandler<?, ?> fallbackHandler;
+
+        /**
+         * Constructor.
+         *
+         * @param exceptionClass The {@link Throwable} type of the node being built.
+         */
+        private NodeBuilder(final Class<?> exceptionClass) {
+            this.exceptionClass = exceptionClass;
+            this.objectTables = new LinkedHashMap<>();
+            this.objectExtractors = new HashMap<>();
+            this.intTables = new LinkedHashMap<>();
+            this.intExtractors = new HashMap<>();
+            this.patterns = new LinkedHashMap<>();
+        }
+
+        /**
+         * Adds the given keyed handler to the table of its key name (or of its key extractor if it declares none).
+         *
+         * @param handler A {@link KeyedExceptionHandler}, an {@link IntKeyedExceptionHandler}
+         *                or a {@link MessagePatternExceptionHandler}.
+         */
+        @SuppressWarnings("unchecked")
+        private void add(final ExceptionHandler<? extends Throwable, ?> handler) {
+            final ExceptionHandler<Throwable, Object> castedHandler = (ExceptionHandler<Throwable, Object>) handler;
+            if (handler instanceof MessagePatternExceptionHandler) {
+                final Set<MessagePattern> handlerPatterns =
+                        ((MessagePatternExceptionHandler<?, ?>) handler).getPatterns();
+                Assert.notNull(handlerPatterns, "The patterns must not be null");
+                Assert.noNullElements(handlerPatterns.toArray(), "The patterns must not contain null");
+                warnIfNoKeys(handler, handlerPatterns.size());
+                handlerPatterns.forEach(pattern -> addToTable(patterns, pattern, castedHandler));
+                return;
+            }
+            if (handler instanceof IntKeyedExceptionHandler) {
+                final IntKeyedExceptionHandler<?, ?> keyedHandler = (IntKeyedExceptionHandler<?, ?>) handler;
+                Assert.notNull(keyedHandler.getKeyExtractor(), "The key extractor must not be null");
+                Assert.notNull(keyedHandler.getKeys(), "The keys must not be null");
+                warnIfNoKeys(handler, keyedHandler.getKeys().length);
+                final Object tableKey = tableOf(keyedHandler.getKeyName(), keyedHandler.getKeyExtractor());
+                intExtractors.putIfAbsent(tableKey, (ToIntFunction<Object>) keyedHandler.getKeyExtractor());
+                final Map<Integer, ExceptionHandler<Throwable, Object>> table =
+                        intTables.computeIfAbsent(tableKey, ignored -> new LinkedHashMap<>());
+                for (final int key : keyedHandler.getKeys()) {
+                    addToTable(table, key, castedHandler);
+                }
+                return;
+            }
+            final KeyedExceptionHandler<?, ?, ?> keyedHandler = (KeyedExceptionHandler<?, ?, ?>) handler;
+            Assert.notNull(keyedHandler.getKeyExtractor(), "The key extractor must not be null");
+            Assert.notNull(keyedHandler.getKeys(), "The keys must not be null");
+            Assert.noNullElements(keyedHandler.getKeys().toArray(), "The keys must not contain null");
+            warnIfNoKeys(handler, keyedHandler.getKeys().size());
+            final Object tableKey = tableOf(keyedHandler.getKeyName(), keyedHandler.getKeyExtractor());
+            objectExtractors.putIfAbsent(tableKey, (Function<Object, ?>) keyedHandler.getKeyExtractor());
+            final Map<Object, ExceptionHandler<Throwable, Object>> table =
+                    objectTables.computeIfAbsent(tableKey, ignored -> new LinkedHashMap<>());
+            keyedHandler.getKeys().forEach(key -> addToTable(table, key, castedHandler));
+        }
+
+        /**
+         * @return The built {@link Node}.
+         */
+        @SuppressWarnings("unchecked")
+        private Node build() {
+            if (objectTables.size() > 1 || intTables.size() > 1) {
+                LOGGER.warn("The keyed handlers of throwable {} use {} different keys. " +
+                                "Consider declaring the same key name in the handlers of the same key, " +
+                                "as each different one means another lookup.",
+                        exceptionClass, objectTables.size() + intTables.size());
+            }
+            final List<KeyTable> keyTables = new LinkedList<>();
+            objectTables.forEach((tableKey, handlers) ->
+                    keyTables.add(new ObjectKeyTable(objectExtractors.get(tableKey), handlers)));
+            intTables.forEach((tableKey, handlers) ->
+                    keyTables.add(new IntKeyTable(intExtractors.get(tableKey), handlers)));
+            if (!patterns.isEmpty()) {
+                keyTables.add(new MessagePatternTable(patterns));
+            }
+            return new Node(keyTables, (ExceptionHandler<Throwable, Object>) fallbackHandler);
+        }
+
+        /**
+         * Returns the key of the table of a keyed handler (i.e its key name,
+         * or its key extractor if it declares no name, so handlers share a table if they share the extractor).
+         *
+         * @param keyName      The key name declared by the handler (null if none).
+         * @param keyExtractor The key extractor of the handler.
+         * @return The key of the table.
+         */
+        private static Object tableOf(final String keyName, final Object keyExtractor) {
+            return keyName == null ? keyExtractor : keyName;
+        }
+
+        /**
+         * Adds the given {@code handler} for the given {@code key} in the given {@code table},
+         * unless there is already a handler for the key.
+         *
+         * @param table   The table.
+         * @param key     The key.
+         * @param handler The handler.
+         * @param <K>     The type of key.
+         */
+        private <K> void addToTable(final Map<K, ExceptionHandler<Throwable, Object>> table, final K key,
+                                    final ExceptionHandler<Throwable, Object> handler) {
+            final ExceptionHandler<Throwable, Object> existing = table.putIfAbsent(key, handler);
+            if (existing != null && existing != handler) {
+                LOGGER.warn("More than one ExceptionHandler for key {} of Throwable {}. {} Will be used.",
+                        key, exceptionClass, existing);
+            }
+        }
+
+        /**
+         * Logs a warning if the given keyed {@code handler} declares no keys.
+         *
+         * @param handler The keyed handler.
+         * @param amount  The amount of keys it declares.
+         */
+        private static void warnIfNoKeys(final ExceptionHandler<?, ?> handler, final int amount) {
+            if (amount == 0) {
+                LOGGER.warn("The keyed handler {} declares no keys, so it will never be used", handler);
+            }
+        }
+    }
+}
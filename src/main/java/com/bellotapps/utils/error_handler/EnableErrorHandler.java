@@ -64,4 +64,14 @@ public @interface EnableErrorHandler {
      * @return The classes set in the annotation as base package classes.
      */
     Class<?>[] basePackageClasses() default {};
+
+    /**
+     * Locations of properties or YAML files declaring {@link ExceptionMapping}s
+     * (e.g {@code "classpath:error-mappings.properties"}), which are compiled into the dispatch index
+     * together with the scanned {@link ExceptionHandler}s.
+     *
+     * @return The locations set in the annotation as mappings.
+     * @see ExceptionMappings
+     */
+    String[] mappings() default {};
 }
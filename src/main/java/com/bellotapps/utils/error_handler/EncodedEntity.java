@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An entity that is already encoded (i.e the bytes to be sent in the response body), together with its media type.
+ * Used to cache representations of errors that do not change, so they are encoded just once.
+ * Instances are immutable.
+ *
+ * @see VariantExceptionHandler
+ */
+public final class EncodedEntity {
+
+    /**
+     * The media type of the entity.
+     */
+    private final MimeType mediaType;
+
+    /**
+     * The encoded entity.
+     */
+    private final byte[] bytes;
+
+
+    /**
+     * Constructor.
+     *
+     * @param mediaType The media type of the entity.
+     * @param bytes     The encoded entity (not copied).
+     */
+    private EncodedEntity(final MimeType mediaType, final byte[] bytes) {
+        this.mediaType = mediaType;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return The media type of the entity.
+     */
+    public MimeType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return The length of the encoded entity, in bytes.
+     */
+    public int getLength() {
+        return bytes.length;
+    }
+
+    /**
+     * @return A read-only {@link ByteBuffer} view of the encoded entity.
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return A copy of the encoded entity.
+     */
+    public byte[] toByteArray() {
+        return bytes.clone();
+    }
+
+    /**
+     * Writes the encoded entity into the given {@code outputStream}, without copying it.
+     *
+     * @param outputStream The {@link OutputStream} to which the entity must be written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedEntity{mediaType=" + mediaType + ", length=" + bytes.length + "}";
+    }
+
+
+    /**
+     * Creates an {@link EncodedEntity}.
+     *
+     * @param mediaType The media type of the entity.
+     * @param bytes     The encoded entity (it is copied).
+     * @return The created {@link EncodedEntity}.
+     */
+    public static EncodedEntity of(final MimeType mediaType, final byte[] bytes) {
+        Assert.notNull(mediaType, "The media type must not be null");
+        Assert.notNull(bytes, "The bytes must not be null");
+        return new EncodedEntity(mediaType, bytes.clone());
+    }
+
+    /**
+     * Creates an {@link EncodedEntity} from a text,
+     * encoded with the charset of the media type (or UTF-8 if it has none).
+     *
+     * @param mediaType The media type of the entity.
+     * @param text      The text to be encoded.
+     * @return The created {@link EncodedEntity}.
+     */
+    public static EncodedEntity of(final MimeType mediaType, final String text) {
+        Assert.notNull(mediaType, "The media type must not be null");
+        Assert.notNull(text, "The text must not be null");
+        final Charset charset = mediaType.getCharset() == null ? StandardCharsets.UTF_8 : mediaType.getCharset();
+        return new EncodedEntity(mediaType, text.getBytes(charset));
+    }
+}
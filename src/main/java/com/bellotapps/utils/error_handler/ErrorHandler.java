@@ -38,4 +38,22 @@ public interface ErrorHandler {
      * @return a {@link HandlingResult} with the data to be returned to the API consumer.
      */
     <T extends Throwable, E> HandlingResult<E> handle(final T exception);
+
+    /**
+     * Handles the given {@code exception} in the given {@code context}
+     * (e.g selecting the representation of the error according to the accepted media types and the locale),
+     * returning as a result an object with the data to be returned to the API consumer.
+     *
+     * @param exception The {@link Throwable} to be handled.
+     * @param context   The {@link HandlingContext} in which the exception is handled.
+     * @param <T>       The concrete subclass type of {@link Throwable}.
+     * @param <E>       Concrete type of entity to be sent in the response.
+     * @return a {@link HandlingResult} with the data to be returned to the API consumer.
+     * @implNote The default implementation ignores the context.
+     * @see ContextualExceptionHandler
+     * @see VariantExceptionHandler
+     */
+    default <T extends Throwable, E> HandlingResult<E> handle(final T exception, final HandlingContext context) {
+        return handle(exception);
+    }
 }
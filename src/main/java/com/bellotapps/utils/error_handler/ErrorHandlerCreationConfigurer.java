@@ -57,4 +57,9 @@ public class ErrorHandlerCreationConfigurer extends AnnotationErrorHandlerCreati
         return Stream.concat(Arrays.stream(basePackages), Arrays.stream(basePackageClasses))
                 .collect(Collectors.toSet());
     }
+
+    @Override
+    protected Collection<String> getMappingLocationsFromAnnotation(final EnableErrorHandler enableErrorHandler) {
+        return Arrays.asList(enableErrorHandler.mappings());
+    }
 }
@@ -20,11 +20,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.support.AbstractApplicationContext;
 import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
@@ -39,6 +47,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -78,6 +87,30 @@ public class ErrorHandlerFactory {
      */
     private final Map<String, List<ExceptionHandler<? extends Throwable, ?>>> cachedHandlers;
 
+    /**
+     * A {@link Map} holding cached overriding {@link ExceptionHandler}s (i.e those of child error handlers)
+     * for a given package name (kept apart, so they are not included in the error handlers that are not children).
+     */
+    private final Map<String, List<ExceptionHandler<? extends Throwable, ?>>> cachedOverridingHandlers;
+
+    /**
+     * The {@link HandlerInstances} of the scanned handlers that are not {@link HandlerScope#SHARED}, by handler
+     * (weak, so they are discarded with the handlers when the cache is reset and no error handler holds them).
+     */
+    private final Map<ExceptionHandler<?, ?>, HandlerInstances> scopedInstances;
+
+    /**
+     * The {@link ErrorMessageResolver} set into {@link ErrorMessageResolverAware} handlers
+     * (lazily initialized, wrapped in an {@link Optional} as there might be no message source).
+     */
+    private volatile Optional<ErrorMessageResolver> errorMessageResolver;
+
+    /**
+     * The {@link ExceptionFingerprinter} shared by the {@link ExceptionFingerprinterAware} handlers
+     * and the {@link HandledErrorListener}s.
+     */
+    private final ExceptionFingerprinter exceptionFingerprinter;
+
 
     /**
      * Constructor.
@@ -92,9 +125,46 @@ public class ErrorHandlerFactory {
         this.classLoader = classLoader;
         this.beanFactory = beanFactory;
         this.scanner = new ClassPathScanningCandidateComponentProvider(false);
+        // Make sure classes are looked up in the given class loader (and not in the thread's context class loader).
+        this.scanner.setResourceLoader(new DefaultResourceLoader(classLoader));
         // Scan for classes implementing ExceptionHandler interface, and annotated with ExceptionHandlerObject.
         this.scanner.addIncludeFilter(new ExceptionHandlerObjectAnnotatedAndExceptionHandlerAssignableTypeFilter());
         this.cachedHandlers = new ConcurrentHashMap<>();
+        this.cachedOverridingHandlers = new ConcurrentHashMap<>();
+        this.scopedInstances = Collections.synchronizedMap(new WeakHashMap<>());
+        this.errorMessageResolver = null;
+        this.exceptionFingerprinter = new ExceptionFingerprinter();
+    }
+
+
+    /**
+     * Returns the {@link ErrorMessageResolver} set into {@link ErrorMessageResolverAware} handlers,
+     * which uses the {@code messageSource} bean of the {@link BeanFactory}.
+     *
+     * @return An {@link Optional} holding the {@link ErrorMessageResolver},
+     * or empty if there is no {@code messageSource} bean.
+     */
+    public Optional<ErrorMessageResolver> getErrorMessageResolver() {
+        Optional<ErrorMessageResolver> resolver = this.errorMessageResolver;
+        if (resolver == null) {
+            synchronized (this) {
+                resolver = this.errorMessageResolver;
+                if (resolver == null) {
+                    resolver = searchForMessageSource().map(ErrorMessageResolver::new);
+                    this.errorMessageResolver = resolver;
+                }
+            }
+        }
+        return resolver;
+    }
+
+
+    /**
+     * @return The {@link ExceptionFingerprinter} set into {@link ExceptionFingerprinterAware} handlers,
+     * and used to fingerprint the exceptions passed to the {@link HandledErrorListener}s.
+     */
+    public ExceptionFingerprinter getExceptionFingerprinter() {
+        return exceptionFingerprinter;
     }
 
 
@@ -104,6 +174,7 @@ public class ErrorHandlerFactory {
      */
     public void resetCache() {
         this.cachedHandlers.clear();
+        this.cachedOverridingHandlers.clear();
     }
 
     /**
@@ -122,6 +193,7 @@ public class ErrorHandlerFactory {
      */
     public void resetCache(final Collection<String> packages) {
         packages.forEach(this.cachedHandlers::remove);
+        packages.forEach(this.cachedOverridingHandlers::remove);
     }
 
     /**
@@ -145,25 +217,336 @@ public class ErrorHandlerFactory {
      * @see ExceptionHandler
      */
     public ErrorHandler createErrorHandler(final Collection<String> packages) {
-        // Perform package scanning for those not cached
-        final Map<String, List<ExceptionHandler<? extends Throwable, ?>>> foundedHandlers = packages.stream()
-                .filter(pkg -> !cachedHandlers.containsKey(pkg))
-                .collect(Collectors.toMap(Function.identity(),
-                        pkg -> scanPackage(pkg)
-                                .stream()
-                                .map(klass -> new ExceptionHandlerGetter<>(klass, beanFactory))
-                                .map(ExceptionHandlerGetter::getHandler)
-                                .collect(Collectors.toList())));
-        // Save in cache those handlers that have been found
-        this.cachedHandlers.putAll(foundedHandlers);
+        return createErrorHandler(packages, Collections.emptyList());
+    }
+
+    /**
+     * Creates an {@link ErrorHandler}, scanning for {@link ExceptionHandler} in the given {@code packages},
+     * and applying the given {@code mappings} too.
+     * The mappings are compiled into the same dispatch index as the scanned handlers,
+     * which take precedence over the mappings of the same exception class.
+     *
+     * @param packages The packages to be scanned for {@link ExceptionHandler}s.
+     * @param mappings The {@link ExceptionMapping}s to be applied.
+     * @return The created {@link ErrorHandler}.
+     * @see #loadMappings(Collection)
+     */
+    public ErrorHandler createErrorHandler(final Collection<String> packages,
+                                           final Collection<ExceptionMapping> mappings) {
+        Assert.notNull(mappings, "The mappings must not be null");
+        // Perform package scanning for those not cached, and save in cache those handlers that have been found
+        this.cachedHandlers.putAll(scanForHandlers(packages, cachedHandlers));
         // Get stored handlers
         final List<ExceptionHandler<? extends Throwable, ?>> handlers = cachedHandlers.values()
                 .stream()
                 .flatMap(Collection::stream)
                 .collect(Collectors.toList());
+        // Mappings go last, so scanned handlers win (the ErrorHandlerImpl keeps the first handler of each class)
+        mappings.stream().map(ExceptionMapping::toHandler).forEach(handlers::add);
 
         // Create the new ErrorHandler
-        return new ErrorHandlerImpl(handlers);
+        return new ErrorHandlerImpl(handlers, searchForListeners(), exceptionFingerprinter,
+                searchForWarmUp().orElse(null), scopedInstancesOf(handlers));
+    }
+
+    /**
+     * Loads the {@link ExceptionMapping}s declared in the files in the given {@code locations}
+     * (e.g {@code classpath:error-mappings.properties}), using the {@link ClassLoader} of this factory.
+     *
+     * @param locations The locations of the properties or YAML files declaring the mappings.
+     * @return The loaded {@link ExceptionMapping}s.
+     * @throws BeanInitializationException If a file can not be read, or a mapping is not valid.
+     * @see ExceptionMappings
+     */
+    public List<ExceptionMapping> loadMappings(final Collection<String> locations)
+            throws BeanInitializationException {
+        try {
+            return ExceptionMappings.load(classLoader, locations);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new BeanInitializationException("Could not load the exception mappings " + locations, e);
+        }
+    }
+
+    /**
+     * Creates a child of the given {@code parent} {@link ErrorHandler} (i.e an overlay),
+     * scanning for its overriding {@link ExceptionHandler}s in the given {@code packages}.
+     * <p>
+     * The child holds just the overriding handlers, and shares the dispatch index of the parent,
+     * so many children (e.g one for each module or tenant) cost their overrides, and not a copy of every handler.
+     * For each type, the handlers of the child are tried before those of the parent.
+     * Merged resolutions are cached in the child, so lookups cost the same as in the parent.
+     * The listeners, fingerprinter, variants cache, budgets and retry policies of the parent are shared.
+     * Note that the overriding handlers are not included in the error handlers created with
+     * {@link #createErrorHandler(Collection)}.
+     *
+     * @param parent   The parent {@link ErrorHandler} (created by an {@link ErrorHandlerFactory}).
+     * @param packages The packages to be scanned for overriding {@link ExceptionHandler}s.
+     * @return The created {@link ErrorHandler}.
+     */
+    public ErrorHandler createChildErrorHandler(final ErrorHandler parent, final String... packages) {
+        return createChildErrorHandler(parent, Arrays.asList(packages));
+    }
+
+    /**
+     * Creates a child of the given {@code parent} {@link ErrorHandler} (i.e an overlay),
+     * scanning for its overriding {@link ExceptionHandler}s in the given {@code packages}.
+     *
+     * @param parent   The parent {@link ErrorHandler} (created by an {@link ErrorHandlerFactory}).
+     * @param packages The packages to be scanned for overriding {@link ExceptionHandler}s.
+     * @return The created {@link ErrorHandler}.
+     * @see #createChildErrorHandler(ErrorHandler, String...)
+     */
+    public ErrorHandler createChildErrorHandler(final ErrorHandler parent, final Collection<String> packages) {
+        Assert.isTrue(parent instanceof ErrorHandlerImpl,
+                "The parent must be an error handler created by an ErrorHandlerFactory");
+        this.cachedOverridingHandlers.putAll(scanForHandlers(packages, cachedOverridingHandlers));
+        final List<ExceptionHandler<? extends Throwable, ?>> handlers = packages.stream()
+                .distinct()
+                .map(cachedOverridingHandlers::get)
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList());
+        return new ErrorHandlerImpl((ErrorHandlerImpl) parent, handlers, scopedInstancesOf(handlers));
+    }
+
+    /**
+     * Scans the given {@code packages} that are not in the given {@code cache},
+     * getting and initializing the {@link ExceptionHandler}s in them.
+     *
+     * @param packages The packages to be scanned.
+     * @param cache    The cache of already scanned packages.
+     * @return The {@link ExceptionHandler}s found in each package that was not cached.
+     */
+    private Map<String, List<ExceptionHandler<? extends Throwable, ?>>> scanForHandlers(
+            final Collection<String> packages, final Map<String, List<ExceptionHandler<? extends Throwable, ?>>> cache) {
+        return packages.stream()
+                .distinct()
+                .filter(pkg -> !cache.containsKey(pkg))
+                .collect(Collectors.toMap(Function.identity(), this::getHandlersIn));
+    }
+
+    /**
+     * Scans the given {@code pkg}, getting and initializing the {@link ExceptionHandler}s in it,
+     * tracing the scan if there is an {@link ErrorHandlerTracer}.
+     *
+     * @param pkg The package to be scanned.
+     * @return The {@link ExceptionHandler}s found in the package.
+     */
+    private List<ExceptionHandler<? extends Throwable, ?>> getHandlersIn(final String pkg) {
+        if (Tracing.TRACER != null) {
+            final ErrorHandlerTracer.PackageScanSpan span = Tracing.TRACER.beginPackageScan();
+            if (span != null) {
+                final List<ExceptionHandler<? extends Throwable, ?>> handlers = scanForHandlersIn(pkg);
+                span.end(pkg, handlers.size());
+                return handlers;
+            }
+        }
+        return scanForHandlersIn(pkg);
+    }
+
+    /**
+     * Scans the given {@code pkg}, getting and initializing the {@link ExceptionHandler}s in it.
+     *
+     * @param pkg The package to be scanned.
+     * @return The {@link ExceptionHandler}s found in the package.
+     */
+    private List<ExceptionHandler<? extends Throwable, ?>> scanForHandlersIn(final String pkg) {
+        return findHandlerClasses(pkg)
+                .stream()
+                .map(klass -> new ExceptionHandlerGetter<>(klass, beanFactory))
+                .map(this::getScopedHandler)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets and initializes the {@link ExceptionHandler} of the given {@code getter}, registering the
+     * {@link HandlerInstances} of its class if it is not {@link HandlerScope#SHARED}.
+     *
+     * @param getter The {@link ExceptionHandlerGetter} of the handler class.
+     * @param <T>    The concrete type of {@link ExceptionHandler}.
+     * @return The handler registered in the error handlers (i.e the one that declares keys or patterns).
+     */
+    private <T extends ExceptionHandler<? extends Throwable, ?>> T getScopedHandler(
+            final ExceptionHandlerGetter<T> getter) {
+        final T handler = initializeHandler(getter.getHandler());
+        final ExceptionHandlerObject annotation =
+                AnnotationUtils.findAnnotation(getter.handlerClass, ExceptionHandlerObject.class);
+        if (annotation == null || annotation.scope() == HandlerScope.SHARED) {
+            return handler;
+        }
+        Assert.isTrue(annotation.poolSize() >= 0, "The pool size must not be negative");
+        final boolean fromBean = getter.isFromBean();
+        @SuppressWarnings("unchecked") final Supplier<ExceptionHandler<Throwable, Object>> factory =
+                () -> (ExceptionHandler<Throwable, Object>) (ExceptionHandler<?, ?>)
+                        initializeHandler(getter.getHandler());
+        // Instantiated handlers are always new, but beans might be singletons, so another one must be gotten to know
+        final ExceptionHandler<Throwable, Object> another = fromBean ? factory.get() : null;
+        if (another == handler) {
+            LOGGER.warn("The {} scoped handler {} is a singleton bean, so it will be shared",
+                    annotation.scope(), getter.handlerClass.getName());
+            return handler;
+        }
+        final HandlerInstances instances = HandlerInstances.of(annotation.scope(),
+                annotation.poolSize() == 0 ? HandlerInstances.DEFAULT_POOL_SIZE : annotation.poolSize(), factory);
+        if (another != null) {
+            instances.adopt(another); // Not wasted (i.e it is the one of the current thread, or the first pooled one)
+        }
+        scopedInstances.put(handler, instances);
+        return handler;
+    }
+
+    /**
+     * Returns the {@link HandlerInstances} of the given {@code handlers} that are scoped.
+     *
+     * @param handlers The {@link ExceptionHandler}s.
+     * @return The {@link HandlerInstances} of those that are scoped, by handler.
+     */
+    private Map<ExceptionHandler<?, ?>, HandlerInstances> scopedInstancesOf(
+            final List<ExceptionHandler<? extends Throwable, ?>> handlers) {
+        final Map<ExceptionHandler<?, ?>, HandlerInstances> instances = new IdentityHashMap<>();
+        for (final ExceptionHandler<? extends Throwable, ?> handler : handlers) {
+            Optional.ofNullable(scopedInstances.get(handler)).ifPresent(scoped -> instances.put(handler, scoped));
+        }
+        return instances;
+    }
+
+    /**
+     * Initializes the given {@code handler}, setting the helpers it is aware of.
+     *
+     * @param handler The {@link ExceptionHandler} to be initialized.
+     * @param <T>     The concrete type of {@link ExceptionHandler}.
+     * @return The given {@code handler}.
+     */
+    private <T extends ExceptionHandler<? extends Throwable, ?>> T initializeHandler(final T handler) {
+        if (handler instanceof ErrorMessageResolverAware) {
+            final Optional<ErrorMessageResolver> resolver = getErrorMessageResolver();
+            if (resolver.isPresent()) {
+                ((ErrorMessageResolverAware) handler).setErrorMessageResolver(resolver.get());
+            } else {
+                LOGGER.warn("No message source bean, so no ErrorMessageResolver is set into {}", handler);
+            }
+        }
+        if (handler instanceof ExceptionFingerprinterAware) {
+            ((ExceptionFingerprinterAware) handler).setExceptionFingerprinter(exceptionFingerprinter);
+        }
+        return handler;
+    }
+
+    /**
+     * Tries to get the {@code messageSource} bean from the {@link BeanFactory}.
+     *
+     * @return An {@link Optional} holding the {@link MessageSource}, or empty if there is no such bean.
+     */
+    private Optional<MessageSource> searchForMessageSource() {
+        try {
+            return Optional.of(beanFactory.getBean(AbstractApplicationContext.MESSAGE_SOURCE_BEAN_NAME,
+                    MessageSource.class));
+        } catch (NoSuchBeanDefinitionException e) {
+            LOGGER.debug("No message source bean");
+            return Optional.empty();
+        } catch (BeansException e) {
+            LOGGER.error("Could not get the message source bean");
+            throw new BeanInitializationException(ERROR_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Tries to get the {@link ErrorHandlerWarmUp} bean from the {@link BeanFactory}.
+     *
+     * @return An {@link Optional} holding the {@link ErrorHandlerWarmUp}, or empty if there is no such bean
+     * (i.e the created error handlers are not warmed up).
+     */
+    private Optional<ErrorHandlerWarmUp> searchForWarmUp() {
+        try {
+            return Optional.of(beanFactory.getBean(ErrorHandlerWarmUp.class));
+        } catch (NoSuchBeanDefinitionException e) {
+            LOGGER.debug("No ErrorHandlerWarmUp bean, so the error handler will not be warmed up");
+            return Optional.empty();
+        } catch (BeansException e) {
+            LOGGER.error("Could not get the ErrorHandlerWarmUp bean");
+            throw new BeanInitializationException(ERROR_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Tries to get the {@link ScanSnapshot} bean from the {@link BeanFactory}.
+     *
+     * @return An {@link Optional} holding the {@link ScanSnapshot}, or empty if there is no such bean
+     * (i.e packages are always scanned).
+     */
+    private Optional<ScanSnapshot> searchForScanSnapshot() {
+        try {
+            return Optional.of(beanFactory.getBean(ScanSnapshot.class));
+        } catch (NoSuchBeanDefinitionException e) {
+            LOGGER.debug("No ScanSnapshot bean, so packages will always be scanned");
+            return Optional.empty();
+        } catch (BeansException e) {
+            LOGGER.error("Could not get the ScanSnapshot bean");
+            throw new BeanInitializationException(ERROR_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Gets the {@link HandledErrorListener} beans from the {@link BeanFactory} (and its ancestors),
+     * sorted according to their order.
+     * Note that listeners can only be found if the {@link BeanFactory} is a {@link ListableBeanFactory}.
+     *
+     * @return The {@link List} of {@link HandledErrorListener} beans.
+     */
+    private List<HandledErrorListener> searchForListeners() {
+        if (!(beanFactory instanceof ListableBeanFactory)) {
+            LOGGER.debug("The bean factory is not listable, so no HandledErrorListener can be found");
+            return Collections.emptyList();
+        }
+        try {
+            final List<HandledErrorListener> listeners = new ArrayList<>(BeanFactoryUtils
+                    .beansOfTypeIncludingAncestors((ListableBeanFactory) beanFactory, HandledErrorListener.class,
+                            true, false)
+                    .values());
+            AnnotationAwareOrderComparator.sort(listeners);
+            LOGGER.debug("Found HandledErrorListeners {}", listeners);
+            return listeners;
+        } catch (BeansException e) {
+            LOGGER.error("Could not get the HandledErrorListener beans");
+            throw new BeanInitializationException(ERROR_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Finds the {@link ExceptionHandler} classes in the given package, taking them from the {@link ScanSnapshot}
+     * if there is one and the package did not change since it was stored, or scanning the package otherwise
+     * (and storing the result in the snapshot).
+     *
+     * @param pkg The package.
+     * @return The {@link ExceptionHandler} classes in the given package, sorted by name.
+     * @see #scanPackage(String)
+     */
+    private List<Class<?>> findHandlerClasses(final String pkg) {
+        final Optional<ScanSnapshot> snapshotOptional = searchForScanSnapshot();
+        if (!snapshotOptional.isPresent()) {
+            return scanPackage(pkg);
+        }
+        final ScanSnapshot snapshot = snapshotOptional.get();
+        final Optional<String> fingerprint = ScanSnapshot.fingerprint(classLoader, pkg);
+        if (!fingerprint.isPresent()) {
+            LOGGER.debug("Could not fingerprint package {}, so it will be scanned", pkg);
+            return scanPackage(pkg);
+        }
+        final Optional<List<String>> stored = snapshot.lookup(pkg, fingerprint.get());
+        if (stored.isPresent()) {
+            try {
+                final List<Class<?>> classes = stored.get().stream()
+                        .map(className -> ClassUtils.resolveClassName(className, this.classLoader))
+                        .collect(Collectors.toList());
+                LOGGER.debug("Took the handlers of package {} from {}", pkg, snapshot);
+                return classes;
+            } catch (IllegalArgumentException | LinkageError e) {
+                LOGGER.debug("Could not load the handlers of package {} stored in {}. Scanning it", pkg, snapshot, e);
+            }
+        }
+        final List<Class<?>> classes = scanPackage(pkg);
+        snapshot.store(pkg, fingerprint.get(), classes);
+        return classes;
     }
 
     /**
@@ -171,15 +554,19 @@ public class ErrorHandlerFactory {
      *
      * @param pkg The package to be scanned.
      * @return The classes founded in the given package
-     * matching the restrictions to be a valid {@link ExceptionHandler}.
+     * matching the restrictions to be a valid {@link ExceptionHandler}, sorted by name
+     * (so the order in which they are registered does not change from one start to another).
      * @see ExceptionHandlerObject
      * @see ExceptionHandler
      */
-    private Set<Class<?>> scanPackage(final String pkg) {
+    private List<Class<?>> scanPackage(final String pkg) {
         return this.scanner.findCandidateComponents(pkg)
                 .stream()
-                .map(beanDef -> ClassUtils.resolveClassName(beanDef.getBeanClassName(), this.classLoader))
-                .collect(Collectors.toSet());
+                .map(BeanDefinition::getBeanClassName)
+                .distinct()
+                .sorted()
+                .map(className -> ClassUtils.resolveClassName(className, this.classLoader))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -199,6 +586,11 @@ public class ErrorHandlerFactory {
          */
         private final BeanFactory beanFactory;
 
+        /**
+         * Indicates whether the last gotten handler was a bean (i.e it was not instantiated).
+         */
+        private volatile boolean fromBean;
+
         /**
          * Constructor.
          *
@@ -215,12 +607,32 @@ public class ErrorHandlerFactory {
         /**
          * Retrieves an {@link ExceptionHandler} of the {@link Class} of {@link ExceptionHandler}
          * this {@link ExceptionHandlerGetter} was created for,
-         * trying to get a spring bean or instantiating it
+         * trying to get a spring bean or instantiating it (tracing it if there is an {@link ErrorHandlerTracer}).
          *
          * @return An {@link ExceptionHandler} of the given {@link Class}.
          */
         private T getHandler() {
-            return searchForBean().orElseGet(this::instantiate);
+            if (Tracing.TRACER != null) {
+                final ErrorHandlerTracer.HandlerInstantiationSpan span = Tracing.TRACER.beginHandlerInstantiation();
+                if (span != null) {
+                    final Optional<T> bean = searchForBean();
+                    final T handler = bean.orElseGet(this::instantiate);
+                    span.end(handlerClass, bean.isPresent());
+                    fromBean = bean.isPresent();
+                    return handler;
+                }
+            }
+            final Optional<T> bean = searchForBean();
+            fromBean = bean.isPresent();
+            return bean.orElseGet(this::instantiate);
+        }
+
+        /**
+         * @return {@code true} if the last handler returned by {@link #getHandler()} was a bean,
+         * or {@code false} if it was instantiated.
+         */
+        private boolean isFromBean() {
+            return fromBean;
         }
 
 
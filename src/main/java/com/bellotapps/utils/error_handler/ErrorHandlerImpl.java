@@ -19,9 +19,10 @@ package com.bellotapps.utils.error_handler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
-import org.springframework.core.ResolvableType;
 import org.springframework.util.Assert;
 
+import java.lang.reflect.Modifier;
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -38,6 +39,52 @@ public class ErrorHandlerImpl implements ErrorHandler, InitializingBean {
      */
     private final Set<ExceptionHandlerContainer<? extends Throwable, ?>> handlers;
 
+    /**
+     * The {@link DispatchIndex} used to route exceptions to their handlers.
+     */
+    private final DispatchIndex dispatchIndex;
+
+    /**
+     * The {@link VariantCache} holding the constant variants of the {@link VariantExceptionHandler}s.
+     */
+    private final VariantCache variantCache;
+
+    /**
+     * The {@link HandlerBudgets} running the {@link BudgetedExceptionHandler}s.
+     */
+    private final HandlerBudgets budgets;
+
+    /**
+     * The {@link RetryPolicies} that classify the results according to the declared {@link RetryHint}s.
+     */
+    private final RetryPolicies retryPolicies;
+
+    /**
+     * The {@link HandlerInstances} of the handlers that are not {@link HandlerScope#SHARED}, by handler
+     * (an {@link IdentityHashMap}, empty if all of them are shared).
+     */
+    private final Map<ExceptionHandler<?, ?>, HandlerInstances> scopedInstances;
+
+    /**
+     * The {@link HandledErrorListener}s notified each time an exception is handled.
+     */
+    private final HandledErrorListener[] listeners;
+
+    /**
+     * The {@link ExceptionFingerprinter} used to fingerprint the exceptions passed to the {@code listeners}.
+     */
+    private final ExceptionFingerprinter fingerprinter;
+
+    /**
+     * The {@link ErrorHandlerWarmUp} performed when initialized (null if none).
+     */
+    private final ErrorHandlerWarmUp warmUp;
+
+    /**
+     * The {@link WarmUpReport} of the last warm-up (null if not warmed up yet).
+     */
+    private volatile WarmUpReport warmUpReport;
+
     /**
      * Default {@link ExceptionHandler}, in case no one is set for {@link Throwable} (i.e fallback handler).
      */
@@ -50,7 +97,61 @@ public class ErrorHandlerImpl implements ErrorHandler, InitializingBean {
      * @param handlers The {@link List} of {@link ExceptionHandler} that will be used to handle exceptions.
      */
     /* package */ ErrorHandlerImpl(final List<ExceptionHandler<? extends Throwable, ?>> handlers) {
-        final Set<ExceptionHandlerContainer<?, ?>> container = toContainers(handlers);
+        this(handlers, Collections.emptyList(), new ExceptionFingerprinter());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param handlers      The {@link List} of {@link ExceptionHandler} that will be used to handle exceptions.
+     * @param listeners     The {@link List} of {@link HandledErrorListener} notified each time an exception is handled.
+     * @param fingerprinter The {@link ExceptionFingerprinter} used to fingerprint the exceptions
+     *                      passed to the {@code listeners}.
+     */
+    /* package */ ErrorHandlerImpl(final List<ExceptionHandler<? extends Throwable, ?>> handlers,
+                                   final List<HandledErrorListener> listeners,
+                                   final ExceptionFingerprinter fingerprinter) {
+        this(handlers, listeners, fingerprinter, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param handlers      The {@link List} of {@link ExceptionHandler} that will be used to handle exceptions.
+     * @param listeners     The {@link List} of {@link HandledErrorListener} notified each time an exception is handled.
+     * @param fingerprinter The {@link ExceptionFingerprinter} used to fingerprint the exceptions
+     *                      passed to the {@code listeners}.
+     * @param warmUp        The {@link ErrorHandlerWarmUp} performed when initialized (null for no warm-up).
+     */
+    /* package */ ErrorHandlerImpl(final List<ExceptionHandler<? extends Throwable, ?>> handlers,
+                                   final List<HandledErrorListener> listeners,
+                                   final ExceptionFingerprinter fingerprinter,
+                                   final ErrorHandlerWarmUp warmUp) {
+        this(handlers, listeners, fingerprinter, warmUp, Collections.emptyMap());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param handlers        The {@link List} of {@link ExceptionHandler} that will be used to handle exceptions.
+     * @param listeners       The {@link List} of {@link HandledErrorListener} notified each time an exception
+     *                        is handled.
+     * @param fingerprinter   The {@link ExceptionFingerprinter} used to fingerprint the exceptions
+     *                        passed to the {@code listeners}.
+     * @param warmUp          The {@link ErrorHandlerWarmUp} performed when initialized (null for no warm-up).
+     * @param scopedInstances The {@link HandlerInstances} of the handlers that are not {@link HandlerScope#SHARED},
+     *                        by handler.
+     */
+    /* package */ ErrorHandlerImpl(final List<ExceptionHandler<? extends Throwable, ?>> handlers,
+                                   final List<HandledErrorListener> listeners,
+                                   final ExceptionFingerprinter fingerprinter,
+                                   final ErrorHandlerWarmUp warmUp,
+                                   final Map<ExceptionHandler<?, ?>, HandlerInstances> scopedInstances) {
+        Assert.notNull(listeners, "The listeners list must not be null");
+        Assert.notNull(fingerprinter, "The fingerprinter must not be null");
+        final Map<Boolean, List<ExceptionHandler<? extends Throwable, ?>>> byKeyed = handlers.stream()
+                .collect(Collectors.partitioningBy(ErrorHandlerImpl::isKeyed));
+        final Set<ExceptionHandlerContainer<?, ?>> container = toContainers(byKeyed.get(false));
 
         // Check if there is an ExceptionHandlerContainer for Throwable
         final long throwableCount = container.stream()
@@ -64,35 +165,361 @@ public class ErrorHandlerImpl implements ErrorHandler, InitializingBean {
         }
 
         this.handlers = Collections.unmodifiableSet(container); // Make sure the set does not change never.
+        this.dispatchIndex = new DispatchIndex(this.handlers.stream()
+                .collect(Collectors.toMap(ExceptionHandlerContainer::getExceptionClass,
+                        ExceptionHandlerContainer::getHandler)),
+                byKeyed.get(true));
+        this.variantCache = new VariantCache();
+        this.budgets = new HandlerBudgets();
+        this.retryPolicies = new RetryPolicies();
+        this.scopedInstances = new IdentityHashMap<>(scopedInstances);
+        this.listeners = listeners.toArray(new HandledErrorListener[0]);
+        this.fingerprinter = fingerprinter;
+        this.warmUp = warmUp;
+        this.warmUpReport = null;
+    }
+
+    /**
+     * Constructor for a child of the given {@code parent} (i.e an overlay).
+     * <p>
+     * The child holds just the given (overriding) handlers, and delegates to the dispatch index of the parent,
+     * which is shared: for each type, its handlers are tried before those of the parent (e.g a handler of the child
+     * declining an exception passes it to the handler of the parent for the same type).
+     * The listeners, fingerprinter, variants cache, budgets and retry policies are shared with the parent.
+     *
+     * @param parent   The parent {@link ErrorHandlerImpl}.
+     * @param handlers The {@link List} of overriding {@link ExceptionHandler}s.
+     */
+    /* package */ ErrorHandlerImpl(final ErrorHandlerImpl parent,
+                                   final List<ExceptionHandler<? extends Throwable, ?>> handlers) {
+        this(parent, handlers, Collections.emptyMap());
+    }
+
+    /**
+     * Constructor for a child of the given {@code parent} (i.e an overlay).
+     *
+     * @param parent          The parent {@link ErrorHandlerImpl}.
+     * @param handlers        The {@link List} of overriding {@link ExceptionHandler}s.
+     * @param scopedInstances The {@link HandlerInstances} of the overriding handlers that are not
+     *                        {@link HandlerScope#SHARED}, by handler.
+     * @see #ErrorHandlerImpl(ErrorHandlerImpl, List)
+     */
+    /* package */ ErrorHandlerImpl(final ErrorHandlerImpl parent,
+                                   final List<ExceptionHandler<? extends Throwable, ?>> handlers,
+                                   final Map<ExceptionHandler<?, ?>, HandlerInstances> scopedInstances) {
+        Assert.notNull(parent, "The parent must not be null");
+        final Map<Boolean, List<ExceptionHandler<? extends Throwable, ?>>> byKeyed = handlers.stream()
+                .collect(Collectors.partitioningBy(ErrorHandlerImpl::isKeyed));
+        this.handlers = Collections.unmodifiableSet(toContainers(byKeyed.get(false)));
+        this.dispatchIndex = new DispatchIndex(parent.dispatchIndex, this.handlers.stream()
+                .collect(Collectors.toMap(ExceptionHandlerContainer::getExceptionClass,
+                        ExceptionHandlerContainer::getHandler)),
+                byKeyed.get(true));
+        this.variantCache = parent.variantCache;
+        this.budgets = parent.budgets;
+        this.retryPolicies = parent.retryPolicies;
+        this.scopedInstances = new IdentityHashMap<>(parent.scopedInstances);
+        this.scopedInstances.putAll(scopedInstances);
+        this.listeners = parent.listeners;
+        this.fingerprinter = parent.fingerprinter;
+        this.warmUp = null;
+        this.warmUpReport = null;
     }
 
 
     @Override
     public void afterPropertiesSet() {
         LOGGER.info("Error handler initialized");
-        LOGGER.debug("Will handle {}", this.handlers.stream()
-                .map(ExceptionHandlerContainer::getExceptionClass)
-                .collect(Collectors.toSet()));
+        LOGGER.debug("Will handle {}", this.dispatchIndex.getHandledClasses());
+        if (warmUp != null) {
+            warmUp(warmUp);
+        }
+    }
+
+    /**
+     * Warms up this error handler according to the given {@code warmUp}
+     * (i.e resolves the dispatch of the handled and likely types, and exercises the handlers if configured).
+     * It is performed when initialized if an {@link ErrorHandlerWarmUp} was configured,
+     * but it can be called at any time (e.g before the instance starts receiving traffic).
+     *
+     * @param warmUp The {@link ErrorHandlerWarmUp} to be performed.
+     * @return The {@link WarmUpReport}.
+     */
+    public WarmUpReport warmUp(final ErrorHandlerWarmUp warmUp) {
+        Assert.notNull(warmUp, "The warm-up must not be null");
+        final long start = System.nanoTime();
+        final Set<Class<?>> types = new LinkedHashSet<>(dispatchIndex.getHandledClasses());
+        types.addAll(warmUp.getExceptionTypes());
+        types.forEach(dispatchIndex::resolve);
+        int exercised = 0;
+        final Set<Class<?>> skipped = new LinkedHashSet<>();
+        final Set<Class<?>> failed = new LinkedHashSet<>();
+        if (warmUp.getIterations() > 0) {
+            for (final Class<?> type : types) {
+                final Throwable exception = instantiate(type);
+                final Exercise outcome =
+                        exception == null ? Exercise.FAILED : exercise(exception, warmUp.getIterations());
+                if (outcome == Exercise.EXERCISED) {
+                    exercised++;
+                } else if (outcome == Exercise.SKIPPED) {
+                    skipped.add(type);
+                } else {
+                    failed.add(type);
+                }
+            }
+        }
+        final WarmUpReport report = new WarmUpReport(Duration.ofNanos(System.nanoTime() - start), types.size(),
+                exercised, skipped, failed);
+        LOGGER.info("Error handler warmed up in {} ms ({} types resolved, {} exercised {} times, {} skipped)",
+                report.getDuration().toMillis(), types.size(), exercised, warmUp.getIterations(), skipped.size());
+        if (!skipped.isEmpty()) {
+            LOGGER.debug("Did not exercise the budgeted handlers of {}", skipped);
+        }
+        if (!failed.isEmpty()) {
+            LOGGER.debug("Could not exercise the handlers of {}", failed);
+        }
+        this.warmUpReport = report;
+        return report;
+    }
+
+    /**
+     * @return The {@link WarmUpReport} of the last warm-up, or empty if not warmed up.
+     */
+    public Optional<WarmUpReport> getWarmUpReport() {
+        return Optional.ofNullable(warmUpReport);
+    }
+
+    /**
+     * Returns the amount of calls to each {@link BudgetedExceptionHandler} that were answered with its fallback result
+     * (i.e it went over budget, threw an exception, or could not be run), in order to find the slow handlers.
+     *
+     * @return A {@link Map} holding the amount of violations of each handler class (only those with violations).
+     */
+    public Map<Class<?>, Long> getBudgetViolations() {
+        return budgets.getViolations();
     }
 
     @Override
     public <T extends Throwable, E> HandlingResult<E> handle(final T exception) {
+        return handle(exception, HandlingContext.empty());
+    }
+
+    @Override
+    public <T extends Throwable, E> HandlingResult<E> handle(final T exception, final HandlingContext context) {
         Assert.notNull(exception, "The exception must not be null");
-        @SuppressWarnings("unchecked") final Class<T> receivedExceptionClass = (Class<T>) exception.getClass();
-        @SuppressWarnings("unchecked") final ExceptionHandler<T, E> handler = this.handlers.stream()
-                .filter(container -> (container.getExceptionClass().isAssignableFrom(receivedExceptionClass)))
-                .map(container -> (ExceptionHandlerContainer<T, E>) container)
-                .map(container -> new ContainerWithDistance<>(receivedExceptionClass, container))
-                .min(Comparator.comparingInt(ContainerWithDistance::getDistance))
-                .map(ContainerWithDistance::getContainer)
-                .orElseThrow(() -> {
-                    LOGGER.error("No container saved for received exception, which is a throwable");
-                    return new IllegalStateException("No container saved for received exception, which is a throwable."
-                            + " Consider storing a ExceptionHandlerContainer for Throwable?");
-                })
-                .getHandler();
-
-        return handler.handle(exception);
+        Assert.notNull(context, "The context must not be null");
+        if (Tracing.TRACER != null) {
+            final ErrorHandlerTracer.DispatchSpan span = Tracing.TRACER.beginDispatch();
+            if (span != null) {
+                final boolean cached = dispatchIndex.isResolved(exception.getClass());
+                final DispatchIndex.Candidate[] candidates = dispatchIndex.resolve(exception.getClass());
+                span.end();
+                return dispatch(exception, context, candidates, span, cached);
+            }
+        }
+        return dispatch(exception, context, dispatchIndex.resolve(exception.getClass()), null, false);
+    }
+
+    /**
+     * Makes the handlers selected by the given {@code candidates} handle the given {@code exception}, in order,
+     * until one of them does not decline it (or else, the default handler).
+     *
+     * @param exception  The exception to be handled.
+     * @param context    The {@link HandlingContext} in which the exception is handled.
+     * @param candidates The {@link DispatchIndex.Candidate}s resolved for the exception class.
+     * @param span       The {@link ErrorHandlerTracer.DispatchSpan} to be committed with the chosen handler
+     *                   (null if not traced).
+     * @param cached     Whether the candidates were already resolved (only used when traced).
+     * @param <E>        The concrete type of entity in the result.
+     * @return The {@link HandlingResult}.
+     */
+    private <E> HandlingResult<E> dispatch(final Throwable exception, final HandlingContext context,
+                                           final DispatchIndex.Candidate[] candidates,
+                                           final ErrorHandlerTracer.DispatchSpan span, final boolean cached) {
+        int declined = 0;
+        for (final DispatchIndex.Candidate candidate : candidates) {
+            final ExceptionHandler<Throwable, Object> handler = candidate.select(exception);
+            if (handler == null) {
+                continue;
+            }
+            final HandlingResult<Object> result = invoke(handler, exception, context);
+            if (result == null || !result.isDeclined()) {
+                if (span != null) {
+                    span.commit(exception.getClass(), handler.getClass(), cached, declined);
+                }
+                return handled(exception, context, handler, result);
+            }
+            declined++;
+        }
+        // Every handler in the exception's hierarchy declined
+        if (span != null) {
+            span.commit(exception.getClass(), DEFAULT_THROWABLE_HANDLER.getClass(), cached, declined);
+        }
+        return handled(exception, context, DEFAULT_THROWABLE_HANDLER, DEFAULT_THROWABLE_HANDLER.handle(exception));
+    }
+
+    /**
+     * Classifies the given {@code result} according to the declared {@link RetryHint}s (if it has no
+     * {@link RetryPolicy}), notifies the {@code listeners} (if any) that the given {@code exception} has been handled,
+     * and returns the classified result.
+     *
+     * @param exception The handled exception.
+     * @param context   The {@link HandlingContext} in which the exception was handled.
+     * @param handler   The {@link ExceptionHandler} that handled the exception.
+     * @param result    The {@link HandlingResult} returned by the handler.
+     * @param <E>       The concrete type of entity in the result.
+     * @return The classified {@code result}.
+     */
+    private <E> HandlingResult<E> handled(final Throwable exception, final HandlingContext context,
+                                          final ExceptionHandler<?, ?> handler,
+                                          final HandlingResult<Object> result) {
+        final HandlingResult<Object> classified = retryPolicies.classify(exception, handler, result);
+        if (listeners.length > 0) {
+            notifyListeners(new HandledError(exception, context, handler, classified, fingerprinter));
+        }
+        //noinspection unchecked
+        return (HandlingResult<E>) classified;
+    }
+
+    /**
+     * Notifies the given {@code handledError} to the {@code listeners}.
+     * Exceptions thrown by the listeners are logged, so they do not affect the handling of the exception.
+     *
+     * @param handledError The {@link HandledError} to be notified.
+     */
+    private void notifyListeners(final HandledError handledError) {
+        for (final HandledErrorListener listener : listeners) {
+            try {
+                listener.onHandledError(handledError);
+            } catch (Throwable e) {
+                LOGGER.warn("HandledErrorListener {} failed", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Makes the given {@code handler} handle the given {@code exception},
+     * tracing its execution if there is an {@link ErrorHandlerTracer}.
+     *
+     * @param handler   The {@link ExceptionHandler} in charge of handling the exception.
+     * @param exception The exception to be handled.
+     * @param context   The {@link HandlingContext} in which the exception is handled.
+     * @return The {@link HandlingResult} returned by the handler (or its fallback result if it violated its budget).
+     */
+    private HandlingResult<Object> invoke(final ExceptionHandler<Throwable, Object> handler,
+                                          final Throwable exception, final HandlingContext context) {
+        if (Tracing.TRACER != null) {
+            final ErrorHandlerTracer.HandlerExecutionSpan span = Tracing.TRACER.beginHandlerExecution();
+            if (span != null) {
+                final HandlingResult<Object> result = invokeWithinBudget(handler, exception, context);
+                final boolean declined = result != null && result.isDeclined();
+                span.end(exception.getClass(), handler.getClass(), declined,
+                        result == null || declined ? -1 : result.getHttpErrorCode());
+                return result;
+            }
+        }
+        return invokeWithinBudget(handler, exception, context);
+    }
+
+    /**
+     * Makes the given {@code handler} handle the given {@code exception},
+     * within its budget if it is a {@link BudgetedExceptionHandler}.
+     *
+     * @param handler   The {@link ExceptionHandler} in charge of handling the exception.
+     * @param exception The exception to be handled.
+     * @param context   The {@link HandlingContext} in which the exception is handled.
+     * @return The {@link HandlingResult} returned by the handler (or its fallback result if it violated its budget).
+     */
+    @SuppressWarnings("unchecked")
+    private HandlingResult<Object> invokeWithinBudget(final ExceptionHandler<Throwable, Object> handler,
+                                                      final Throwable exception, final HandlingContext context) {
+        if (handler instanceof BudgetedExceptionHandler) {
+            return budgets.handle((BudgetedExceptionHandler<Throwable, Object>) (ExceptionHandler<?, ?>) handler,
+                    exception, () -> call(handler, exception, context));
+        }
+        return call(handler, exception, context);
+    }
+
+    /**
+     * Makes the handlers of the given synthetic {@code exception} handle it the given amount of {@code times},
+     * as {@link #handle(Throwable, HandlingContext)} does, but without notifying the {@code listeners}.
+     * {@link BudgetedExceptionHandler}s are not exercised (i.e they stop the warm-up of the exception).
+     *
+     * @param exception The synthetic exception.
+     * @param times     The amount of times it must be handled.
+     * @return The {@link Exercise} outcome.
+     */
+    private Exercise exercise(final Throwable exception, final int times) {
+        try {
+            for (int i = 0; i < times; i++) {
+                for (final DispatchIndex.Candidate candidate : dispatchIndex.resolve(exception.getClass())) {
+                    final ExceptionHandler<Throwable, Object> handler = candidate.select(exception);
+                    if (handler == null) {
+                        continue;
+                    }
+                    if (handler instanceof BudgetedExceptionHandler) {
+                        return Exercise.SKIPPED;
+                    }
+                    final HandlingResult<Object> result = call(handler, exception, HandlingContext.empty());
+                    if (result == null || !result.isDeclined()) {
+                        break;
+                    }
+                }
+            }
+            return Exercise.EXERCISED;
+        } catch (Throwable e) {
+            LOGGER.debug("Handlers failed when warming up with {}", exception, e);
+            return Exercise.FAILED;
+        }
+    }
+
+    /**
+     * Calls the given {@code handler} to handle the given {@code exception}
+     * (or an instance of its scope, if it is not {@link HandlerScope#SHARED}).
+     *
+     * @param handler   The {@link ExceptionHandler} in charge of handling the exception.
+     * @param exception The exception to be handled.
+     * @param context   The {@link HandlingContext} in which the exception is handled.
+     * @return The {@link HandlingResult} returned by the handler.
+     */
+    private HandlingResult<Object> call(final ExceptionHandler<Throwable, Object> handler,
+                                        final Throwable exception, final HandlingContext context) {
+        final HandlerInstances instances = scopedInstances.isEmpty() ? null : scopedInstances.get(handler);
+        if (instances == null) {
+            return callInstance(handler, handler, exception, context);
+        }
+        final ExceptionHandler<Throwable, Object> instance = instances.acquire();
+        try {
+            return callInstance(handler, instance, exception, context);
+        } finally {
+            instances.release(instance);
+        }
+    }
+
+    /**
+     * Calls the given {@code instance} of the given {@code handler} to handle the given {@code exception},
+     * passing the given {@code context} to those handlers that take it into account.
+     * Variants are cached for the registered {@code handler} (i.e they are shared by all its scoped instances).
+     *
+     * @param handler   The registered {@link ExceptionHandler} in charge of handling the exception.
+     * @param instance  The instance of the {@code handler} that handles it (the handler itself if it is shared).
+     * @param exception The exception to be handled.
+     * @param context   The {@link HandlingContext} in which the exception is handled.
+     * @return The {@link HandlingResult} returned by the handler.
+     */
+    @SuppressWarnings("unchecked")
+    private HandlingResult<Object> callInstance(final ExceptionHandler<Throwable, Object> handler,
+                                                final ExceptionHandler<Throwable, Object> instance,
+                                                final Throwable exception, final HandlingContext context) {
+        if (instance instanceof VariantExceptionHandler) {
+            final HandlingResult<?> result = variantCache.handle(handler,
+                    (VariantExceptionHandler<Throwable>) (ExceptionHandler<?, ?>) instance, exception, context);
+            return (HandlingResult<Object>) result;
+        }
+        if (instance instanceof ContextualExceptionHandler) {
+            return ((ContextualExceptionHandler<Throwable, Object>) instance).handle(exception, context);
+        }
+        return instance.handle(exception);
     }
 
 
@@ -137,33 +564,60 @@ public class ErrorHandlerImpl implements ErrorHandler, InitializingBean {
     }
 
     /**
-     * Calculates the distance that exists from the given {@code receivedExceptionClass}
-     * to the given {@code savedExceptionClass} in the class hierarchy.
+     * Creates a synthetic instance of the given {@link Throwable} {@code type} (used to warm up its handlers),
+     * with its {@code (String)} constructor, or its no arguments constructor.
      *
-     * @param receivedExceptionClass The {@link Class} whose distance to the given {@code savedExceptionClass}
-     *                               must be calculated.
-     * @param savedExceptionClass    The {@link Class} to which the distance must be calculated.
-     * @return The distance between the two classes.
-     * @throws IllegalArgumentException If any of both classes is null or if the given {@code receivedExceptionClass}
-     *                                  is not a subclass of the given {@code savedExceptionClass}.
-     */
-    private static <T extends E, E extends Throwable> int distance(final Class<T> receivedExceptionClass,
-                                                                   final Class<E> savedExceptionClass)
-            throws IllegalArgumentException {
-        Assert.notNull(receivedExceptionClass, "Received null as exception to handle");
-        Assert.notNull(savedExceptionClass, "A null was saved as a managed exception");
-        Assert.isTrue(savedExceptionClass.isAssignableFrom(receivedExceptionClass),
-                "Received exception class is not assignable from saved exception class");
-        int distance = 0;
-        Class<?> actual = receivedExceptionClass;
-        while (actual != savedExceptionClass) {
-            distance++;
-            actual = actual.getSuperclass();
+     * @param type The {@link Throwable} type.
+     * @return The synthetic instance, or null if it could not be created (e.g the type is abstract).
+     */
+    private static Throwable instantiate(final Class<?> type) {
+        if (!Throwable.class.isAssignableFrom(type) || Modifier.isAbstract(type.getModifiers())) {
+            return null;
         }
-        return distance;
+        try {
+            return (Throwable) type.getConstructor(String.class).newInstance("warm-up");
+        } catch (NoSuchMethodException e) {
+            try {
+                return (Throwable) type.getConstructor().newInstance();
+            } catch (ReflectiveOperationException | RuntimeException e2) {
+                return null;
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Indicates whether the given {@code handler} is a {@link KeyedExceptionHandler},
+     * an {@link IntKeyedExceptionHandler} or a {@link MessagePatternExceptionHandler}.
+     *
+     * @param handler The {@link ExceptionHandler} to be checked.
+     * @return {@code true} if it is a keyed handler, or {@code false} otherwise.
+     */
+    private static boolean isKeyed(final ExceptionHandler<? extends Throwable, ?> handler) {
+        return handler instanceof KeyedExceptionHandler || handler instanceof IntKeyedExceptionHandler
+                || handler instanceof MessagePatternExceptionHandler;
     }
 
 
+    /**
+     * The outcome of exercising the handlers of a type in a warm-up.
+     */
+    private enum Exercise {
+        /**
+         * The handlers were exercised.
+         */
+        EXERCISED,
+        /**
+         * The handlers were not exercised, as the type is handled by a {@link BudgetedExceptionHandler}.
+         */
+        SKIPPED,
+        /**
+         * The type could not be instantiated, or its handlers failed.
+         */
+        FAILED,
+    }
+
     /**
      * Container class that holds a {@link Class} of object that extends {@link Throwable},
      * together with a {@link Function} that receives the said object and returns an
@@ -193,10 +647,7 @@ public class ErrorHandlerImpl implements ErrorHandler, InitializingBean {
          */
         private ExceptionHandlerContainer(final ExceptionHandler<T, E> handler) {
             Assert.notNull(handler, "The handler must not be null");
-            //noinspection unchecked
-            this.exceptionClass = (Class<T>) ResolvableType.forClass(ExceptionHandler.class, handler.getClass())
-                    .getGeneric(0)
-                    .resolve();
+            this.exceptionClass = DispatchIndex.resolveExceptionClass(handler);
             this.handler = handler;
         }
 
@@ -240,54 +691,4 @@ public class ErrorHandlerImpl implements ErrorHandler, InitializingBean {
             return exceptionClass.hashCode();
         }
     }
-
-    /**
-     * Container class that holds a {@link ExceptionHandlerContainer} together with the distance from the
-     * {@link Throwable} class in that container to a given subclass of {@link Throwable} in the class hierarchy.
-     * This container is used to avoid recalculating the distance each time two classes must be compared.
-     *
-     * @param <T> The concrete subtype of {@link Throwable}.
-     * @param <E> The concrete type of entity being sent in the handling result
-     *            that will be returned by the {@link ExceptionHandler}.
-     */
-    private final static class ContainerWithDistance<T extends Throwable, E> {
-
-        /**
-         * The distance from a given subclass of {@link Throwable}
-         * to the {@link Throwable} held in the {@code container.}
-         */
-        private final int distance;
-
-        /**
-         * The {@link ExceptionHandlerContainer} that holds a {@link Throwable} to which the distance must be held.
-         */
-        private final ExceptionHandlerContainer<T, E> container;
-
-        /**
-         * Constructor.
-         *
-         * @param exceptionClass The subclass of {@link Throwable} from which the distance must be calculated and held.
-         * @param container      The {@link ExceptionHandlerContainer} that holds the {@link Throwable} superclass.
-         */
-        private ContainerWithDistance(final Class<T> exceptionClass, final ExceptionHandlerContainer<T, E> container) {
-            this.distance = distance(exceptionClass, container.getExceptionClass());
-            this.container = container;
-        }
-
-        /**
-         * @return The distance from a given subclass of {@link Throwable}
-         * to the {@link Throwable} held in the {@code container.}
-         */
-        private int getDistance() {
-            return distance;
-        }
-
-        /**
-         * @return The {@link ExceptionHandlerContainer} that holds a {@link Throwable}
-         * to which the distance must be held.
-         */
-        private ExceptionHandlerContainer<T, E> getContainer() {
-            return container;
-        }
-    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+/**
+ * Service provider interface to trace the work of the error handlers (e.g as JDK Flight Recorder events, which the
+ * {@code error-handler-jfr} module does), without making the library depend on the tracing API.
+ * <p>
+ * The tracer is found through {@link java.util.ServiceLoader} (i.e declared in a
+ * {@code META-INF/services/com.bellotapps.utils.error_handler.ErrorHandlerTracer} file) when the library is first
+ * used, and it is the only one. Each {@code begin} method starts a span and returns it,
+ * or returns {@code null} if the span is not traced (e.g the event is disabled), in which case nothing else is done.
+ * Implementations must be thread safe, and should be cheap when nothing is traced.
+ */
+public interface ErrorHandlerTracer {
+
+    /**
+     * Begins the span of the resolution of the handlers of an exception.
+     *
+     * @return The begun {@link DispatchSpan}, or {@code null} if it is not traced.
+     */
+    DispatchSpan beginDispatch();
+
+    /**
+     * Begins the span of the execution of an {@link ExceptionHandler} (within its budget, if it has one).
+     *
+     * @return The begun {@link HandlerExecutionSpan}, or {@code null} if it is not traced.
+     */
+    HandlerExecutionSpan beginHandlerExecution();
+
+    /**
+     * Begins the span of the scanning of a package for {@link ExceptionHandler}s by an {@link ErrorHandlerFactory}
+     * (including getting or instantiating them).
+     *
+     * @return The begun {@link PackageScanSpan}, or {@code null} if it is not traced.
+     */
+    PackageScanSpan beginPackageScan();
+
+    /**
+     * Begins the span of getting (from the bean factory) or instantiating an {@link ExceptionHandler}
+     * found by an {@link ErrorHandlerFactory}.
+     *
+     * @return The begun {@link HandlerInstantiationSpan}, or {@code null} if it is not traced.
+     */
+    HandlerInstantiationSpan beginHandlerInstantiation();
+
+
+    /**
+     * The span of the resolution of the handlers of an exception.
+     * It ends once the handlers are resolved, and it is committed once one of them handles the exception.
+     */
+    interface DispatchSpan {
+
+        /**
+         * Ends the span (i.e the handlers are resolved).
+         */
+        void end();
+
+        /**
+         * Commits the (ended) span.
+         *
+         * @param exceptionClass The class of the handled exception.
+         * @param handlerClass   The class of the handler that handled the exception.
+         * @param cached         Whether the handlers of the exception class were already resolved.
+         * @param declined       The amount of handlers that declined the exception before the chosen one.
+         */
+        void commit(Class<?> exceptionClass, Class<?> handlerClass, boolean cached, int declined);
+    }
+
+    /**
+     * The span of the execution of an {@link ExceptionHandler}.
+     */
+    interface HandlerExecutionSpan {
+
+        /**
+         * Ends and commits the span.
+         *
+         * @param exceptionClass The class of the handled exception.
+         * @param handlerClass   The class of the handler.
+         * @param declined       Whether the handler declined the exception.
+         * @param status         The HTTP status code of the result (-1 if none).
+         */
+        void end(Class<?> exceptionClass, Class<?> handlerClass, boolean declined, int status);
+    }
+
+    /**
+     * The span of the scanning of a package for {@link ExceptionHandler}s.
+     */
+    interface PackageScanSpan {
+
+        /**
+         * Ends and commits the span.
+         *
+         * @param packageName The scanned package.
+         * @param handlers    The amount of handlers found in the package.
+         */
+        void end(String packageName, int handlers);
+    }
+
+    /**
+     * The span of getting or instantiating an {@link ExceptionHandler}.
+     */
+    interface HandlerInstantiationSpan {
+
+        /**
+         * Ends and commits the span.
+         *
+         * @param handlerClass The class of the handler.
+         * @param fromBean     Whether the handler is a bean of the bean factory.
+         */
+        void end(Class<?> handlerClass, boolean fromBean);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.Assert;
+
+import java.util.*;
+
+/**
+ * Configuration of the warm-up performed by an {@link ErrorHandlerImpl} when initialized
+ * (i.e in {@link ErrorHandlerImpl#afterPropertiesSet()}), so the first exceptions handled after a deploy
+ * are not slowed down by cold dispatch, class initialization of the handlers and interpreted code.
+ * <p>
+ * The warm-up resolves the dispatch of every handled {@link Throwable} type and of the given likely types
+ * (e.g the exceptions the application is known to throw, which might be subtypes of the handled types).
+ * Optionally, it also exercises the handlers with synthetic instances of those types
+ * (created with their {@code (String)} or no arguments constructor), a given amount of times.
+ * Exercising handlers does not notify the {@link HandledErrorListener}s,
+ * and skips {@link BudgetedExceptionHandler}s (so their violations only count real calls).
+ * <p>
+ * Warm-up is opt-in: it is performed when there is a bean of this class in the {@link ErrorHandlerFactory}'s
+ * bean factory. Instances are immutable.
+ *
+ * @see ErrorHandlerImpl#warmUp(ErrorHandlerWarmUp)
+ */
+public final class ErrorHandlerWarmUp {
+
+    /**
+     * The likely {@link Throwable} types, whose dispatch is resolved together with that of the handled types.
+     */
+    private final Set<Class<? extends Throwable>> exceptionTypes;
+
+    /**
+     * The amount of times the handlers are exercised with each type (zero to just resolve the dispatch).
+     */
+    private final int iterations;
+
+
+    /**
+     * Constructor.
+     *
+     * @param exceptionTypes The likely {@link Throwable} types (not copied).
+     * @param iterations     The amount of times the handlers are exercised with each type.
+     */
+    private ErrorHandlerWarmUp(final Set<Class<? extends Throwable>> exceptionTypes, final int iterations) {
+        this.exceptionTypes = Collections.unmodifiableSet(exceptionTypes);
+        this.iterations = iterations;
+    }
+
+
+    /**
+     * @return The likely {@link Throwable} types, whose dispatch is resolved together with that of the handled types.
+     */
+    public Set<Class<? extends Throwable>> getExceptionTypes() {
+        return exceptionTypes;
+    }
+
+    /**
+     * @return The amount of times the handlers are exercised with each type (zero to just resolve the dispatch).
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Creates a copy of this warm-up that also exercises the handlers the given amount of {@code iterations}
+     * with each type (e.g a few thousands to get the handling path compiled by the JIT).
+     *
+     * @param iterations The amount of times the handlers are exercised with each type.
+     * @return The new {@link ErrorHandlerWarmUp}.
+     */
+    public ErrorHandlerWarmUp exercisingHandlers(final int iterations) {
+        Assert.isTrue(iterations >= 0, "The iterations must not be negative");
+        return new ErrorHandlerWarmUp(new LinkedHashSet<>(exceptionTypes), iterations);
+    }
+
+    @Override
+    public String toString() {
+        return "ErrorHandlerWarmUp{exceptionTypes=" + exceptionTypes + ", iterations=" + iterations + "}";
+    }
+
+
+    /**
+     * Creates an {@link ErrorHandlerWarmUp} that just resolves the dispatch of the handled types
+     * and the given likely {@code exceptionTypes}.
+     *
+     * @param exceptionTypes The likely {@link Throwable} types.
+     * @return The created {@link ErrorHandlerWarmUp}.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs") // The array is just read (into a set), so it does not pollute the heap
+    public static ErrorHandlerWarmUp of(final Class<? extends Throwable>... exceptionTypes) {
+        return of(Arrays.asList(exceptionTypes));
+    }
+
+    /**
+     * Creates an {@link ErrorHandlerWarmUp} that just resolves the dispatch of the handled types
+     * and the given likely {@code exceptionTypes}.
+     *
+     * @param exceptionTypes The likely {@link Throwable} types.
+     * @return The created {@link ErrorHandlerWarmUp}.
+     */
+    public static ErrorHandlerWarmUp of(final Collection<Class<? extends Throwable>> exceptionTypes) {
+        Assert.notNull(exceptionTypes, "The exception types must not be null");
+        Assert.isTrue(exceptionTypes.stream().allMatch(Objects::nonNull), "The exception types must not contain null");
+        return new ErrorHandlerWarmUp(new LinkedHashSet<>(exceptionTypes), 0);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.context.MessageSource;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Helper for {@link ExceptionHandler}s that build localized messages for the error representation,
+ * resolving them through a {@link MessageSource}.
+ * <p>
+ * Each message template is resolved just once for each code and locale, and kept in a bounded cache, already compiled
+ * into a {@link MessageFormat} (which serves any arguments), so handling an error does not need to look up and parse
+ * the message again. Messages without arguments are also cached already rendered (i.e a map lookup).
+ * When the cache is full, messages are still resolved, but not cached.
+ * <p>
+ * Messages are rendered the same way the {@link MessageSource} would
+ * (i.e no {@link MessageFormat} processing is applied to messages without arguments,
+ * and {@link MessageSourceResolvable} arguments are resolved).
+ * Note that this helper assumes the {@link MessageSource} content does not change
+ * (use {@link #clear()} if it does).
+ * <p>
+ * If the {@link MessageSource} always applies {@link MessageFormat} processing
+ * (e.g {@code AbstractMessageSource#setAlwaysUseMessageFormat(boolean)}), raw templates can not be obtained from it,
+ * so messages are not cached and each call is delegated to the {@link MessageSource}.
+ *
+ * @see ErrorMessageResolverAware
+ */
+public final class ErrorMessageResolver {
+
+    /**
+     * The default maximum amount of cached messages.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * A code that is not expected to exist, used to detect whether the {@link MessageSource}
+     * always applies {@link MessageFormat} processing.
+     */
+    private static final String PROBE_CODE = ErrorMessageResolver.class.getName() + ".alwaysUseMessageFormatProbe";
+
+    /**
+     * The {@link MessageSource} from where messages are resolved.
+     */
+    private final MessageSource messageSource;
+
+    /**
+     * The maximum amount of cached messages.
+     */
+    private final int maxSize;
+
+    /**
+     * The cached messages.
+     */
+    private final ConcurrentMap<Key, Message> messages;
+
+    /**
+     * Indicates whether the {@link MessageSource} always applies {@link MessageFormat} processing
+     * (i.e messages must be delegated to it, as the templates it returns are already processed).
+     */
+    private final boolean delegating;
+
+
+    /**
+     * Constructor, using the {@link #DEFAULT_MAX_SIZE}.
+     *
+     * @param messageSource The {@link MessageSource} from where messages are resolved.
+     */
+    public ErrorMessageResolver(final MessageSource messageSource) {
+        this(messageSource, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param messageSource The {@link MessageSource} from where messages are resolved.
+     * @param maxSize       The maximum amount of cached messages.
+     */
+    public ErrorMessageResolver(final MessageSource messageSource, final int maxSize) {
+        Assert.notNull(messageSource, "The message source must not be null");
+        Assert.isTrue(maxSize >= 0, "The maximum size must not be negative");
+        this.messageSource = messageSource;
+        this.maxSize = maxSize;
+        this.messages = new ConcurrentHashMap<>();
+        this.delegating = alwaysUsesMessageFormat(messageSource);
+    }
+
+
+    /**
+     * Resolves the message with the given {@code code}, in the given {@code locale}.
+     *
+     * @param code   The code of the message.
+     * @param locale The locale of the message.
+     * @param args   The arguments of the message (if any).
+     * @return The resolved message.
+     * @throws NoSuchMessageException If no message is found for the given {@code code} and {@code locale}.
+     */
+    public String getMessage(final String code, final Locale locale, final Object... args)
+            throws NoSuchMessageException {
+        if (delegating) {
+            return messageSource.getMessage(code, args, locale);
+        }
+        final Message message = resolve(code, locale);
+        if (message == Message.MISSING) {
+            throw new NoSuchMessageException(code, locale);
+        }
+        return message.render(resolveArguments(args, locale));
+    }
+
+    /**
+     * Resolves the message with the given {@code code}, in the given {@code locale},
+     * using the given {@code defaultMessage} if there is no message for the code.
+     *
+     * @param code           The code of the message.
+     * @param defaultMessage The message to be used if there is no message for the given {@code code}
+     *                       (formatted with the given {@code args}, as the {@link MessageSource} would).
+     * @param locale         The locale of the message.
+     * @param args           The arguments of the message (if any).
+     * @return The resolved message.
+     */
+    public String getMessageOrDefault(final String code, final String defaultMessage, final Locale locale,
+                                      final Object... args) {
+        if (delegating) {
+            return messageSource.getMessage(code, args, defaultMessage, locale);
+        }
+        final Message message = resolve(code, locale);
+        if (message == Message.MISSING) {
+            return new Message(defaultMessage, locale).render(resolveArguments(args, locale));
+        }
+        return message.render(resolveArguments(args, locale));
+    }
+
+    /**
+     * Clears the cached messages (e.g when the {@link MessageSource} is reloaded).
+     */
+    public void clear() {
+        messages.clear();
+    }
+
+
+    /**
+     * Gets the {@link Message} for the given {@code code} and {@code locale},
+     * resolving it and caching it if not already cached.
+     *
+     * @param code   The code of the message.
+     * @param locale The locale of the message.
+     * @return The {@link Message} ({@link Message#MISSING} if there is no message for the code).
+     */
+    private Message resolve(final String code, final Locale locale) {
+        Assert.notNull(code, "The code must not be null");
+        Assert.notNull(locale, "The locale must not be null");
+        final Key key = new Key(code, locale);
+        final Message cached = messages.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Message message;
+        try {
+            // With no arguments, the message source returns the raw template (i.e without MessageFormat processing)
+            message = new Message(messageSource.getMessage(code, null, locale), locale);
+        } catch (NoSuchMessageException e) {
+            message = Message.MISSING;
+        }
+        if (messages.size() < maxSize) {
+            messages.putIfAbsent(key, message);
+        }
+        return message;
+    }
+
+    /**
+     * Checks whether the given {@code messageSource} always applies {@link MessageFormat} processing,
+     * by rendering a default message that {@link MessageFormat} changes (i.e an escaped single quote).
+     *
+     * @param messageSource The {@link MessageSource} to be checked.
+     * @return {@code true} if messages without arguments are processed by {@link MessageFormat},
+     * or {@code false} otherwise.
+     */
+    private static boolean alwaysUsesMessageFormat(final MessageSource messageSource) {
+        return !"''".equals(messageSource.getMessage(PROBE_CODE, null, "''", Locale.ROOT));
+    }
+
+    /**
+     * Resolves the {@link MessageSourceResolvable} arguments in the given {@code args}.
+     *
+     * @param args   The arguments of a message.
+     * @param locale The locale of the message.
+     * @return The resolved arguments.
+     */
+    private Object[] resolveArguments(final Object[] args, final Locale locale) {
+        if (args == null) {
+            return null;
+        }
+        Object[] resolved = args;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof MessageSourceResolvable) {
+                if (resolved == args) {
+                    resolved = args.clone();
+                }
+                resolved[i] = messageSource.getMessage((MessageSourceResolvable) args[i], locale);
+            }
+        }
+        return resolved;
+    }
+
+
+    /**
+     * The key of a cached message.
+     */
+    private static final class Key {
+
+        /**
+         * The code of the message.
+         */
+        private final String code;
+
+        /**
+         * The locale of the message.
+         */
+        private final Locale locale;
+
+        /**
+         * Constructor.
+         *
+         * @param code   The code of the message.
+         * @param locale The locale of the message.
+         */
+        private Key(final String code, final Locale locale) {
+            this.code = code;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key key = (Key) o;
+
+            return code.equals(key.code) && locale.equals(key.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * code.hashCode() + locale.hashCode();
+        }
+    }
+
+    /**
+     * A resolved message template, together with its compiled {@link MessageFormat}.
+     */
+    private static final class Message {
+
+        /**
+         * Marker for messages not found in the {@link MessageSource}.
+         */
+        private static final Message MISSING = new Message(null, Locale.ROOT);
+
+        /**
+         * The raw template (i.e what is rendered when there are no arguments).
+         */
+        private final String template;
+
+        /**
+         * The locale of the message.
+         */
+        private final Locale locale;
+
+        /**
+         * The compiled template (lazily created, as messages without arguments don't need it),
+         * which is never used to format (only copied).
+         */
+        private volatile MessageFormat format;
+
+        /**
+         * Constructor.
+         *
+         * @param template The raw template.
+         * @param locale   The locale of the message.
+         */
+        private Message(final String template, final Locale locale) {
+            this.template = template;
+            this.locale = locale;
+        }
+
+        /**
+         * Renders this message with the given {@code args}.
+         *
+         * @param args The arguments of the message, with {@link MessageSourceResolvable}s already resolved.
+         * @return The rendered message.
+         */
+        private String render(final Object[] args) {
+            if (ObjectUtils.isEmpty(args) || template == null) {
+                return template;
+            }
+            MessageFormat format = this.format;
+            if (format == null) {
+                format = new MessageFormat(template, locale); // Might be compiled twice on races, which is harmless
+                this.format = format;
+            }
+            // MessageFormat is not thread safe, so each call formats with its own copy (cheaper than parsing again)
+            return ((MessageFormat) format.clone()).format(args);
+        }
+    }
+}
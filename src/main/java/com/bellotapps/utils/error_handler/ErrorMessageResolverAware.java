@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+/**
+ * Interface to be implemented by {@link ExceptionHandler}s that need an {@link ErrorMessageResolver}
+ * to build localized messages.
+ * The {@link ErrorHandlerFactory} sets it when it creates the handler (or gets its bean),
+ * using the {@code messageSource} bean of its {@link org.springframework.beans.factory.BeanFactory}.
+ * If there is no such bean, the resolver is not set.
+ *
+ * @see ErrorMessageResolver
+ */
+public interface ErrorMessageResolverAware {
+
+    /**
+     * Sets the {@link ErrorMessageResolver} to be used by the implementing object.
+     *
+     * @param errorMessageResolver The {@link ErrorMessageResolver}.
+     */
+    void setErrorMessageResolver(final ErrorMessageResolver errorMessageResolver);
+}
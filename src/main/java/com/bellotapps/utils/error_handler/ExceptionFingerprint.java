@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.Assert;
+
+/**
+ * Fingerprint of a {@link Throwable}, used to group (or deduplicate) errors that are "the same" one
+ * (i.e same exception class, same message, except for its variable parts, and thrown from the same place).
+ *
+ * @see ExceptionFingerprinter
+ */
+public final class ExceptionFingerprint {
+
+    /**
+     * The class of the fingerprinted exception.
+     */
+    private final Class<? extends Throwable> exceptionClass;
+
+    /**
+     * The 64 bits hash of the exception.
+     */
+    private final long value;
+
+
+    /**
+     * Constructor.
+     *
+     * @param exceptionClass The class of the fingerprinted exception.
+     * @param value          The 64 bits hash of the exception.
+     */
+    /* package */ ExceptionFingerprint(final Class<? extends Throwable> exceptionClass, final long value) {
+        Assert.notNull(exceptionClass, "The exception class must not be null");
+        this.exceptionClass = exceptionClass;
+        this.value = value;
+    }
+
+
+    /**
+     * @return The class of the fingerprinted exception.
+     */
+    public Class<? extends Throwable> getExceptionClass() {
+        return exceptionClass;
+    }
+
+    /**
+     * @return The 64 bits hash of the exception.
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * @return The hash of the exception, as a 16 characters hexadecimal string.
+     */
+    public String toHexString() {
+        final String hex = Long.toHexString(value);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+
+    /**
+     * Equals based on {@code exceptionClass} and {@code value}.
+     *
+     * @param o The object to be compared with.
+     * @return {@code true} if they are the same, or {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ExceptionFingerprint)) return false;
+
+        final ExceptionFingerprint that = (ExceptionFingerprint) o;
+
+        return value == that.value && exceptionClass.equals(that.exceptionClass);
+    }
+
+    /**
+     * @return The hashcode, based on {@code value}.
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return exceptionClass.getName() + "#" + toHexString();
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.ref.WeakReference;
+
+/**
+ * Computes {@link ExceptionFingerprint}s, hashing the exception class, its normalized message,
+ * and the top {@code maxFrames} frames of its stack trace.
+ * <p>
+ * Messages are normalized by replacing each word holding digits (e.g ids, UUIDs, hexadecimal values, etc.)
+ * with a placeholder, so errors that only differ in those values get the same fingerprint.
+ * Frames are hashed by their class, method and line number (i.e no strings are built).
+ * <p>
+ * Fingerprints are lazy: nothing is computed until it is asked for.
+ * The last fingerprint computed in each thread is memoized,
+ * so the handler and the {@link HandledErrorListener}s of an exception share the computation.
+ * In Java 8, frames are taken one by one from the exception's backtrace,
+ * so just the top ones are turned into {@link StackTraceElement}s.
+ * In newer versions (where there is no way to lazily walk the frames of a {@link Throwable}),
+ * they are taken from {@link Throwable#getStackTrace()}.
+ *
+ * @see ExceptionFingerprinterAware
+ */
+public final class ExceptionFingerprinter {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExceptionFingerprinter.class);
+
+    /**
+     * The default amount of frames that are hashed.
+     */
+    public static final int DEFAULT_MAX_FRAMES = 8;
+
+    /**
+     * FNV-1a 64 bits offset basis.
+     */
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64 bits prime.
+     */
+    private static final long PRIME = 0x100000001b3L;
+
+    /**
+     * The character hashed instead of each word holding digits.
+     */
+    private static final char PLACEHOLDER = '#';
+
+    /**
+     * The {@link FrameSource} used to get the frames of the exceptions.
+     */
+    private static final FrameSource FRAME_SOURCE = FrameSource.create();
+
+    /**
+     * The amount of frames that are hashed.
+     */
+    private final int maxFrames;
+
+    /**
+     * The last fingerprint computed in each thread.
+     */
+    private final ThreadLocal<Memo> lastFingerprint;
+
+
+    /**
+     * Constructor, using the {@link #DEFAULT_MAX_FRAMES}.
+     */
+    public ExceptionFingerprinter() {
+        this(DEFAULT_MAX_FRAMES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxFrames The amount of frames that are hashed (i.e the top ones).
+     */
+    public ExceptionFingerprinter(final int maxFrames) {
+        Assert.isTrue(maxFrames >= 0, "The amount of frames must not be negative");
+        this.maxFrames = maxFrames;
+        this.lastFingerprint = new ThreadLocal<>();
+    }
+
+
+    /**
+     * @return The amount of frames that are hashed.
+     */
+    public int getMaxFrames() {
+        return maxFrames;
+    }
+
+    /**
+     * Computes the {@link ExceptionFingerprint} of the given {@code exception}.
+     *
+     * @param exception The exception to be fingerprinted.
+     * @return The {@link ExceptionFingerprint} of the given {@code exception}.
+     */
+    public ExceptionFingerprint fingerprint(final Throwable exception) {
+        Assert.notNull(exception, "The exception must not be null");
+        final Memo memo = lastFingerprint.get();
+        if (memo != null && memo.get() == exception) {
+            return memo.fingerprint;
+        }
+        final ExceptionFingerprint fingerprint = new ExceptionFingerprint(exception.getClass(), hash(exception));
+        lastFingerprint.set(new Memo(exception, fingerprint));
+        return fingerprint;
+    }
+
+
+    /**
+     * Hashes the given {@code exception}.
+     *
+     * @param exception The exception to be hashed.
+     * @return The hash.
+     */
+    private long hash(final Throwable exception) {
+        long hash = hash(OFFSET_BASIS, exception.getClass().getName());
+        hash = hashMessage(hash, exception.getMessage());
+        hash = FRAME_SOURCE.hashFrames(hash, exception, maxFrames);
+        return mix(hash);
+    }
+
+    /**
+     * Hashes the given {@code message}, replacing each word holding digits with the {@link #PLACEHOLDER}.
+     *
+     * @param hash    The hash so far.
+     * @param message The message to be hashed (can be null).
+     * @return The new hash.
+     */
+    private static long hashMessage(long hash, final String message) {
+        if (message == null) {
+            return hash;
+        }
+        final int length = message.length();
+        int i = 0;
+        while (i < length) {
+            final char c = message.charAt(i);
+            if (!isWordPart(c)) {
+                hash = hash(hash, c);
+                i++;
+                continue;
+            }
+            // Find the end of the word, checking if it holds digits
+            int end = i;
+            boolean digits = false;
+            while (end < length && isWordPart(message.charAt(end))) {
+                digits |= Character.isDigit(message.charAt(end));
+                end++;
+            }
+            if (digits) {
+                hash = hash(hash, PLACEHOLDER);
+            } else {
+                for (int j = i; j < end; j++) {
+                    hash = hash(hash, message.charAt(j));
+                }
+            }
+            i = end;
+        }
+        return hash;
+    }
+
+    /**
+     * Indicates whether the given {@code c} is part of a word (i.e a letter, a digit, an underscore or a hyphen).
+     *
+     * @param c The character to be checked.
+     * @return {@code true} if it is part of a word, or {@code false} otherwise.
+     */
+    private static boolean isWordPart(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    /**
+     * Hashes the given {@code frame}.
+     *
+     * @param hash  The hash so far.
+     * @param frame The {@link StackTraceElement} to be hashed.
+     * @return The new hash.
+     */
+    private static long hashFrame(long hash, final StackTraceElement frame) {
+        hash = hash(hash, frame.getClassName());
+        hash = hash(hash, '.');
+        hash = hash(hash, frame.getMethodName());
+        return hash(hash, frame.getLineNumber());
+    }
+
+    /**
+     * Hashes the given {@code string}.
+     *
+     * @param hash   The hash so far.
+     * @param string The string to be hashed.
+     * @return The new hash.
+     */
+    private static long hash(long hash, final String string) {
+        for (int i = 0; i < string.length(); i++) {
+            hash = hash(hash, string.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes the given {@code value}.
+     *
+     * @param hash  The hash so far.
+     * @param value The value to be hashed.
+     * @return The new hash.
+     */
+    private static long hash(final long hash, final int value) {
+        return (hash ^ value) * PRIME;
+    }
+
+    /**
+     * Spreads the bits of the given {@code hash} (i.e MurmurHash3 finalizer), as FNV-1a leaves the high bits weak.
+     *
+     * @param hash The hash to be mixed.
+     * @return The mixed hash.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+
+    /**
+     * A fingerprint computed in a thread, weakly referencing its exception (so it can be garbage collected).
+     */
+    private static final class Memo extends WeakReference<Throwable> {
+
+        /**
+         * The fingerprint of the referenced exception.
+         */
+        private final ExceptionFingerprint fingerprint;
+
+        /**
+         * Constructor.
+         *
+         * @param exception   The fingerprinted exception.
+         * @param fingerprint The fingerprint of the exception.
+         */
+        private Memo(final Throwable exception, final ExceptionFingerprint fingerprint) {
+            super(exception);
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Source of the frames of an exception.
+     */
+    private static class FrameSource {
+
+        /**
+         * Hashes the top {@code maxFrames} frames of the given {@code exception}.
+         *
+         * @param hash      The hash so far.
+         * @param exception The exception whose frames are hashed.
+         * @param maxFrames The amount of frames to be hashed.
+         * @return The new hash.
+         */
+        /* package */ long hashFrames(long hash, final Throwable exception, final int maxFrames) {
+            final StackTraceElement[] frames = exception.getStackTrace();
+            final int count = Math.min(frames.length, maxFrames);
+            for (int i = 0; i < count; i++) {
+                hash = hashFrame(hash, frames[i]);
+            }
+            return hash;
+        }
+
+        /**
+         * Creates the {@link FrameSource} for the running JVM
+         * (i.e the lazy one if the Java 8 {@code JavaLangAccess} is available, or the default one otherwise).
+         *
+         * @return The created {@link FrameSource}.
+         */
+        private static FrameSource create() {
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                final Class<?> accessClass = Class.forName("sun.misc.JavaLangAccess");
+                final Object access = lookup
+                        .findStatic(Class.forName("sun.misc.SharedSecrets"), "getJavaLangAccess",
+                                MethodType.methodType(accessClass))
+                        .invoke();
+                final MethodHandle depth = lookup
+                        .findVirtual(accessClass, "getStackTraceDepth",
+                                MethodType.methodType(int.class, Throwable.class))
+                        .bindTo(access);
+                final MethodHandle element = lookup
+                        .findVirtual(accessClass, "getStackTraceElement",
+                                MethodType.methodType(StackTraceElement.class, Throwable.class, int.class))
+                        .bindTo(access);
+                final Field stackTraceField = Throwable.class.getDeclaredField("stackTrace");
+                final Field unassignedField = Throwable.class.getDeclaredField("UNASSIGNED_STACK");
+                stackTraceField.setAccessible(true);
+                unassignedField.setAccessible(true);
+                final MethodHandle stackTrace = lookup.unreflectGetter(stackTraceField);
+                final StackTraceElement[] unassigned = (StackTraceElement[]) unassignedField.get(null);
+                return new LazyFrameSource(depth, element, stackTrace, unassigned);
+            } catch (Throwable e) {
+                LOGGER.debug("Frames can not be lazily taken from exceptions in this JVM. Using getStackTrace");
+                return new FrameSource();
+            }
+        }
+    }
+
+    /**
+     * {@link FrameSource} that takes just the needed frames from the exception's backtrace (Java 8).
+     */
+    private static final class LazyFrameSource extends FrameSource {
+
+        /**
+         * Handle to {@code JavaLangAccess#getStackTraceDepth(Throwable)}.
+         */
+        private final MethodHandle depth;
+
+        /**
+         * Handle to {@code JavaLangAccess#getStackTraceElement(Throwable, int)}.
+         */
+        private final MethodHandle element;
+
+        /**
+         * Getter of the {@code Throwable#stackTrace} field.
+         */
+        private final MethodHandle stackTrace;
+
+        /**
+         * The {@code Throwable#UNASSIGNED_STACK} sentinel,
+         * held in {@code Throwable#stackTrace} until the stack trace is materialized or set by hand.
+         */
+        private final StackTraceElement[] unassigned;
+
+        /**
+         * Constructor.
+         *
+         * @param depth      Handle to {@code JavaLangAccess#getStackTraceDepth(Throwable)}.
+         * @param element    Handle to {@code JavaLangAccess#getStackTraceElement(Throwable, int)}.
+         * @param stackTrace Getter of the {@code Throwable#stackTrace} field.
+         * @param unassigned The {@code Throwable#UNASSIGNED_STACK} sentinel.
+         */
+        private LazyFrameSource(final MethodHandle depth, final MethodHandle element,
+                                final MethodHandle stackTrace, final StackTraceElement[] unassigned) {
+            this.depth = depth;
+            this.element = element;
+            this.stackTrace = stackTrace;
+            this.unassigned = unassigned;
+        }
+
+        @Override
+        /* package */ long hashFrames(final long hash, final Throwable exception, final int maxFrames) {
+            try {
+                // The backtrace is only the source of truth while the stack trace is unassigned
+                // (i.e it is stale once set by hand with Throwable#setStackTrace)
+                if ((StackTraceElement[]) stackTrace.invokeExact(exception) != unassigned) {
+                    return super.hashFrames(hash, exception, maxFrames);
+                }
+                final int frames = (int) depth.invokeExact(exception);
+                if (frames == 0) {
+                    // No backtrace (e.g exceptions created without a writable stack trace)
+                    return super.hashFrames(hash, exception, maxFrames);
+                }
+                final int count = Math.min(frames, maxFrames);
+                long result = hash;
+                for (int i = 0; i < count; i++) {
+                    result = hashFrame(result, (StackTraceElement) element.invokeExact(exception, i));
+                }
+                return result;
+            } catch (Throwable e) {
+                return super.hashFrames(hash, exception, maxFrames);
+            }
+        }
+    }
+}
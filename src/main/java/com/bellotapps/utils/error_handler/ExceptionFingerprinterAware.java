@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+/**
+ * Interface to be implemented by {@link ExceptionHandler}s that need an {@link ExceptionFingerprinter}
+ * (e.g to include the fingerprint of the exception in the error representation).
+ * The {@link ErrorHandlerFactory} sets it when it creates the handler (or gets its bean).
+ * It is the same fingerprinter used for the {@link HandledErrorListener}s,
+ * so fingerprinting the exception in the handler does not compute it again for the listeners.
+ *
+ * @see ExceptionFingerprinter
+ */
+public interface ExceptionFingerprinterAware {
+
+    /**
+     * Sets the {@link ExceptionFingerprinter} to be used by the implementing object.
+     *
+     * @param exceptionFingerprinter The {@link ExceptionFingerprinter}.
+     */
+    void setExceptionFingerprinter(final ExceptionFingerprinter exceptionFingerprinter);
+}
@@ -36,7 +36,8 @@ public interface ExceptionHandler<T extends Throwable, E> {
      * Handles the given {@code exception}.
      *
      * @param exception The exception to be handled.
-     * @return The {@link HandlingResult} of handling the given {@code exception}.
+     * @return The {@link HandlingResult} of handling the given {@code exception},
+     * or {@link HandlingResult#decline()} to pass it to the handler of the closest supertype.
      */
     HandlingResult<E> handle(final T exception);
 }
@@ -35,4 +35,19 @@ import java.lang.annotation.*;
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface ExceptionHandlerObject {
+
+    /**
+     * The scope of the instances of the annotated handler (i.e whether it must be thread safe).
+     *
+     * @return The {@link HandlerScope} of the handler.
+     */
+    HandlerScope scope() default HandlerScope.SHARED;
+
+    /**
+     * The size of the pool of instances of the annotated handler, if it is {@link HandlerScope#POOLED}
+     * (or of the instances of virtual threads, if it is {@link HandlerScope#PER_THREAD}).
+     *
+     * @return The size of the pool (0 for twice the amount of processors).
+     */
+    int poolSize() default 0;
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.Assert;
+
+/**
+ * A declarative mapping of an exception class into a status code and, optionally, a body
+ * (i.e instead of writing an {@link ExceptionHandler} that just does that).
+ * <p>
+ * Mappings are compiled into the same dispatch index as the {@link ExceptionHandler}s (i.e they handle the mapped
+ * class and its subclasses, unless there is a more specific handler), and their results are built just once,
+ * unless the body holds the {@value #MESSAGE_PLACEHOLDER} placeholder (replaced with the message of the exception).
+ * Instances are immutable.
+ *
+ * @see ExceptionMappings
+ */
+public final class ExceptionMapping {
+
+    /**
+     * The placeholder of the body replaced with the message of the exception.
+     */
+    public static final String MESSAGE_PLACEHOLDER = "{message}";
+
+    /**
+     * The mapped exception class.
+     */
+    private final Class<? extends Throwable> exceptionClass;
+
+    /**
+     * The HTTP status code of the results.
+     */
+    private final int status;
+
+    /**
+     * The body of the results (null if none).
+     */
+    private final String body;
+
+
+    /**
+     * Constructor.
+     *
+     * @param exceptionClass The mapped exception class.
+     * @param status         The HTTP status code of the results.
+     * @param body           The body of the results (null if none).
+     */
+    private ExceptionMapping(final Class<? extends Throwable> exceptionClass, final int status, final String body) {
+        this.exceptionClass = exceptionClass;
+        this.status = status;
+        this.body = body;
+    }
+
+
+    /**
+     * @return The mapped exception class.
+     */
+    public Class<? extends Throwable> getExceptionClass() {
+        return exceptionClass;
+    }
+
+    /**
+     * @return The HTTP status code of the results.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The body of the results (null if none), which might hold the {@value #MESSAGE_PLACEHOLDER} placeholder.
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Creates a copy of this mapping with the given {@code body}.
+     *
+     * @param body The body of the results (might hold the {@value #MESSAGE_PLACEHOLDER} placeholder).
+     * @return The new {@link ExceptionMapping}.
+     */
+    public ExceptionMapping withBody(final String body) {
+        Assert.notNull(body, "The body must not be null");
+        return new ExceptionMapping(exceptionClass, status, body);
+    }
+
+    @Override
+    public String toString() {
+        return "ExceptionMapping{exceptionClass=" + exceptionClass.getName() + ", status=" + status
+                + ", body=" + body + "}";
+    }
+
+    /**
+     * @return The {@link ExceptionHandler} that applies this mapping.
+     */
+    /* package */ MappedExceptionHandler toHandler() {
+        return new MappedExceptionHandler(this);
+    }
+
+
+    /**
+     * Creates an {@link ExceptionMapping} without body.
+     *
+     * @param exceptionClass The mapped exception class.
+     * @param status         The HTTP status code of the results.
+     * @return The created {@link ExceptionMapping}.
+     */
+    public static ExceptionMapping of(final Class<? extends Throwable> exceptionClass, final int status) {
+        Assert.notNull(exceptionClass, "The exception class must not be null");
+        Assert.isTrue(status >= 100 && status <= 599, "The status must be an HTTP status code");
+        return new ExceptionMapping(exceptionClass, status, null);
+    }
+}
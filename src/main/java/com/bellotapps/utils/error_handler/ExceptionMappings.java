@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Loads {@link ExceptionMapping}s from properties or YAML files, in which each mapping is declared by the
+ * {@code status} (required) and {@code body} (optional) keys under the fully qualified name of the exception class:
+ * <pre>
+ * com.example.OrderNotFoundException.status=404
+ * com.example.OrderNotFoundException.body=Order not found: {message}
+ * </pre>
+ * Files whose name ends with {@code .yml} or {@code .yaml} are read as YAML (which requires SnakeYAML),
+ * and the others as properties.
+ */
+public final class ExceptionMappings {
+
+    /**
+     * The suffix of the keys of the status codes.
+     */
+    private static final String STATUS_SUFFIX = ".status";
+
+    /**
+     * The suffix of the keys of the bodies.
+     */
+    private static final String BODY_SUFFIX = ".body";
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private ExceptionMappings() {
+    }
+
+
+    /**
+     * Loads the {@link ExceptionMapping}s declared in the files in the given {@code locations}
+     * (e.g {@code classpath:error-mappings.properties}).
+     *
+     * @param classLoader The {@link ClassLoader} used to load the files and the exception classes.
+     * @param locations   The locations of the files.
+     * @return The loaded {@link ExceptionMapping}s, sorted by exception class name.
+     * @throws IOException              If a file can not be read.
+     * @throws IllegalArgumentException If a mapping is not valid (e.g the exception class does not exist).
+     */
+    public static List<ExceptionMapping> load(final ClassLoader classLoader, final Collection<String> locations)
+            throws IOException, IllegalArgumentException {
+        Assert.notNull(locations, "The locations must not be null");
+        final ResourceLoader resourceLoader = new DefaultResourceLoader(classLoader);
+        final Properties properties = new Properties();
+        for (final String location : locations) {
+            properties.putAll(read(resourceLoader.getResource(location)));
+        }
+        return fromProperties(properties, classLoader);
+    }
+
+    /**
+     * Creates the {@link ExceptionMapping}s declared in the given {@code properties}.
+     * Values that are not strings (e.g the numbers read from YAML files) are taken as their string representation.
+     *
+     * @param properties  The {@link Properties} declaring the mappings.
+     * @param classLoader The {@link ClassLoader} used to load the exception classes.
+     * @return The {@link ExceptionMapping}s, sorted by exception class name.
+     * @throws IllegalArgumentException If a mapping is not valid (e.g the exception class does not exist).
+     */
+    public static List<ExceptionMapping> fromProperties(final Properties properties, final ClassLoader classLoader)
+            throws IllegalArgumentException {
+        Assert.notNull(properties, "The properties must not be null");
+        final SortedMap<String, ExceptionMapping> mappings = new TreeMap<>();
+        for (final Object property : properties.keySet()) {
+            final String key = String.valueOf(property);
+            if (key.endsWith(STATUS_SUFFIX)) {
+                final String className = key.substring(0, key.length() - STATUS_SUFFIX.length());
+                final ExceptionMapping mapping = ExceptionMapping.of(resolveExceptionClass(className, classLoader),
+                        parseStatus(className, String.valueOf(properties.get(property))));
+                final Object body = properties.get(className + BODY_SUFFIX);
+                mappings.put(className, body == null ? mapping : mapping.withBody(String.valueOf(body)));
+            } else if (!key.endsWith(BODY_SUFFIX)) {
+                throw new IllegalArgumentException("Unknown exception mapping key " + key);
+            } else if (!properties.containsKey(key.substring(0, key.length() - BODY_SUFFIX.length()) + STATUS_SUFFIX)) {
+                throw new IllegalArgumentException("The exception mapping " + key + " has no status");
+            }
+        }
+        return new ArrayList<>(mappings.values());
+    }
+
+    /**
+     * Reads the given {@code resource}, as YAML or properties (according to its name).
+     *
+     * @param resource The {@link Resource} to be read.
+     * @return The read {@link Properties}.
+     * @throws IOException If the resource can not be read.
+     */
+    private static Properties read(final Resource resource) throws IOException {
+        final String filename = Optional.ofNullable(resource.getFilename()).orElse("");
+        if (filename.endsWith(".yml") || filename.endsWith(".yaml")) {
+            if (!resource.exists()) {
+                throw new IOException("The exception mappings " + resource + " do not exist");
+            }
+            final YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+            yaml.setResources(resource);
+            return yaml.getObject();
+        }
+        return PropertiesLoaderUtils.loadProperties(resource);
+    }
+
+    /**
+     * Resolves the exception class with the given name.
+     *
+     * @param className   The name of the exception class.
+     * @param classLoader The {@link ClassLoader} used to load it.
+     * @return The exception class.
+     * @throws IllegalArgumentException If there is no such class, or it is not a {@link Throwable}.
+     */
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Throwable> resolveExceptionClass(final String className,
+                                                                    final ClassLoader classLoader)
+            throws IllegalArgumentException {
+        final Class<?> klass = ClassUtils.resolveClassName(className, classLoader);
+        Assert.isTrue(Throwable.class.isAssignableFrom(klass), "The mapped class " + className + " is not a Throwable");
+        return (Class<? extends Throwable>) klass;
+    }
+
+    /**
+     * Parses the status code of the mapping of the given class.
+     *
+     * @param className The name of the exception class.
+     * @param value     The declared status.
+     * @return The status code.
+     * @throws IllegalArgumentException If it is not a number.
+     */
+    private static int parseStatus(final String className, final String value) throws IllegalArgumentException {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The status of the mapping of " + className + " is not a number", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+/**
+ * Describes an exception handled by an {@link ErrorHandler}, passed to the {@link HandledErrorListener}s.
+ * Its {@link ExceptionFingerprint} is computed when first asked for (and just once).
+ */
+public final class HandledError {
+
+    /**
+     * The handled exception.
+     */
+    private final Throwable exception;
+
+    /**
+     * The {@link HandlingContext} in which the exception was handled.
+     */
+    private final HandlingContext context;
+
+    /**
+     * The {@link ExceptionHandler} that handled the exception.
+     */
+    private final ExceptionHandler<?, ?> handler;
+
+    /**
+     * The {@link HandlingResult} of handling the exception.
+     */
+    private final HandlingResult<?> result;
+
+    /**
+     * The {@link ExceptionFingerprinter} used to fingerprint the exception.
+     */
+    private final ExceptionFingerprinter fingerprinter;
+
+    /**
+     * The fingerprint of the exception (lazily initialized).
+     */
+    private ExceptionFingerprint fingerprint;
+
+
+    /**
+     * Constructor.
+     *
+     * @param exception     The handled exception.
+     * @param context       The {@link HandlingContext} in which the exception was handled.
+     * @param handler       The {@link ExceptionHandler} that handled the exception.
+     * @param result        The {@link HandlingResult} of handling the exception.
+     * @param fingerprinter The {@link ExceptionFingerprinter} used to fingerprint the exception.
+     */
+    /* package */ HandledError(final Throwable exception, final HandlingContext context,
+                               final ExceptionHandler<?, ?> handler, final HandlingResult<?> result,
+                               final ExceptionFingerprinter fingerprinter) {
+        this.exception = exception;
+        this.context = context;
+        this.handler = handler;
+        this.result = result;
+        this.fingerprinter = fingerprinter;
+    }
+
+
+    /**
+     * @return The handled exception.
+     */
+    public Throwable getException() {
+        return exception;
+    }
+
+    /**
+     * @return The {@link HandlingContext} in which the exception was handled.
+     */
+    public HandlingContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return The {@link ExceptionHandler} that handled the exception
+     * (the default one if there was no handler for it, or all of them declined it).
+     */
+    public ExceptionHandler<?, ?> getHandler() {
+        return handler;
+    }
+
+    /**
+     * @return The {@link HandlingResult} of handling the exception (can be null if the handler returned null).
+     */
+    public HandlingResult<?> getResult() {
+        return result;
+    }
+
+    /**
+     * @return The {@link ExceptionFingerprint} of the handled exception.
+     */
+    public ExceptionFingerprint getFingerprint() {
+        if (fingerprint == null) {
+            fingerprint = fingerprinter.fingerprint(exception);
+        }
+        return fingerprint;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+/**
+ * Listener notified each time an {@link ErrorHandler} handles an exception (e.g for aggregation or deduplication).
+ * Beans implementing this interface are registered by the {@link ErrorHandlerFactory}
+ * into the {@link ErrorHandler}s it creates.
+ * <p>
+ * Listeners are called in the thread handling the exception, after the handler returned,
+ * so they must be fast. Exceptions thrown by them are logged and ignored.
+ */
+@FunctionalInterface
+public interface HandledErrorListener {
+
+    /**
+     * Notifies that an exception has been handled.
+     *
+     * @param handledError The {@link HandledError} describing the handled exception.
+     */
+    void onHandledError(final HandledError handledError);
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@link BudgetedExceptionHandler}s within their time budgets, counting the violations of each handler.
+ * <p>
+ * Handlers run in a bounded pool of daemon threads, while the thread handling the exception waits for a future
+ * that is completed either by the handler, or by a {@link TimerWheel} when the budget is over.
+ * Handlers that go over budget are interrupted, so they do not keep a thread of the pool busy
+ * (unless they ignore interruption).
+ * Both the pool and the wheel are shared by every {@link ErrorHandler}, and only created when first needed.
+ */
+/* package */ final class HandlerBudgets {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(HandlerBudgets.class);
+
+    /**
+     * Result with which the {@link TimerWheel} completes the futures of handlers that go over budget.
+     */
+    private static final HandlingResult<Object> TIMED_OUT = HandlingResult.justErrorCode(-1);
+
+    /**
+     * The amount of violations of each handler class.
+     */
+    private final ConcurrentMap<Class<?>, LongAdder> violations;
+
+
+    /**
+     * Constructor.
+     */
+    /* package */ HandlerBudgets() {
+        this.violations = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Makes the given {@code handler} handle the given {@code exception} through the given {@code call},
+     * returning its fallback result if it goes over budget, throws an exception,
+     * or can not be run because every thread of the pool is busy.
+     *
+     * @param handler   The {@link BudgetedExceptionHandler} in charge of handling the exception.
+     * @param exception The exception to be handled.
+     * @param call      Makes the handler handle the exception (in the appropriate way for its type).
+     * @return The {@link HandlingResult} returned by the handler, or its fallback result.
+     */
+    /* package */ HandlingResult<Object> handle(final BudgetedExceptionHandler<Throwable, Object> handler,
+                                                final Throwable exception,
+                                                final Supplier<HandlingResult<Object>> call) {
+        final CompletableFuture<HandlingResult<Object>> future = new CompletableFuture<>();
+        final Future<?> task;
+        try {
+            task = Shared.EXECUTOR.submit(() -> {
+                try {
+                    future.complete(call.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return violation(handler, exception, "could not be run, as every budgeted handler thread is busy", null);
+        }
+        final TimerWheel.Timeout timeout = Shared.TIMER.schedule(() -> future.complete(TIMED_OUT),
+                Math.max(handler.getBudget().toMillis(), 1), TimeUnit.MILLISECONDS);
+        final HandlingResult<Object> result;
+        try {
+            result = future.join();
+        } catch (CompletionException e) {
+            timeout.cancel();
+            return violation(handler, exception, "failed", e.getCause());
+        }
+        if (result == TIMED_OUT) {
+            task.cancel(true); // Interrupts the handler, as its result will be discarded
+            return violation(handler, exception, "went over its budget of " + handler.getBudget(), null);
+        }
+        timeout.cancel();
+        return result;
+    }
+
+    /**
+     * @return The amount of violations of each handler class (i.e calls answered with the fallback result).
+     */
+    /* package */ Map<Class<?>, Long> getViolations() {
+        return Collections.unmodifiableMap(violations.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum())));
+    }
+
+
+    /**
+     * Counts a violation of the given {@code handler}, and returns its fallback result.
+     *
+     * @param handler   The {@link BudgetedExceptionHandler} that violated its budget.
+     * @param exception The exception being handled.
+     * @param reason    The reason of the violation (for logging).
+     * @param cause     The exception thrown by the handler (null if none).
+     * @return The fallback result of the handler.
+     */
+    private HandlingResult<Object> violation(final BudgetedExceptionHandler<Throwable, Object> handler,
+                                             final Throwable exception, final String reason, final Throwable cause) {
+        violations.computeIfAbsent(handler.getClass(), ignored -> new LongAdder()).increment();
+        if (LOGGER.isWarnEnabled()) { // Avoids allocating the arguments array
+            LOGGER.warn("ExceptionHandler {} {} when handling {}. Using its fallback result",
+                    handler, reason, exception.getClass().getName(), cause);
+        }
+        return handler.getFallbackResult(exception);
+    }
+
+
+    /**
+     * Holder of the pool and the wheel shared by every {@link HandlerBudgets} (created when first accessed).
+     */
+    private static final class Shared {
+
+        /**
+         * The maximum amount of threads in which budgeted handlers run
+         * (i.e slow handlers that went over budget and are still running can not pile up more threads).
+         */
+        private static final int MAX_THREADS = 64;
+
+        /**
+         * Time after which idle threads are terminated, in seconds.
+         */
+        private static final long KEEP_ALIVE_SECONDS = 60;
+
+        /**
+         * The pool in which budgeted handlers run.
+         */
+        private static final ExecutorService EXECUTOR;
+
+        /**
+         * The wheel that tracks the deadlines of the budgeted handlers.
+         */
+        private static final TimerWheel TIMER = new TimerWheel(1, TimeUnit.MILLISECONDS, 512,
+                "error-handler-budget-timer");
+
+        static {
+            final AtomicInteger threads = new AtomicInteger();
+            EXECUTOR = new ThreadPoolExecutor(0, MAX_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> {
+                final Thread thread = new Thread(runnable, "error-handler-budget-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Provides the instances of a scoped {@link ExceptionHandler} class (see {@link HandlerScope}).
+ * Each instance is acquired before a call and released after it, so it is used by one thread at a time.
+ */
+/* package */ abstract class HandlerInstances {
+
+    /**
+     * The default size of the pools (i.e twice the amount of processors).
+     */
+    /* package */ static final int DEFAULT_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates the instances of the handler class.
+     */
+    protected final Supplier<ExceptionHandler<Throwable, Object>> factory;
+
+
+    /**
+     * Constructor.
+     *
+     * @param factory Creates the instances of the handler class.
+     */
+    private HandlerInstances(final Supplier<ExceptionHandler<Throwable, Object>> factory) {
+        this.factory = factory;
+    }
+
+
+    /**
+     * @return An instance to be used by the current thread until released.
+     */
+    /* package */ abstract ExceptionHandler<Throwable, Object> acquire();
+
+    /**
+     * Releases the given {@code instance}, acquired by the current thread.
+     *
+     * @param instance The released instance.
+     */
+    /* package */ abstract void release(final ExceptionHandler<Throwable, Object> instance);
+
+    /**
+     * Adopts the given {@code instance}, created by the factory but not acquired, so it is not wasted
+     * (i.e it becomes the instance of the current thread, or a pooled one).
+     *
+     * @param instance The adopted instance.
+     */
+    /* package */ abstract void adopt(final ExceptionHandler<Throwable, Object> instance);
+
+
+    /**
+     * Creates the {@link HandlerInstances} of the given {@code scope}.
+     *
+     * @param scope    The {@link HandlerScope} (not shared).
+     * @param poolSize The size of the pool (of the pooled instances, or those of virtual threads).
+     * @param factory  Creates the instances of the handler class.
+     * @return The created {@link HandlerInstances}.
+     */
+    /* package */ static HandlerInstances of(final HandlerScope scope, final int poolSize,
+                                             final Supplier<ExceptionHandler<Throwable, Object>> factory) {
+        final Pool pool = new Pool(poolSize, factory);
+        return scope == HandlerScope.PER_THREAD ? new PerThread(pool, factory) : pool;
+    }
+
+
+    /**
+     * {@link HandlerInstances} backed by a lock free pool: instances are taken from (and returned to) the slots
+     * of an array, starting from a slot that depends on the thread (so threads seldom contend for the same slot).
+     */
+    private static final class Pool extends HandlerInstances {
+
+        /**
+         * The slots of the pool (null when empty). Its length is a power of two.
+         */
+        private final AtomicReferenceArray<ExceptionHandler<Throwable, Object>> slots;
+
+        /**
+         * Mask used to get a slot from a hash.
+         */
+        private final int mask;
+
+        /**
+         * Constructor.
+         *
+         * @param size    The size of the pool (rounded up to a power of two).
+         * @param factory Creates the instances of the handler class.
+         */
+        private Pool(final int size, final Supplier<ExceptionHandler<Throwable, Object>> factory) {
+            super(factory);
+            final int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1);
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        @Override
+        /* package */ ExceptionHandler<Throwable, Object> acquire() {
+            final int start = start();
+            for (int i = 0; i <= mask; i++) {
+                final int slot = (start + i) & mask;
+                final ExceptionHandler<Throwable, Object> instance = slots.get(slot);
+                if (instance != null && slots.compareAndSet(slot, instance, null)) {
+                    return instance;
+                }
+            }
+            return factory.get();
+        }
+
+        @Override
+        /* package */ void release(final ExceptionHandler<Throwable, Object> instance) {
+            final int start = start();
+            for (int i = 0; i <= mask; i++) {
+                final int slot = (start + i) & mask;
+                if (slots.get(slot) == null && slots.compareAndSet(slot, null, instance)) {
+                    return;
+                }
+            }
+            // The pool is full, so the instance is discarded
+        }
+
+        @Override
+        /* package */ void adopt(final ExceptionHandler<Throwable, Object> instance) {
+            release(instance);
+        }
+
+        /**
+         * @return The slot from which the current thread starts looking.
+         */
+        private int start() {
+            final long id = Thread.currentThread().getId();
+            final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9; // Fibonacci hashing, to spread consecutive ids
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    /**
+     * {@link HandlerInstances} that hold an instance for each platform thread,
+     * taking those of virtual threads from a {@link Pool}.
+     */
+    private static final class PerThread extends HandlerInstances {
+
+        /**
+         * The {@code Thread#isVirtual()} method (null in versions without virtual threads).
+         */
+        private static final MethodHandle IS_VIRTUAL = isVirtualMethod();
+
+        /**
+         * The instance of each platform thread.
+         */
+        private final ThreadLocal<ExceptionHandler<Throwable, Object>> instances;
+
+        /**
+         * The pool of the instances of virtual threads.
+         */
+        private final Pool pool;
+
+        /**
+         * Constructor.
+         *
+         * @param pool    The pool of the instances of virtual threads.
+         * @param factory Creates the instances of the handler class.
+         */
+        private PerThread(final Pool pool, final Supplier<ExceptionHandler<Throwable, Object>> factory) {
+            super(factory);
+            this.instances = ThreadLocal.withInitial(factory);
+            this.pool = pool;
+        }
+
+        @Override
+        /* package */ ExceptionHandler<Throwable, Object> acquire() {
+            return isVirtual() ? pool.acquire() : instances.get();
+        }
+
+        @Override
+        /* package */ void release(final ExceptionHandler<Throwable, Object> instance) {
+            if (isVirtual()) {
+                pool.release(instance);
+            }
+        }
+
+        @Override
+        /* package */ void adopt(final ExceptionHandler<Throwable, Object> instance) {
+            if (isVirtual()) {
+                pool.release(instance);
+            } else {
+                instances.set(instance);
+            }
+        }
+
+        /**
+         * @return {@code true} if the current thread is a virtual thread, or {@code false} otherwise.
+         */
+        private static boolean isVirtual() {
+            if (IS_VIRTUAL == null) {
+                return false;
+            }
+            try {
+                return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+            } catch (Throwable e) {
+                throw new IllegalStateException("Could not check whether the thread is virtual", e);
+            }
+        }
+
+        /**
+         * @return The {@code Thread#isVirtual()} method, or null if there is none (i.e before Java 21).
+         */
+        private static MethodHandle isVirtualMethod() {
+            try {
+                return MethodHandles.publicLookup()
+                        .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+    }
+}
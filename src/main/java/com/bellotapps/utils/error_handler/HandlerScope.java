@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+/**
+ * The scope of the instances of an {@link ExceptionHandler} class (see {@link ExceptionHandlerObject#scope()}).
+ * <p>
+ * Handlers are shared by default, so they must be thread safe.
+ * Scoped handlers do not need to be, so they can reuse internal state (e.g builders or buffers) between calls.
+ * The instance created when the package is scanned is the one registered in the {@link ErrorHandler}
+ * (i.e the one that declares keys or patterns, and that is passed to the {@link HandledErrorListener}s),
+ * while each call is made on an instance of the scope, created the same way (i.e as a bean, or instantiated).
+ * Note that singleton beans can not be scoped (i.e they are shared).
+ */
+public enum HandlerScope {
+
+    /**
+     * A single instance, shared by every thread (i.e it must be thread safe).
+     */
+    SHARED,
+
+    /**
+     * An instance for each platform thread.
+     * Virtual threads (which are not reused, and might be millions) take instances from a pool, as in {@link #POOLED}.
+     */
+    PER_THREAD,
+
+    /**
+     * Instances taken from a bounded pool for each call, and returned when it finishes.
+     * If every pooled instance is in use, a new one is created (and discarded if the pool is full when returned).
+     */
+    POOLED,
+}
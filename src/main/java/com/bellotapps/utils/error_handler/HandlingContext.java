@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * Container class holding the context in which a {@link Throwable} is handled
+ * (i.e the representation the API consumer expects for the error): the accepted media types and the locale.
+ *
+ * @see ErrorHandler#handle(Throwable, HandlingContext)
+ * @see ContextualExceptionHandler
+ */
+public final class HandlingContext {
+
+    /**
+     * Name of the quality factor parameter of an accepted media type.
+     */
+    private static final String QUALITY_FACTOR_PARAMETER = "q";
+
+    /**
+     * A context accepting any media type, in the root locale.
+     */
+    private static final HandlingContext EMPTY =
+            new HandlingContext(Collections.singletonList(MimeTypeUtils.ALL), Collections.emptyList(), Locale.ROOT);
+
+    /**
+     * The accepted media types, in order of preference.
+     */
+    private final List<MimeType> acceptedMediaTypes;
+
+    /**
+     * The media types that are explicitly not accepted (i.e with a quality factor of zero).
+     */
+    private final List<MimeType> refusedMediaTypes;
+
+    /**
+     * The locale of the API consumer.
+     */
+    private final Locale locale;
+
+
+    /**
+     * Constructor.
+     *
+     * @param acceptedMediaTypes The accepted media types, in order of preference.
+     * @param refusedMediaTypes  The media types that are explicitly not accepted.
+     * @param locale             The locale of the API consumer.
+     */
+    private HandlingContext(final List<MimeType> acceptedMediaTypes, final List<MimeType> refusedMediaTypes,
+                            final Locale locale) {
+        this.acceptedMediaTypes = acceptedMediaTypes;
+        this.refusedMediaTypes = refusedMediaTypes;
+        this.locale = locale;
+    }
+
+    /**
+     * @return The accepted media types, in order of preference.
+     */
+    public List<MimeType> getAcceptedMediaTypes() {
+        return acceptedMediaTypes;
+    }
+
+    /**
+     * @return The locale of the API consumer.
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Selects the media type in which the error must be represented,
+     * among the given {@code producibleMediaTypes}.
+     * The accepted media types are checked in order of preference, and for each of them,
+     * the first compatible producible media type is selected, unless it is explicitly refused
+     * by a media type at least as specific (e.g {@code application/json;q=0} refuses JSON even if any type is accepted).
+     * If none of them is accepted, the first producible one that is not refused is selected (or the first one,
+     * if all of them are refused), as returning an error in a not accepted media type is better than returning nothing.
+     *
+     * @param producibleMediaTypes The media types that can be produced, in order of preference. Must not be empty.
+     * @return The selected media type.
+     */
+    public MimeType negotiate(final List<MimeType> producibleMediaTypes) {
+        Assert.notEmpty(producibleMediaTypes, "The producible media types must not be empty");
+        for (final MimeType accepted : acceptedMediaTypes) {
+            for (final MimeType producible : producibleMediaTypes) {
+                if (accepted.isCompatibleWith(producible) && !isRefused(producible, accepted)) {
+                    return producible;
+                }
+            }
+        }
+        for (final MimeType producible : producibleMediaTypes) {
+            if (!isRefused(producible, MimeTypeUtils.ALL)) {
+                return producible;
+            }
+        }
+        return producibleMediaTypes.get(0);
+    }
+
+    /**
+     * Indicates whether the given {@code producible} media type is refused by a media type at least as specific as
+     * the given {@code accepted} one (i.e the most specific range decides, as in HTTP).
+     *
+     * @param producible The producible media type.
+     * @param accepted   The accepted media type with which it is compatible.
+     * @return {@code true} if it is refused, or {@code false} otherwise.
+     */
+    private boolean isRefused(final MimeType producible, final MimeType accepted) {
+        for (final MimeType refused : refusedMediaTypes) {
+            if (refused.includes(producible) && accepted.includes(refused)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @return A context that accepts any media type, in the root locale.
+     */
+    public static HandlingContext empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a {@link HandlingContext}.
+     *
+     * @param locale             The locale of the API consumer.
+     * @param acceptedMediaTypes The accepted media types, in order of preference.
+     *                           If none is given, any media type is accepted.
+     * @return The created {@link HandlingContext}.
+     */
+    public static HandlingContext of(final Locale locale, final MimeType... acceptedMediaTypes) {
+        return of(locale, Arrays.asList(acceptedMediaTypes));
+    }
+
+    /**
+     * Creates a {@link HandlingContext}.
+     *
+     * @param locale             The locale of the API consumer.
+     * @param acceptedMediaTypes The accepted media types, in order of preference.
+     *                           If none is given, any media type is accepted.
+     * @return The created {@link HandlingContext}.
+     */
+    public static HandlingContext of(final Locale locale, final List<MimeType> acceptedMediaTypes) {
+        Assert.notNull(locale, "The locale must not be null");
+        Assert.notNull(acceptedMediaTypes, "The accepted media types must not be null");
+        Assert.noNullElements(acceptedMediaTypes.toArray(), "The accepted media types must not contain null");
+        return create(locale, acceptedMediaTypes, Collections.emptyList());
+    }
+
+    /**
+     * Creates a {@link HandlingContext} from the value of an HTTP {@code Accept} header,
+     * sorting the media types by their quality factor.
+     * Media types with a quality factor of zero are not accepted, but refused
+     * (if only refused media types are left, any other is accepted).
+     *
+     * @param acceptHeader The value of the {@code Accept} header (if null or empty, any media type is accepted).
+     * @param locale       The locale of the API consumer.
+     * @return The created {@link HandlingContext}.
+     * @throws org.springframework.util.InvalidMimeTypeException If the header can not be parsed.
+     */
+    public static HandlingContext fromAcceptHeader(final String acceptHeader, final Locale locale) {
+        if (!StringUtils.hasText(acceptHeader)) {
+            return of(locale);
+        }
+        Assert.notNull(locale, "The locale must not be null");
+        final List<MimeType> mediaTypes = MimeTypeUtils.parseMimeTypes(acceptHeader);
+        final List<MimeType> refused = new ArrayList<>();
+        mediaTypes.removeIf(mediaType -> qualityFactor(mediaType) <= 0 && refused.add(mediaType));
+        mediaTypes.sort(Comparator.comparingDouble(HandlingContext::qualityFactor).reversed()); // Stable sort
+        return create(locale, mediaTypes, refused);
+    }
+
+    /**
+     * Creates a {@link HandlingContext}.
+     *
+     * @param locale             The locale of the API consumer.
+     * @param acceptedMediaTypes The accepted media types, in order of preference (if empty, any is accepted).
+     * @param refusedMediaTypes  The media types that are explicitly not accepted.
+     * @return The created {@link HandlingContext}.
+     */
+    private static HandlingContext create(final Locale locale, final List<MimeType> acceptedMediaTypes,
+                                         final List<MimeType> refusedMediaTypes) {
+        return new HandlingContext(acceptedMediaTypes.isEmpty() ?
+                EMPTY.acceptedMediaTypes :
+                Collections.unmodifiableList(new ArrayList<>(acceptedMediaTypes)),
+                refusedMediaTypes.isEmpty() ?
+                        EMPTY.refusedMediaTypes :
+                        Collections.unmodifiableList(new ArrayList<>(refusedMediaTypes)),
+                locale);
+    }
+
+    /**
+     * @param mediaType An accepted media type.
+     * @return Its quality factor (1 if not set, or if it is not valid).
+     */
+    private static double qualityFactor(final MimeType mediaType) {
+        final String quality = mediaType.getParameter(QUALITY_FACTOR_PARAMETER);
+        if (quality == null) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(quality);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+}
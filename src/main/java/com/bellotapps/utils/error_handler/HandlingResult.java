@@ -18,6 +18,8 @@ package com.bellotapps.utils.error_handler;
 
 import org.springframework.util.Assert;
 
+import java.util.Optional;
+
 /**
  * Container class holding the results of handling a {@link Throwable}.
  *
@@ -25,6 +27,11 @@ import org.springframework.util.Assert;
  */
 public class HandlingResult<E> {
 
+    /**
+     * The result returned by an {@link ExceptionHandler} that declines handling an exception.
+     */
+    private static final HandlingResult<?> DECLINED = new HandlingResult<>(-1, null, null);
+
     /**
      * The HTTP status code that must be returned in the response.
      */
@@ -35,16 +42,24 @@ public class HandlingResult<E> {
      */
     private final E errorRepresentationEntity;
 
+    /**
+     * The {@link RetryPolicy} of the error. Can be null (i.e unknown).
+     */
+    private final RetryPolicy retryPolicy;
+
 
     /**
      * Constructor.
      *
      * @param httpErrorCode             The HTTP status code that must be returned in the response.
      * @param errorRepresentationEntity The entity that will be returned in the response. Can be null.
+     * @param retryPolicy               The {@link RetryPolicy} of the error. Can be null.
      */
-    private HandlingResult(final int httpErrorCode, final E errorRepresentationEntity) {
+    private HandlingResult(final int httpErrorCode, final E errorRepresentationEntity,
+                           final RetryPolicy retryPolicy) {
         this.httpErrorCode = httpErrorCode;
         this.errorRepresentationEntity = errorRepresentationEntity;
+        this.retryPolicy = retryPolicy;
     }
 
     /**
@@ -61,14 +76,60 @@ public class HandlingResult<E> {
         return errorRepresentationEntity;
     }
 
+    /**
+     * Returns the {@link RetryPolicy} of the error, set by the handler or declared with {@link RetryHint}.
+     *
+     * @return The {@link RetryPolicy}, or empty if unknown.
+     */
+    public Optional<RetryPolicy> getRetryPolicy() {
+        return Optional.ofNullable(retryPolicy);
+    }
+
+    /**
+     * Creates a copy of this result with the given {@code retryPolicy}
+     * (e.g for handlers whose errors can be retried depending on the exception).
+     *
+     * @param retryPolicy The {@link RetryPolicy} of the error.
+     * @return The new {@link HandlingResult}.
+     * @throws IllegalStateException If this is the declined result.
+     */
+    public HandlingResult<E> withRetryPolicy(final RetryPolicy retryPolicy) throws IllegalStateException {
+        Assert.state(!isDeclined(), "The declined result can not have a retry policy");
+        Assert.notNull(retryPolicy, "The retry policy must not be null");
+        return new HandlingResult<>(httpErrorCode, errorRepresentationEntity, retryPolicy);
+    }
+
+    /**
+     * @return {@code true} if this is the result of an {@link ExceptionHandler} that declined handling an exception,
+     * or {@code false} otherwise.
+     * @see #decline()
+     */
+    public boolean isDeclined() {
+        return this == DECLINED;
+    }
+
     public static <T> HandlingResult<T> withPayload(final int httpErrorCode, final T errorRepresentationEntity) {
         Assert.notNull(errorRepresentationEntity,
                 "When using the withPayload factory method, a payload must be set." +
                         " For null payload results use the justErrorCode factory method");
-        return new HandlingResult<>(httpErrorCode, errorRepresentationEntity);
+        return new HandlingResult<>(httpErrorCode, errorRepresentationEntity, null);
     }
 
     public static <T> HandlingResult<T> justErrorCode(final int httpErrorCode) {
-        return new HandlingResult<>(httpErrorCode, null);
+        return new HandlingResult<>(httpErrorCode, null, null);
+    }
+
+    /**
+     * Returns the result to be returned by an {@link ExceptionHandler} that declines handling an exception
+     * (i.e the exception is not of its concern).
+     * The exception is then passed to the next handler (i.e the one for the closest supertype of the exception),
+     * or to the default one if there are no more handlers in the exception's hierarchy.
+     *
+     * @param <T> Concrete type of entity to be sent in the response.
+     * @return The declined result.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> HandlingResult<T> decline() {
+        return (HandlingResult<T>) DECLINED;
     }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Same as {@link KeyedExceptionHandler}, but for {@code int} keys (e.g vendor error codes or HTTP status codes),
+ * which are looked up in a table indexed by {@code int} (i.e no boxing is performed when routing).
+ *
+ * @param <T> The concrete type of {@link Throwable} that will be handled by the object implementing this interface.
+ * @param <E> The concrete type of entity being sent in the handling result.
+ * @see KeyedExceptionHandler
+ */
+public interface IntKeyedExceptionHandler<T extends Throwable, E> extends ExceptionHandler<T, E> {
+
+    /**
+     * @return The {@link ToIntFunction} that extracts the key from the {@link Throwable} to be handled.
+     */
+    ToIntFunction<? super T> getKeyExtractor();
+
+    /**
+     * @return The keys handled by this handler. Must not be empty.
+     */
+    int[] getKeys();
+
+    /**
+     * Returns the name of the key extracted by this handler (e.g {@code "errorCode"}). The handlers of the same type
+     * of {@link Throwable} that declare the same name must extract the same key, as they share the same table.
+     *
+     * @return The name of the key, or null if the handler shares a table only with those returning
+     * the same key extractor.
+     * @implNote The default implementation returns null.
+     * @see KeyedExceptionHandler#getKeyName()
+     */
+    default String getKeyName() {
+        return null;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An {@link ExceptionHandler} that handles a given type of {@link Throwable} only when a key extracted from it
+ * (e.g the SQL state of an {@link java.sql.SQLException}) is one of a set of keys.
+ * This allows having several handlers for the same {@link Throwable} type, instead of one handler switching over
+ * the key, as the {@link ErrorHandler} routes the exception with a single lookup over a table built for each type.
+ * <p>
+ * If the extracted key is not one of the declared keys by any {@link KeyedExceptionHandler} of the type,
+ * the exception is handled by the (non keyed) {@link ExceptionHandler} of the said type (i.e the fallback handler),
+ * or the one of the closest supertype if there is no such handler.
+ * <p>
+ * Handlers of the same type of {@link Throwable} that declare the same {@link #getKeyName()} share the same table
+ * (built with the key extractor of the first of them), so routing costs a single lookup for each key name.
+ * Handlers that declare no name share a table only if they return the same key extractor (according to
+ * {@link Object#equals(Object)}), which is only the case for a constant
+ * (e.g {@code static final Function<SQLException, String> SQL_STATE = SQLException::getSQLState}),
+ * as each evaluation of a lambda or method reference might return a different object.
+ *
+ * @param <T> The concrete type of {@link Throwable} that will be handled by the object implementing this interface.
+ * @param <K> The type of key extracted from the {@link Throwable}.
+ * @param <E> The concrete type of entity being sent in the handling result.
+ * @see IntKeyedExceptionHandler
+ */
+public interface KeyedExceptionHandler<T extends Throwable, K, E> extends ExceptionHandler<T, E> {
+
+    /**
+     * @return The {@link Function} that extracts the key from the {@link Throwable} to be handled.
+     */
+    Function<? super T, ? extends K> getKeyExtractor();
+
+    /**
+     * @return The keys handled by this handler. Must not be empty, nor contain {@code null}.
+     */
+    Set<? extends K> getKeys();
+
+    /**
+     * Returns the name of the key extracted by this handler (e.g {@code "sqlState"}). The handlers of the same type
+     * of {@link Throwable} that declare the same name must extract the same key, as they share the same table.
+     *
+     * @return The name of the key, or null if the handler shares a table only with those returning
+     * the same key extractor.
+     * @implNote The default implementation returns null.
+     */
+    default String getKeyName() {
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+/**
+ * The {@link ExceptionHandler} that applies an {@link ExceptionMapping}.
+ * Its exception class is the mapped one (i.e not the one resolved from its type arguments).
+ */
+/* package */ final class MappedExceptionHandler implements ExceptionHandler<Throwable, Object> {
+
+    /**
+     * The applied {@link ExceptionMapping}.
+     */
+    private final ExceptionMapping mapping;
+
+    /**
+     * The result, built once (null if the body holds the message placeholder).
+     */
+    private final HandlingResult<Object> constantResult;
+
+
+    /**
+     * Constructor.
+     *
+     * @param mapping The applied {@link ExceptionMapping}.
+     */
+    /* package */ MappedExceptionHandler(final ExceptionMapping mapping) {
+        this.mapping = mapping;
+        final String body = mapping.getBody();
+        if (body == null) {
+            this.constantResult = HandlingResult.justErrorCode(mapping.getStatus());
+        } else if (!body.contains(ExceptionMapping.MESSAGE_PLACEHOLDER)) {
+            this.constantResult = HandlingResult.withPayload(mapping.getStatus(), body);
+        } else {
+            this.constantResult = null;
+        }
+    }
+
+
+    /**
+     * @return The mapped exception class.
+     */
+    /* package */ Class<? extends Throwable> getExceptionClass() {
+        return mapping.getExceptionClass();
+    }
+
+    @Override
+    public HandlingResult<Object> handle(final Throwable exception) {
+        if (constantResult != null) {
+            return constantResult;
+        }
+        final String message = exception.getMessage();
+        return HandlingResult.withPayload(mapping.getStatus(),
+                mapping.getBody().replace(ExceptionMapping.MESSAGE_PLACEHOLDER, message == null ? "" : message));
+    }
+
+    @Override
+    public String toString() {
+        return "MappedExceptionHandler{" + mapping + "}";
+    }
+}
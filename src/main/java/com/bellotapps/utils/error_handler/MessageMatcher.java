@@ -0,0 +1,370 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds a set of {@link MessagePattern}s in a message in a single pass, returning the one found first
+ * (i.e the one whose match starts first, or, if several start at the same position, the first declared one).
+ * <p>
+ * Literals are compiled into an Aho-Corasick automaton (i.e a trie of the literals with failure links).
+ * Regular expressions that start with a literal prefix (e.g {@code "quota exceeded after \\d+ calls"}) are
+ * prefiltered through the same automaton, so each of them is only evaluated where its prefix is found.
+ * The rest of them are combined into a single alternation, with a capturing group for each of them,
+ * unless they have groups or back references of their own (which would clash or be renumbered in the alternation),
+ * in which case they are evaluated one by one.
+ * This way, the cost of matching does not grow with the amount of patterns as evaluating them one by one would.
+ * Instances are thread safe.
+ */
+/* package */ final class MessageMatcher {
+
+    /**
+     * The minimum length of the literal prefix of a regular expression to be prefiltered by the automaton
+     * (shorter prefixes would be found too often to save evaluations).
+     */
+    private static final int MIN_PREFIX_LENGTH = 3;
+
+    /**
+     * The characters that end the literal prefix of a regular expression.
+     */
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    /**
+     * The characters that make the preceding character optional or repeated.
+     */
+    private static final String QUANTIFIERS = "?*+{";
+
+    /**
+     * The characters of the transitions of each state of the automaton (sorted, for binary search).
+     */
+    private final char[][] labels;
+
+    /**
+     * The target states of the transitions of each state of the automaton (in the same order as the labels).
+     */
+    private final int[][] targets;
+
+    /**
+     * The failure link of each state of the automaton (i.e the state of its longest proper suffix in the trie).
+     */
+    private final int[] failures;
+
+    /**
+     * The closest state in the failure chain of each state that has outputs (-1 if none).
+     */
+    private final int[] outputLinks;
+
+    /**
+     * The indexes of the patterns whose literal (or literal prefix) ends in each state, in ascending order.
+     */
+    private final int[][] outputs;
+
+    /**
+     * The depth of each state (i.e the length of the literals that end in it).
+     */
+    private final int[] depths;
+
+    /**
+     * The length of the longest literal (or literal prefix).
+     */
+    private final int maxLength;
+
+    /**
+     * The prefiltered regular expressions, by pattern index (null for the rest of the patterns).
+     */
+    private final Pattern[] prefiltered;
+
+    /**
+     * The regular expressions that are neither prefiltered nor in the alternation, by pattern index
+     * (null for the rest of the patterns).
+     */
+    private final Pattern[] separate;
+
+    /**
+     * The alternation of the regular expressions that are not prefiltered and have no groups (null if there are none).
+     */
+    private final Pattern alternation;
+
+    /**
+     * The index of the pattern of each capturing group of the alternation.
+     */
+    private final int[] groupPatterns;
+
+    /**
+     * The {@link Matcher}s of each thread, so matching does not create them each time
+     * (i.e one for each prefiltered or separate expression, created when first needed,
+     * followed by one for the alternation).
+     */
+    private final ThreadLocal<Matcher[]> matchers;
+
+
+    /**
+     * Constructor.
+     *
+     * @param patterns The {@link MessagePattern}s to be found, in declaration order.
+     */
+    /* package */ MessageMatcher(final List<MessagePattern> patterns) {
+        final List<Map<Character, Integer>> transitions = new ArrayList<>();
+        final List<List<Integer>> terminals = new ArrayList<>();
+        final List<Integer> depths = new ArrayList<>();
+        transitions.add(new TreeMap<>());
+        terminals.add(new ArrayList<>());
+        depths.add(0);
+        this.prefiltered = new Pattern[patterns.size()];
+        this.separate = new Pattern[patterns.size()];
+        final StringBuilder regex = new StringBuilder();
+        final List<Integer> groupPatterns = new ArrayList<>();
+        int maxLength = 0;
+        for (int index = 0; index < patterns.size(); index++) {
+            final MessagePattern pattern = patterns.get(index);
+            final String literal = pattern.isRegex() ? literalPrefix(pattern.getValue()) : pattern.getValue();
+            if (pattern.isRegex() && literal.length() < MIN_PREFIX_LENGTH) {
+                final Pattern compiled = Pattern.compile(pattern.getValue());
+                if (compiled.matcher("").groupCount() > 0 || hasBackReference(pattern.getValue())) {
+                    separate[index] = compiled;
+                } else {
+                    regex.append(regex.length() == 0 ? "(" : "|(").append(pattern.getValue()).append(')');
+                    groupPatterns.add(index);
+                }
+                continue;
+            }
+            if (pattern.isRegex()) {
+                prefiltered[index] = Pattern.compile(pattern.getValue());
+            }
+            // Add the literal to the trie
+            int state = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                final Integer next = transitions.get(state).get(literal.charAt(i));
+                if (next == null) {
+                    transitions.get(state).put(literal.charAt(i), transitions.size());
+                    transitions.add(new TreeMap<>());
+                    terminals.add(new ArrayList<>());
+                    depths.add(i + 1);
+                    state = transitions.size() - 1;
+                } else {
+                    state = next;
+                }
+            }
+            terminals.get(state).add(index);
+            maxLength = Math.max(maxLength, literal.length());
+        }
+
+        final int states = transitions.size();
+        this.labels = new char[states][];
+        this.targets = new int[states][];
+        this.outputs = new int[states][];
+        this.depths = depths.stream().mapToInt(Integer::intValue).toArray();
+        for (int state = 0; state < states; state++) {
+            final Map<Character, Integer> stateTransitions = transitions.get(state);
+            labels[state] = new char[stateTransitions.size()];
+            targets[state] = new int[stateTransitions.size()];
+            int i = 0;
+            for (final Map.Entry<Character, Integer> transition : stateTransitions.entrySet()) {
+                labels[state][i] = transition.getKey();
+                targets[state][i] = transition.getValue();
+                i++;
+            }
+            outputs[state] = terminals.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Compute the failure and output links breadth first (i.e the states of shorter suffixes first)
+        this.failures = new int[states];
+        this.outputLinks = new int[states];
+        outputLinks[0] = -1;
+        final Deque<Integer> queue = new ArrayDeque<>();
+        for (final int child : targets[0]) {
+            outputLinks[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.poll();
+            for (int i = 0; i < labels[state].length; i++) {
+                final int child = targets[state][i];
+                int suffix = failures[state];
+                int next;
+                while ((next = transition(suffix, labels[state][i])) < 0 && suffix != 0) {
+                    suffix = failures[suffix];
+                }
+                failures[child] = next < 0 ? 0 : next;
+                final int failure = failures[child];
+                outputLinks[child] = outputs[failure].length > 0 ? failure : outputLinks[failure];
+                queue.add(child);
+            }
+        }
+        this.maxLength = maxLength;
+
+        this.alternation = regex.length() == 0 ? null : Pattern.compile(regex.toString());
+        this.groupPatterns = groupPatterns.stream().mapToInt(Integer::intValue).toArray();
+        this.matchers = ThreadLocal.withInitial(() -> new Matcher[patterns.size() + 1]);
+    }
+
+
+    /**
+     * Finds the patterns in the given {@code message}.
+     *
+     * @param message The message in which the patterns are searched.
+     * @return The index of the pattern found first, or -1 if none was found.
+     */
+    /* package */ int match(final CharSequence message) {
+        final Matcher[] threadMatchers = matchers.get();
+        int bestStart = Integer.MAX_VALUE;
+        int bestPattern = -1;
+        // Literals and prefixes: keep the leftmost match, scanning until no later match can start before it
+        int state = 0;
+        for (int i = 0; maxLength > 0 && i < message.length() && i - maxLength < bestStart; i++) {
+            final char c = message.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = failures[state];
+            }
+            state = next < 0 ? 0 : next;
+            // Outputs are visited from the longest to the shortest (i.e from the leftmost start)
+            for (int output = outputs[state].length > 0 ? state : outputLinks[state];
+                 output >= 0; output = outputLinks[output]) {
+                final int start = i - depths[output] + 1;
+                if (start > bestStart) {
+                    break;
+                }
+                for (final int pattern : outputs[output]) {
+                    if (start == bestStart && pattern >= bestPattern) {
+                        break;
+                    }
+                    if (prefiltered[pattern] == null || matchesAt(threadMatchers, pattern, message, start)) {
+                        bestStart = start;
+                        bestPattern = pattern;
+                        break;
+                    }
+                }
+            }
+        }
+        // The rest of the expressions: the alternation finds the leftmost match, preferring the first declared one
+        if (alternation != null) {
+            Matcher matcher = threadMatchers[prefiltered.length];
+            if (matcher == null) {
+                matcher = alternation.matcher(message);
+                threadMatchers[prefiltered.length] = matcher;
+            } else {
+                matcher.reset(message);
+            }
+            if (matcher.find() && matcher.start() <= bestStart) {
+                int group = 1;
+                while (matcher.start(group) < 0) {
+                    group++;
+                }
+                final int pattern = groupPatterns[group - 1];
+                if (matcher.start() < bestStart || pattern < bestPattern) {
+                    bestStart = matcher.start();
+                    bestPattern = pattern;
+                }
+            }
+        }
+        // The expressions with groups of their own, one by one
+        for (int pattern = 0; pattern < separate.length; pattern++) {
+            if (separate[pattern] == null) {
+                continue;
+            }
+            Matcher matcher = threadMatchers[pattern];
+            if (matcher == null) {
+                matcher = separate[pattern].matcher(message);
+                threadMatchers[pattern] = matcher;
+            } else {
+                matcher.reset(message);
+            }
+            if (matcher.find()
+                    && (matcher.start() < bestStart || matcher.start() == bestStart && pattern < bestPattern)) {
+                bestStart = matcher.start();
+                bestPattern = pattern;
+            }
+        }
+        return bestPattern;
+    }
+
+    /**
+     * Indicates whether the given prefiltered {@code pattern} matches the given {@code message}
+     * at the given {@code start} (i.e where its prefix was found).
+     *
+     * @param threadMatchers The {@link Matcher}s of the current thread.
+     * @param pattern        The index of the prefiltered pattern.
+     * @param message        The message.
+     * @param start          The position of the message where the prefix of the pattern was found.
+     * @return {@code true} if it matches, or {@code false} otherwise.
+     */
+    private boolean matchesAt(final Matcher[] threadMatchers, final int pattern, final CharSequence message,
+                              final int start) {
+        Matcher matcher = threadMatchers[pattern];
+        if (matcher == null) {
+            matcher = prefiltered[pattern].matcher(message).useTransparentBounds(true).useAnchoringBounds(false);
+            threadMatchers[pattern] = matcher;
+        } else {
+            matcher.reset(message);
+        }
+        return matcher.region(start, message.length()).lookingAt();
+    }
+
+    /**
+     * @param state A state of the automaton.
+     * @param c     A character.
+     * @return The target of the transition of the given {@code state} with the given character, or -1 if none.
+     */
+    private int transition(final int state, final char c) {
+        final int i = Arrays.binarySearch(labels[state], c);
+        return i < 0 ? -1 : targets[state][i];
+    }
+
+    /**
+     * Indicates whether the given regular expression has a numbered back reference (e.g {@code "(a)\\1"}),
+     * which would refer to another group if the expression was placed in the alternation.
+     *
+     * @param regex The regular expression.
+     * @return {@code true} if it has a back reference, or {@code false} otherwise.
+     */
+    private static boolean hasBackReference(final String regex) {
+        for (int i = 0; i < regex.length() - 1; i++) {
+            if (regex.charAt(i) == '\\') {
+                if (Character.isDigit(regex.charAt(i + 1)) && regex.charAt(i + 1) != '0') {
+                    return true;
+                }
+                i++; // Skip the escaped character
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the literal prefix of the given regular expression (i.e the literal every match starts with).
+     * It is conservative: expressions with alternations or starting with flags or escapes have none.
+     *
+     * @param regex The regular expression.
+     * @return The literal prefix (empty if none).
+     */
+    private static String literalPrefix(final String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return "";
+        }
+        int end = 0;
+        while (end < regex.length() && METACHARACTERS.indexOf(regex.charAt(end)) < 0) {
+            end++;
+        }
+        if (end < regex.length() && QUANTIFIERS.indexOf(regex.charAt(end)) >= 0) {
+            end--; // The last character is optional or repeated
+        }
+        return regex.substring(0, Math.max(end, 0));
+    }
+}
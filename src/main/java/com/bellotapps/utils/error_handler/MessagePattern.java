@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.Assert;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * A pattern searched in the message of a {@link Throwable} by a {@link MessagePatternExceptionHandler}:
+ * either a literal substring or a regular expression (found anywhere in the message, unless anchored).
+ * Instances are immutable.
+ */
+public final class MessagePattern {
+
+    /**
+     * The pattern (i.e the literal, or the regular expression).
+     */
+    private final String value;
+
+    /**
+     * Indicates whether the pattern is a regular expression.
+     */
+    private final boolean regex;
+
+
+    /**
+     * Constructor.
+     *
+     * @param value The pattern (i.e the literal, or the regular expression).
+     * @param regex Indicates whether the pattern is a regular expression.
+     */
+    private MessagePattern(final String value, final boolean regex) {
+        this.value = value;
+        this.regex = regex;
+    }
+
+
+    /**
+     * @return The pattern (i.e the literal, or the regular expression).
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return {@code true} if the pattern is a regular expression, or {@code false} if it is a literal.
+     */
+    public boolean isRegex() {
+        return regex;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MessagePattern)) {
+            return false;
+        }
+        final MessagePattern that = (MessagePattern) o;
+        return regex == that.regex && value.equals(that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, regex);
+    }
+
+    @Override
+    public String toString() {
+        return (regex ? "regex:" : "literal:") + value;
+    }
+
+
+    /**
+     * Creates a {@link MessagePattern} that matches the messages containing the given {@code literal}.
+     *
+     * @param literal The substring to be searched (case sensitive).
+     * @return The created {@link MessagePattern}.
+     */
+    public static MessagePattern literal(final String literal) {
+        Assert.hasLength(literal, "The literal must not be empty");
+        return new MessagePattern(literal, false);
+    }
+
+    /**
+     * Creates a {@link MessagePattern} that matches the messages in which the given regular expression is found
+     * (e.g {@code "timed out after \\d+ ms"}). Flags can be set inline (e.g {@code "(?i)timeout"}).
+     * Numbered back references are not supported, as the expression is combined with the others of the type.
+     *
+     * @param regex The regular expression.
+     * @return The created {@link MessagePattern}.
+     * @throws java.util.regex.PatternSyntaxException If the expression is not valid.
+     */
+    public static MessagePattern regex(final String regex) {
+        Assert.hasLength(regex, "The regex must not be empty");
+        Pattern.compile(regex); // Fail when created, and not when the handlers are indexed
+        return new MessagePattern(regex, true);
+    }
+}
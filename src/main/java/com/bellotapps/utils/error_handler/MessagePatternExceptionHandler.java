@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.util.Set;
+
+/**
+ * An {@link ExceptionHandler} that handles a given type of {@link Throwable} only when its message matches
+ * one of a set of {@link MessagePattern}s (e.g for libraries that throw generic exceptions, in which only the message
+ * tells the cases apart). This allows having a handler for each case, instead of one handler evaluating
+ * a series of regular expressions over the message.
+ * <p>
+ * The patterns of all the handlers of a type are compiled into a single matcher, that finds them in one pass over
+ * the message (literals, and the literal prefixes of regular expressions, are searched with an Aho-Corasick
+ * automaton, and the rest of the regular expressions with a single alternation). The exception is routed to the handler of the pattern found first in the message
+ * (or, if several are found at the same position, of the first declared pattern).
+ * <p>
+ * If no pattern is found (or the message is {@code null}), the exception is handled by the (non keyed)
+ * {@link ExceptionHandler} of the said type (i.e the fallback handler), or the one of the closest supertype
+ * if there is no such handler.
+ *
+ * @param <T> The concrete type of {@link Throwable} that will be handled by the object implementing this interface.
+ * @param <E> The concrete type of entity being sent in the handling result.
+ * @see KeyedExceptionHandler
+ */
+public interface MessagePatternExceptionHandler<T extends Throwable, E> extends ExceptionHandler<T, E> {
+
+    /**
+     * @return The patterns handled by this handler. Must not be empty, nor contain {@code null}.
+     */
+    Set<MessagePattern> getPatterns();
+}
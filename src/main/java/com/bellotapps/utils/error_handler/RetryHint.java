@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares the {@link RetryPolicy} of the errors of the annotated exception class (and its subclasses),
+ * or of those handled by the annotated {@link ExceptionHandler} class.
+ * <p>
+ * The {@link ErrorHandler} sets the declared policy into the results that have none.
+ * The policy declared by the handler takes precedence over the one declared by the exception
+ * (i.e by the exception class or its closest annotated superclass).
+ * Policies are resolved once for each class.
+ *
+ * @see HandlingResult#withRetryPolicy(RetryPolicy)
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryHint {
+
+    /**
+     * @return Whether the errors can be retried.
+     */
+    boolean retryable();
+
+    /**
+     * @return The suggested initial backoff between retries, in milliseconds (negative for none).
+     * Ignored for errors that are not retryable.
+     */
+    long backoffMillis() default -1;
+
+    /**
+     * @return The minimum time to wait before retrying, in seconds (negative for none).
+     * Ignored for errors that are not retryable.
+     */
+    long retryAfterSeconds() default -1;
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.util.Optional;
+
+/**
+ * Sets the {@link RetryPolicy} declared with {@link RetryHint} into the results that have none.
+ * <p>
+ * The policy declared for each class is resolved once (i.e the annotation is looked up once for each class).
+ * The last result classified for each exception class is remembered, so classifying the same result again
+ * (e.g a constant one, like a cached variant) returns the same classified instance, instead of a new one.
+ */
+/* package */ final class RetryPolicies {
+
+    /**
+     * The {@link RetryPolicy} declared for each class (i.e by the class or its closest annotated superclass).
+     */
+    private static final ClassValue<Optional<RetryPolicy>> DECLARED = new ClassValue<Optional<RetryPolicy>>() {
+        @Override
+        protected Optional<RetryPolicy> computeValue(final Class<?> type) {
+            for (Class<?> actual = type; actual != null; actual = actual.getSuperclass()) {
+                final RetryHint hint = actual.getDeclaredAnnotation(RetryHint.class);
+                if (hint != null) {
+                    return Optional.of(RetryPolicy.of(hint));
+                }
+            }
+            return Optional.empty();
+        }
+    };
+
+    /**
+     * The last classified result, by exception class.
+     */
+    private final ClassValue<Slot> lastClassified;
+
+
+    /**
+     * Constructor.
+     */
+    /* package */ RetryPolicies() {
+        this.lastClassified = new ClassValue<Slot>() {
+            @Override
+            protected Slot computeValue(final Class<?> type) {
+                return new Slot();
+            }
+        };
+    }
+
+
+    /**
+     * Sets the {@link RetryPolicy} declared by the given {@code handler}, or else by the given {@code exception},
+     * into the given {@code result}, unless it already has one.
+     *
+     * @param exception The handled exception.
+     * @param handler   The {@link ExceptionHandler} that handled it.
+     * @param result    The {@link HandlingResult} returned by the handler (can be null).
+     * @return The classified {@link HandlingResult}, or the given one if it already had a policy,
+     * or none is declared.
+     */
+    /* package */ HandlingResult<Object> classify(final Throwable exception, final ExceptionHandler<?, ?> handler,
+                                                  final HandlingResult<Object> result) {
+        if (result == null || result.isDeclined() || result.getRetryPolicy().isPresent()) {
+            return result;
+        }
+        Optional<RetryPolicy> policy = DECLARED.get(handler.getClass());
+        if (!policy.isPresent()) {
+            policy = DECLARED.get(exception.getClass());
+            if (!policy.isPresent()) {
+                return result;
+            }
+        }
+        final Slot slot = lastClassified.get(exception.getClass());
+        final Classified last = slot.last;
+        if (last != null && last.original == result && last.classified.getRetryPolicy().equals(policy)) {
+            return last.classified;
+        }
+        final HandlingResult<Object> classified = result.withRetryPolicy(policy.get());
+        slot.last = new Classified(result, classified);
+        return classified;
+    }
+
+
+    /**
+     * Holder of the last result classified for an exception class.
+     */
+    private static final class Slot {
+
+        /**
+         * The last classified result (null if none).
+         */
+        private volatile Classified last;
+    }
+
+    /**
+     * A result, together with its classified copy.
+     */
+    private static final class Classified {
+
+        /**
+         * The result returned by the handler.
+         */
+        private final HandlingResult<Object> original;
+
+        /**
+         * The classified copy of the {@code original} result.
+         */
+        private final HandlingResult<Object> classified;
+
+        /**
+         * Constructor.
+         *
+         * @param original   The result returned by the handler.
+         * @param classified The classified copy of the {@code original} result.
+         */
+        private Classified(final HandlingResult<Object> original, final HandlingResult<Object> classified) {
+            this.original = original;
+            this.classified = classified;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Retry classification of an error, to be sent to the clients (e.g as a {@code Retry-After} header),
+ * so they do not waste capacity retrying errors that will fail again, nor retry too soon.
+ * Instances are immutable.
+ *
+ * @see HandlingResult#getRetryPolicy()
+ * @see RetryHint
+ */
+public final class RetryPolicy {
+
+    /**
+     * The policy of errors that must not be retried (e.g validation errors).
+     */
+    public static final RetryPolicy NOT_RETRYABLE = new RetryPolicy(false, null, null);
+
+    /**
+     * The policy of errors that can be retried, with no suggested delay.
+     */
+    public static final RetryPolicy RETRYABLE = new RetryPolicy(true, null, null);
+
+    /**
+     * Indicates whether the request can be retried.
+     */
+    private final boolean retryable;
+
+    /**
+     * The suggested initial backoff between retries (null if none).
+     */
+    private final Duration backoff;
+
+    /**
+     * The minimum time to wait before retrying (null if none).
+     */
+    private final Duration retryAfter;
+
+
+    /**
+     * Constructor.
+     *
+     * @param retryable  Indicates whether the request can be retried.
+     * @param backoff    The suggested initial backoff between retries (null if none).
+     * @param retryAfter The minimum time to wait before retrying (null if none).
+     */
+    private RetryPolicy(final boolean retryable, final Duration backoff, final Duration retryAfter) {
+        this.retryable = retryable;
+        this.backoff = backoff;
+        this.retryAfter = retryAfter;
+    }
+
+
+    /**
+     * @return {@code true} if the request can be retried, or {@code false} otherwise.
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    /**
+     * @return The suggested initial backoff between retries, or empty if none.
+     */
+    public Optional<Duration> getBackoff() {
+        return Optional.ofNullable(backoff);
+    }
+
+    /**
+     * @return The minimum time to wait before retrying, or empty if none.
+     */
+    public Optional<Duration> getRetryAfter() {
+        return Optional.ofNullable(retryAfter);
+    }
+
+    /**
+     * @return The value of the {@code Retry-After} header (i.e the minimum time to wait in seconds, rounded up),
+     * or -1 if there is no such time (or the error is not retryable).
+     */
+    public long getRetryAfterSeconds() {
+        if (!retryable || retryAfter == null) {
+            return -1;
+        }
+        final long seconds = retryAfter.getSeconds();
+        return retryAfter.getNano() == 0 ? seconds : seconds + 1;
+    }
+
+    /**
+     * Creates a copy of this policy with the given suggested initial {@code backoff} between retries.
+     *
+     * @param backoff The suggested initial backoff.
+     * @return The new {@link RetryPolicy}.
+     * @throws IllegalStateException If the error is not retryable.
+     */
+    public RetryPolicy withBackoff(final Duration backoff) throws IllegalStateException {
+        Assert.state(retryable, "Errors that are not retryable have no backoff");
+        Assert.isTrue(backoff != null && !backoff.isNegative(), "The backoff must not be null nor negative");
+        return new RetryPolicy(true, backoff, retryAfter);
+    }
+
+    /**
+     * Creates a copy of this policy with the given minimum time to wait before retrying.
+     *
+     * @param retryAfter The minimum time to wait before retrying.
+     * @return The new {@link RetryPolicy}.
+     * @throws IllegalStateException If the error is not retryable.
+     */
+    public RetryPolicy withRetryAfter(final Duration retryAfter) throws IllegalStateException {
+        Assert.state(retryable, "Errors that are not retryable have no retry after");
+        Assert.isTrue(retryAfter != null && !retryAfter.isNegative(), "The retry after must not be null nor negative");
+        return new RetryPolicy(true, backoff, retryAfter);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RetryPolicy)) return false;
+
+        final RetryPolicy that = (RetryPolicy) o;
+
+        return retryable == that.retryable
+                && (backoff == null ? that.backoff == null : backoff.equals(that.backoff))
+                && (retryAfter == null ? that.retryAfter == null : retryAfter.equals(that.retryAfter));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = retryable ? 1 : 0;
+        result = 31 * result + (backoff == null ? 0 : backoff.hashCode());
+        result = 31 * result + (retryAfter == null ? 0 : retryAfter.hashCode());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{retryable=" + retryable + ", backoff=" + backoff + ", retryAfter=" + retryAfter + "}";
+    }
+
+
+    /**
+     * Creates the {@link RetryPolicy} declared by the given {@link RetryHint}.
+     *
+     * @param hint The {@link RetryHint}.
+     * @return The declared {@link RetryPolicy}.
+     */
+    /* package */ static RetryPolicy of(final RetryHint hint) {
+        if (!hint.retryable()) {
+            return NOT_RETRYABLE;
+        }
+        return new RetryPolicy(true,
+                hint.backoffMillis() < 0 ? null : Duration.ofMillis(hint.backoffMillis()),
+                hint.retryAfterSeconds() < 0 ? null : Duration.ofSeconds(hint.retryAfterSeconds()));
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk snapshot of the results of scanning packages for {@link ExceptionHandler}s, so an
+ * {@link ErrorHandlerFactory} does not scan them again on each start of the JVM.
+ * <p>
+ * For each package, the snapshot holds the names of the handler classes (sorted, as scanning returns them),
+ * keyed by a fingerprint of the classpath entries
+ * that hold the package: the size and modification time of each file of the package in directories,
+ * and of the jar files that contain it. Computing the fingerprint just reads file attributes,
+ * so it is much cheaper than scanning (which reads every class). When the fingerprint changes,
+ * the package is scanned again and the snapshot is updated. Packages in other kind of classpath entries
+ * are always scanned.
+ * <p>
+ * The snapshot is used when there is a bean of this class in the {@link ErrorHandlerFactory}'s bean factory.
+ * Failing to read or write the file is logged, and the packages are scanned as if there was no snapshot.
+ * Instances are thread safe.
+ */
+public final class ScanSnapshot {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanSnapshot.class);
+
+    /**
+     * The version of the format of the file (snapshots of other versions are discarded).
+     */
+    private static final String FORMAT_VERSION = "2";
+
+    /**
+     * The key of the format version.
+     */
+    private static final String VERSION_KEY = "version";
+
+    /**
+     * The suffix of the keys of the fingerprints.
+     */
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
+    /**
+     * The suffix of the keys of the handlers.
+     */
+    private static final String HANDLERS_SUFFIX = ".handlers";
+
+    /**
+     * The file of the snapshot.
+     */
+    private final Path file;
+
+    /**
+     * The entries of the snapshot (null until loaded).
+     */
+    private Properties entries;
+
+
+    /**
+     * Constructor.
+     *
+     * @param file The file of the snapshot.
+     */
+    private ScanSnapshot(final Path file) {
+        this.file = file;
+        this.entries = null;
+    }
+
+
+    /**
+     * @return The file of the snapshot.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanSnapshot{file=" + file + "}";
+    }
+
+    /**
+     * Looks up the handler classes of the given {@code pkg}.
+     *
+     * @param pkg         The package.
+     * @param fingerprint The current fingerprint of the package.
+     * @return The names of the handler classes, sorted,
+     * or empty if the package is not in the snapshot, or its fingerprint changed.
+     */
+    /* package */ synchronized Optional<List<String>> lookup(final String pkg, final String fingerprint) {
+        final Properties loaded = load();
+        if (!fingerprint.equals(loaded.getProperty(pkg + FINGERPRINT_SUFFIX))) {
+            return Optional.empty();
+        }
+        final String handlers = loaded.getProperty(pkg + HANDLERS_SUFFIX, "");
+        return Optional.of(Arrays.stream(handlers.split(","))
+                .filter(handler -> !handler.isEmpty())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Stores the handler classes of the given {@code pkg}, writing the snapshot.
+     *
+     * @param pkg            The package.
+     * @param fingerprint    The current fingerprint of the package.
+     * @param handlerClasses The handler classes, sorted by name.
+     */
+    /* package */ synchronized void store(final String pkg, final String fingerprint,
+                                          final List<Class<?>> handlerClasses) {
+        final Properties loaded = load();
+        loaded.setProperty(pkg + FINGERPRINT_SUFFIX, fingerprint);
+        loaded.setProperty(pkg + HANDLERS_SUFFIX, handlerClasses.stream()
+                .map(Class::getName)
+                .collect(Collectors.joining(",")));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            final Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), ".scan-snapshot", ".tmp");
+            try (final OutputStream outputStream = Files.newOutputStream(temporary)) {
+                loaded.store(outputStream, "Exception handlers scan snapshot");
+            }
+            // Replace the file at once, so concurrent readers (e.g other instances) never read half of it
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not write the scan snapshot {}", file, e);
+        }
+    }
+
+    /**
+     * @return The entries of the snapshot, loaded from the file the first time
+     * (empty if the file does not exist, can not be read, or is of another format version).
+     */
+    private Properties load() {
+        if (entries == null) {
+            final Properties loaded = new Properties();
+            if (Files.exists(file)) {
+                try (final InputStream inputStream = Files.newInputStream(file)) {
+                    loaded.load(inputStream);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Could not read the scan snapshot {}. Packages will be scanned", file, e);
+                    loaded.clear();
+                }
+            }
+            if (!FORMAT_VERSION.equals(loaded.getProperty(VERSION_KEY))) {
+                loaded.clear();
+                loaded.setProperty(VERSION_KEY, FORMAT_VERSION);
+            }
+            entries = loaded;
+        }
+        return entries;
+    }
+
+
+    /**
+     * Creates a {@link ScanSnapshot} stored in the given {@code file} (created when first written).
+     *
+     * @param file The file of the snapshot (e.g {@code Paths.get("/var/cache/my-app/scan-snapshot.properties")}).
+     * @return The created {@link ScanSnapshot}.
+     */
+    public static ScanSnapshot at(final Path file) {
+        Assert.notNull(file, "The file must not be null");
+        return new ScanSnapshot(file);
+    }
+
+    /**
+     * Computes the fingerprint of the given {@code pkg} (i.e of the classpath entries that hold it).
+     *
+     * @param classLoader The {@link ClassLoader} in which the package is scanned.
+     * @param pkg         The package.
+     * @return The fingerprint, or empty if it can not be computed (e.g the package is in a non file entry).
+     */
+    /* package */ static Optional<String> fingerprint(final ClassLoader classLoader, final String pkg) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final List<URL> roots = Collections.list(classLoader.getResources(pkg.replace('.', '/')));
+            for (final URL root : roots) {
+                update(digest, root.toString());
+                if ("file".equals(root.getProtocol())) {
+                    final Path directory = Paths.get(root.toURI());
+                    try (final Stream<Path> files = Files.walk(directory)) {
+                        for (final Path path : files.sorted().collect(Collectors.toList())) {
+                            updateWithAttributes(digest, directory.relativize(path).toString(), path);
+                        }
+                    }
+                } else if ("jar".equals(root.getProtocol()) && root.getPath().startsWith("file:")) {
+                    final String jar = root.getPath().substring(0, root.getPath().indexOf("!/"));
+                    updateWithAttributes(digest, "", Paths.get(new URI(jar)));
+                } else {
+                    return Optional.empty();
+                }
+            }
+            final StringBuilder fingerprint = new StringBuilder();
+            for (final byte b : digest.digest()) {
+                fingerprint.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return Optional.of(fingerprint.toString());
+        } catch (IOException | URISyntaxException | NoSuchAlgorithmException | RuntimeException e) {
+            LOGGER.debug("Could not compute the fingerprint of package {}", pkg, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Updates the given {@code digest} with the given {@code name} and the size and modification time of the given
+     * {@code path}.
+     *
+     * @param digest The {@link MessageDigest}.
+     * @param name   The name of the path in the fingerprint.
+     * @param path   The path.
+     * @throws IOException If the attributes of the path could not be read.
+     */
+    private static void updateWithAttributes(final MessageDigest digest, final String name, final Path path)
+            throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        update(digest, name + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Updates the given {@code digest} with the given {@code value} (and a separator).
+     *
+     * @param digest The {@link MessageDigest}.
+     * @param value  The value.
+     */
+    private static void update(final MessageDigest digest, final String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+}
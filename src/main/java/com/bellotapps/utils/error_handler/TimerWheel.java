@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel: runs tasks after a delay, with the precision of a tick, using a single daemon thread.
+ * <p>
+ * Tasks are added to the bucket of the tick in which they expire (modulo the amount of buckets), so scheduling is
+ * just adding to a lock-free queue, and each tick just checks the tasks of one bucket.
+ * Tasks are expected to be cheap (e.g completing a future), as they run in the thread of the wheel.
+ * Tasks that are no longer needed can be cancelled through the {@link Timeout} returned when scheduling them,
+ * so the wheel does not keep them (nor what they reference) until they expire.
+ */
+/* package */ final class TimerWheel {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+
+    /**
+     * The buckets (i.e tasks expiring in tick {@code t} are in bucket {@code t & mask}).
+     */
+    private final Queue<Timeout>[] buckets;
+
+    /**
+     * Mask used to get the bucket of a tick (the amount of buckets is a power of two).
+     */
+    private final int mask;
+
+    /**
+     * The duration of each tick, in nanoseconds.
+     */
+    private final long tickNanos;
+
+    /**
+     * The time at which the wheel started (i.e tick zero), as returned by {@link System#nanoTime()}.
+     */
+    private final long startTime;
+
+    /**
+     * The last tick processed by the thread of the wheel.
+     */
+    private volatile long currentTick;
+
+
+    /**
+     * Constructor. Starts the thread of the wheel.
+     *
+     * @param tick    The duration of each tick.
+     * @param unit    The {@link TimeUnit} of the {@code tick}.
+     * @param buckets The amount of buckets (rounded up to a power of two).
+     * @param name    The name of the thread of the wheel.
+     */
+    /* package */ TimerWheel(final long tick, final TimeUnit unit, final int buckets, final String name) {
+        Assert.isTrue(tick > 0, "The tick must be positive");
+        Assert.isTrue(buckets > 0 && buckets <= 1 << 16, "The amount of buckets must be between 1 and 2^16");
+        final int size = buckets == 1 ? 1 : Integer.highestOneBit(buckets - 1) << 1;
+        @SuppressWarnings("unchecked")
+        final Queue<Timeout>[] queues = (Queue<Timeout>[]) new Queue<?>[size];
+        this.buckets = queues;
+        for (int i = 0; i < size; i++) {
+            this.buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tick);
+        this.startTime = System.nanoTime();
+        this.currentTick = 0;
+        final Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Schedules the given {@code task} to be run after the given {@code delay}.
+     * It runs in the tick following the delay (i.e it might be run up to a tick later).
+     *
+     * @param task  The task.
+     * @param delay The delay.
+     * @param unit  The {@link TimeUnit} of the {@code delay}.
+     * @return The {@link Timeout} through which the task can be cancelled.
+     */
+    /* package */ Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        final long elapsed = System.nanoTime() - startTime + unit.toNanos(delay);
+        final long tick = Math.max((elapsed + tickNanos - 1) / tickNanos, currentTick + 1);
+        final Queue<Timeout> bucket = buckets[(int) (tick & mask)];
+        final Timeout timeout = new Timeout(tick, task, bucket);
+        bucket.add(timeout);
+        // If the tick was processed while adding the task, it might have been missed (so run it here, unless it ran)
+        if (currentTick >= tick) {
+            final Runnable missed = timeout.claim();
+            if (missed != null) {
+                bucket.remove(timeout);
+                missed.run();
+            }
+        }
+        return timeout;
+    }
+
+
+    /**
+     * Processes the ticks as they are reached, running the expired tasks.
+     */
+    private void run() {
+        long tick = 0;
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            final long waitNanos = startTime + (tick + 1) * tickNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+            tick++;
+            currentTick = tick;
+            final Iterator<Timeout> timeouts = buckets[(int) (tick & mask)].iterator();
+            while (timeouts.hasNext()) {
+                final Timeout timeout = timeouts.next();
+                if (timeout.tick > tick) {
+                    continue; // Expires in a later round of the wheel
+                }
+                timeouts.remove();
+                final Runnable task = timeout.claim();
+                if (task == null) {
+                    continue; // Already run by the thread that scheduled it
+                }
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    LOGGER.warn("Timer wheel task {} failed", task, e);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * A scheduled task.
+     */
+    /* package */ static final class Timeout {
+
+        /**
+         * Updater used to claim the {@code task}.
+         */
+        private static final AtomicReferenceFieldUpdater<Timeout, Runnable> TASK =
+                AtomicReferenceFieldUpdater.newUpdater(Timeout.class, Runnable.class, "task");
+
+        /**
+         * The tick in which the task expires.
+         */
+        private final long tick;
+
+        /**
+         * The task (null once claimed to be run).
+         */
+        private volatile Runnable task;
+
+        /**
+         * The bucket holding this timeout.
+         */
+        private final Queue<Timeout> bucket;
+
+        /**
+         * Constructor.
+         *
+         * @param tick   The tick in which the task expires.
+         * @param task   The task.
+         * @param bucket The bucket holding this timeout.
+         */
+        private Timeout(final long tick, final Runnable task, final Queue<Timeout> bucket) {
+            this.tick = tick;
+            this.task = task;
+            this.bucket = bucket;
+        }
+
+        /**
+         * Cancels the task, removing it from the wheel (nothing is done if it was already run, or is running).
+         */
+        /* package */ void cancel() {
+            if (claim() != null) {
+                bucket.remove(this);
+            }
+        }
+
+        /**
+         * Claims the task in order to run it, so it is run just once.
+         *
+         * @return The task, or null if it was already claimed.
+         */
+        private Runnable claim() {
+            return TASK.getAndSet(this, null);
+        }
+    }
+}
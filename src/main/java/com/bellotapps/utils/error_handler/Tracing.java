@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Holds the {@link ErrorHandlerTracer} found through {@link ServiceLoader}.
+ * <p>
+ * As {@link #TRACER} is a constant, the code tracing the error handlers is removed by the JIT when there is no tracer.
+ */
+/* package */ final class Tracing {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(Tracing.class);
+
+    /**
+     * The {@link ErrorHandlerTracer} (null if there is none).
+     */
+    /* package */ static final ErrorHandlerTracer TRACER = findTracer();
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private Tracing() {
+    }
+
+    /**
+     * @return The first {@link ErrorHandlerTracer} found through {@link ServiceLoader},
+     * or null if there is none (or it can not be loaded).
+     */
+    private static ErrorHandlerTracer findTracer() {
+        try {
+            final Iterator<ErrorHandlerTracer> tracers =
+                    ServiceLoader.load(ErrorHandlerTracer.class, Tracing.class.getClassLoader()).iterator();
+            if (!tracers.hasNext()) {
+                return null;
+            }
+            final ErrorHandlerTracer tracer = tracers.next();
+            LOGGER.debug("Tracing error handlers with {}", tracer);
+            return tracer;
+        } catch (Throwable e) {
+            // Even linkage errors (e.g a tracer compiled for a newer JVM), which must not break error handling
+            LOGGER.warn("Could not load the ErrorHandlerTracer, so error handlers will not be traced", e);
+            return null;
+        }
+    }
+}
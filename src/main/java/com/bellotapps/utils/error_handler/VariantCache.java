@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.MimeType;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of the constant variants returned by {@link VariantExceptionHandler}s,
+ * by registered handler (i.e shared by the instances of scoped handlers), exception type, media type and locale.
+ * The amount of cached variants is bounded (as locales come from API consumers): when full,
+ * variants are still computed, but not cached.
+ */
+/* package */ final class VariantCache {
+
+    /**
+     * The maximum amount of cached variants.
+     */
+    private static final int MAX_SIZE = 4096;
+
+    /**
+     * The cached variants.
+     */
+    private final ConcurrentMap<Key, HandlingResult<EncodedEntity>> variants;
+
+
+    /**
+     * Constructor.
+     */
+    /* package */ VariantCache() {
+        this.variants = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Handles the given {@code exception} with the given {@code instance} of the given {@code handler},
+     * selecting the variant according to the given {@code context}, and using the cached one if it is constant.
+     *
+     * @param handler   The registered handler, by which variants are cached.
+     * @param instance  The {@link VariantExceptionHandler} instance of the handler that handles the exception
+     *                  (the handler itself if it is shared).
+     * @param exception The exception to be handled.
+     * @param context   The {@link HandlingContext} in which the exception is handled.
+     * @return The {@link HandlingResult} of handling the given {@code exception}.
+     */
+    /* package */ HandlingResult<EncodedEntity> handle(final ExceptionHandler<?, ?> handler,
+                                                       final VariantExceptionHandler<Throwable> instance,
+                                                       final Throwable exception, final HandlingContext context) {
+        final MimeType mediaType = context.negotiate(instance.getProducibleMediaTypes());
+        if (!instance.isConstant(mediaType)) {
+            return instance.handle(exception, mediaType, context.getLocale());
+        }
+        final Key key = new Key(handler, exception.getClass(), mediaType, context.getLocale());
+        final HandlingResult<EncodedEntity> cached = variants.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final HandlingResult<EncodedEntity> result = instance.handle(exception, mediaType, context.getLocale());
+        if (result != null && variants.size() < MAX_SIZE) {
+            variants.putIfAbsent(key, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * The key of a cached variant.
+     */
+    private static final class Key {
+
+        /**
+         * The registered handler that computed the variant.
+         */
+        private final ExceptionHandler<?, ?> handler;
+
+        /**
+         * The type of the handled exception.
+         */
+        private final Class<?> exceptionClass;
+
+        /**
+         * The media type of the variant.
+         */
+        private final MimeType mediaType;
+
+        /**
+         * The locale of the variant.
+         */
+        private final Locale locale;
+
+        /**
+         * Constructor.
+         *
+         * @param handler        The registered handler that computed the variant.
+         * @param exceptionClass The type of the handled exception.
+         * @param mediaType      The media type of the variant.
+         * @param locale         The locale of the variant.
+         */
+        private Key(final ExceptionHandler<?, ?> handler, final Class<?> exceptionClass,
+                    final MimeType mediaType, final Locale locale) {
+            this.handler = handler;
+            this.exceptionClass = exceptionClass;
+            this.mediaType = mediaType;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key key = (Key) o;
+
+            return handler == key.handler
+                    && exceptionClass == key.exceptionClass
+                    && mediaType.equals(key.mediaType)
+                    && locale.equals(key.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(handler);
+            result = 31 * result + exceptionClass.hashCode();
+            result = 31 * result + mediaType.hashCode();
+            result = 31 * result + locale.hashCode();
+            return result;
+        }
+    }
+}
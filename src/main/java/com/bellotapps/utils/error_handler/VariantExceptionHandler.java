@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.springframework.util.MimeType;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A {@link ContextualExceptionHandler} that represents errors in several media types (i.e variants),
+ * returning them already encoded.
+ * The {@link ErrorHandler} selects the variant according to the accepted media types of the {@link HandlingContext}.
+ * <p>
+ * Variants that only depend on the type of the exception, the media type and the locale (i.e constant variants)
+ * are encoded just once and cached by the {@link ErrorHandler},
+ * so handling those exceptions again (including the content negotiation) costs a lookup.
+ *
+ * @param <T> The concrete type of {@link Throwable} that will be handled by the object implementing this interface.
+ * @see EncodedEntity
+ */
+public interface VariantExceptionHandler<T extends Throwable> extends ContextualExceptionHandler<T, EncodedEntity> {
+
+    /**
+     * @return The media types in which this handler can represent errors, in order of preference.
+     * Must not be empty, and must always return the same media types.
+     */
+    List<MimeType> getProducibleMediaTypes();
+
+    /**
+     * Handles the given {@code exception}, representing it in the given {@code mediaType} and {@code locale}.
+     *
+     * @param exception The exception to be handled.
+     * @param mediaType The media type in which the error must be represented
+     *                  (one of the {@link #getProducibleMediaTypes()}).
+     * @param locale    The locale in which the error must be represented.
+     * @return The {@link HandlingResult} of handling the given {@code exception},
+     * or {@link HandlingResult#decline()} to pass it to the handler of the closest supertype.
+     */
+    HandlingResult<EncodedEntity> handle(final T exception, final MimeType mediaType, final Locale locale);
+
+    /**
+     * Indicates whether the variant for the given {@code mediaType} is constant
+     * (i.e it only depends on the type of the exception, the media type and the locale),
+     * in which case it is computed once for each of them and cached.
+     *
+     * @param mediaType One of the {@link #getProducibleMediaTypes()}.
+     * @return {@code true} if the variant is constant, or {@code false} otherwise. Defaults to {@code false}.
+     */
+    default boolean isConstant(final MimeType mediaType) {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Selects the media type using {@link HandlingContext#negotiate(List)} (caching is performed by the
+     * {@link ErrorHandler}, not by this method).
+     */
+    @Override
+    default HandlingResult<EncodedEntity> handle(final T exception, final HandlingContext context) {
+        return handle(exception, context.negotiate(getProducibleMediaTypes()), context.getLocale());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The outcome of the warm-up of an {@link ErrorHandlerImpl}.
+ * Instances are immutable.
+ *
+ * @see ErrorHandlerWarmUp
+ */
+public final class WarmUpReport {
+
+    /**
+     * How long the warm-up took.
+     */
+    private final Duration duration;
+
+    /**
+     * The amount of {@link Throwable} types whose dispatch was resolved.
+     */
+    private final int resolvedTypes;
+
+    /**
+     * The amount of {@link Throwable} types with which the handlers were exercised.
+     */
+    private final int exercisedTypes;
+
+    /**
+     * The {@link Throwable} types with which the handlers were not exercised,
+     * as they are handled by a {@link BudgetedExceptionHandler}.
+     */
+    private final Set<Class<?>> skippedTypes;
+
+    /**
+     * The {@link Throwable} types with which the handlers could not be exercised
+     * (i.e they could not be instantiated, or their handler failed).
+     */
+    private final Set<Class<?>> failedTypes;
+
+
+    /**
+     * Constructor.
+     *
+     * @param duration       How long the warm-up took.
+     * @param resolvedTypes  The amount of {@link Throwable} types whose dispatch was resolved.
+     * @param exercisedTypes The amount of {@link Throwable} types with which the handlers were exercised.
+     * @param skippedTypes   The {@link Throwable} types handled by a {@link BudgetedExceptionHandler} (not copied).
+     * @param failedTypes    The {@link Throwable} types with which the handlers could not be exercised (not copied).
+     */
+    /* package */ WarmUpReport(final Duration duration, final int resolvedTypes, final int exercisedTypes,
+                               final Set<Class<?>> skippedTypes, final Set<Class<?>> failedTypes) {
+        this.duration = duration;
+        this.resolvedTypes = resolvedTypes;
+        this.exercisedTypes = exercisedTypes;
+        this.skippedTypes = Collections.unmodifiableSet(skippedTypes);
+        this.failedTypes = Collections.unmodifiableSet(failedTypes);
+    }
+
+
+    /**
+     * @return How long the warm-up took.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return The amount of {@link Throwable} types whose dispatch was resolved.
+     */
+    public int getResolvedTypes() {
+        return resolvedTypes;
+    }
+
+    /**
+     * @return The amount of {@link Throwable} types with which the handlers were exercised.
+     */
+    public int getExercisedTypes() {
+        return exercisedTypes;
+    }
+
+    /**
+     * @return The {@link Throwable} types with which the handlers were not exercised,
+     * as they are handled by a {@link BudgetedExceptionHandler}.
+     */
+    public Set<Class<?>> getSkippedTypes() {
+        return skippedTypes;
+    }
+
+    /**
+     * @return The {@link Throwable} types with which the handlers could not be exercised
+     * (i.e they could not be instantiated, or their handler failed).
+     */
+    public Set<Class<?>> getFailedTypes() {
+        return failedTypes;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpReport{duration=" + duration + ", resolvedTypes=" + resolvedTypes
+                + ", exercisedTypes=" + exercisedTypes + ", skippedTypes=" + skippedTypes + ", failedTypes=" + failedTypes + "}";
+    }
+}
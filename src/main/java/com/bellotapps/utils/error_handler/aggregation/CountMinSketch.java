@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.aggregation;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min sketch of 64 bits hashes: a fixed amount of counters that estimate how many times each hash was added.
+ * Estimates never fall below the real count, and exceed it by a small amount that depends on the width
+ * (i.e collisions), whatever the amount of distinct hashes.
+ * Counters are updated atomically, so the sketch can be updated concurrently without locks.
+ */
+/* package */ final class CountMinSketch {
+
+    /**
+     * Constant added to the hash for each row, so each of them uses a different hash function.
+     */
+    private static final long ROW_SEED = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The counters (i.e {@code depth} rows of {@code width} counters).
+     */
+    private final AtomicLongArray counters;
+
+    /**
+     * The amount of counters in each row (a power of two).
+     */
+    private final int width;
+
+    /**
+     * The amount of rows.
+     */
+    private final int depth;
+
+
+    /**
+     * Constructor.
+     *
+     * @param width The amount of counters in each row (rounded up to a power of two).
+     * @param depth The amount of rows (i.e hash functions).
+     */
+    /* package */ CountMinSketch(final int width, final int depth) {
+        Assert.isTrue(width > 0 && width <= 1 << 24, "The width must be between 1 and 2^24");
+        Assert.isTrue(depth > 0 && depth <= 16, "The depth must be between 1 and 16");
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(this.width * depth);
+    }
+
+
+    /**
+     * Adds one occurrence of the given {@code hash}.
+     *
+     * @param hash The added hash.
+     * @return The estimated amount of occurrences of the hash, including this one.
+     */
+    /* package */ long add(final long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Estimates the amount of occurrences of the given {@code hash}.
+     *
+     * @param hash The hash.
+     * @return The estimated amount of occurrences.
+     */
+    /* package */ long estimate(final long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Sets every counter to zero.
+     */
+    /* package */ void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * Returns the index of the counter of the given {@code hash} in the given {@code row}.
+     *
+     * @param hash The hash.
+     * @param row  The row.
+     * @return The index of the counter.
+     */
+    private int index(final long hash, final int row) {
+        return row * width + (int) (mix(hash + row * ROW_SEED) & (width - 1));
+    }
+
+    /**
+     * Mixes the bits of the given {@code value} (i.e SplitMix64 finalizer).
+     *
+     * @param value The value to be mixed.
+     * @return The mixed value.
+     */
+    /* package */ static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
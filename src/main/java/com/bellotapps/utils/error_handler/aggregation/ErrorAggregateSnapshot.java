@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.aggregation;
+
+import com.bellotapps.utils.error_handler.ExceptionFingerprint;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The most frequent errors handled during a period of time, as aggregated by an {@link ErrorAggregator}.
+ */
+public final class ErrorAggregateSnapshot {
+
+    /**
+     * The beginning of the period, in milliseconds since the epoch.
+     */
+    private final long start;
+
+    /**
+     * The end of the period (exclusive), in milliseconds since the epoch.
+     */
+    private final long end;
+
+    /**
+     * The amount of errors handled during the period.
+     */
+    private final long total;
+
+    /**
+     * The most frequent exception types, sorted by count (descending).
+     */
+    private final List<ErrorCount<Class<? extends Throwable>>> exceptionTypes;
+
+    /**
+     * The most frequent exception fingerprints, sorted by count (descending).
+     */
+    private final List<ErrorCount<ExceptionFingerprint>> fingerprints;
+
+
+    /**
+     * Constructor.
+     *
+     * @param start          The beginning of the period, in milliseconds since the epoch.
+     * @param end            The end of the period (exclusive), in milliseconds since the epoch.
+     * @param total          The amount of errors handled during the period.
+     * @param exceptionTypes The most frequent exception types, sorted by count (descending).
+     * @param fingerprints   The most frequent exception fingerprints, sorted by count (descending).
+     */
+    /* package */ ErrorAggregateSnapshot(final long start, final long end, final long total,
+                                         final List<ErrorCount<Class<? extends Throwable>>> exceptionTypes,
+                                         final List<ErrorCount<ExceptionFingerprint>> fingerprints) {
+        this.start = start;
+        this.end = end;
+        this.total = total;
+        this.exceptionTypes = Collections.unmodifiableList(exceptionTypes);
+        this.fingerprints = Collections.unmodifiableList(fingerprints);
+    }
+
+
+    /**
+     * @return The beginning of the period, in milliseconds since the epoch.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return The end of the period (exclusive), in milliseconds since the epoch.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return The amount of errors handled during the period.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The most frequent exception types, sorted by count (descending).
+     */
+    public List<ErrorCount<Class<? extends Throwable>>> getExceptionTypes() {
+        return exceptionTypes;
+    }
+
+    /**
+     * @return The most frequent exception fingerprints, sorted by count (descending).
+     */
+    public List<ErrorCount<ExceptionFingerprint>> getFingerprints() {
+        return fingerprints;
+    }
+
+    @Override
+    public String toString() {
+        return "ErrorAggregateSnapshot{" +
+                "start=" + start +
+                ", end=" + end +
+                ", total=" + total +
+                ", exceptionTypes=" + exceptionTypes +
+                ", fingerprints=" + fingerprints +
+                '}';
+    }
+}
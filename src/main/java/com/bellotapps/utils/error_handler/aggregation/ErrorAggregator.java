@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.aggregation;
+
+import com.bellotapps.utils.error_handler.ExceptionFingerprint;
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.HandledErrorListener;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * {@link HandledErrorListener} that aggregates the handled errors by exception type and by
+ * {@link ExceptionFingerprint}, in order to find out the most frequent ones during the last period of time
+ * (e.g the top 20 failing exception types and fingerprints in the last minute).
+ * <p>
+ * The period is split into {@code windows} time windows, which are reused in rotation
+ * (i.e the oldest one is cleared when a new one starts).
+ * Each window counts keys with a Count-Min sketch, and keeps the most frequent ones as heavy hitter candidates,
+ * so memory is fixed whatever the amount of distinct keys (e.g messages carrying ids).
+ * Updates are lock-free, except when a key becomes a heavy hitter, or a window is rotated.
+ * Counts are estimates: they can slightly exceed the real amount, but never fall below it.
+ * <p>
+ * Register it as a bean to have it notified by the {@link com.bellotapps.utils.error_handler.ErrorHandler}s
+ * created by the {@link com.bellotapps.utils.error_handler.ErrorHandlerFactory},
+ * and query it with {@link #snapshot(int)}.
+ */
+public final class ErrorAggregator implements HandledErrorListener {
+
+    /**
+     * The default duration of each window.
+     */
+    public static final Duration DEFAULT_WINDOW_DURATION = Duration.ofSeconds(10);
+
+    /**
+     * The default amount of windows (i.e one minute, with the default duration).
+     */
+    public static final int DEFAULT_WINDOWS = 6;
+
+    /**
+     * The default amount of heavy hitter candidates kept in each window (for each kind of key).
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * The default amount of counters in each row of the sketches.
+     */
+    public static final int DEFAULT_SKETCH_WIDTH = 1024;
+
+    /**
+     * The default amount of rows of the sketches.
+     */
+    public static final int DEFAULT_SKETCH_DEPTH = 4;
+
+    /**
+     * The hashes of the exception classes (computed once for each class).
+     */
+    private static final ClassValue<Long> CLASS_HASHES = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(final Class<?> type) {
+            long hash = 0xcbf29ce484222325L; // FNV-1a 64 bits
+            for (final byte b : type.getName().getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            return hash;
+        }
+    };
+
+    /**
+     * The duration of each window, in milliseconds.
+     */
+    private final long windowMillis;
+
+    /**
+     * The windows (the one for window number {@code n} is that in position {@code n % windows.length}).
+     */
+    private final Window[] windows;
+
+    /**
+     * Supplies the current time, in milliseconds since the epoch.
+     */
+    private final LongSupplier clock;
+
+
+    /**
+     * Constructor, using the default values (i.e the last minute, split in windows of ten seconds).
+     */
+    public ErrorAggregator() {
+        this(DEFAULT_WINDOW_DURATION, DEFAULT_WINDOWS, DEFAULT_CAPACITY, DEFAULT_SKETCH_WIDTH, DEFAULT_SKETCH_DEPTH);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param windowDuration The duration of each window.
+     * @param windows        The amount of windows (i.e the aggregated period is {@code windows * windowDuration}).
+     * @param capacity       The amount of heavy hitter candidates kept in each window (for each kind of key).
+     *                       It bounds the amount of entries in the snapshots.
+     * @param sketchWidth    The amount of counters in each row of the sketches (the more, the more accurate).
+     * @param sketchDepth    The amount of rows of the sketches (the more, the less likely an inaccurate estimate).
+     */
+    public ErrorAggregator(final Duration windowDuration, final int windows, final int capacity,
+                           final int sketchWidth, final int sketchDepth) {
+        this(windowDuration, windows, capacity, sketchWidth, sketchDepth, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param windowDuration The duration of each window.
+     * @param windows        The amount of windows.
+     * @param capacity       The amount of heavy hitter candidates kept in each window (for each kind of key).
+     * @param sketchWidth    The amount of counters in each row of the sketches.
+     * @param sketchDepth    The amount of rows of the sketches.
+     * @param clock          Supplies the current time, in milliseconds since the epoch.
+     */
+    /* package */ ErrorAggregator(final Duration windowDuration, final int windows, final int capacity,
+                                  final int sketchWidth, final int sketchDepth, final LongSupplier clock) {
+        Assert.notNull(windowDuration, "The window duration must not be null");
+        Assert.isTrue(windowDuration.toMillis() > 0, "The window duration must be at least one millisecond");
+        Assert.isTrue(windows > 0, "There must be at least one window");
+        Assert.isTrue(capacity > 0, "The capacity must be positive");
+        Assert.notNull(clock, "The clock must not be null");
+        this.windowMillis = windowDuration.toMillis();
+        this.windows = new Window[windows];
+        for (int i = 0; i < windows; i++) {
+            this.windows[i] = new Window(capacity, sketchWidth, sketchDepth);
+        }
+        this.clock = clock;
+    }
+
+
+    @Override
+    public void onHandledError(final HandledError handledError) {
+        final Window window = currentWindow();
+        final Class<? extends Throwable> exceptionClass = handledError.getException().getClass();
+        final ExceptionFingerprint fingerprint = handledError.getFingerprint();
+        window.exceptionTypes.add(exceptionClass, CLASS_HASHES.get(exceptionClass));
+        window.fingerprints.add(fingerprint, fingerprint.getValue());
+        window.total.increment();
+    }
+
+    /**
+     * Takes a snapshot of the most frequent errors handled during the aggregated period
+     * (i.e the current window, and the previous {@code windows - 1} ones).
+     *
+     * @param limit The maximum amount of exception types and fingerprints in the snapshot.
+     * @return The {@link ErrorAggregateSnapshot}.
+     */
+    public ErrorAggregateSnapshot snapshot(final int limit) {
+        Assert.isTrue(limit >= 0, "The limit must not be negative");
+        final long current = clock.getAsLong() / windowMillis;
+        final List<Window> period = Arrays.stream(windows)
+                .filter(window -> window.number > current - windows.length && window.number <= current)
+                .collect(Collectors.toList());
+        final long total = period.stream().mapToLong(window -> window.total.sum()).sum();
+        return new ErrorAggregateSnapshot((current - windows.length + 1) * windowMillis, (current + 1) * windowMillis,
+                total,
+                top(period, window -> window.exceptionTypes, limit),
+                top(period, window -> window.fingerprints, limit));
+    }
+
+
+    /**
+     * Gets the window in which errors are currently aggregated, clearing it if it was last used for an older one.
+     *
+     * @return The current window.
+     */
+    private Window currentWindow() {
+        final long number = clock.getAsLong() / windowMillis;
+        final Window window = windows[(int) (number % windows.length)];
+        if (window.number < number) {
+            window.rotate(number);
+        }
+        return window;
+    }
+
+    /**
+     * Gets the most frequent keys during the given {@code period},
+     * adding up their estimates in each window (whether they are candidates in them or not).
+     *
+     * @param period  The windows of the period.
+     * @param hitters Gets the {@link HeavyHitters} of the keys from a window.
+     * @param limit   The maximum amount of keys.
+     * @param <K>     The type of keys.
+     * @return The most frequent keys, sorted by count (descending).
+     */
+    private static <K> List<ErrorCount<K>> top(final List<Window> period,
+                                               final Function<Window, HeavyHitters<K>> hitters, final int limit) {
+        final Map<K, Long> candidates = new HashMap<>();
+        period.forEach(window -> hitters.apply(window).forEach(candidates::put));
+        return candidates.entrySet().stream()
+                .map(candidate -> new ErrorCount<>(candidate.getKey(), period.stream()
+                        .mapToLong(window -> hitters.apply(window).estimate(candidate.getValue()))
+                        .sum()))
+                .sorted(Comparator.comparingLong(ErrorCount<K>::getCount).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * A time window.
+     */
+    private static final class Window {
+
+        /**
+         * The number of the window (i.e its start time, divided by its duration).
+         */
+        private volatile long number;
+
+        /**
+         * The {@link HeavyHitters} of the exception types.
+         */
+        private final HeavyHitters<Class<? extends Throwable>> exceptionTypes;
+
+        /**
+         * The {@link HeavyHitters} of the exception fingerprints.
+         */
+        private final HeavyHitters<ExceptionFingerprint> fingerprints;
+
+        /**
+         * The amount of errors handled in this window.
+         */
+        private final LongAdder total;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity    The amount of heavy hitter candidates kept (for each kind of key).
+         * @param sketchWidth The amount of counters in each row of the sketches.
+         * @param sketchDepth The amount of rows of the sketches.
+         */
+        private Window(final int capacity, final int sketchWidth, final int sketchDepth) {
+            this.number = Long.MIN_VALUE;
+            this.exceptionTypes = new HeavyHitters<>(capacity, sketchWidth, sketchDepth);
+            this.fingerprints = new HeavyHitters<>(capacity, sketchWidth, sketchDepth);
+            this.total = new LongAdder();
+        }
+
+        /**
+         * Clears this window in order to reuse it for the window with the given {@code number}
+         * (unless another thread already did it).
+         * Errors added concurrently by threads that still see the old window might be lost or counted in the new one.
+         *
+         * @param number The number of the new window.
+         */
+        private synchronized void rotate(final long number) {
+            if (this.number >= number) {
+                return;
+            }
+            exceptionTypes.clear();
+            fingerprints.clear();
+            total.reset();
+            this.number = number;
+        }
+    }
+}
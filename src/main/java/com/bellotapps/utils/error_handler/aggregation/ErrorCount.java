@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.aggregation;
+
+/**
+ * The estimated amount of errors of a given key (e.g an exception type, or an exception fingerprint).
+ *
+ * @param <K> The type of key.
+ */
+public final class ErrorCount<K> {
+
+    /**
+     * The key.
+     */
+    private final K key;
+
+    /**
+     * The estimated amount of errors.
+     */
+    private final long count;
+
+
+    /**
+     * Constructor.
+     *
+     * @param key   The key.
+     * @param count The estimated amount of errors.
+     */
+    /* package */ ErrorCount(final K key, final long count) {
+        this.key = key;
+        this.count = count;
+    }
+
+
+    /**
+     * @return The key.
+     */
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     * @return The estimated amount of errors (it can slightly exceed the real amount, but never fall below it).
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + count;
+    }
+}
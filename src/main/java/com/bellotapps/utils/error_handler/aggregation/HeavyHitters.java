@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.aggregation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Tracks the most frequent keys among those added, using a {@link CountMinSketch} to count them,
+ * and keeping at most {@code capacity} candidates (i.e fixed memory, whatever the amount of distinct keys).
+ * <p>
+ * Adding a key that is already a candidate (the usual case) just updates the sketch and looks the key up.
+ * A key becomes a candidate when its estimate exceeds that of the least frequent candidate, which is then evicted.
+ * Only that replacement takes a lock.
+ *
+ * @param <K> The type of keys.
+ */
+/* package */ final class HeavyHitters<K> {
+
+    /**
+     * The {@link CountMinSketch} counting the keys.
+     */
+    private final CountMinSketch sketch;
+
+    /**
+     * The candidates, with their hashes.
+     */
+    private final Map<K, Long> candidates;
+
+    /**
+     * The maximum amount of candidates.
+     */
+    private final int capacity;
+
+    /**
+     * The estimate a key must exceed to become a candidate
+     * (i.e that of the least frequent candidate, or zero if there is room for more).
+     */
+    private volatile long threshold;
+
+
+    /**
+     * Constructor.
+     *
+     * @param capacity    The maximum amount of candidates.
+     * @param sketchWidth The amount of counters in each row of the sketch.
+     * @param sketchDepth The amount of rows of the sketch.
+     */
+    /* package */ HeavyHitters(final int capacity, final int sketchWidth, final int sketchDepth) {
+        this.sketch = new CountMinSketch(sketchWidth, sketchDepth);
+        this.candidates = new ConcurrentHashMap<>(capacity * 2);
+        this.capacity = capacity;
+        this.threshold = 0;
+    }
+
+
+    /**
+     * Adds one occurrence of the given {@code key}.
+     *
+     * @param key  The added key.
+     * @param hash The 64 bits hash of the key.
+     */
+    /* package */ void add(final K key, final long hash) {
+        final long estimate = sketch.add(hash);
+        if (estimate > threshold && !candidates.containsKey(key)) {
+            promote(key, hash);
+        }
+    }
+
+    /**
+     * Passes each candidate, together with its hash, to the given {@code consumer}.
+     *
+     * @param consumer The {@link ObjLongConsumer} to which candidates are passed.
+     */
+    /* package */ void forEach(final ObjLongConsumer<K> consumer) {
+        candidates.forEach(consumer::accept);
+    }
+
+    /**
+     * Estimates the amount of occurrences of the key with the given {@code hash}
+     * (whether it is a candidate or not).
+     *
+     * @param hash The 64 bits hash of the key.
+     * @return The estimated amount of occurrences.
+     */
+    /* package */ long estimate(final long hash) {
+        return sketch.estimate(hash);
+    }
+
+    /**
+     * Removes every candidate and resets the sketch.
+     */
+    /* package */ synchronized void clear() {
+        candidates.clear();
+        sketch.clear();
+        threshold = 0;
+    }
+
+
+    /**
+     * Makes the given {@code key} a candidate, evicting the least frequent one if there is no room for it.
+     *
+     * @param key  The key.
+     * @param hash The 64 bits hash of the key.
+     */
+    private synchronized void promote(final K key, final long hash) {
+        if (candidates.putIfAbsent(key, hash) != null || candidates.size() <= capacity) {
+            return;
+        }
+        K leastFrequent = null;
+        long leastEstimate = Long.MAX_VALUE;
+        long secondLeastEstimate = Long.MAX_VALUE;
+        for (final Map.Entry<K, Long> candidate : candidates.entrySet()) {
+            final long estimate = sketch.estimate(candidate.getValue());
+            if (estimate < leastEstimate) {
+                secondLeastEstimate = leastEstimate;
+                leastEstimate = estimate;
+                leastFrequent = candidate.getKey();
+            } else if (estimate < secondLeastEstimate) {
+                secondLeastEstimate = estimate;
+            }
+        }
+        candidates.remove(leastFrequent);
+        threshold = secondLeastEstimate;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.boundary;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs calls handling the exceptions they throw with an {@link ErrorHandler}
+ * (i.e instead of wrapping each call site in a try/catch that calls {@link ErrorHandler#handle(Throwable)}).
+ * <p>
+ * The success path of each method is kept small, so the JIT can inline it into the call site,
+ * and the exception is handled in a separate method. Methods that take an {@code onFailure} function
+ * allocate nothing when the call succeeds. Those returning an {@link Outcome} allocate just the outcome
+ * (none if the value is null), which is usually scalar-replaced when inlined and it does not escape.
+ * <p>
+ * Only {@link Exception}s are handled ({@link Error}s are propagated).
+ * Interrupted calls are handled after restoring the interrupt status of the thread.
+ * Instances are thread safe.
+ */
+public final class ErrorBoundary {
+
+    /**
+     * The {@link ErrorHandler} that handles the exceptions.
+     */
+    private final ErrorHandler errorHandler;
+
+
+    /**
+     * Constructor.
+     *
+     * @param errorHandler The {@link ErrorHandler} that handles the exceptions.
+     */
+    public ErrorBoundary(final ErrorHandler errorHandler) {
+        Assert.notNull(errorHandler, "The error handler must not be null");
+        this.errorHandler = errorHandler;
+    }
+
+
+    /**
+     * Makes the given call.
+     *
+     * @param callable The call.
+     * @param <T>      The type of value returned by the call.
+     * @return The {@link Outcome} of the call.
+     */
+    public <T> Outcome<T> call(final Callable<? extends T> callable) {
+        final T value;
+        try {
+            value = callable.call();
+        } catch (final Exception e) {
+            return Outcome.failure(e, handle(e));
+        }
+        return Outcome.success(value);
+    }
+
+    /**
+     * Makes the given call, mapping the {@link HandlingResult} into a value if it fails.
+     *
+     * @param callable  The call.
+     * @param onFailure Maps the {@link HandlingResult} of a failed call into a value.
+     * @param <T>       The type of value returned by the call.
+     * @return The value returned by the call, or the mapped one.
+     */
+    public <T> T call(final Callable<? extends T> callable,
+                      final Function<? super HandlingResult<Object>, ? extends T> onFailure) {
+        try {
+            return callable.call();
+        } catch (final Exception e) {
+            return onFailure.apply(handle(e));
+        }
+    }
+
+    /**
+     * Gets a value from the given {@code supplier}.
+     *
+     * @param supplier The supplier.
+     * @param <T>      The type of value.
+     * @return The {@link Outcome} of the call.
+     */
+    public <T> Outcome<T> get(final Supplier<? extends T> supplier) {
+        final T value;
+        try {
+            value = supplier.get();
+        } catch (final RuntimeException e) {
+            return Outcome.failure(e, handle(e));
+        }
+        return Outcome.success(value);
+    }
+
+    /**
+     * Gets a value from the given {@code supplier}, mapping the {@link HandlingResult} into a value if it fails.
+     *
+     * @param supplier  The supplier.
+     * @param onFailure Maps the {@link HandlingResult} of a failed call into a value.
+     * @param <T>       The type of value.
+     * @return The value returned by the supplier, or the mapped one.
+     */
+    public <T> T get(final Supplier<? extends T> supplier,
+                     final Function<? super HandlingResult<Object>, ? extends T> onFailure) {
+        try {
+            return supplier.get();
+        } catch (final RuntimeException e) {
+            return onFailure.apply(handle(e));
+        }
+    }
+
+    /**
+     * Decorates the given {@code callable}, so each call is made through this boundary.
+     *
+     * @param callable The call.
+     * @param <T>      The type of value returned by the call.
+     * @return A {@link Supplier} of the {@link Outcome} of each call.
+     */
+    public <T> Supplier<Outcome<T>> decorate(final Callable<? extends T> callable) {
+        Assert.notNull(callable, "The callable must not be null");
+        return () -> call(callable);
+    }
+
+    /**
+     * Decorates the given {@code supplier}, so each call is made through this boundary.
+     *
+     * @param supplier The supplier.
+     * @param <T>      The type of value.
+     * @return A {@link Supplier} of the {@link Outcome} of each call.
+     */
+    public <T> Supplier<Outcome<T>> decorateSupplier(final Supplier<? extends T> supplier) {
+        Assert.notNull(supplier, "The supplier must not be null");
+        return () -> get(supplier);
+    }
+
+    /**
+     * Creates a function to be passed to {@link CompletionStage#exceptionally(Function)},
+     * that maps the {@link HandlingResult} of the exception into a value.
+     * {@link CompletionException}s and {@link ExecutionException}s are unwrapped before being handled.
+     *
+     * @param onFailure Maps the {@link HandlingResult} of a failed stage into a value.
+     * @param <T>       The type of value of the stage.
+     * @return The function.
+     */
+    public <T> Function<Throwable, T> exceptionally(
+            final Function<? super HandlingResult<Object>, ? extends T> onFailure) {
+        Assert.notNull(onFailure, "The failure function must not be null");
+        return exception -> onFailure.apply(handle(unwrap(exception)));
+    }
+
+    /**
+     * Creates a function to be passed to {@link CompletionStage#handle(BiFunction)},
+     * that creates the {@link Outcome} of the stage.
+     * {@link CompletionException}s and {@link ExecutionException}s are unwrapped before being handled.
+     *
+     * @param <T> The type of value of the stage.
+     * @return The function.
+     */
+    public <T> BiFunction<T, Throwable, Outcome<T>> outcome() {
+        return (value, exception) -> {
+            if (exception == null) {
+                return Outcome.success(value);
+            }
+            final Throwable cause = unwrap(exception);
+            return Outcome.failure(cause, handle(cause));
+        };
+    }
+
+    /**
+     * Creates a stage that completes with the {@link Outcome} of the given {@code stage}.
+     *
+     * @param stage The stage.
+     * @param <T>   The type of value of the stage.
+     * @return The stage of the {@link Outcome}.
+     */
+    public <T> CompletionStage<Outcome<T>> outcomeOf(final CompletionStage<T> stage) {
+        return stage.handle(outcome());
+    }
+
+    /**
+     * Handles the given {@code exception} (restoring the interrupt status if it was an interruption).
+     *
+     * @param exception The exception.
+     * @return The {@link HandlingResult}.
+     */
+    private HandlingResult<Object> handle(final Throwable exception) {
+        if (exception instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return errorHandler.handle(exception);
+    }
+
+    /**
+     * Unwraps the cause of the {@link CompletionException}s and {@link ExecutionException}s
+     * with which stages are completed.
+     *
+     * @param exception The exception with which a stage completed.
+     * @return The unwrapped exception.
+     */
+    private static Throwable unwrap(final Throwable exception) {
+        Throwable actual = exception;
+        while ((actual instanceof CompletionException || actual instanceof ExecutionException)
+                && actual.getCause() != null) {
+            actual = actual.getCause();
+        }
+        return actual;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.boundary;
+
+import com.bellotapps.utils.error_handler.HandlingResult;
+import org.springframework.util.Assert;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The outcome of a call made through an {@link ErrorBoundary}:
+ * either the value returned by the call, or the {@link HandlingResult} of the exception it threw.
+ * Instances are immutable.
+ *
+ * @param <T> The type of value.
+ */
+public final class Outcome<T> {
+
+    /**
+     * The successful outcome with a null value (so returning null does not allocate an outcome).
+     */
+    private static final Outcome<?> NULL_SUCCESS = new Outcome<>(null, null, null);
+
+    /**
+     * The value returned by the call (null if the call failed).
+     */
+    private final T value;
+
+    /**
+     * The exception thrown by the call (null if the call succeeded).
+     */
+    private final Throwable exception;
+
+    /**
+     * The {@link HandlingResult} of the {@code exception} (can be null if the handler returned null).
+     */
+    private final HandlingResult<Object> failure;
+
+
+    /**
+     * Constructor.
+     *
+     * @param value     The value returned by the call.
+     * @param exception The exception thrown by the call.
+     * @param failure   The {@link HandlingResult} of the {@code exception}.
+     */
+    private Outcome(final T value, final Throwable exception, final HandlingResult<Object> failure) {
+        this.value = value;
+        this.exception = exception;
+        this.failure = failure;
+    }
+
+
+    /**
+     * @return {@code true} if the call returned a value, or {@code false} if it threw an exception.
+     */
+    public boolean isSuccess() {
+        return exception == null;
+    }
+
+    /**
+     * @return The value returned by the call.
+     * @throws IllegalStateException If the call failed.
+     */
+    public T getValue() throws IllegalStateException {
+        Assert.state(exception == null, "The call failed");
+        return value;
+    }
+
+    /**
+     * @return The {@link HandlingResult} of the exception thrown by the call,
+     * or empty if it succeeded (or the handler returned null).
+     */
+    public Optional<HandlingResult<Object>> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * @return The exception thrown by the call, or empty if it succeeded.
+     */
+    public Optional<Throwable> getException() {
+        return Optional.ofNullable(exception);
+    }
+
+    /**
+     * Returns the value returned by the call, or the given {@code other} value if it failed.
+     *
+     * @param other The value to be returned if the call failed.
+     * @return The value.
+     */
+    public T orElse(final T other) {
+        return exception == null ? value : other;
+    }
+
+    /**
+     * Returns the value returned by the call, or the one mapped from the {@link HandlingResult} if it failed.
+     *
+     * @param onFailure Maps the {@link HandlingResult} of a failed call into a value.
+     * @return The value.
+     */
+    public T orElseGet(final Function<? super HandlingResult<Object>, ? extends T> onFailure) {
+        return exception == null ? value : onFailure.apply(failure);
+    }
+
+    /**
+     * Maps this outcome into a value, with the function of the corresponding case.
+     *
+     * @param onSuccess Maps the value returned by the call.
+     * @param onFailure Maps the {@link HandlingResult} of a failed call.
+     * @param <R>       The type of the mapped value.
+     * @return The mapped value.
+     */
+    public <R> R fold(final Function<? super T, ? extends R> onSuccess,
+                      final Function<? super HandlingResult<Object>, ? extends R> onFailure) {
+        return exception == null ? onSuccess.apply(value) : onFailure.apply(failure);
+    }
+
+    @Override
+    public String toString() {
+        return exception == null ? "Outcome{value=" + value + "}" :
+                "Outcome{exception=" + exception + ", failure=" + failure + "}";
+    }
+
+
+    /**
+     * Creates a successful outcome.
+     *
+     * @param value The value returned by the call.
+     * @param <T>   The type of value.
+     * @return The outcome.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Outcome<T> success(final T value) {
+        if (value == null) {
+            return (Outcome<T>) NULL_SUCCESS;
+        }
+        return new Outcome<>(value, null, null);
+    }
+
+    /**
+     * Creates a failed outcome.
+     *
+     * @param exception The exception thrown by the call.
+     * @param failure   The {@link HandlingResult} of the {@code exception} (can be null).
+     * @param <T>       The type of value.
+     * @return The outcome.
+     */
+    public static <T> Outcome<T> failure(final Throwable exception, final HandlingResult<Object> failure) {
+        Assert.notNull(exception, "The exception must not be null");
+        return new Outcome<>(null, exception, failure);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.cluster;
+
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.HandledErrorListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link HandledErrorListener} that counts the handled errors by exception class across a cluster of nodes
+ * (e.g to detect error storms affecting the whole fleet, or to feed dashboards).
+ * <p>
+ * The counters are a G-counter (i.e a grow-only counter CRDT): each node only increments its own counters,
+ * and keeps the last known counters of each peer, merging the received ones by taking the maximum.
+ * The cluster-wide count of a class is the sum of the counters of every node.
+ * Merging is idempotent, so messages can be lost, duplicated or reordered.
+ * <p>
+ * Nodes periodically publish through a {@link ClusterTransport} just the counters that changed since the last
+ * publication (i.e deltas), encoded compactly. Every some publications, the whole state is published instead,
+ * so peers that joined later or lost messages catch up.
+ * <p>
+ * Register it as a bean to have it notified by the {@link com.bellotapps.utils.error_handler.ErrorHandler}s
+ * created by the {@link com.bellotapps.utils.error_handler.ErrorHandlerFactory}.
+ * Closing it publishes the counters one last time, and closes the transport.
+ */
+public final class ClusterErrorCounter implements HandledErrorListener, Closeable {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterErrorCounter.class);
+
+    /**
+     * The default time between publications.
+     */
+    public static final Duration DEFAULT_PUBLISH_INTERVAL = Duration.ofSeconds(5);
+
+    /**
+     * The default amount of publications after which the whole state is published again.
+     */
+    public static final int DEFAULT_FULL_STATE_INTERVAL = 12;
+
+    /**
+     * The id of this node.
+     */
+    private final String nodeId;
+
+    /**
+     * The {@link ClusterTransport} used to exchange the counters.
+     */
+    private final ClusterTransport transport;
+
+    /**
+     * The counters of this node, by exception class.
+     */
+    private final ConcurrentMap<Class<?>, LongAdder> localCounts;
+
+    /**
+     * The last known counters of each peer, by node id and then by exception class name.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Long>> peerCounts;
+
+    /**
+     * The counters of this node as last published, by exception class name (guarded by {@code this}).
+     */
+    private final Map<String, Long> published;
+
+    /**
+     * The amount of publications after which the whole state is published again.
+     */
+    private final int fullStateInterval;
+
+    /**
+     * The amount of publications performed (guarded by {@code this}).
+     */
+    private long publications;
+
+    /**
+     * The amount of received messages that could not be decoded.
+     */
+    private final LongAdder invalidMessages;
+
+    /**
+     * Publishes the counters periodically.
+     */
+    private final ScheduledExecutorService publisher;
+
+
+    /**
+     * Constructor, with a random node id, the {@link #DEFAULT_PUBLISH_INTERVAL}
+     * and the {@link #DEFAULT_FULL_STATE_INTERVAL}. Starts the transport and the periodic publication.
+     *
+     * @param transport The {@link ClusterTransport} used to exchange the counters.
+     * @throws IOException If the transport can not be started.
+     */
+    public ClusterErrorCounter(final ClusterTransport transport) throws IOException {
+        this(UUID.randomUUID().toString(), transport, DEFAULT_PUBLISH_INTERVAL, DEFAULT_FULL_STATE_INTERVAL);
+    }
+
+    /**
+     * Constructor. Starts the transport and the periodic publication.
+     *
+     * @param nodeId            The id of this node (must be unique in the cluster).
+     * @param transport         The {@link ClusterTransport} used to exchange the counters.
+     * @param publishInterval   The time between publications.
+     * @param fullStateInterval The amount of publications after which the whole state is published again.
+     * @throws IOException If the transport can not be started.
+     */
+    public ClusterErrorCounter(final String nodeId, final ClusterTransport transport,
+                               final Duration publishInterval, final int fullStateInterval) throws IOException {
+        Assert.hasText(nodeId, "The node id must not be empty");
+        Assert.notNull(transport, "The transport must not be null");
+        Assert.notNull(publishInterval, "The publish interval must not be null");
+        Assert.isTrue(publishInterval.toMillis() > 0, "The publish interval must be at least one millisecond");
+        Assert.isTrue(fullStateInterval > 0, "The full state interval must be positive");
+        this.nodeId = nodeId;
+        this.transport = transport;
+        this.localCounts = new ConcurrentHashMap<>();
+        this.peerCounts = new ConcurrentHashMap<>();
+        this.published = new HashMap<>();
+        this.fullStateInterval = fullStateInterval;
+        this.publications = 0;
+        this.invalidMessages = new LongAdder();
+        transport.start(this::receive);
+        this.publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "error-cluster-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher.scheduleWithFixedDelay(this::publishQuietly,
+                publishInterval.toMillis(), publishInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+
+    @Override
+    public void onHandledError(final HandledError handledError) {
+        final Class<?> exceptionClass = handledError.getException().getClass();
+        LongAdder count = localCounts.get(exceptionClass); // Avoid locking in computeIfAbsent when present
+        if (count == null) {
+            count = localCounts.computeIfAbsent(exceptionClass, ignored -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * @return The id of this node.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return The ids of the peers from which counters were received.
+     */
+    public Set<String> getPeers() {
+        return Collections.unmodifiableSet(new HashSet<>(peerCounts.keySet()));
+    }
+
+    /**
+     * @return The counters of this node, by exception class name.
+     */
+    public Map<String, Long> getLocalCounts() {
+        final Map<String, Long> counts = new HashMap<>();
+        localCounts.forEach((exceptionClass, count) -> counts.put(exceptionClass.getName(), count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * @return The cluster-wide counts (i.e the sum of the counters of this node and of every known peer),
+     * by exception class name.
+     */
+    public Map<String, Long> getClusterCounts() {
+        final Map<String, Long> counts = new HashMap<>(getLocalCounts());
+        peerCounts.values().forEach(peer -> peer.forEach((name, count) -> counts.merge(name, count, Long::sum)));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * @return The amount of received messages that could not be decoded.
+     */
+    public long getInvalidMessages() {
+        return invalidMessages.sum();
+    }
+
+    /**
+     * Publishes the counters that changed since the last publication
+     * (or all of them, once every {@code fullStateInterval} publications, starting with the first one).
+     * Called periodically, but it can be called at any time.
+     *
+     * @throws IOException If the counters can not be sent.
+     */
+    public synchronized void publish() throws IOException {
+        final boolean fullState = publications++ % fullStateInterval == 0;
+        final Map<String, Long> changed = new LinkedHashMap<>();
+        localCounts.forEach((exceptionClass, count) -> {
+            final String name = exceptionClass.getName();
+            final long value = count.sum();
+            final Long last = published.get(name);
+            if (fullState || last == null || last != value) {
+                changed.put(name, value);
+            }
+        });
+        for (final byte[] message : CounterMessage.encode(nodeId, changed, transport.getMaxMessageSize())) {
+            transport.send(message);
+        }
+        published.putAll(changed);
+    }
+
+    /**
+     * Stops the periodic publication, publishes the counters one last time, and closes the transport.
+     */
+    @Override
+    public void close() {
+        publisher.shutdownNow();
+        publishQuietly();
+        try {
+            transport.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close cluster transport {}", transport, e);
+        }
+    }
+
+    /**
+     * Publishes the counters, logging (and not throwing) the errors.
+     */
+    private void publishQuietly() {
+        try {
+            publish();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not publish the error counters", e);
+        }
+    }
+
+    /**
+     * Merges the counters in the given {@code message} (unless sent by this node).
+     *
+     * @param message The received message.
+     */
+    private void receive(final byte[] message) {
+        final CounterMessage decoded;
+        try {
+            decoded = CounterMessage.decode(message);
+        } catch (IOException e) {
+            invalidMessages.increment();
+            LOGGER.debug("Received an invalid counters message", e);
+            return;
+        }
+        if (nodeId.equals(decoded.getNodeId())) {
+            return;
+        }
+        final ConcurrentMap<String, Long> counts =
+                peerCounts.computeIfAbsent(decoded.getNodeId(), ignored -> new ConcurrentHashMap<>());
+        decoded.getCounts().forEach((name, count) -> counts.merge(name, count, Math::max));
+    }
+}
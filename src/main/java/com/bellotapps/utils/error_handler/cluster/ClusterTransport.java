@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Transport used by {@link ClusterErrorCounter}s to exchange their counters with the peers of the cluster.
+ * Messages are small byte arrays, sent to every peer (e.g broadcast). Delivery need not be reliable nor ordered,
+ * as counters are merged idempotently and the whole state is sent from time to time.
+ *
+ * @see LoopbackClusterTransport
+ * @see MulticastClusterTransport
+ */
+public interface ClusterTransport extends Closeable {
+
+    /**
+     * Starts receiving messages from the peers, passing them to the given {@code receiver}
+     * (messages sent by the same node might be received too, and they are ignored by the counter).
+     * The receiver might be called from any thread, but not concurrently.
+     *
+     * @param receiver Receives each message.
+     * @throws IOException If the transport can not be started.
+     */
+    void start(final Consumer<byte[]> receiver) throws IOException;
+
+    /**
+     * Sends the given {@code message} to every peer.
+     *
+     * @param message The message (at most {@link #getMaxMessageSize()} bytes).
+     * @throws IOException If the message can not be sent.
+     */
+    void send(final byte[] message) throws IOException;
+
+    /**
+     * @return The maximum size of a message, in bytes (larger states are split into several messages).
+     */
+    default int getMaxMessageSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Stops receiving messages, and releases the resources held by this transport. Does nothing by default.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
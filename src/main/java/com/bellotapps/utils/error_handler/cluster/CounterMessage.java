@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.cluster;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoding of the messages exchanged by the {@link ClusterErrorCounter}s: the counters of a node
+ * (i.e only those that changed since the last message, or all of them), by exception class name.
+ * <p>
+ * A message is a magic number, the id of the node, and then the counters until the end of the message,
+ * each being the class name (modified UTF-8, as in {@link DataOutput#writeUTF(String)}) and the count
+ * (as an unsigned variable length integer, so small counts take a byte or two).
+ * States that do not fit in a message are split into several messages.
+ */
+/* package */ final class CounterMessage {
+
+    /**
+     * The magic number with which messages start.
+     */
+    private static final int MAGIC = 0x45484331; // "EHC1"
+
+    /**
+     * The id of the node that sent the message.
+     */
+    private final String nodeId;
+
+    /**
+     * The counters in the message, by exception class name.
+     */
+    private final Map<String, Long> counts;
+
+
+    /**
+     * Constructor.
+     *
+     * @param nodeId The id of the node that sent the message.
+     * @param counts The counters in the message, by exception class name (not copied).
+     */
+    private CounterMessage(final String nodeId, final Map<String, Long> counts) {
+        this.nodeId = nodeId;
+        this.counts = Collections.unmodifiableMap(counts);
+    }
+
+
+    /**
+     * @return The id of the node that sent the message.
+     */
+    /* package */ String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return The counters in the message, by exception class name.
+     */
+    /* package */ Map<String, Long> getCounts() {
+        return counts;
+    }
+
+
+    /**
+     * Encodes the given {@code counts} of the given node into messages of at most the given size.
+     *
+     * @param nodeId         The id of the node.
+     * @param counts         The counters to be encoded, by exception class name.
+     * @param maxMessageSize The maximum size of a message, in bytes.
+     * @return The encoded messages (none if there are no counters).
+     */
+    /* package */ static List<byte[]> encode(final String nodeId, final Map<String, Long> counts,
+                                             final int maxMessageSize) {
+        final List<byte[]> messages = new ArrayList<>();
+        try {
+            final byte[] header = header(nodeId);
+            final ByteArrayOutputStream message = new ByteArrayOutputStream();
+            final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+            final DataOutputStream entryOutput = new DataOutputStream(entry);
+            message.write(header);
+            for (final Map.Entry<String, Long> count : counts.entrySet()) {
+                entry.reset();
+                entryOutput.writeUTF(count.getKey());
+                writeVarLong(entryOutput, count.getValue());
+                if (message.size() + entry.size() > maxMessageSize && message.size() > header.length) {
+                    messages.add(message.toByteArray());
+                    message.reset();
+                    message.write(header);
+                }
+                entry.writeTo(message);
+            }
+            if (message.size() > header.length) {
+                messages.add(message.toByteArray());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can not happen, as it writes to memory
+        }
+        return messages;
+    }
+
+    /**
+     * Decodes the given {@code message}.
+     *
+     * @param message The encoded message.
+     * @return The decoded {@link CounterMessage}.
+     * @throws IOException If the message is not a valid one.
+     */
+    /* package */ static CounterMessage decode(final byte[] message) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(message));
+        if (message.length < 4 || input.readInt() != MAGIC) {
+            throw new IOException("Not a counters message");
+        }
+        final String nodeId = input.readUTF();
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        while (input.available() > 0) {
+            counts.put(input.readUTF(), readVarLong(input));
+        }
+        return new CounterMessage(nodeId, counts);
+    }
+
+    /**
+     * @param nodeId The id of the node.
+     * @return The header of the messages of the given node.
+     * @throws IOException Never, as it writes to memory.
+     */
+    private static byte[] header(final String nodeId) throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(header);
+        output.writeInt(MAGIC);
+        output.writeUTF(nodeId);
+        return header.toByteArray();
+    }
+
+    /**
+     * Writes the given non negative {@code value} as a variable length integer (7 bits per byte).
+     *
+     * @param output The {@link DataOutput} to which the value is written.
+     * @param value  The value.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void writeVarLong(final DataOutput output, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            output.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        output.writeByte((int) remaining);
+    }
+
+    /**
+     * Reads a variable length integer written by {@link #writeVarLong(DataOutput, long)}.
+     *
+     * @param input The {@link DataInput} from which the value is read.
+     * @return The value.
+     * @throws IOException If an I/O error occurs, or the value is malformed.
+     */
+    private static long readVarLong(final DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.cluster;
+
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-memory {@link ClusterTransport}: delivers the messages to the other members of the same {@link Group},
+ * synchronously (e.g to test several {@link ClusterErrorCounter}s in the same JVM).
+ */
+public final class LoopbackClusterTransport implements ClusterTransport {
+
+    /**
+     * The {@link Group} this transport belongs to.
+     */
+    private final Group group;
+
+    /**
+     * Receives the messages sent by the other members (null until started).
+     */
+    private volatile Consumer<byte[]> receiver;
+
+
+    /**
+     * Constructor.
+     *
+     * @param group The {@link Group} this transport belongs to.
+     */
+    public LoopbackClusterTransport(final Group group) {
+        Assert.notNull(group, "The group must not be null");
+        this.group = group;
+        this.receiver = null;
+    }
+
+
+    @Override
+    public void start(final Consumer<byte[]> receiver) {
+        Assert.notNull(receiver, "The receiver must not be null");
+        Assert.state(this.receiver == null, "The transport was already started");
+        this.receiver = receiver;
+        group.members.add(this);
+    }
+
+    @Override
+    public void send(final byte[] message) {
+        for (final LoopbackClusterTransport member : group.members) {
+            if (member != this) {
+                member.receive(message.clone());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        group.members.remove(this);
+    }
+
+    /**
+     * Passes the given {@code message} to the {@code receiver} (one message at a time).
+     *
+     * @param message The received message.
+     */
+    private synchronized void receive(final byte[] message) {
+        receiver.accept(message);
+    }
+
+
+    /**
+     * A group of {@link LoopbackClusterTransport}s (i.e an in-memory cluster).
+     */
+    public static final class Group {
+
+        /**
+         * The started members of the group.
+         */
+        private final List<LoopbackClusterTransport> members = new CopyOnWriteArrayList<>();
+    }
+}
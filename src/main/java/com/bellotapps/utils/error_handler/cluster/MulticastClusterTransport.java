@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * {@link ClusterTransport} that sends the messages as UDP datagrams to a multicast group.
+ * <p>
+ * By default, datagrams are sent with a time to live of zero (i.e they do not leave the host),
+ * so every node in the same host (e.g several instances in a development machine) forms a cluster.
+ * Use a greater time to live to reach nodes in other hosts (if the network routes multicast).
+ * Datagrams are received by a daemon thread.
+ */
+public final class MulticastClusterTransport implements ClusterTransport {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MulticastClusterTransport.class);
+
+    /**
+     * The default multicast group (in the organization-local scope).
+     */
+    public static final String DEFAULT_GROUP = "239.255.77.17";
+
+    /**
+     * The default port.
+     */
+    public static final int DEFAULT_PORT = 47717;
+
+    /**
+     * The maximum size of a message (the maximum payload of a UDP datagram over IPv4).
+     */
+    private static final int MAX_MESSAGE_SIZE = 65507;
+
+    /**
+     * The multicast group.
+     */
+    private final InetAddress group;
+
+    /**
+     * The port to which datagrams are sent (and in which they are received).
+     */
+    private final int port;
+
+    /**
+     * The socket used to send and receive datagrams.
+     */
+    private final MulticastSocket socket;
+
+    /**
+     * Indicates whether this transport is closed.
+     */
+    private volatile boolean closed;
+
+
+    /**
+     * Constructor, using the {@link #DEFAULT_GROUP} and {@link #DEFAULT_PORT},
+     * with a time to live of zero (i.e only nodes in the same host are reached).
+     *
+     * @throws IOException If the socket can not be created.
+     */
+    public MulticastClusterTransport() throws IOException {
+        this(defaultGroup(), DEFAULT_PORT, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param group      The multicast group.
+     * @param port       The port to which datagrams are sent (and in which they are received).
+     * @param timeToLive The time to live of the datagrams (zero to not leave the host).
+     * @throws IOException If the socket can not be created.
+     */
+    public MulticastClusterTransport(final InetAddress group, final int port, final int timeToLive)
+            throws IOException {
+        Assert.notNull(group, "The group must not be null");
+        Assert.isTrue(group.isMulticastAddress(), "The group must be a multicast address");
+        Assert.isTrue(port > 0 && port <= 0xFFFF, "The port must be between 1 and 65535");
+        Assert.isTrue(timeToLive >= 0 && timeToLive <= 255, "The time to live must be between 0 and 255");
+        this.group = group;
+        this.port = port;
+        this.socket = new MulticastSocket(port);
+        this.socket.setTimeToLive(timeToLive); // Loopback is enabled by default (i.e nodes in this host receive them)
+        this.closed = false;
+    }
+
+
+    @Override
+    public void start(final Consumer<byte[]> receiver) throws IOException {
+        Assert.notNull(receiver, "The receiver must not be null");
+        socket.joinGroup(new InetSocketAddress(group, port), null); // i.e in the default interface
+        final Thread thread = new Thread(() -> receive(receiver), "error-cluster-multicast-receiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void send(final byte[] message) throws IOException {
+        socket.send(new DatagramPacket(message, message.length, group, port));
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE_SIZE;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        socket.close(); // Makes the receiving thread stop
+    }
+
+    /**
+     * Receives datagrams until this transport is closed, passing them to the given {@code receiver}.
+     *
+     * @param receiver Receives each message.
+     */
+    private void receive(final Consumer<byte[]> receiver) {
+        final DatagramPacket packet = new DatagramPacket(new byte[MAX_MESSAGE_SIZE], MAX_MESSAGE_SIZE);
+        while (!closed) {
+            try {
+                packet.setLength(MAX_MESSAGE_SIZE);
+                socket.receive(packet);
+                receiver.accept(Arrays.copyOfRange(packet.getData(), packet.getOffset(),
+                        packet.getOffset() + packet.getLength()));
+            } catch (SocketException e) {
+                if (!closed) {
+                    LOGGER.warn("Multicast socket failed, so no more counters will be received", e);
+                }
+                return;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not receive counters", e);
+            }
+        }
+    }
+
+    /**
+     * @return The {@link #DEFAULT_GROUP} address.
+     */
+    private static InetAddress defaultGroup() {
+        try {
+            return InetAddress.getByName(DEFAULT_GROUP);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("The default group is not a valid address", e);
+        }
+    }
+}
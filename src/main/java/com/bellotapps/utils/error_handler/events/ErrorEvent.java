@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.events;
+
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.JsonStrings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A handled error, as exported by the {@link ErrorEventPipeline}.
+ * <p>
+ * Instances are pre-allocated slots of the pipeline's ring buffer, which are reused:
+ * they are only valid during the {@link ErrorEventSink#write(java.util.List)} call they are passed to,
+ * so sinks must copy whatever they need to keep.
+ */
+public final class ErrorEvent {
+
+    /**
+     * The time at which the error was handled, in milliseconds since the epoch.
+     */
+    private long timestamp;
+
+    /**
+     * The class of the handled exception.
+     */
+    private Class<? extends Throwable> exceptionClass;
+
+    /**
+     * The message of the handled exception (can be null).
+     */
+    private String message;
+
+    /**
+     * The fingerprint of the handled exception.
+     */
+    private long fingerprint;
+
+    /**
+     * The HTTP status code of the handling result (or -1 if the handler returned null).
+     */
+    private int httpErrorCode;
+
+    /**
+     * The name of the thread that handled the error.
+     */
+    private String threadName;
+
+
+    /**
+     * Constructor.
+     */
+    /* package */ ErrorEvent() {
+    }
+
+
+    /**
+     * @return The time at which the error was handled, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The class of the handled exception.
+     */
+    public Class<? extends Throwable> getExceptionClass() {
+        return exceptionClass;
+    }
+
+    /**
+     * @return The message of the handled exception (can be null).
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The fingerprint of the handled exception.
+     * @see com.bellotapps.utils.error_handler.ExceptionFingerprint#getValue()
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return The HTTP status code of the handling result (or -1 if the handler returned null).
+     */
+    public int getHttpErrorCode() {
+        return httpErrorCode;
+    }
+
+    /**
+     * @return The name of the thread that handled the error.
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+
+    /**
+     * Fills this event with the given {@code handledError}.
+     *
+     * @param handledError The {@link HandledError} with which this event is filled.
+     */
+    /* package */ void fill(final HandledError handledError) {
+        final HandlingResult<?> result = handledError.getResult();
+        this.timestamp = System.currentTimeMillis();
+        this.exceptionClass = handledError.getException().getClass();
+        this.message = handledError.getException().getMessage();
+        this.fingerprint = handledError.getFingerprint().getValue();
+        this.httpErrorCode = result == null ? -1 : result.getHttpErrorCode();
+        this.threadName = Thread.currentThread().getName();
+    }
+
+    /**
+     * Clears the references held by this event (so the slot does not keep them alive).
+     */
+    /* package */ void clear() {
+        this.exceptionClass = null;
+        this.message = null;
+        this.threadName = null;
+    }
+
+    /**
+     * Appends this event to the given {@code builder}, as a JSON object.
+     *
+     * @param builder The {@link StringBuilder} to which the event is appended.
+     * @return The given {@code builder}.
+     */
+    public StringBuilder appendJsonTo(final StringBuilder builder) {
+        builder.append("{\"timestamp\":").append(timestamp)
+                .append(",\"exception\":");
+        JsonStrings.append(builder, exceptionClass == null ? null : exceptionClass.getName());
+        builder.append(",\"message\":");
+        JsonStrings.append(builder, message);
+        builder.append(",\"fingerprint\":\"");
+        final String hex = Long.toHexString(fingerprint);
+        for (int i = hex.length(); i < 16; i++) {
+            builder.append('0');
+        }
+        builder.append(hex)
+                .append("\",\"status\":").append(httpErrorCode)
+                .append(",\"thread\":");
+        JsonStrings.append(builder, threadName);
+        return builder.append('}');
+    }
+
+    /**
+     * Encodes the given {@code batch} as JSON lines (i.e one JSON object per line), in UTF-8.
+     *
+     * @param batch   The {@link List} of {@link ErrorEvent}s to be encoded.
+     * @param builder A {@link StringBuilder} to be reused for the encoding (it is cleared before).
+     * @return The encoded batch.
+     */
+    /* package */ static byte[] toJsonLines(final List<ErrorEvent> batch, final StringBuilder builder) {
+        builder.setLength(0);
+        for (final ErrorEvent event : batch) {
+            event.appendJsonTo(builder).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return appendJsonTo(new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.events;
+
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.HandledErrorListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link HandledErrorListener} that exports the handled errors to {@link ErrorEventSink}s,
+ * without adding I/O to the thread handling the error.
+ * <p>
+ * Errors are published into a pre-allocated, lock-free ring buffer of {@link ErrorEvent}s
+ * (multiple producers, single consumer), which is drained by a background thread that writes them to the sinks
+ * in batches. Publishing an error is just claiming a slot and filling it (no allocation, no locks).
+ * When the buffer is full, the event is dropped or the publisher waits, according to the {@link OverflowPolicy}.
+ * Dropped events and failed batches are counted.
+ * <p>
+ * Register it as a bean to have it notified by the {@link com.bellotapps.utils.error_handler.ErrorHandler}s
+ * created by the {@link com.bellotapps.utils.error_handler.ErrorHandlerFactory}.
+ * Closing the pipeline writes the pending events and closes the sinks.
+ */
+public final class ErrorEventPipeline implements HandledErrorListener, Closeable {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ErrorEventPipeline.class);
+
+    /**
+     * The default capacity of the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The default maximum amount of events written to the sinks at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Time the background thread waits when there are no events to be written.
+     */
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Time a publisher waits before trying again when the ring buffer is full (with the {@link OverflowPolicy#BLOCK}).
+     */
+    private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Time {@link #close()} waits for the pending events to be written.
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Added to the {@link #tail} when the pipeline is closed, so no more positions can be claimed
+     * (i.e positions beyond it are never reached by publishers).
+     */
+    private static final long CLOSED_TAIL = 1L << 62;
+
+    /**
+     * The slots of the ring buffer.
+     */
+    private final ErrorEvent[] slots;
+
+    /**
+     * The sequence of each slot. A slot can be claimed for position {@code p} when its sequence is {@code p},
+     * and consumed when it is {@code p + 1}. Once consumed, it is set to {@code p + capacity}.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * Mask used to get the slot of a position (the capacity is a power of two).
+     */
+    private final int mask;
+
+    /**
+     * The next position to be claimed by a publisher ({@link #CLOSED_TAIL} or beyond once the pipeline is closed).
+     */
+    private final AtomicLong tail;
+
+    /**
+     * The next position to be consumed (only accessed by the background thread).
+     */
+    private long head;
+
+    /**
+     * The maximum amount of events written to the sinks at once.
+     */
+    private final int batchSize;
+
+    /**
+     * What is done with an event when the ring buffer is full.
+     */
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * The {@link ErrorEventSink}s to which events are written.
+     */
+    private final List<ErrorEventSink> sinks;
+
+    /**
+     * The amount of published events.
+     */
+    private final LongAdder publishedEvents;
+
+    /**
+     * The amount of dropped events.
+     */
+    private final LongAdder droppedEvents;
+
+    /**
+     * The amount of batches that failed to be written (counted once for each failing sink).
+     */
+    private final LongAdder failedBatches;
+
+    /**
+     * Indicates whether this pipeline accepts events (i.e it is not closed).
+     */
+    private volatile boolean running;
+
+    /**
+     * The background thread.
+     */
+    private final Thread consumer;
+
+
+    /**
+     * Constructor, using the {@link #DEFAULT_CAPACITY}, {@link #DEFAULT_BATCH_SIZE} and {@link OverflowPolicy#DROP}.
+     *
+     * @param sinks The {@link ErrorEventSink}s to which events are written.
+     */
+    public ErrorEventPipeline(final List<? extends ErrorEventSink> sinks) {
+        this(sinks, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.DROP);
+    }
+
+    /**
+     * Constructor. Starts the background thread.
+     *
+     * @param sinks          The {@link ErrorEventSink}s to which events are written.
+     * @param capacity       The capacity of the ring buffer (rounded up to a power of two).
+     * @param batchSize      The maximum amount of events written to the sinks at once.
+     * @param overflowPolicy What is done with an event when the ring buffer is full.
+     */
+    public ErrorEventPipeline(final List<? extends ErrorEventSink> sinks, final int capacity, final int batchSize,
+                              final OverflowPolicy overflowPolicy) {
+        Assert.notEmpty(sinks, "There must be at least one sink");
+        Assert.noNullElements(sinks.toArray(), "The sinks must not be null");
+        Assert.isTrue(capacity > 0 && capacity <= 1 << 30, "The capacity must be between 1 and 2^30");
+        Assert.isTrue(batchSize > 0, "The batch size must be positive");
+        Assert.notNull(overflowPolicy, "The overflow policy must not be null");
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new ErrorEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new ErrorEvent();
+            this.sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+        this.head = 0;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.sinks = Collections.unmodifiableList(new ArrayList<>(sinks));
+        this.publishedEvents = new LongAdder();
+        this.droppedEvents = new LongAdder();
+        this.failedBatches = new LongAdder();
+        this.running = true;
+        this.consumer = new Thread(this::consume, "error-event-pipeline");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+
+    /**
+     * @return The amount of published events.
+     */
+    public long getPublishedEvents() {
+        return publishedEvents.sum();
+    }
+
+    /**
+     * @return The amount of dropped events (i.e because the ring buffer was full, or the pipeline was closed).
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * @return The amount of batches that failed to be written (counted once for each failing sink).
+     */
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    @Override
+    public void onHandledError(final HandledError handledError) {
+        handledError.getFingerprint(); // Computed before claiming a slot, so filling it can not fail
+        while (running) {
+            final long position = tail.get();
+            if (position >= CLOSED_TAIL) {
+                break; // Closed after this publisher checked the flag
+            }
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index].fill(handledError);
+                    sequences.lazySet(index, position + 1); // Publish the event
+                    publishedEvents.increment();
+                    return;
+                }
+            } else if (difference < 0) {
+                // The buffer is full
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    break;
+                }
+                LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+            }
+            // Otherwise, another publisher claimed the position, so try again
+        }
+        droppedEvents.increment();
+    }
+
+    /**
+     * Stops accepting events, waits for the pending ones to be written, and closes the sinks.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (consumer.isAlive()) {
+            LOGGER.warn("Pending error events were not written in {} ms", CLOSE_TIMEOUT_MILLIS);
+        }
+    }
+
+
+    /**
+     * The background thread's loop: writes batches of events until the pipeline is closed
+     * (and the pending events are written).
+     */
+    private void consume() {
+        final List<ErrorEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (drain(batch) == 0) {
+                LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+            }
+        }
+        // Stop publishers from claiming positions, and write the events of all those already claimed
+        // (a publisher might still be filling its slot, but filling can not fail, so it will be published)
+        final long end = tail.getAndAdd(CLOSED_TAIL);
+        while (head < end) {
+            if (drain(batch) == 0) {
+                Thread.yield();
+            }
+        }
+        for (final ErrorEventSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not close error event sink {}", sink, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the next batch of published events (if any) to the sinks, and releases their slots.
+     *
+     * @param batch {@link List} reused to hold the batch.
+     * @return The amount of written events.
+     */
+    private int drain(final List<ErrorEvent> batch) {
+        batch.clear();
+        long position = head;
+        while (batch.size() < batchSize) {
+            final int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break; // Not published yet
+            }
+            batch.add(slots[index]);
+            position++;
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        final List<ErrorEvent> view = Collections.unmodifiableList(batch);
+        for (final ErrorEventSink sink : sinks) {
+            try {
+                sink.write(view);
+            } catch (IOException | RuntimeException e) {
+                failedBatches.increment();
+                LOGGER.warn("Could not write {} error events to sink {}", batch.size(), sink, e);
+            }
+        }
+        // Release the slots
+        for (long released = head; released < position; released++) {
+            final int index = (int) released & mask;
+            slots[index].clear();
+            sequences.lazySet(index, released + mask + 1);
+        }
+        head = position;
+        return batch.size();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.events;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the {@link ErrorEvent}s exported by an {@link ErrorEventPipeline}.
+ * Sinks are only called from the pipeline's background thread, so they need not be thread-safe.
+ */
+public interface ErrorEventSink extends Closeable {
+
+    /**
+     * Writes the given {@code batch} of events.
+     * Note that events are only valid during this call (they are reused by the pipeline).
+     *
+     * @param batch The {@link List} of {@link ErrorEvent}s to be written.
+     * @throws IOException If an I/O error occurs (the batch is then dropped).
+     */
+    void write(final List<ErrorEvent> batch) throws IOException;
+
+    /**
+     * Releases the resources held by this sink. Called when the pipeline is closed.
+     * Does nothing by default.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.events;
+
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * {@link ErrorEventSink} that posts each batch of events to an HTTP endpoint (e.g a local collector agent),
+ * as JSON lines ({@code application/x-ndjson}).
+ * Responses other than {@code 2xx} make the batch fail.
+ */
+public final class HttpErrorEventSink implements ErrorEventSink {
+
+    /**
+     * The default connect and read timeout, in milliseconds.
+     */
+    public static final int DEFAULT_TIMEOUT = 5000;
+
+    /**
+     * The {@link URL} to which events are posted.
+     */
+    private final URL url;
+
+    /**
+     * The connect and read timeout, in milliseconds.
+     */
+    private final int timeout;
+
+    /**
+     * {@link StringBuilder} reused to encode the batches.
+     */
+    private final StringBuilder builder;
+
+
+    /**
+     * Constructor, using the {@link #DEFAULT_TIMEOUT}.
+     *
+     * @param url The {@link URL} to which events are posted.
+     */
+    public HttpErrorEventSink(final URL url) {
+        this(url, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param url     The {@link URL} to which events are posted.
+     * @param timeout The connect and read timeout, in milliseconds.
+     */
+    public HttpErrorEventSink(final URL url, final int timeout) {
+        Assert.notNull(url, "The url must not be null");
+        Assert.isTrue(timeout >= 0, "The timeout must not be negative");
+        this.url = url;
+        this.timeout = timeout;
+        this.builder = new StringBuilder();
+    }
+
+
+    @Override
+    public void write(final List<ErrorEvent> batch) throws IOException {
+        final byte[] body = ErrorEvent.toJsonLines(batch, builder);
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/x-ndjson");
+            try (final OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body);
+            }
+            final int status = connection.getResponseCode();
+            // Consume the response, so the connection can be reused
+            try (final InputStream inputStream = status < 400 ? connection.getInputStream()
+                    : connection.getErrorStream()) {
+                if (inputStream != null) {
+                    final byte[] buffer = new byte[512];
+                    //noinspection StatementWithEmptyBody
+                    while (inputStream.read(buffer) != -1) {
+                    }
+                }
+            }
+            if (status / 100 != 2) {
+                throw new IOException("Posting events to " + url + " returned status " + status);
+            }
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.events;
+
+/**
+ * Indicates what an {@link ErrorEventPipeline} does with an event when its ring buffer is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * The event is dropped (and counted), so the thread handling the error is never blocked.
+     */
+    DROP,
+    /**
+     * The thread handling the error waits until there is room for the event.
+     */
+    BLOCK,
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.events;
+
+import org.springframework.util.Assert;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * {@link ErrorEventSink} that writes events into an {@link OutputStream}, as JSON lines.
+ * Each batch is written with just one call to the stream, and then flushed.
+ */
+public final class StreamErrorEventSink implements ErrorEventSink {
+
+    /**
+     * The {@link OutputStream} into which events are written.
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * {@link StringBuilder} reused to encode the batches.
+     */
+    private final StringBuilder builder;
+
+
+    /**
+     * Constructor.
+     *
+     * @param outputStream The {@link OutputStream} into which events are written (closed when the sink is closed).
+     */
+    public StreamErrorEventSink(final OutputStream outputStream) {
+        Assert.notNull(outputStream, "The output stream must not be null");
+        this.outputStream = outputStream;
+        this.builder = new StringBuilder();
+    }
+
+
+    @Override
+    public void write(final List<ErrorEvent> batch) throws IOException {
+        outputStream.write(ErrorEvent.toJsonLines(batch, builder));
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+
+
+    /**
+     * Creates a {@link StreamErrorEventSink} that writes into the standard output (which is not closed with the sink).
+     *
+     * @return The created sink.
+     */
+    public static StreamErrorEventSink stdout() {
+        return new StreamErrorEventSink(new FilterOutputStream(System.out) {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Creates a {@link StreamErrorEventSink} that appends events to the given {@code file}
+     * (created if it does not exist).
+     *
+     * @param file The {@link Path} of the file.
+     * @return The created sink.
+     * @throws IOException If the file can not be opened.
+     */
+    public static StreamErrorEventSink file(final Path file) throws IOException {
+        Assert.notNull(file, "The file must not be null");
+        return new StreamErrorEventSink(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.journal;
+
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.HandledErrorListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * {@link HandledErrorListener} that records every handled error into an append-only journal,
+ * for post-mortem analysis (e.g which exceptions hit which handlers, with which status codes, during an incident).
+ * <p>
+ * Each error is a fixed size binary record (timestamp, fingerprint, exception class id, handler class id and
+ * status code), written into memory-mapped segment files that are rolled when full. Class ids are defined
+ * in a dictionary file, written when a class is seen for the first time.
+ * Appending is lock-free and allocates nothing: a slot is claimed with an atomic increment, and the record is
+ * written into the mapped segment (the operating system persists it, even if the process crashes).
+ * Only rolling a segment takes a lock.
+ * Older segments are deleted, so at most {@code maxSegments} are kept.
+ * <p>
+ * Register it as a bean to have it notified by the {@link com.bellotapps.utils.error_handler.ErrorHandler}s
+ * created by the {@link com.bellotapps.utils.error_handler.ErrorHandlerFactory}.
+ * Journals are read with an {@link ErrorJournalReader}.
+ */
+public final class ErrorJournal implements HandledErrorListener, Closeable {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ErrorJournal.class);
+
+    /**
+     * The default size of the segment files (16 MiB).
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The default maximum amount of segment files kept.
+     */
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+    /**
+     * The byte order of the segments (little endian, so records are written without swapping bytes in most CPUs).
+     */
+    /* package */ static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Magic number at the beginning of each segment.
+     */
+    /* package */ static final int MAGIC = 0x45484a52; // EHJR
+
+    /**
+     * Version of the segments format.
+     */
+    /* package */ static final int VERSION = 1;
+
+    /**
+     * Size of the segments header (magic, version, record size and records per segment).
+     */
+    /* package */ static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of each record.
+     */
+    /* package */ static final int RECORD_SIZE = 32;
+
+    /**
+     * Offset of the timestamp within a record.
+     */
+    /* package */ static final int TIMESTAMP_OFFSET = 0;
+
+    /**
+     * Offset of the fingerprint within a record.
+     */
+    /* package */ static final int FINGERPRINT_OFFSET = 8;
+
+    /**
+     * Offset of the exception class id within a record.
+     */
+    /* package */ static final int EXCEPTION_CLASS_OFFSET = 16;
+
+    /**
+     * Offset of the handler class id within a record.
+     */
+    /* package */ static final int HANDLER_CLASS_OFFSET = 20;
+
+    /**
+     * Offset of the status code within a record.
+     */
+    /* package */ static final int STATUS_OFFSET = 24;
+
+    /**
+     * Offset of the commit mark within a record (written last, so partially written records can be detected).
+     */
+    /* package */ static final int COMMIT_OFFSET = 28;
+
+    /**
+     * The commit mark.
+     */
+    /* package */ static final int COMMITTED = 0x434f4d54; // COMT
+
+    /**
+     * The size of the memory pages touched when a segment is mapped.
+     */
+    private static final int PAGE_SIZE = 4096;
+
+    /**
+     * Prefix of the segment file names (followed by the segment number).
+     */
+    /* package */ static final String SEGMENT_PREFIX = "segment-";
+
+    /**
+     * Suffix of the segment file names.
+     */
+    /* package */ static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * Name of the dictionary file (i.e class ids and names, separated by a tab, one per line).
+     */
+    /* package */ static final String DICTIONARY_FILE = "classes.dict";
+
+    /**
+     * The directory holding the journal files.
+     */
+    private final Path directory;
+
+    /**
+     * The amount of records in each segment.
+     */
+    private final int recordsPerSegment;
+
+    /**
+     * Log2 of the {@code recordsPerSegment} (which is a power of two, so no division is needed when appending).
+     */
+    private final int recordsPerSegmentShift;
+
+    /**
+     * The maximum amount of segment files kept.
+     */
+    private final int maxSegments;
+
+    /**
+     * The number of the first segment written by this journal (i.e after those already in the directory).
+     */
+    private final long firstSegment;
+
+    /**
+     * The index of the next record to be appended (relative to the {@code firstSegment}).
+     */
+    private final AtomicLong nextRecord;
+
+    /**
+     * The segment being appended.
+     */
+    private volatile Segment current;
+
+    /**
+     * The segment appended before the {@code current} one (still written by appends that claimed its slots).
+     */
+    private volatile Segment previous;
+
+    /**
+     * The ids of the classes (exceptions and handlers), written into the dictionary the first time they are seen.
+     */
+    private final ClassValue<Integer> classIds;
+
+    /**
+     * The id assigned to the next new class (guarded by the dictionary writer).
+     */
+    private int nextClassId;
+
+    /**
+     * The writer of the dictionary file.
+     */
+    private final BufferedWriter dictionary;
+
+    /**
+     * The amount of records that could not be appended (i.e the journal was closed, or an append was too slow).
+     */
+    private final LongAdder droppedRecords;
+
+    /**
+     * Indicates whether this journal is closed.
+     */
+    private volatile boolean closed;
+
+
+    /**
+     * Constructor, using the {@link #DEFAULT_SEGMENT_SIZE} and {@link #DEFAULT_MAX_SEGMENTS}.
+     *
+     * @param directory The directory holding the journal files (created if it does not exist).
+     * @throws IOException If the journal files can not be created.
+     */
+    public ErrorJournal(final Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Constructor.
+     * If the directory already holds a journal, it is continued (i.e records are appended in new segments,
+     * and its oldest segments are deleted so at most {@code maxSegments} are kept).
+     *
+     * @param directory   The directory holding the journal files (created if it does not exist).
+     * @param segmentSize The size of the segment files (in bytes),
+     *                    rounded down so the amount of records in each segment is a power of two.
+     * @param maxSegments The maximum amount of segment files kept.
+     * @throws IOException If the journal files can not be created.
+     */
+    public ErrorJournal(final Path directory, final int segmentSize, final int maxSegments) throws IOException {
+        Assert.notNull(directory, "The directory must not be null");
+        Assert.isTrue(segmentSize >= HEADER_SIZE + RECORD_SIZE, "The segment size must hold at least one record");
+        Assert.isTrue(maxSegments >= 2, "At least two segments must be kept");
+        this.directory = Files.createDirectories(directory);
+        this.recordsPerSegment = Integer.highestOneBit((segmentSize - HEADER_SIZE) / RECORD_SIZE);
+        this.recordsPerSegmentShift = Integer.numberOfTrailingZeros(recordsPerSegment);
+        this.maxSegments = maxSegments;
+        final Map<String, Integer> knownClasses = ErrorJournalReader.readDictionary(directory).entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey, (a, b) -> a));
+        this.nextClassId = knownClasses.values().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        this.dictionary = Files.newBufferedWriter(directory.resolve(DICTIONARY_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.classIds = new ClassValue<Integer>() {
+            @Override
+            protected Integer computeValue(final Class<?> type) {
+                final Integer known = knownClasses.get(type.getName());
+                return known != null ? known : register(type.getName());
+            }
+        };
+        final long[] existingSegments = ErrorJournalReader.listSegments(directory).stream()
+                .mapToLong(ErrorJournalReader::segmentNumber)
+                .toArray();
+        this.firstSegment = Arrays.stream(existingSegments).max().orElse(-1) + 1;
+        // Make room for the first segment, deleting those left by previous journals that must not be kept
+        Arrays.stream(existingSegments).filter(number -> number <= firstSegment - maxSegments)
+                .forEach(this::deleteSegment);
+        this.nextRecord = new AtomicLong();
+        this.current = mapSegment(firstSegment);
+        this.previous = current;
+        this.droppedRecords = new LongAdder();
+        this.closed = false;
+    }
+
+
+    /**
+     * @return The directory holding the journal files.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return The amount of records that could not be appended
+     * (i.e the journal was closed, or an append was too slow and its segment was already deleted).
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.sum();
+    }
+
+    @Override
+    public void onHandledError(final HandledError handledError) {
+        if (closed) {
+            droppedRecords.increment();
+            return;
+        }
+        final long index = nextRecord.getAndIncrement();
+        final Segment segment = segmentFor(firstSegment + (index >>> recordsPerSegmentShift));
+        if (segment == null) {
+            droppedRecords.increment();
+            return;
+        }
+        final int offset = HEADER_SIZE + (int) (index & (recordsPerSegment - 1)) * RECORD_SIZE;
+        final MappedByteBuffer buffer = segment.buffer;
+        buffer.putLong(offset + TIMESTAMP_OFFSET, System.currentTimeMillis());
+        buffer.putLong(offset + FINGERPRINT_OFFSET, handledError.getFingerprint().getValue());
+        buffer.putInt(offset + EXCEPTION_CLASS_OFFSET, classIds.get(handledError.getException().getClass()));
+        buffer.putInt(offset + HANDLER_CLASS_OFFSET, classIds.get(handledError.getHandler().getClass()));
+        buffer.putInt(offset + STATUS_OFFSET,
+                handledError.getResult() == null ? -1 : handledError.getResult().getHttpErrorCode());
+        buffer.putInt(offset + COMMIT_OFFSET, COMMITTED);
+    }
+
+    /**
+     * Closes the journal, flushing the mapped segments to the disk.
+     *
+     * @throws IOException If the dictionary can not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        previous.buffer.force();
+        current.buffer.force();
+        synchronized (dictionary) {
+            dictionary.close();
+        }
+    }
+
+
+    /**
+     * Gets the segment with the given {@code number}, rolling the journal if it is the next one.
+     *
+     * @param number The number of the segment.
+     * @return The segment, or null if it is older than the previous one (i.e it might have been deleted).
+     */
+    private Segment segmentFor(final long number) {
+        final Segment segment = current;
+        if (segment.number == number) {
+            return segment;
+        }
+        return roll(number);
+    }
+
+    /**
+     * Rolls the journal until the segment with the given {@code number} is the current one
+     * (if it is not already created).
+     *
+     * @param number The number of the segment.
+     * @return The segment, or null if it is older than the previous one (i.e it might have been deleted).
+     */
+    private synchronized Segment roll(final long number) {
+        while (current.number < number) {
+            final Segment next;
+            try {
+                next = mapSegment(current.number + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not roll the error journal", e);
+            }
+            previous = current;
+            current = next;
+            deleteSegment(next.number - maxSegments);
+        }
+        if (current.number == number) {
+            return current;
+        }
+        return previous.number == number ? previous : null;
+    }
+
+    /**
+     * Creates and maps the segment with the given {@code number}.
+     *
+     * @param number The number of the segment.
+     * @return The mapped segment.
+     * @throws IOException If the segment file can not be created.
+     */
+    private Segment mapSegment(final long number) throws IOException {
+        final Path file = directory.resolve(ErrorJournalReader.segmentFileName(number));
+        try (final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE);
+            buffer.order(BYTE_ORDER);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_SIZE);
+            buffer.putInt(12, recordsPerSegment);
+            // Touch every page, so appends do not page-fault when reaching them
+            for (int page = PAGE_SIZE; page < buffer.capacity(); page += PAGE_SIZE) {
+                buffer.put(page, (byte) 0);
+            }
+            LOGGER.debug("Error journal segment {} created", file);
+            return new Segment(number, buffer);
+        }
+    }
+
+    /**
+     * Deletes the segment with the given {@code number} (if it exists).
+     *
+     * @param number The number of the segment.
+     */
+    private void deleteSegment(final long number) {
+        if (number < 0) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(ErrorJournalReader.segmentFileName(number)));
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete error journal segment {}", number, e);
+        }
+    }
+
+    /**
+     * Assigns an id to the class with the given {@code name}, writing it into the dictionary.
+     *
+     * @param name The name of the class.
+     * @return The assigned id.
+     */
+    private Integer register(final String name) {
+        synchronized (dictionary) {
+            final int id = nextClassId++;
+            try {
+                dictionary.write(id + "\t" + name);
+                dictionary.newLine();
+                dictionary.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the error journal dictionary", e);
+            }
+            return id;
+        }
+    }
+
+
+    /**
+     * A mapped segment file.
+     */
+    private static final class Segment {
+
+        /**
+         * The number of the segment.
+         */
+        private final long number;
+
+        /**
+         * The mapped content of the segment file.
+         */
+        private final MappedByteBuffer buffer;
+
+        /**
+         * Constructor.
+         *
+         * @param number The number of the segment.
+         * @param buffer The mapped content of the segment file.
+         */
+        private Segment(final long number, final MappedByteBuffer buffer) {
+            this.number = number;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.journal;
+
+import org.springframework.util.Assert;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the records of an {@link ErrorJournal}, in the order they were appended
+ * (i.e segment by segment, skipping records that were not completely written).
+ * Segments are read when the iteration reaches them, so it can be done while the journal is being written
+ * (records appended after reaching a segment might not be read).
+ */
+public final class ErrorJournalReader implements Iterable<JournalRecord> {
+
+    /**
+     * The name used for classes with unknown ids.
+     */
+    private static final String UNKNOWN_CLASS = "<unknown>";
+
+    /**
+     * The segment files, sorted by number.
+     */
+    private final List<Path> segments;
+
+    /**
+     * The dictionary of the journal (i.e class ids to names).
+     */
+    private final Map<Integer, String> classNames;
+
+
+    /**
+     * Constructor.
+     *
+     * @param directory The directory holding the journal files.
+     * @throws IOException If the journal files can not be listed, or the dictionary can not be read.
+     */
+    public ErrorJournalReader(final Path directory) throws IOException {
+        Assert.notNull(directory, "The directory must not be null");
+        this.segments = listSegments(directory);
+        this.classNames = readDictionary(directory);
+    }
+
+
+    /**
+     * @return A {@link Stream} of the records.
+     */
+    public Stream<JournalRecord> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Note that the returned {@link Iterator} throws an {@link UncheckedIOException} if a segment can not be read.
+     */
+    @Override
+    public Iterator<JournalRecord> iterator() {
+        return new RecordIterator();
+    }
+
+
+    /**
+     * Lists the segment files in the given {@code directory}.
+     *
+     * @param directory The directory holding the journal files.
+     * @return The segment files, sorted by number.
+     * @throws IOException If the directory can not be listed.
+     */
+    /* package */ static List<Path> listSegments(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        final String name = file.getFileName().toString();
+                        return name.startsWith(ErrorJournal.SEGMENT_PREFIX)
+                                && name.endsWith(ErrorJournal.SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(ErrorJournalReader::segmentNumber))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the dictionary in the given {@code directory}.
+     *
+     * @param directory The directory holding the journal files.
+     * @return A {@link Map} holding the class ids and names (empty if there is no dictionary).
+     * @throws IOException If the dictionary can not be read.
+     */
+    /* package */ static Map<Integer, String> readDictionary(final Path directory) throws IOException {
+        final Map<Integer, String> classNames = new HashMap<>();
+        try (final BufferedReader reader = Files.newBufferedReader(directory.resolve(ErrorJournal.DICTIONARY_FILE),
+                StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    classNames.put(Integer.parseInt(line.substring(0, tab)), line.substring(tab + 1));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return classNames;
+        }
+        return classNames;
+    }
+
+    /**
+     * Returns the name of the segment file with the given {@code number}.
+     *
+     * @param number The number of the segment.
+     * @return The name of the file.
+     */
+    /* package */ static String segmentFileName(final long number) {
+        return String.format("%s%016d%s", ErrorJournal.SEGMENT_PREFIX, number, ErrorJournal.SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Returns the number of the given {@code segment} file.
+     *
+     * @param segment The segment file.
+     * @return The number of the segment.
+     */
+    /* package */ static long segmentNumber(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(ErrorJournal.SEGMENT_PREFIX.length(),
+                name.length() - ErrorJournal.SEGMENT_SUFFIX.length()));
+    }
+
+
+    /**
+     * {@link Iterator} over the records of the segments.
+     */
+    private final class RecordIterator implements Iterator<JournalRecord> {
+
+        /**
+         * The index of the next segment to be read.
+         */
+        private int nextSegment;
+
+        /**
+         * The content of the segment being read (null if none).
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * The offset of the next record to be checked in the {@code buffer}.
+         */
+        private int offset;
+
+        /**
+         * The next record (null if not found yet).
+         */
+        private JournalRecord next;
+
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (buffer == null || offset + ErrorJournal.RECORD_SIZE > buffer.limit()) {
+                    if (nextSegment >= segments.size()) {
+                        return false;
+                    }
+                    buffer = map(segments.get(nextSegment++));
+                    offset = ErrorJournal.HEADER_SIZE;
+                    continue;
+                }
+                if (buffer.getInt(offset + ErrorJournal.COMMIT_OFFSET) == ErrorJournal.COMMITTED) {
+                    next = new JournalRecord(buffer.getLong(offset + ErrorJournal.TIMESTAMP_OFFSET),
+                            buffer.getLong(offset + ErrorJournal.FINGERPRINT_OFFSET),
+                            classNames.getOrDefault(buffer.getInt(offset + ErrorJournal.EXCEPTION_CLASS_OFFSET),
+                                    UNKNOWN_CLASS),
+                            classNames.getOrDefault(buffer.getInt(offset + ErrorJournal.HANDLER_CLASS_OFFSET),
+                                    UNKNOWN_CLASS),
+                            buffer.getInt(offset + ErrorJournal.STATUS_OFFSET));
+                }
+                offset += ErrorJournal.RECORD_SIZE;
+            }
+            return true;
+        }
+
+        @Override
+        public JournalRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final JournalRecord record = next;
+            next = null;
+            return record;
+        }
+
+        /**
+         * Maps the given {@code segment} file (or returns an empty buffer if it was deleted, or is not valid).
+         *
+         * @param segment The segment file.
+         * @return The content of the segment.
+         */
+        private ByteBuffer map(final Path segment) {
+            try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                final ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                        .order(ErrorJournal.BYTE_ORDER);
+                if (content.limit() < ErrorJournal.HEADER_SIZE || content.getInt(0) != ErrorJournal.MAGIC
+                        || content.getInt(4) != ErrorJournal.VERSION
+                        || content.getInt(8) != ErrorJournal.RECORD_SIZE) {
+                    return ByteBuffer.allocate(0);
+                }
+                return content;
+            } catch (NoSuchFileException e) {
+                return ByteBuffer.allocate(0); // Deleted by the journal while iterating
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read error journal segment " + segment, e);
+            }
+        }
+    }
+}
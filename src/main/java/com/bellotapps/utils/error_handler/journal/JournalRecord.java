@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.journal;
+
+/**
+ * A record of an {@link ErrorJournal} (i.e an error handled while the journal was open).
+ */
+public final class JournalRecord {
+
+    /**
+     * The time at which the error was handled, in milliseconds since the epoch.
+     */
+    private final long timestamp;
+
+    /**
+     * The fingerprint of the handled exception.
+     */
+    private final long fingerprint;
+
+    /**
+     * The name of the class of the handled exception.
+     */
+    private final String exceptionClassName;
+
+    /**
+     * The name of the class of the handler that handled the exception.
+     */
+    private final String handlerClassName;
+
+    /**
+     * The HTTP status code of the handling result (or -1 if the handler returned null).
+     */
+    private final int httpErrorCode;
+
+
+    /**
+     * Constructor.
+     *
+     * @param timestamp          The time at which the error was handled, in milliseconds since the epoch.
+     * @param fingerprint        The fingerprint of the handled exception.
+     * @param exceptionClassName The name of the class of the handled exception.
+     * @param handlerClassName   The name of the class of the handler that handled the exception.
+     * @param httpErrorCode      The HTTP status code of the handling result (or -1 if the handler returned null).
+     */
+    /* package */ JournalRecord(final long timestamp, final long fingerprint, final String exceptionClassName,
+                                final String handlerClassName, final int httpErrorCode) {
+        this.timestamp = timestamp;
+        this.fingerprint = fingerprint;
+        this.exceptionClassName = exceptionClassName;
+        this.handlerClassName = handlerClassName;
+        this.httpErrorCode = httpErrorCode;
+    }
+
+
+    /**
+     * @return The time at which the error was handled, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The fingerprint of the handled exception.
+     * @see com.bellotapps.utils.error_handler.ExceptionFingerprint#getValue()
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return The name of the class of the handled exception.
+     */
+    public String getExceptionClassName() {
+        return exceptionClassName;
+    }
+
+    /**
+     * @return The name of the class of the handler that handled the exception.
+     */
+    public String getHandlerClassName() {
+        return handlerClassName;
+    }
+
+    /**
+     * @return The HTTP status code of the handling result (or -1 if the handler returned null).
+     */
+    public int getHttpErrorCode() {
+        return httpErrorCode;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" +
+                "timestamp=" + timestamp +
+                ", fingerprint=" + Long.toHexString(fingerprint) +
+                ", exceptionClassName='" + exceptionClassName + '\'' +
+                ", handlerClassName='" + handlerClassName + '\'' +
+                ", httpErrorCode=" + httpErrorCode +
+                '}';
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.logging;
+
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes log lines made of {@code key=value} fields (i.e logfmt), in UTF-8, into a pre-sized buffer
+ * that is reused for each line, so encoding allocates nothing.
+ * <p>
+ * Values are quoted when they are empty or contain spaces, quotes or equal signs,
+ * and quotes, backslashes and line breaks are escaped. Fields that do not fit in the buffer are truncated,
+ * and the line is ended with {@code "..."}. Instances are not thread safe (i.e they are meant to be thread-local).
+ */
+public final class LogLineEncoder {
+
+    /**
+     * The bytes with which truncated lines end (before the line break).
+     */
+    private static final byte[] TRUNCATION_MARK = "...".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The hexadecimal digits.
+     */
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The buffer into which lines are encoded (with room for the truncation mark and the line break).
+     */
+    private final byte[] buffer;
+
+    /**
+     * The maximum amount of bytes of the fields of a line.
+     */
+    private final int capacity;
+
+    /**
+     * The amount of bytes of the line being encoded.
+     */
+    private int length;
+
+    /**
+     * Indicates whether a field of the line being encoded did not fit.
+     */
+    private boolean truncated;
+
+    /**
+     * The thread whose name is cached in {@link #encodedThreadName} (null if none is cached).
+     */
+    private Thread namedThread;
+
+    /**
+     * The encoded name of the {@link #namedThread} (as a field value).
+     */
+    private byte[] encodedThreadName;
+
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The maximum amount of bytes of the fields of a line.
+     */
+    public LogLineEncoder(final int capacity) {
+        Assert.isTrue(capacity > 0, "The capacity must be positive");
+        this.buffer = new byte[capacity + TRUNCATION_MARK.length + 1];
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Starts a new line, discarding the one being encoded.
+     *
+     * @return This encoder.
+     */
+    public LogLineEncoder reset() {
+        this.length = 0;
+        this.truncated = false;
+        return this;
+    }
+
+    /**
+     * Appends a field with the given textual {@code value}.
+     *
+     * @param key   The key of the field (must not need quoting).
+     * @param value The value (null values are encoded as an empty string).
+     * @return This encoder.
+     */
+    public LogLineEncoder field(final String key, final CharSequence value) {
+        if (!startField(key)) {
+            return this;
+        }
+        appendValue(value == null ? "" : value);
+        return this;
+    }
+
+    /**
+     * Appends a field with the name of the current thread. The name is encoded the first time,
+     * and then reused while the encoder is used by the same thread, as getting it allocates a {@link String}
+     * in some JVMs (i.e a thread that is renamed keeps being logged with the name it had when first logged).
+     *
+     * @param key The key of the field (must not need quoting).
+     * @return This encoder.
+     */
+    public LogLineEncoder threadNameField(final String key) {
+        if (!startField(key)) {
+            return this;
+        }
+        final Thread thread = Thread.currentThread();
+        if (thread == namedThread) {
+            if (appendBytes(encodedThreadName.length)) {
+                System.arraycopy(encodedThreadName, 0, buffer, length, encodedThreadName.length);
+                length += encodedThreadName.length;
+            }
+            return this;
+        }
+        final int start = length;
+        if (appendValue(thread.getName())) {
+            this.encodedThreadName = Arrays.copyOfRange(buffer, start, length);
+            this.namedThread = thread;
+        }
+        return this;
+    }
+
+    /**
+     * Appends a field with the given numeric {@code value}, in decimal.
+     *
+     * @param key   The key of the field (must not need quoting).
+     * @param value The value.
+     * @return This encoder.
+     */
+    public LogLineEncoder field(final String key, final long value) {
+        if (!startField(key)) {
+            return this;
+        }
+        if (value == Long.MIN_VALUE) {
+            appendChars(Long.toString(value), false); // Can not be negated
+            return this;
+        }
+        if (value < 0 && !appendByte('-')) {
+            return this;
+        }
+        long remaining = Math.abs(value);
+        int digits = 1;
+        for (long bound = 10; digits < 19 && remaining >= bound; bound *= 10) {
+            digits++;
+        }
+        if (length + digits > capacity) {
+            truncated = true;
+            return this;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    /**
+     * Appends a field with the given {@code value}, as a 16 digits hexadecimal number (e.g a fingerprint).
+     *
+     * @param key   The key of the field (must not need quoting).
+     * @param value The value.
+     * @return This encoder.
+     */
+    public LogLineEncoder hexField(final String key, final long value) {
+        if (!startField(key)) {
+            return this;
+        }
+        if (length + 16 > capacity) {
+            truncated = true;
+            return this;
+        }
+        for (int i = 15; i >= 0; i--) {
+            buffer[length + i] = HEX_DIGITS[(int) (value >>> ((15 - i) * 4)) & 0xF];
+        }
+        length += 16;
+        return this;
+    }
+
+    /**
+     * @return {@code true} if a field of the line being encoded did not fit, or {@code false} otherwise.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Ends the line being encoded (appending the truncation mark if needed, and the line break),
+     * and writes it into the given {@code outputStream}.
+     *
+     * @param outputStream The {@link OutputStream} into which the line is written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeLineTo(final OutputStream outputStream) throws IOException {
+        final int end = endLine();
+        outputStream.write(buffer, 0, end);
+    }
+
+    /**
+     * Ends the line being encoded, and returns it (without the line break), as a {@link String}
+     * (i.e for consumers that only accept those, as it allocates).
+     *
+     * @return The line.
+     */
+    public String toLineString() {
+        return new String(buffer, 0, endLine() - 1, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ends the line being encoded, appending the truncation mark if needed, and the line break
+     * (the encoded fields are not modified, so the line can be ended again).
+     *
+     * @return The amount of bytes of the ended line.
+     */
+    private int endLine() {
+        int end = length;
+        if (truncated) {
+            System.arraycopy(TRUNCATION_MARK, 0, buffer, end, TRUNCATION_MARK.length);
+            end += TRUNCATION_MARK.length;
+        }
+        buffer[end] = '\n';
+        return end + 1;
+    }
+
+    /**
+     * Appends the separator (if not the first field) and the key of a field, followed by the equal sign.
+     *
+     * @param key The key of the field.
+     * @return {@code true} if the field can be appended, or {@code false} if the line is already truncated,
+     * or the key did not fit.
+     */
+    private boolean startField(final String key) {
+        if (truncated) {
+            return false;
+        }
+        if (length > 0 && !appendByte(' ')) {
+            return false;
+        }
+        return appendChars(key, false) && appendByte('=');
+    }
+
+    /**
+     * Appends the given field {@code value}, quoting it if needed.
+     *
+     * @param value The value.
+     * @return {@code true} if it fits, or {@code false} otherwise.
+     */
+    private boolean appendValue(final CharSequence value) {
+        if (!needsQuotes(value)) {
+            return appendChars(value, false);
+        }
+        return appendByte('"') && appendChars(value, true) && appendByte('"');
+    }
+
+    /**
+     * Appends the given {@code value}, encoded in UTF-8.
+     *
+     * @param value  The characters to be appended.
+     * @param escape Whether quotes, backslashes and line breaks must be escaped.
+     * @return {@code true} if all of them fit, or {@code false} otherwise.
+     */
+    private boolean appendChars(final CharSequence value, final boolean escape) {
+        final int size = value.length();
+        for (int i = 0; i < size; i++) {
+            final char c = value.charAt(i);
+            final boolean fits;
+            if (escape && (c == '"' || c == '\\')) {
+                fits = appendByte('\\') && appendByte(c);
+            } else if (escape && c == '\n') {
+                fits = appendByte('\\') && appendByte('n');
+            } else if (escape && c == '\r') {
+                fits = appendByte('\\') && appendByte('r');
+            } else if (c < 0x80) {
+                fits = appendByte(c);
+            } else if (c < 0x800) {
+                fits = appendBytes(2) && put(0xC0 | (c >> 6)) && put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                fits = appendBytes(4) && put(0xF0 | (codePoint >> 18)) && put(0x80 | ((codePoint >> 12) & 0x3F))
+                        && put(0x80 | ((codePoint >> 6) & 0x3F)) && put(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                fits = appendByte('?');
+            } else {
+                fits = appendBytes(3) && put(0xE0 | (c >> 12)) && put(0x80 | ((c >> 6) & 0x3F))
+                        && put(0x80 | (c & 0x3F));
+            }
+            if (!fits) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends the given ASCII {@code value}.
+     *
+     * @param value The value.
+     * @return {@code true} if it fits, or {@code false} otherwise (marking the line as truncated).
+     */
+    private boolean appendByte(final int value) {
+        return appendBytes(1) && put(value);
+    }
+
+    /**
+     * Checks that the given amount of bytes fit.
+     *
+     * @param count The amount of bytes to be appended.
+     * @return {@code true} if they fit, or {@code false} otherwise (marking the line as truncated).
+     */
+    private boolean appendBytes(final int count) {
+        if (length + count > capacity) {
+            truncated = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Puts the given byte (which must fit).
+     *
+     * @param value The byte.
+     * @return {@code true}.
+     */
+    private boolean put(final int value) {
+        buffer[length++] = (byte) value;
+        return true;
+    }
+
+    /**
+     * Indicates whether the given {@code value} must be quoted.
+     *
+     * @param value The value.
+     * @return {@code true} if it is empty, or contains spaces (or control characters), quotes or equal signs.
+     */
+    private static boolean needsQuotes(final CharSequence value) {
+        final int size = value.length();
+        if (size == 0) {
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            final char c = value.charAt(i);
+            if (c <= ' ' || c == '"' || c == '=' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
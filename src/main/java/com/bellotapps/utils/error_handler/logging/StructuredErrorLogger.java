@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.logging;
+
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.HandledErrorListener;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link HandledErrorListener} that logs each handled error as a structured line of {@code key=value} fields
+ * (i.e logfmt): {@code ts}, {@code exception} (its class), {@code handler} (its class), {@code status},
+ * {@code fingerprint}, {@code thread} and, optionally, {@code message}.
+ * <p>
+ * Lines are encoded by a thread-local {@link LogLineEncoder} into its pre-sized buffer, and written straight
+ * into an {@link OutputStream} (one write per line, synchronized on the stream), so logging an error allocates
+ * nothing once each thread has its encoder (unlike formatting a message with SLF4J, which allocates the arguments
+ * array, the message and the logging event). The fingerprint is the one of the {@link HandledError},
+ * shared with the other listeners.
+ * <p>
+ * Register it as a bean to log the errors handled by the error handlers created by the
+ * {@link com.bellotapps.utils.error_handler.ErrorHandlerFactory}.
+ */
+public final class StructuredErrorLogger implements HandledErrorListener {
+
+    /**
+     * The {@link Logger}.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StructuredErrorLogger.class);
+
+    /**
+     * The default maximum amount of bytes of a line.
+     */
+    public static final int DEFAULT_LINE_CAPACITY = 1024;
+
+    /**
+     * The {@link OutputStream} into which lines are written.
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * Indicates whether the messages of the exceptions are logged.
+     */
+    private final boolean includeMessages;
+
+    /**
+     * The {@link LogLineEncoder} of each thread.
+     */
+    private final ThreadLocal<LogLineEncoder> encoders;
+
+    /**
+     * The amount of lines that could not be written.
+     */
+    private final LongAdder failedWrites;
+
+
+    /**
+     * Constructor, logging messages, with lines of at most {@link #DEFAULT_LINE_CAPACITY} bytes.
+     *
+     * @param outputStream The {@link OutputStream} into which lines are written.
+     */
+    public StructuredErrorLogger(final OutputStream outputStream) {
+        this(outputStream, true, DEFAULT_LINE_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param outputStream    The {@link OutputStream} into which lines are written.
+     * @param includeMessages Indicates whether the messages of the exceptions are logged
+     *                        (they might hold data that must not be logged).
+     * @param lineCapacity    The maximum amount of bytes of a line (longer lines are truncated).
+     */
+    public StructuredErrorLogger(final OutputStream outputStream, final boolean includeMessages,
+                                 final int lineCapacity) {
+        Assert.notNull(outputStream, "The output stream must not be null");
+        Assert.isTrue(lineCapacity > 0, "The line capacity must be positive");
+        this.outputStream = outputStream;
+        this.includeMessages = includeMessages;
+        this.encoders = ThreadLocal.withInitial(() -> new LogLineEncoder(lineCapacity));
+        this.failedWrites = new LongAdder();
+    }
+
+
+    @Override
+    public void onHandledError(final HandledError handledError) {
+        final LogLineEncoder encoder = encode(handledError, encoders.get().reset());
+        try {
+            synchronized (outputStream) {
+                encoder.writeLineTo(outputStream);
+            }
+        } catch (final IOException e) {
+            failedWrites.increment();
+            LOGGER.debug("Could not write a log line", e);
+        }
+    }
+
+    /**
+     * @return The amount of lines that could not be written.
+     */
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    /**
+     * Encodes the given {@code handledError} with the given {@code encoder}.
+     *
+     * @param handledError The {@link HandledError} to be encoded.
+     * @param encoder      The {@link LogLineEncoder} into which it is encoded.
+     * @return The given {@code encoder}.
+     */
+    private LogLineEncoder encode(final HandledError handledError, final LogLineEncoder encoder) {
+        final HandlingResult<?> result = handledError.getResult();
+        encoder.field("ts", System.currentTimeMillis())
+                .field("exception", handledError.getException().getClass().getName())
+                .field("handler", handledError.getHandler().getClass().getName())
+                .field("status", result == null ? -1 : result.getHttpErrorCode())
+                .hexField("fingerprint", handledError.getFingerprint().getValue())
+                .threadNameField("thread");
+        if (includeMessages) {
+            encoder.field("message", handledError.getException().getMessage());
+        }
+        return encoder;
+    }
+
+
+    /**
+     * Creates a {@link StructuredErrorLogger} that writes into the standard error (which is not closed).
+     *
+     * @return The created logger.
+     */
+    public static StructuredErrorLogger stderr() {
+        return new StructuredErrorLogger(new FilterOutputStream(System.err) {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+        });
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.problem;
+
+import com.bellotapps.utils.error_handler.EncodedEntity;
+import com.bellotapps.utils.error_handler.JsonStrings;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * An RFC 7807 problem details object ({@code application/problem+json}), to be used as the entity of a
+ * {@link com.bellotapps.utils.error_handler.HandlingResult}.
+ * <p>
+ * A problem is made of a {@link ProblemTemplate} (the constant part, already serialized),
+ * and the members specific to the occurrence (i.e detail, instance and extension members).
+ * Only the latter are encoded when the problem is written (once, the first time it is needed),
+ * and they are written after the bytes of the template, without copying them.
+ * Instances are immutable, and are created through {@link ProblemTemplate#newProblem(String)}.
+ */
+public final class Problem {
+
+    /**
+     * The media type of problem details objects.
+     */
+    public static final MimeType MEDIA_TYPE = new MimeType("application", "problem+json", StandardCharsets.UTF_8);
+
+    /**
+     * The template of this problem.
+     */
+    private final ProblemTemplate template;
+
+    /**
+     * An explanation specific to this occurrence of the problem.
+     */
+    private final String detail;
+
+    /**
+     * A URI reference that identifies this occurrence of the problem.
+     */
+    private final String instance;
+
+    /**
+     * The extension members specific to this occurrence.
+     */
+    private final Map<String, Object> extensions;
+
+    /**
+     * The serialized members specific to this occurrence, closing the object (null until first needed).
+     * Encoding is idempotent, so it is not synchronized.
+     */
+    private byte[] tail;
+
+
+    /**
+     * Constructor.
+     *
+     * @param template   The template of this problem.
+     * @param detail     An explanation specific to this occurrence of the problem.
+     * @param instance   A URI reference that identifies this occurrence of the problem.
+     * @param extensions The extension members specific to this occurrence (not copied).
+     */
+    /* package */ Problem(final ProblemTemplate template, final String detail, final String instance,
+                          final Map<String, Object> extensions) {
+        this.template = template;
+        this.detail = detail;
+        this.instance = instance;
+        this.extensions = extensions;
+    }
+
+
+    /**
+     * @return The template of this problem.
+     */
+    public ProblemTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return The problem type (a URI reference).
+     */
+    public String getType() {
+        return template.getType();
+    }
+
+    /**
+     * @return A short summary of the problem type (null if none).
+     */
+    public String getTitle() {
+        return template.getTitle();
+    }
+
+    /**
+     * @return The HTTP status code.
+     */
+    public int getStatus() {
+        return template.getStatus();
+    }
+
+    /**
+     * @return An explanation specific to this occurrence of the problem (null if none).
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * @return A URI reference that identifies this occurrence of the problem (null if none).
+     */
+    public String getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return The extension members specific to this occurrence, in order
+     * (the constant ones are in the {@link #getTemplate()}).
+     */
+    public Map<String, Object> getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * @return The media type of this problem (i.e {@link #MEDIA_TYPE}).
+     */
+    public MimeType getMediaType() {
+        return MEDIA_TYPE;
+    }
+
+    /**
+     * @return The length of the encoded problem, in bytes.
+     */
+    public int getLength() {
+        return template.getHead().length + getTail().length;
+    }
+
+    /**
+     * Writes the encoded problem into the given {@code outputStream}
+     * (the constant part is written without being encoded or copied).
+     *
+     * @param outputStream The {@link OutputStream} to which the problem must be written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(template.getHead());
+        outputStream.write(getTail());
+    }
+
+    /**
+     * @return The encoded problem, as an {@link EncodedEntity}
+     * (i.e for consumers that only accept those, as it requires copying the constant part).
+     */
+    public EncodedEntity toEncodedEntity() {
+        if (detail == null && instance == null && extensions.isEmpty()) {
+            return template.asEncodedEntity();
+        }
+        final byte[] head = template.getHead();
+        final byte[] tail = getTail();
+        final byte[] bytes = new byte[head.length + tail.length];
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        System.arraycopy(tail, 0, bytes, head.length, tail.length);
+        return EncodedEntity.of(MEDIA_TYPE, bytes);
+    }
+
+    /**
+     * @return The serialized members specific to this occurrence, closing the object.
+     */
+    private byte[] getTail() {
+        byte[] result = tail;
+        if (result == null) {
+            final StringBuilder builder = new StringBuilder();
+            if (detail != null) {
+                builder.append(",\"detail\":");
+                JsonStrings.append(builder, detail);
+            }
+            if (instance != null) {
+                builder.append(",\"instance\":");
+                JsonStrings.append(builder, instance);
+            }
+            ProblemJson.appendMembers(builder, extensions);
+            result = builder.append('}').toString().getBytes(StandardCharsets.UTF_8);
+            tail = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return new String(template.getHead(), StandardCharsets.UTF_8) + new String(getTail(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.problem;
+
+import com.bellotapps.utils.error_handler.ExceptionHandler;
+import com.bellotapps.utils.error_handler.HandlingResult;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An {@link ExceptionHandler} that represents errors as RFC 7807 {@link Problem}s,
+ * built from a constant {@link ProblemTemplate} (i.e the template registered for the handled exception class).
+ * <p>
+ * Implementations just provide the template, and optionally the members specific to each occurrence.
+ * The status of the result is the one of the template.
+ *
+ * @param <T> The concrete type of {@link Throwable} that will be handled by the object implementing this interface.
+ */
+public interface ProblemExceptionHandler<T extends Throwable> extends ExceptionHandler<T, Problem> {
+
+    /**
+     * @return The {@link ProblemTemplate} of the problems created by this handler.
+     * Must always return the same instance (e.g a constant).
+     */
+    ProblemTemplate getTemplate();
+
+    /**
+     * Returns the explanation specific to the given {@code exception}.
+     *
+     * @param exception The exception being handled.
+     * @return The detail of the problem (null if none).
+     * @implNote The default implementation returns the message of the exception.
+     */
+    default String getDetail(final T exception) {
+        return exception.getMessage();
+    }
+
+    /**
+     * Returns the URI reference that identifies the occurrence of the problem.
+     *
+     * @param exception The exception being handled.
+     * @return The instance of the problem (null if none).
+     * @implNote The default implementation returns null.
+     */
+    default String getInstance(final T exception) {
+        return null;
+    }
+
+    /**
+     * Returns the extension members specific to the given {@code exception}
+     * (the constant ones must be set in the {@link #getTemplate()}).
+     *
+     * @param exception The exception being handled.
+     * @return The extension members.
+     * @implNote The default implementation returns an empty map.
+     */
+    default Map<String, ?> getExtensions(final T exception) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Creates the {@link Problem} from the {@link #getTemplate()}, with the {@link #getDetail(Throwable)},
+     * the {@link #getInstance(Throwable)} and the {@link #getExtensions(Throwable)}.
+     */
+    @Override
+    default HandlingResult<Problem> handle(final T exception) {
+        final ProblemTemplate template = getTemplate();
+        return HandlingResult.withPayload(template.getStatus(),
+                template.newProblem(getDetail(exception), getInstance(exception), getExtensions(exception)));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.problem;
+
+import com.bellotapps.utils.error_handler.JsonStrings;
+
+import java.util.Map;
+
+/**
+ * Minimal JSON writing helpers for {@link ProblemTemplate} and {@link Problem}.
+ */
+/* package */ final class ProblemJson {
+
+    /**
+     * Private constructor, as this is a helper class.
+     */
+    private ProblemJson() {
+    }
+
+
+    /**
+     * Appends the given members to the given {@code builder}, each preceded by a comma
+     * (i.e the builder must already contain at least one member of the object).
+     *
+     * @param builder The {@link StringBuilder} to which the members are appended.
+     * @param members The members to be appended.
+     */
+    /* package */ static void appendMembers(final StringBuilder builder, final Map<String, ?> members) {
+        for (final Map.Entry<String, ?> member : members.entrySet()) {
+            builder.append(',');
+            JsonStrings.append(builder, member.getKey());
+            builder.append(':');
+            appendValue(builder, member.getValue());
+        }
+    }
+
+    /**
+     * Appends the given {@code value} to the given {@code builder}, as a JSON value.
+     * {@link Boolean}s and finite {@link Number}s are appended as they are,
+     * and any other non null value as the string returned by its {@code toString} method.
+     *
+     * @param builder The {@link StringBuilder} to which the value is appended.
+     * @param value   The value to be appended.
+     */
+    /* package */ static void appendValue(final StringBuilder builder, final Object value) {
+        if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            builder.append(value);
+        } else if ((value instanceof Double || value instanceof Float)
+                && !Double.isNaN(((Number) value).doubleValue())
+                && !Double.isInfinite(((Number) value).doubleValue())) {
+            builder.append(value);
+        } else {
+            JsonStrings.append(builder, value == null ? null : value.toString());
+        }
+    }
+}
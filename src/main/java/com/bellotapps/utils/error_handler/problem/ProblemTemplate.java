@@ -0,0 +1,252 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.problem;
+
+import com.bellotapps.utils.error_handler.EncodedEntity;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.JsonStrings;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The constant part of a {@link Problem} (i.e the type, title, status and constant extension members),
+ * shared by every problem of an exception class.
+ * <p>
+ * The constant part is serialized once, when the template is created, so writing a {@link Problem} just encodes
+ * its instance-specific members (i.e detail, instance and extension members), and splices them with it.
+ * Templates are immutable, and are expected to be created once (e.g in a constant of the handler).
+ *
+ * @see ProblemExceptionHandler
+ */
+public final class ProblemTemplate {
+
+    /**
+     * The type used when none is given, as defined by RFC 7807.
+     */
+    public static final String DEFAULT_TYPE = "about:blank";
+
+    /**
+     * Names of the members defined by RFC 7807, that can not be used as extension members.
+     */
+    private static final Set<String> RESERVED_MEMBERS =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList("type", "title", "status", "detail", "instance")));
+
+    /**
+     * The problem type (a URI reference).
+     */
+    private final String type;
+
+    /**
+     * A short summary of the problem type.
+     */
+    private final String title;
+
+    /**
+     * The HTTP status code.
+     */
+    private final int status;
+
+    /**
+     * The constant extension members.
+     */
+    private final Map<String, Object> extensions;
+
+    /**
+     * The serialized constant part (i.e an unclosed JSON object), in UTF-8.
+     */
+    private final byte[] head;
+
+    /**
+     * The problem without instance-specific members, already encoded.
+     */
+    private final EncodedEntity entity;
+
+
+    /**
+     * Constructor.
+     *
+     * @param type       The problem type (a URI reference).
+     * @param title      A short summary of the problem type (can be null).
+     * @param status     The HTTP status code.
+     * @param extensions The constant extension members (not copied).
+     */
+    private ProblemTemplate(final String type, final String title, final int status,
+                            final Map<String, Object> extensions) {
+        this.type = type;
+        this.title = title;
+        this.status = status;
+        this.extensions = Collections.unmodifiableMap(extensions);
+        final StringBuilder builder = new StringBuilder("{\"type\":");
+        JsonStrings.append(builder, type);
+        if (title != null) {
+            builder.append(",\"title\":");
+            JsonStrings.append(builder, title);
+        }
+        builder.append(",\"status\":").append(status);
+        ProblemJson.appendMembers(builder, extensions);
+        this.head = builder.toString().getBytes(StandardCharsets.UTF_8);
+        this.entity = EncodedEntity.of(Problem.MEDIA_TYPE, builder.append('}').toString());
+    }
+
+
+    /**
+     * @return The problem type (a URI reference).
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return A short summary of the problem type (null if none).
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return The HTTP status code.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The constant extension members, in order.
+     */
+    public Map<String, Object> getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Returns the problem without instance-specific members, already encoded
+     * (e.g to be returned as a constant variant by a
+     * {@link com.bellotapps.utils.error_handler.VariantExceptionHandler}).
+     *
+     * @return The {@link EncodedEntity} (always the same instance).
+     */
+    public EncodedEntity asEncodedEntity() {
+        return entity;
+    }
+
+    /**
+     * @return The serialized constant part (i.e an unclosed JSON object), in UTF-8 (not copied).
+     */
+    /* package */ byte[] getHead() {
+        return head;
+    }
+
+    /**
+     * Creates a copy of this template with the given constant extension member (replacing it if already present).
+     *
+     * @param name  The name of the member (can not be a member defined by RFC 7807).
+     * @param value The value of the member (a {@link String}, {@link Number}, {@link Boolean} or null,
+     *              or an object represented by its {@code toString} method).
+     * @return The new {@link ProblemTemplate}.
+     */
+    public ProblemTemplate withExtension(final String name, final Object value) {
+        validateExtensionName(name);
+        final Map<String, Object> newExtensions = new LinkedHashMap<>(extensions);
+        newExtensions.put(name, value);
+        return new ProblemTemplate(type, title, status, newExtensions);
+    }
+
+    /**
+     * Creates a {@link Problem} of this template, with the given {@code detail}.
+     *
+     * @param detail An explanation specific to this occurrence of the problem (can be null).
+     * @return The created {@link Problem}.
+     */
+    public Problem newProblem(final String detail) {
+        return new Problem(this, detail, null, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a {@link Problem} of this template, with the given instance-specific members.
+     *
+     * @param detail     An explanation specific to this occurrence of the problem (can be null).
+     * @param instance   A URI reference that identifies this occurrence of the problem (can be null).
+     * @param extensions Extension members specific to this occurrence (they are copied, keeping their order).
+     * @return The created {@link Problem}.
+     */
+    public Problem newProblem(final String detail, final String instance, final Map<String, ?> extensions) {
+        Assert.notNull(extensions, "The extensions map must not be null");
+        if (extensions.isEmpty()) {
+            return new Problem(this, detail, instance, Collections.emptyMap());
+        }
+        for (final String name : extensions.keySet()) {
+            validateExtensionName(name);
+            Assert.isTrue(!this.extensions.containsKey(name), "The extension is already a constant one");
+        }
+        return new Problem(this, detail, instance, Collections.unmodifiableMap(new LinkedHashMap<>(extensions)));
+    }
+
+    /**
+     * Creates a {@link HandlingResult} with the status of this template,
+     * and a {@link Problem} with the given {@code detail} as payload.
+     *
+     * @param detail An explanation specific to this occurrence of the problem (can be null).
+     * @return The created {@link HandlingResult}.
+     */
+    public HandlingResult<Problem> result(final String detail) {
+        return HandlingResult.withPayload(status, newProblem(detail));
+    }
+
+    @Override
+    public String toString() {
+        return "ProblemTemplate{type=" + type + ", title=" + title + ", status=" + status + "}";
+    }
+
+
+    /**
+     * Creates a {@link ProblemTemplate} with the given {@code type}.
+     *
+     * @param status The HTTP status code.
+     * @param type   The problem type (a URI reference).
+     * @param title  A short summary of the problem type (can be null).
+     * @return The created {@link ProblemTemplate}.
+     */
+    public static ProblemTemplate of(final int status, final String type, final String title) {
+        Assert.isTrue(status >= 100 && status < 600, "The status must be an HTTP status code");
+        Assert.hasText(type, "The type must not be empty");
+        return new ProblemTemplate(type, title, status, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a {@link ProblemTemplate} with the {@link #DEFAULT_TYPE}
+     * (i.e the problem has no semantics beyond those of the status).
+     *
+     * @param status The HTTP status code.
+     * @param title  A short summary of the problem type (should be the reason phrase of the status).
+     * @return The created {@link ProblemTemplate}.
+     */
+    public static ProblemTemplate of(final int status, final String title) {
+        return of(status, DEFAULT_TYPE, title);
+    }
+
+    /**
+     * Checks that the given {@code name} can be used as an extension member.
+     *
+     * @param name The name to be checked.
+     * @throws IllegalArgumentException If the name is empty, or a member defined by RFC 7807.
+     */
+    private static void validateExtensionName(final String name) throws IllegalArgumentException {
+        Assert.hasText(name, "The extension name must not be empty");
+        Assert.isTrue(!RESERVED_MEMBERS.contains(name), "The extension name must not be a member defined by RFC 7807");
+    }
+}
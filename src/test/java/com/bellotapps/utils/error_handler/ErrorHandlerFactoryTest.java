@@ -0,0 +1,299 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import com.bellotapps.utils.error_handler.scanned.UnsupportedOperationExceptionHandler;
+import com.bellotapps.utils.error_handler.scoped.BufferReusingHandler;
+import com.bellotapps.utils.error_handler.scoped.PerThreadVariantsHandler;
+import com.bellotapps.utils.error_handler.scoped.PooledHandler;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Testing class for {@link ErrorHandlerFactory}.
+ */
+public class ErrorHandlerFactoryTest {
+
+    private static final String SCANNED_PACKAGE = UnsupportedOperationExceptionHandler.class.getPackage().getName();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testErrorMessageResolverIsSetFromTheMessageSourceBean() {
+        final StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("error.unsupported", Locale.ENGLISH, "Unsupported: {0}");
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean(AbstractApplicationContext.MESSAGE_SOURCE_BEAN_NAME, messageSource);
+
+        final ErrorHandler errorHandler = new ErrorHandlerFactory(getClass().getClassLoader(), beanFactory)
+                .createErrorHandler(SCANNED_PACKAGE);
+        final HandlingResult<String> result = errorHandler.handle(new UnsupportedOperationException("sorting"),
+                HandlingContext.of(Locale.ENGLISH));
+
+        Assert.assertEquals("The error handler did not handle an exception as expected",
+                "Unsupported: sorting", result.getErrorRepresentationEntity());
+    }
+
+    @Test
+    public void testNoErrorMessageResolverWithoutMessageSource() {
+        final ErrorHandlerFactory factory =
+                new ErrorHandlerFactory(getClass().getClassLoader(), new StaticListableBeanFactory());
+        Assert.assertFalse("A resolver was created without message source",
+                factory.getErrorMessageResolver().isPresent());
+    }
+
+    @Test
+    public void testMappingsAreCompiledTogetherWithTheScannedHandlers() {
+        final ErrorHandlerFactory factory =
+                new ErrorHandlerFactory(getClass().getClassLoader(), new StaticListableBeanFactory());
+        final List<ExceptionMapping> mappings =
+                factory.loadMappings(Collections.singletonList("classpath:error-mappings.properties"));
+        Assert.assertEquals("The mappings were not loaded as expected", 4, mappings.size());
+        final ErrorHandler errorHandler =
+                factory.createErrorHandler(Collections.singletonList(SCANNED_PACKAGE), mappings);
+
+        final HandlingResult<?> conflict = errorHandler.handle(new IllegalStateException("first"));
+        Assert.assertEquals(409, conflict.getHttpErrorCode());
+        Assert.assertEquals("Conflict", conflict.getErrorRepresentationEntity());
+        Assert.assertSame("The constant result was built again",
+                conflict, errorHandler.handle(new IllegalStateException("second")));
+
+        final HandlingResult<?> notFound = errorHandler.handle(new NoSuchElementException("order 12"));
+        Assert.assertEquals(404, notFound.getHttpErrorCode());
+        Assert.assertEquals("Not found: order 12", notFound.getErrorRepresentationEntity());
+        Assert.assertEquals(504, errorHandler.handle(new TimeoutException()).getHttpErrorCode());
+        Assert.assertNull(errorHandler.handle(new TimeoutException()).getErrorRepresentationEntity());
+
+        // The scanned handler takes precedence over the mapping of the same class
+        Assert.assertEquals("Unsupported: sorting", errorHandler
+                .handle(new UnsupportedOperationException("sorting")).getErrorRepresentationEntity());
+    }
+
+    @Test
+    public void testMappingsWithNumericValuesAreLoaded() {
+        final Properties properties = new Properties(); // As YAML files are read
+        properties.put("java.lang.IllegalStateException.status", 409);
+        properties.put("java.lang.IllegalStateException.body", "Conflict");
+        properties.put("java.util.concurrent.TimeoutException.status", 504);
+        final List<ExceptionMapping> mappings = ExceptionMappings.fromProperties(properties, getClass().getClassLoader());
+        Assert.assertEquals("The mappings were not loaded as expected", 2, mappings.size());
+        Assert.assertEquals(IllegalStateException.class, mappings.get(0).getExceptionClass());
+        Assert.assertEquals(409, mappings.get(0).getStatus());
+        Assert.assertEquals(504, mappings.get(1).getStatus());
+    }
+
+    @Test
+    public void testMappingsAreLoadedFromYaml() {
+        Assume.assumeTrue("SnakeYAML is not in the classpath",
+                ClassUtils.isPresent("org.yaml.snakeyaml.Yaml", getClass().getClassLoader()));
+        final ErrorHandlerFactory factory =
+                new ErrorHandlerFactory(getClass().getClassLoader(), new StaticListableBeanFactory());
+        final List<ExceptionMapping> mappings =
+                factory.loadMappings(Collections.singletonList("classpath:error-mappings.yml"));
+        Assert.assertEquals("The mappings were not loaded as expected", 3, mappings.size());
+        final ErrorHandler errorHandler = factory.createErrorHandler(Collections.emptyList(), mappings);
+        Assert.assertEquals(409, errorHandler.handle(new IllegalStateException()).getHttpErrorCode());
+        final HandlingResult<?> notFound = errorHandler.handle(new NoSuchElementException("order 12"));
+        Assert.assertEquals(404, notFound.getHttpErrorCode());
+        Assert.assertEquals("Not found: order 12", notFound.getErrorRepresentationEntity());
+    }
+
+    @Test
+    public void testInvalidMappingsAreRejected() {
+        final ClassLoader classLoader = getClass().getClassLoader();
+        assertRejected(classLoader, "java.lang.NoSuchException.status", "400");
+        assertRejected(classLoader, "java.lang.String.status", "400");
+        assertRejected(classLoader, "java.lang.IllegalStateException.status", "conflict");
+        assertRejected(classLoader, "java.lang.IllegalStateException.body", "Conflict");
+        assertRejected(classLoader, "java.lang.IllegalStateException.code", "409");
+    }
+
+    /**
+     * Asserts that the mapping declared with the given {@code key} and {@code value} is rejected.
+     *
+     * @param classLoader The {@link ClassLoader} used to load the exception classes.
+     * @param key         The key of the mapping.
+     * @param value       The value of the mapping.
+     */
+    private static void assertRejected(final ClassLoader classLoader, final String key, final String value) {
+        final Properties properties = new Properties();
+        properties.setProperty(key, value);
+        try {
+            ExceptionMappings.fromProperties(properties, classLoader);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        Assert.fail("The mapping " + key + "=" + value + " was not rejected");
+    }
+
+    @Test
+    public void testScopedHandlersAreNotUsedConcurrently() throws Exception {
+        final int created = BufferReusingHandler.INSTANCES.get();
+        final ErrorHandler errorHandler = new ErrorHandlerFactory(getClass().getClassLoader(),
+                new StaticListableBeanFactory()).createErrorHandler(BufferReusingHandler.class.getPackage().getName());
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final String id = String.valueOf(i);
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 2000; j++) {
+                        Assert.assertEquals("Invalid: " + id,
+                                errorHandler.handle(new IllegalArgumentException(id)).getErrorRepresentationEntity());
+                        Assert.assertEquals("Conflict: " + id,
+                                errorHandler.handle(new IllegalStateException(id)).getErrorRepresentationEntity());
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(); // Rethrows the failures of the handlers
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // The scanned instance, and one for each thread
+        Assert.assertEquals("Unexpected per-thread instances", created + threads + 1,
+                BufferReusingHandler.INSTANCES.get());
+        Assert.assertTrue("The pooled handler was not scoped", PooledHandler.INSTANCES.get() > 1);
+    }
+
+    @Test
+    public void testVariantsOfScopedHandlersAreSharedByTheirInstances() throws Exception {
+        final ErrorHandler errorHandler = new ErrorHandlerFactory(getClass().getClassLoader(),
+                new StaticListableBeanFactory()).createErrorHandler(BufferReusingHandler.class.getPackage().getName());
+        final HandlingContext context = HandlingContext.of(Locale.ENGLISH, MimeTypeUtils.TEXT_PLAIN);
+        final HandlingResult<?> first = errorHandler.handle(new UnsupportedOperationException(), context);
+        final int encodings = PerThreadVariantsHandler.ENCODINGS.get();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<HandlingResult<?>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> errorHandler.handle(new UnsupportedOperationException(), context)));
+            }
+            for (final Future<HandlingResult<?>> future : futures) {
+                Assert.assertSame("The variant was not cached for every instance", first, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals("The variant was encoded again", encodings, PerThreadVariantsHandler.ENCODINGS.get());
+    }
+
+    @Test
+    public void testScanSnapshotIsUsedWhileThePackageDoesNotChange() throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("snapshot").resolve("scan.properties");
+        Assert.assertEquals("The handler was not scanned", 501, handleWithSnapshot(file));
+        final Properties stored = readProperties(file);
+        Assert.assertEquals("The scan result was not stored as expected",
+                UnsupportedOperationExceptionHandler.class.getName(), stored.getProperty(SCANNED_PACKAGE + ".handlers"));
+
+        // With the same fingerprint, the stored handlers are used instead of scanning
+        stored.setProperty(SCANNED_PACKAGE + ".handlers", "");
+        writeProperties(file, stored);
+        Assert.assertNotEquals("The snapshot was not used", 501, handleWithSnapshot(file));
+
+        // With another fingerprint, the package is scanned again and the snapshot is updated
+        stored.setProperty(SCANNED_PACKAGE + ".fingerprint", "outdated");
+        writeProperties(file, stored);
+        Assert.assertEquals("The package was not scanned again", 501, handleWithSnapshot(file));
+        Assert.assertNotEquals("The snapshot was not updated",
+                "outdated", readProperties(file).getProperty(SCANNED_PACKAGE + ".fingerprint"));
+    }
+
+    @Test
+    public void testScanSnapshotKeepsTheOrderOfTheHandlers() {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("scan.properties");
+        ScanSnapshot.at(file).store(SCANNED_PACKAGE, "fingerprint",
+                Arrays.asList(BufferReusingHandler.class, PooledHandler.class));
+        final ScanSnapshot snapshot = ScanSnapshot.at(file);
+        Assert.assertEquals(Optional.of(Arrays.asList(BufferReusingHandler.class.getName(),
+                PooledHandler.class.getName())), snapshot.lookup(SCANNED_PACKAGE, "fingerprint"));
+        Assert.assertEquals(Optional.empty(), snapshot.lookup(SCANNED_PACKAGE, "outdated"));
+    }
+
+    /**
+     * Creates an error handler of the {@link #SCANNED_PACKAGE} with a {@link ScanSnapshot} stored in the given
+     * {@code file}, and handles an {@link UnsupportedOperationException} with it.
+     *
+     * @param file The file of the snapshot.
+     * @return The status of the result.
+     */
+    private int handleWithSnapshot(final Path file) {
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("scanSnapshot", ScanSnapshot.at(file));
+        return new ErrorHandlerFactory(getClass().getClassLoader(), beanFactory)
+                .createErrorHandler(SCANNED_PACKAGE)
+                .handle(new UnsupportedOperationException("sorting"))
+                .getHttpErrorCode();
+    }
+
+    /**
+     * Reads the given snapshot {@code file}.
+     *
+     * @param file The file.
+     * @return The entries of the snapshot.
+     * @throws IOException If the file could not be read.
+     */
+    private static Properties readProperties(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (final InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        }
+        return properties;
+    }
+
+    /**
+     * Writes the given entries into the snapshot {@code file}.
+     *
+     * @param file       The file.
+     * @param properties The entries of the snapshot.
+     * @throws IOException If the file could not be written.
+     */
+    private static void writeProperties(final Path file, final Properties properties) throws IOException {
+        try (final OutputStream outputStream = Files.newOutputStream(file)) {
+            properties.store(outputStream, null);
+        }
+    }
+}
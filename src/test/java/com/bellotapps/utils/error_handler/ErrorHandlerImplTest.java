@@ -18,10 +18,19 @@ package com.bellotapps.utils.error_handler;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -103,6 +112,325 @@ public class ErrorHandlerImplTest {
                 NOT_THE_DEFAULT_HANDLER_ERROR_MESSAGE);
     }
 
+    @Test
+    public void testHandlersDeclaringTheSameKeyNameShareTheirTable() {
+        final Map<Class<? extends Throwable>, ExceptionHandler<?, ?>> fallbackHandlers =
+                Collections.singletonMap(Throwable.class, new TestingExceptionHandlers.DecliningThrowableHandler());
+        final DispatchIndex dispatchIndex = new DispatchIndex(fallbackHandlers, Arrays.asList(
+                new TestingExceptionHandlers.UniqueViolationHandler(),
+                new TestingExceptionHandlers.ConnectionErrorHandler()));
+        Assert.assertFalse("The exception class was resolved before routing it",
+                dispatchIndex.isResolved(SQLException.class));
+        // The table of the SQL state, followed by the handler of Throwable
+        Assert.assertEquals("The handlers did not share their table",
+                2, dispatchIndex.resolve(SQLException.class).length);
+        Assert.assertTrue("The resolution was not cached", dispatchIndex.isResolved(SQLException.class));
+    }
+
+    @Test
+    public void testKeyedHandlers() {
+        final ExceptionHandler<SQLException, String> sqlExceptionHandler =
+                new TestingExceptionHandlers.SQLExceptionHandler();
+        final ExceptionHandler<SQLException, String> uniqueViolationHandler =
+                new TestingExceptionHandlers.UniqueViolationHandler();
+        final ExceptionHandler<SQLException, String> connectionErrorHandler =
+                new TestingExceptionHandlers.ConnectionErrorHandler();
+        final ExceptionHandler<SQLException, String> deadlockHandler =
+                new TestingExceptionHandlers.DeadlockHandler();
+        final ExceptionHandler<IllegalStateException, String> illegalStateHandler =
+                new TestingExceptionHandlers.IllegalStateByMessageHandler();
+        final ExceptionHandler<RuntimeException, String> runtimeExceptionHandler =
+                new TestingExceptionHandlers.RuntimeExceptionHandler();
+
+        final List<ExceptionHandler<? extends Throwable, ?>> handlers = Stream
+                .of(sqlExceptionHandler, uniqueViolationHandler, connectionErrorHandler, deadlockHandler,
+                        illegalStateHandler, runtimeExceptionHandler)
+                .collect(Collectors.toList());
+
+        final ErrorHandlerImpl errorHandler = new ErrorHandlerImpl(handlers);
+
+        // Test object keys
+        testHandle(new SQLException("", "23505"), errorHandler, uniqueViolationHandler, NOT_HANDLED_AS_EXPECTED);
+        testHandle(new SQLException("", "08006"), errorHandler, connectionErrorHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test int keys
+        testHandle(new SQLException("", "40001", 1213), errorHandler, deadlockHandler, NOT_HANDLED_AS_EXPECTED);
+        testHandle(new SQLException("", null, 40001), errorHandler, deadlockHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test keys that are not declared fall back to the type's handler
+        testHandle(new SQLException("", "42000", 1064), errorHandler, sqlExceptionHandler, NOT_HANDLED_AS_EXPECTED);
+        testHandle(new SQLException(), errorHandler, sqlExceptionHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test subclasses are routed through the keyed handlers of the superclass
+        testHandle(new java.sql.SQLTransientException("", "08006"), errorHandler, connectionErrorHandler,
+                NOT_HANDLED_AS_EXPECTED);
+        // Test keys that are not declared fall back to the supertype's handler when the type has none
+        testHandle(new IllegalStateException("keyed"), errorHandler, illegalStateHandler, NOT_HANDLED_AS_EXPECTED);
+        testHandle(new IllegalStateException("other"), errorHandler, runtimeExceptionHandler,
+                NOT_HANDLED_AS_EXPECTED);
+    }
+
+    @Test
+    public void testMessagePatternHandlers() {
+        final ExceptionHandler<IllegalStateException, String> brokenConnectionHandler =
+                new TestingExceptionHandlers.BrokenConnectionHandler();
+        final ExceptionHandler<IllegalStateException, String> timeoutHandler =
+                new TestingExceptionHandlers.TimeoutMessageHandler();
+        final ExceptionHandler<RuntimeException, String> runtimeExceptionHandler =
+                new TestingExceptionHandlers.RuntimeExceptionHandler();
+        final List<ExceptionHandler<? extends Throwable, ?>> handlers = Stream
+                .of(brokenConnectionHandler, timeoutHandler, runtimeExceptionHandler)
+                .collect(Collectors.toList());
+        final ErrorHandlerImpl errorHandler = new ErrorHandlerImpl(handlers);
+
+        testHandle(new IllegalStateException("I/O error: connection reset by peer"), errorHandler,
+                brokenConnectionHandler, NOT_HANDLED_AS_EXPECTED);
+        testHandle(new IllegalStateException("Write failed (broken pipe)"), errorHandler,
+                brokenConnectionHandler, NOT_HANDLED_AS_EXPECTED);
+        testHandle(new IllegalStateException("Read Timed Out after 3000 ms"), errorHandler,
+                timeoutHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test the pattern found first in the message wins
+        testHandle(new IllegalStateException("timed out after 10ms, then connection reset"), errorHandler,
+                timeoutHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test messages without patterns (or without message) fall back to the supertype's handler
+        testHandle(new IllegalStateException("connection refused"), errorHandler, runtimeExceptionHandler,
+                NOT_HANDLED_AS_EXPECTED);
+        testHandle(new IllegalStateException(), errorHandler, runtimeExceptionHandler, NOT_HANDLED_AS_EXPECTED);
+    }
+
+    @Test
+    public void testDeclinedExceptionsFallThrough() throws NoSuchFieldException, IllegalAccessException {
+        final ExceptionHandler<NumberFormatException, String> numberFormatExceptionHandler =
+                new TestingExceptionHandlers.DecliningNumberFormatExceptionHandler();
+        final ExceptionHandler<IllegalArgumentException, String> illegalArgumentHandler =
+                new TestingExceptionHandlers.IllegalArgumentExceptionHandler();
+        final ExceptionHandler<SQLException, String> sqlStateHandler =
+                new TestingExceptionHandlers.DecliningSqlStateHandler();
+        final ExceptionHandler<SQLException, String> sqlExceptionHandler =
+                new TestingExceptionHandlers.SQLExceptionHandler();
+        final ExceptionHandler<Throwable, String> throwableHandler =
+                new TestingExceptionHandlers.DecliningThrowableHandler();
+
+        final List<ExceptionHandler<? extends Throwable, ?>> handlers = Stream
+                .of(numberFormatExceptionHandler, illegalArgumentHandler, sqlStateHandler, sqlExceptionHandler,
+                        throwableHandler)
+                .collect(Collectors.toList());
+
+        final ErrorHandlerImpl errorHandler = new ErrorHandlerImpl(handlers);
+
+        // Test a not declined exception
+        testHandle(new NumberFormatException("NaN"), errorHandler, numberFormatExceptionHandler,
+                NOT_HANDLED_AS_EXPECTED);
+        // Test a declined exception is handled by the supertype's handler
+        testHandle(new NumberFormatException(), errorHandler, illegalArgumentHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test a declined exception in a keyed handler is handled by the type's handler
+        testHandle(new SQLException("", "23505"), errorHandler, sqlExceptionHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test an exception declined by every handler is handled by the default handler
+        testHandle(new IllegalStateException(), errorHandler, getDefaultHandler(errorHandler),
+                NOT_HANDLED_AS_EXPECTED);
+    }
+
+    @Test
+    public void testVariantsAreNegotiatedAndCached() {
+        final TestingExceptionHandlers.UnsupportedOperationVariantsHandler variantsHandler =
+                new TestingExceptionHandlers.UnsupportedOperationVariantsHandler();
+        final ErrorHandlerImpl errorHandler = new ErrorHandlerImpl(Stream
+                .<ExceptionHandler<? extends Throwable, ?>>of(variantsHandler)
+                .collect(Collectors.toList()));
+
+        final HandlingContext spanishText = HandlingContext.fromAcceptHeader("application/json;q=0.5, text/plain",
+                new Locale("es", "AR"));
+        final HandlingResult<EncodedEntity> text = errorHandler.handle(new UnsupportedOperationException(), spanishText);
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, 501, text.getHttpErrorCode());
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, MimeTypeUtils.TEXT_PLAIN,
+                text.getErrorRepresentationEntity().getMediaType());
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, "no soportado",
+                new String(text.getErrorRepresentationEntity().toByteArray(), StandardCharsets.UTF_8));
+
+        // Test any media type gets the preferred variant of the handler
+        final HandlingResult<EncodedEntity> json = errorHandler.handle(new UnsupportedOperationException(),
+                HandlingContext.of(Locale.ENGLISH, MimeTypeUtils.ALL));
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, "{\"message\":\"unsupported\"}",
+                new String(json.getErrorRepresentationEntity().toByteArray(), StandardCharsets.UTF_8));
+
+        // Test constant variants are encoded just once
+        Assert.assertSame("The constant variant was not cached",
+                text, errorHandler.handle(new UnsupportedOperationException(), spanishText));
+        Assert.assertSame("The constant variant was not cached",
+                json, errorHandler.handle(new UnsupportedOperationException(),
+                        HandlingContext.of(Locale.ENGLISH, MimeTypeUtils.APPLICATION_JSON)));
+        Assert.assertEquals("The constant variant was not cached", 2, variantsHandler.getEncodings());
+    }
+
+    @Test
+    public void testMediaTypesWithZeroQualityAreNotAccepted() {
+        final List<MimeType> producible = Arrays.asList(MimeTypeUtils.APPLICATION_JSON, MimeTypeUtils.TEXT_PLAIN);
+        Assert.assertEquals(MimeTypeUtils.TEXT_PLAIN,
+                HandlingContext.fromAcceptHeader("*/*, application/json;q=0", Locale.ENGLISH).negotiate(producible));
+        Assert.assertEquals(MimeTypeUtils.TEXT_PLAIN,
+                HandlingContext.fromAcceptHeader("text/html, application/json;q=0", Locale.ENGLISH)
+                        .negotiate(producible));
+        Assert.assertEquals(MimeTypeUtils.TEXT_PLAIN,
+                HandlingContext.fromAcceptHeader("application/json;q=0", Locale.ENGLISH).negotiate(producible));
+        // The most specific media type decides
+        Assert.assertEquals(MimeTypeUtils.APPLICATION_JSON,
+                HandlingContext.fromAcceptHeader("application/*;q=0, application/json", Locale.ENGLISH)
+                        .negotiate(producible));
+        Assert.assertEquals(MimeTypeUtils.APPLICATION_JSON,
+                HandlingContext.fromAcceptHeader("application/json;q=0, text/plain;q=0", Locale.ENGLISH)
+                        .negotiate(producible));
+    }
+
+    @Test
+    public void testListenersAreNotifiedWithTheFingerprint() {
+        final ExceptionFingerprinter fingerprinter = new ExceptionFingerprinter();
+        final List<HandledError> handledErrors = new LinkedList<>();
+        final List<HandledErrorListener> listeners = Stream
+                .<HandledErrorListener>of(handledErrors::add, ignored -> {
+                    throw new IllegalStateException("Failing listener");
+                })
+                .collect(Collectors.toList());
+        final ErrorHandlerImpl errorHandler = new ErrorHandlerImpl(Stream
+                .<ExceptionHandler<? extends Throwable, ?>>of(new TestingExceptionHandlers.RuntimeExceptionHandler())
+                .collect(Collectors.toList()), listeners, fingerprinter);
+
+        final RuntimeException exception = new RuntimeException("Order 10 failed");
+        final HandlingResult<String> result = errorHandler.handle(exception);
+
+        // Test failing listeners do not affect the handling
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, 500, result.getHttpErrorCode());
+        Assert.assertEquals("The listener was not notified", 1, handledErrors.size());
+        final HandledError handledError = handledErrors.get(0);
+        Assert.assertSame(exception, handledError.getException());
+        Assert.assertSame(result, handledError.getResult());
+        Assert.assertTrue(handledError.getHandler() instanceof TestingExceptionHandlers.RuntimeExceptionHandler);
+        Assert.assertSame("The fingerprint was computed again",
+                fingerprinter.fingerprint(exception), handledError.getFingerprint());
+    }
+
+    @Test
+    public void testBudgetedHandlersFallBack() {
+        final ExceptionHandler<IllegalStateException, String> budgetedHandler =
+                new TestingExceptionHandlers.BudgetedIllegalStateHandler();
+        final ErrorHandlerImpl errorHandler = new ErrorHandlerImpl(Stream
+                .<ExceptionHandler<? extends Throwable, ?>>of(budgetedHandler)
+                .collect(Collectors.toList()));
+
+        final HandlingResult<String> fast = errorHandler.handle(new IllegalStateException("fast"));
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, 409, fast.getHttpErrorCode());
+        Assert.assertTrue("A violation was counted", errorHandler.getBudgetViolations().isEmpty());
+
+        // Test slow handlers are not waited for, and are interrupted
+        final int interruptions = TestingExceptionHandlers.BudgetedIllegalStateHandler.getInterruptions();
+        final long start = System.nanoTime();
+        final HandlingResult<String> slow = errorHandler.handle(new IllegalStateException("slow"));
+        Assert.assertTrue("The budget was not enforced", System.nanoTime() - start < 1_000_000_000L);
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, 503, slow.getHttpErrorCode());
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, "fallback", slow.getErrorRepresentationEntity());
+        while (TestingExceptionHandlers.BudgetedIllegalStateHandler.getInterruptions() == interruptions) {
+            Assert.assertTrue("The slow handler was not interrupted", System.nanoTime() - start < 1_000_000_000L);
+            Thread.yield();
+        }
+
+        // Test failing handlers fall back
+        final HandlingResult<String> failed = errorHandler.handle(new IllegalStateException("fail"));
+        Assert.assertEquals(NOT_HANDLED_AS_EXPECTED, 503, failed.getHttpErrorCode());
+        Assert.assertEquals("The violations were not counted", Long.valueOf(2),
+                errorHandler.getBudgetViolations().get(TestingExceptionHandlers.BudgetedIllegalStateHandler.class));
+    }
+
+    @Test
+    public void testWarmUpResolvesAndExercisesHandlersSilently() {
+        final List<HandledError> handledErrors = new LinkedList<>();
+        final ErrorHandlerWarmUp warmUp = ErrorHandlerWarmUp.of(NoSuchElementException.class)
+                .exercisingHandlers(100);
+        final ErrorHandlerImpl errorHandler = new ErrorHandlerImpl(Stream
+                .<ExceptionHandler<? extends Throwable, ?>>of(new TestingExceptionHandlers.RuntimeExceptionHandler(),
+                        new TestingExceptionHandlers.NullPointerExceptionHandler(),
+                        new TestingExceptionHandlers.BudgetedIllegalStateHandler())
+                .collect(Collectors.toList()),
+                Stream.<HandledErrorListener>of(handledErrors::add).collect(Collectors.toList()),
+                new ExceptionFingerprinter(), warmUp);
+        Assert.assertFalse("Warmed up before being initialized", errorHandler.getWarmUpReport().isPresent());
+
+        errorHandler.afterPropertiesSet();
+
+        final WarmUpReport report = errorHandler.getWarmUpReport().orElseThrow(AssertionError::new);
+        // The handled types (including Throwable, with the default handler) and the likely type
+        Assert.assertEquals(5, report.getResolvedTypes());
+        Assert.assertEquals(4, report.getExercisedTypes());
+        Assert.assertEquals("The budgeted handler was not skipped",
+                Collections.singleton(IllegalStateException.class), report.getSkippedTypes());
+        Assert.assertTrue(report.getFailedTypes().isEmpty());
+        Assert.assertTrue("The listeners were notified", handledErrors.isEmpty());
+        Assert.assertTrue("The budgeted handler was exercised", errorHandler.getBudgetViolations().isEmpty());
+        testHandle(new NoSuchElementException(), errorHandler, new TestingExceptionHandlers.RuntimeExceptionHandler(),
+                NOT_HANDLED_AS_EXPECTED);
+        Assert.assertEquals("Real exceptions were not notified", 1, handledErrors.size());
+    }
+
+    @Test
+    public void testChildrenOverrideTheHandlersOfTheirParent() {
+        final ExceptionHandler<NullPointerException, String> nullPointerExceptionHandler =
+                new TestingExceptionHandlers.NullPointerExceptionHandler();
+        final ExceptionHandler<IllegalArgumentException, String> illegalArgumentHandler =
+                new TestingExceptionHandlers.IllegalArgumentExceptionHandler();
+        final ExceptionHandler<RuntimeException, String> runtimeExceptionHandler =
+                new TestingExceptionHandlers.RuntimeExceptionHandler();
+        final ExceptionHandler<NullPointerException, String> overridingHandler =
+                new TestingExceptionHandlers.OverridingNullPointerExceptionHandler();
+        final ExceptionHandler<NumberFormatException, String> numberFormatHandler =
+                new TestingExceptionHandlers.DecliningNumberFormatExceptionHandler();
+        final List<HandledError> handledErrors = new LinkedList<>();
+        final ErrorHandlerImpl parent = new ErrorHandlerImpl(Stream
+                .<ExceptionHandler<? extends Throwable, ?>>of(nullPointerExceptionHandler, illegalArgumentHandler,
+                        runtimeExceptionHandler)
+                .collect(Collectors.toList()),
+                Stream.<HandledErrorListener>of(handledErrors::add).collect(Collectors.toList()),
+                new ExceptionFingerprinter());
+        final ErrorHandlerImpl child = new ErrorHandlerImpl(parent, Stream
+                .<ExceptionHandler<? extends Throwable, ?>>of(overridingHandler, numberFormatHandler)
+                .collect(Collectors.toList()));
+
+        // Test overridden types
+        testHandle(new NullPointerException(), child, overridingHandler, NOT_HANDLED_AS_EXPECTED);
+        testHandle(new NumberFormatException("x"), child, numberFormatHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test the parent is not affected
+        testHandle(new NullPointerException(), parent, nullPointerExceptionHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test declined exceptions fall through to the parent's handler of the same type, and then to the supertypes
+        testHandle(new NullPointerException("parent"), child, nullPointerExceptionHandler, NOT_HANDLED_AS_EXPECTED);
+        testHandle(new NumberFormatException(), child, illegalArgumentHandler, NOT_HANDLED_AS_EXPECTED);
+        // Test types that are not overridden are handled by the parent
+        testHandle(new NoSuchElementException(), child, runtimeExceptionHandler, NOT_HANDLED_AS_EXPECTED);
+        Assert.assertEquals(500, child.handle(new Throwable()).getHttpErrorCode());
+        Assert.assertEquals("The listeners of the parent were not notified", 7, handledErrors.size());
+    }
+
+    @Test
+    public void testDeclaredRetryHintsAreSetIntoTheResults() {
+        final ErrorHandlerImpl errorHandler = new ErrorHandlerImpl(Stream
+                .<ExceptionHandler<? extends Throwable, ?>>of(new TestingExceptionHandlers.RetryableExceptionHandler(),
+                        new TestingExceptionHandlers.NotRetryableIllegalArgumentHandler(),
+                        new TestingExceptionHandlers.RuntimeExceptionHandler())
+                .collect(Collectors.toList()));
+
+        // Test the hint of the exception class
+        final HandlingResult<String> retryable =
+                errorHandler.handle(new TestingExceptionHandlers.RetryableException("busy"));
+        final RetryPolicy policy = retryable.getRetryPolicy().orElseThrow(AssertionError::new);
+        Assert.assertTrue(policy.isRetryable());
+        Assert.assertEquals(30, policy.getRetryAfterSeconds());
+        Assert.assertSame("The constant result was classified again", retryable,
+                errorHandler.handle(new TestingExceptionHandlers.RetryableException("busy")));
+        // Test the hint of the handler class
+        Assert.assertEquals(RetryPolicy.NOT_RETRYABLE,
+                errorHandler.handle(new NumberFormatException()).getRetryPolicy().orElse(null));
+        // Test explicit policies are not overridden
+        final HandlingResult<String> explicit =
+                errorHandler.handle(new TestingExceptionHandlers.RetryableException("explicit"));
+        Assert.assertEquals(RetryPolicy.RETRYABLE.withBackoff(Duration.ofMillis(100)),
+                explicit.getRetryPolicy().orElse(null));
+        // Test results without hints are left unclassified
+        Assert.assertFalse(errorHandler.handle(new NoSuchElementException()).getRetryPolicy().isPresent());
+    }
+
     /**
      * Extracts the default {@link ExceptionHandler} from the given {@link ErrorHandlerImpl}
      * (i.e {@link ErrorHandlerImpl#DEFAULT_THROWABLE_HANDLER}).
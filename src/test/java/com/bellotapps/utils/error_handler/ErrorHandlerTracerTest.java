@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Testing class for the tracing of error handlers through an {@link ErrorHandlerTracer}.
+ */
+public class ErrorHandlerTracerTest {
+
+    @Before
+    public void setUp() {
+        RecordingTracer.SPANS.clear();
+        RecordingTracer.enabled = true;
+    }
+
+    @After
+    public void tearDown() {
+        RecordingTracer.enabled = false;
+    }
+
+    @Test
+    public void testSpansAreTraced() {
+        Assert.assertTrue("The tracer was not loaded", Tracing.TRACER instanceof RecordingTracer);
+        final ErrorHandler errorHandler = TestingErrorHandlers.withoutListeners();
+        errorHandler.handle(new UnsupportedOperationException("first"));
+        errorHandler.handle(new UnsupportedOperationException("second"));
+
+        Assert.assertEquals(Arrays.asList(
+                "instantiation NotImplementedHandler fromBean=false",
+                "scan " + TestingErrorHandlers.LISTENED_PACKAGE + " handlers=1",
+                "execution NotImplementedHandler declined=false status=501",
+                "dispatch UnsupportedOperationException NotImplementedHandler cached=false declined=0 ended=true",
+                "execution NotImplementedHandler declined=false status=501",
+                "dispatch UnsupportedOperationException NotImplementedHandler cached=true declined=0 ended=true"),
+                RecordingTracer.SPANS);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.context.support.StaticMessageSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Testing class for {@link ErrorMessageResolver}.
+ */
+public class ErrorMessageResolverTest {
+
+    private static final Locale SPANISH = new Locale("es");
+
+    private CountingMessageSource messageSource;
+
+    private ErrorMessageResolver resolver;
+
+    @Before
+    public void setUp() {
+        this.messageSource = new CountingMessageSource();
+        this.messageSource.addMessage("error.notFound", Locale.ENGLISH, "{0} with id {1} not found");
+        this.messageSource.addMessage("error.notFound", SPANISH, "{0} con id {1} no encontrado");
+        this.messageSource.addMessage("error.internal", Locale.ENGLISH, "Internal error. Don''t retry");
+        this.messageSource.addMessage("entity.user", Locale.ENGLISH, "User");
+        this.resolver = new ErrorMessageResolver(messageSource);
+    }
+
+    @Test
+    public void testMessagesAreRenderedAsTheMessageSourceDoes() {
+        final Object[] args = {"User", 10};
+        Assert.assertEquals(messageSource.getMessage("error.notFound", args, Locale.ENGLISH),
+                resolver.getMessage("error.notFound", Locale.ENGLISH, args));
+        Assert.assertEquals(messageSource.getMessage("error.notFound", args, SPANISH),
+                resolver.getMessage("error.notFound", SPANISH, args));
+        // Messages without arguments are not processed by MessageFormat
+        Assert.assertEquals(messageSource.getMessage("error.internal", null, Locale.ENGLISH),
+                resolver.getMessage("error.internal", Locale.ENGLISH));
+        // Resolvable arguments are resolved
+        Assert.assertEquals("User with id 10 not found", resolver.getMessage("error.notFound", Locale.ENGLISH,
+                new DefaultMessageSourceResolvable("entity.user"), 10));
+    }
+
+    @Test
+    public void testTemplatesAreResolvedJustOnce() {
+        messageSource.resetLookups();
+        for (int i = 0; i < 10; i++) {
+            resolver.getMessage("error.notFound", Locale.ENGLISH, "User", i);
+            resolver.getMessage("error.internal", Locale.ENGLISH);
+            resolver.getMessageOrDefault("error.missing", "Missing", Locale.ENGLISH);
+        }
+        Assert.assertEquals("Templates were not cached", 3, messageSource.getLookups());
+    }
+
+    @Test
+    public void testMessagesAreRenderedConcurrently() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final int thread = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 5000; j++) {
+                        Assert.assertEquals("User with id " + thread + " not found",
+                                resolver.getMessage("error.notFound", Locale.ENGLISH, "User", thread));
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(); // Rethrows the failed assertions
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMissingMessages() {
+        Assert.assertEquals("Default 1", resolver.getMessageOrDefault("error.missing", "Default {0}",
+                Locale.ENGLISH, 1));
+        try {
+            resolver.getMessage("error.missing", Locale.ENGLISH);
+            Assert.fail("A missing message was resolved");
+        } catch (NoSuchMessageException ignored) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testMessagesAreNotCachedWhenFull() {
+        final ErrorMessageResolver noCacheResolver = new ErrorMessageResolver(messageSource, 0);
+        messageSource.resetLookups();
+        noCacheResolver.getMessage("error.internal", Locale.ENGLISH);
+        noCacheResolver.getMessage("error.internal", Locale.ENGLISH);
+        Assert.assertEquals("Messages were cached beyond the maximum size", 2, messageSource.getLookups());
+    }
+
+    @Test
+    public void testMessageSourcesAlwaysUsingMessageFormatAreDelegatedTo() {
+        messageSource.setAlwaysUseMessageFormat(true);
+        messageSource.addMessage("error.quoted", Locale.ENGLISH, "Don''t retry {0}");
+        final ErrorMessageResolver formattingResolver = new ErrorMessageResolver(messageSource);
+        Assert.assertEquals("Internal error. Don't retry",
+                formattingResolver.getMessage("error.internal", Locale.ENGLISH));
+        // The template must not be formatted twice (i.e the quote must not be taken as an escape)
+        Assert.assertEquals("Don't retry User", formattingResolver.getMessage("error.quoted", Locale.ENGLISH, "User"));
+        Assert.assertEquals("Can't find User", formattingResolver.getMessageOrDefault("error.missing",
+                "Can''t find {0}", Locale.ENGLISH, "User"));
+    }
+
+    /**
+     * A {@link StaticMessageSource} that counts the lookups of message templates.
+     */
+    private static final class CountingMessageSource extends StaticMessageSource {
+
+        private int lookups;
+
+        @Override
+        protected String resolveCodeWithoutArguments(String code, Locale locale) {
+            lookups++;
+            return super.resolveCodeWithoutArguments(code, locale);
+        }
+
+        private int getLookups() {
+            return lookups;
+        }
+
+        private void resetLookups() {
+            lookups = 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Testing class for {@link ExceptionFingerprinter}.
+ */
+public class ExceptionFingerprinterTest {
+
+    private final ExceptionFingerprinter fingerprinter = new ExceptionFingerprinter();
+
+    @Test
+    public void testVariablePartsOfMessagesAreIgnored() {
+        final List<Throwable> exceptions = new ArrayList<>();
+        for (final String id : new String[]{"10", "1234", "5f2b1c9e-3d4a-4b8e-9f1a-2c3d4e5f6a7b", "0x7ff3"}) {
+            exceptions.add(new IllegalStateException("Order " + id + " not found"));
+        }
+        final ExceptionFingerprint first = fingerprinter.fingerprint(exceptions.get(0));
+        exceptions.forEach(exception -> Assert.assertEquals("The variable parts of the message were not ignored",
+                first, fingerprinter.fingerprint(exception)));
+
+        Assert.assertNotEquals("The message was ignored",
+                first, fingerprinter.fingerprint(new IllegalStateException("Order 10 not paid")));
+        Assert.assertNotEquals("The exception class was ignored",
+                first, fingerprinter.fingerprint(new IllegalArgumentException("Order 10 not found")));
+    }
+
+    @Test
+    public void testThrowSiteIsTakenIntoAccount() {
+        final Throwable here = new IllegalStateException("failure");
+        final Throwable there = throwSite();
+        Assert.assertNotEquals("The frames were ignored",
+                fingerprinter.fingerprint(here), fingerprinter.fingerprint(there));
+        // Frames below the top ones are ignored
+        Assert.assertEquals("Frames below the top one were hashed",
+                new ExceptionFingerprinter(1).fingerprint(there), new ExceptionFingerprinter(1).fingerprint(throwSite()));
+    }
+
+    @Test
+    public void testFingerprintIsMemoized() {
+        final Throwable exception = new IllegalStateException("failure");
+        Assert.assertSame("The fingerprint was computed again",
+                fingerprinter.fingerprint(exception), fingerprinter.fingerprint(exception));
+        Assert.assertEquals(16, fingerprinter.fingerprint(exception).toHexString().length());
+    }
+
+    @Test
+    public void testStackTraceSetByHandIsHashed() {
+        final Throwable original = throwSite();
+        final Throwable relocated = throwSite();
+        final Throwable reference = new IllegalStateException("failure");
+        relocated.setStackTrace(reference.getStackTrace());
+        Assert.assertEquals("The stack trace set by hand was ignored",
+                fingerprinter.fingerprint(reference), fingerprinter.fingerprint(relocated));
+        Assert.assertNotEquals("The original backtrace was hashed",
+                fingerprinter.fingerprint(original), fingerprinter.fingerprint(relocated));
+    }
+
+    /**
+     * @return An exception created in this method.
+     */
+    private static Throwable throwSite() {
+        return new IllegalStateException("failure");
+    }
+}
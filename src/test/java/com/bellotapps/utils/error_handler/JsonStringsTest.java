@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Testing class for {@link JsonStrings}.
+ */
+public class JsonStringsTest {
+
+    @Test
+    public void testStringsAreEscaped() {
+        Assert.assertEquals("\"a\\\"b\\\\c\\nd\\re\\tf\\u0000g\\u001fh\u00f1\"",
+                JsonStrings.append(new StringBuilder(), "a\"b\\c\nd\re\tf\u0000g\u001fh\u00f1").toString());
+        Assert.assertEquals("null", JsonStrings.append(new StringBuilder(), null).toString());
+    }
+}
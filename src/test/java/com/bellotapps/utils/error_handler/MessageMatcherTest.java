@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Testing class for {@link MessageMatcher}.
+ */
+public class MessageMatcherTest {
+
+    private final MessageMatcher matcher = new MessageMatcher(Arrays.asList(
+            MessagePattern.literal("she"),          // 0
+            MessagePattern.literal("he"),           // 1
+            MessagePattern.literal("hers"),         // 2
+            MessagePattern.regex("error (\\d+)"),   // 3
+            MessagePattern.literal("his"),          // 4
+            MessagePattern.regex("err")));          // 5
+
+    @Test
+    public void testPatternFoundFirstWins() {
+        Assert.assertEquals(0, matcher.match("ushers"));
+        Assert.assertEquals(1, matcher.match("the hers"));
+        Assert.assertEquals(4, matcher.match("this"));
+        Assert.assertEquals(4, matcher.match("his error 42 and he"));
+        Assert.assertEquals(3, matcher.match("an error 42, then she"));
+    }
+
+    @Test
+    public void testFirstDeclaredPatternWinsAtTheSamePosition() {
+        Assert.assertEquals(3, matcher.match("error 500"));
+        Assert.assertEquals(5, matcher.match("error code"));
+        Assert.assertEquals(1, matcher.match("hers")); // Both start at 0, and "he" was declared first
+    }
+
+    @Test
+    public void testExpressionsWithoutLiteralPrefix() {
+        final MessageMatcher mixed = new MessageMatcher(Arrays.asList(
+                MessagePattern.regex("(?i)timeout"),    // 0
+                MessagePattern.literal("refused"),      // 1
+                MessagePattern.regex("\\d+ retries"),   // 2
+                MessagePattern.regex("ab*c")));         // 3
+        Assert.assertEquals(0, mixed.match("read TIMEOUT, connection refused"));
+        Assert.assertEquals(1, mixed.match("connection refused after a timeout"));
+        Assert.assertEquals(2, mixed.match("failed after 3 retries"));
+        Assert.assertEquals(3, mixed.match("got ac"));
+    }
+
+    @Test
+    public void testExpressionsWithGroupsOfTheirOwn() {
+        final MessageMatcher named = new MessageMatcher(Arrays.asList(
+                MessagePattern.regex("(?<id>\\d+) not found"),  // 0
+                MessagePattern.regex("(?<id>\\d+) locked"),     // 1
+                MessagePattern.regex("\\w+ expired")));         // 2
+        Assert.assertEquals(1, named.match("order 12 locked"));
+        Assert.assertEquals(0, named.match("order 12 not found, 13 locked"));
+        Assert.assertEquals(2, named.match("token expired"));
+
+        final MessageMatcher backReferences = new MessageMatcher(Arrays.asList(
+                MessagePattern.regex("(?i)foo(bar)"),  // 0
+                MessagePattern.regex("(a)\\1")));      // 1
+        Assert.assertEquals(1, backReferences.match("aa"));
+        Assert.assertEquals(0, backReferences.match("FOObar aa"));
+        Assert.assertEquals(-1, backReferences.match("ab"));
+    }
+
+    @Test
+    public void testNoMatch() {
+        Assert.assertEquals(-1, matcher.match(""));
+        Assert.assertEquals(-1, matcher.match("nothing to see"));
+        Assert.assertEquals(-1, new MessageMatcher(Arrays.asList(MessagePattern.regex("x\\d"))).match("x"));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An {@link ErrorHandlerTracer} that records the spans as strings while {@link #enabled}
+ * (declared as a service in the test resources, so it is the tracer of the tests).
+ */
+public class RecordingTracer implements ErrorHandlerTracer {
+
+    /**
+     * Whether spans are traced (they are not by default, so the rest of the tests are not affected).
+     */
+    /* package */ static volatile boolean enabled = false;
+
+    /**
+     * The committed spans.
+     */
+    /* package */ static final List<String> SPANS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public DispatchSpan beginDispatch() {
+        if (!enabled) {
+            return null;
+        }
+        return new DispatchSpan() {
+            private boolean ended;
+
+            @Override
+            public void end() {
+                ended = true;
+            }
+
+            @Override
+            public void commit(Class<?> exceptionClass, Class<?> handlerClass, boolean cached, int declined) {
+                SPANS.add("dispatch " + exceptionClass.getSimpleName() + " " + handlerClass.getSimpleName()
+                        + " cached=" + cached + " declined=" + declined + " ended=" + ended);
+            }
+        };
+    }
+
+    @Override
+    public HandlerExecutionSpan beginHandlerExecution() {
+        return !enabled ? null : (exceptionClass, handlerClass, declined, status) ->
+                SPANS.add("execution " + handlerClass.getSimpleName() + " declined=" + declined + " status=" + status);
+    }
+
+    @Override
+    public PackageScanSpan beginPackageScan() {
+        return !enabled ? null : (packageName, handlers) ->
+                SPANS.add("scan " + packageName + " handlers=" + handlers);
+    }
+
+    @Override
+    public HandlerInstantiationSpan beginHandlerInstantiation() {
+        return !enabled ? null : (handlerClass, fromBean) ->
+                SPANS.add("instantiation " + handlerClass.getSimpleName() + " fromBean=" + fromBean);
+    }
+}
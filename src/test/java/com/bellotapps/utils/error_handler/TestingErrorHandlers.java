@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler;
+
+import com.bellotapps.utils.error_handler.listened.NotImplementedHandler;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+/**
+ * Class containing helpers to test {@link HandledErrorListener}s, either with {@link HandledError}s created
+ * directly, or through {@link ErrorHandler}s created from the {@link #LISTENED_PACKAGE}.
+ */
+public class TestingErrorHandlers {
+
+    /**
+     * The package scanned by the created {@link ErrorHandler}s
+     * (i.e the one of {@link NotImplementedHandler}, which only handles {@link UnsupportedOperationException}).
+     */
+    public static final String LISTENED_PACKAGE = NotImplementedHandler.class.getPackage().getName();
+
+    /**
+     * The {@link ExceptionHandler} of the created {@link HandledError}s of other than
+     * {@link UnsupportedOperationException}s.
+     */
+    private static final ExceptionHandler<Throwable, Object> FALLBACK_HANDLER =
+            exception -> HandlingResult.justErrorCode(500);
+
+    /**
+     * The {@link ExceptionFingerprinter} of the created {@link HandledError}s.
+     */
+    private static final ExceptionFingerprinter FINGERPRINTER = new ExceptionFingerprinter();
+
+    /**
+     * Creates an {@link ErrorHandler} of the {@link #LISTENED_PACKAGE} that notifies the given {@code listener}.
+     *
+     * @param listener The {@link HandledErrorListener} to be notified.
+     * @return The created {@link ErrorHandler}.
+     */
+    public static ErrorHandler withListener(final HandledErrorListener listener) {
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("handledErrorListener", listener);
+        return create(beanFactory);
+    }
+
+    /**
+     * Creates an {@link ErrorHandler} of the {@link #LISTENED_PACKAGE} that notifies no listeners.
+     *
+     * @return The created {@link ErrorHandler}.
+     */
+    public static ErrorHandler withoutListeners() {
+        return create(new StaticListableBeanFactory());
+    }
+
+    /**
+     * Creates the {@link HandledError} an {@link ErrorHandler} of the {@link #LISTENED_PACKAGE} would notify
+     * when handling the given {@code exception} (i.e with a 501 status for {@link UnsupportedOperationException}s,
+     * or a 500 one otherwise), without creating the error handler.
+     *
+     * @param exception The handled exception.
+     * @return The created {@link HandledError}.
+     */
+    public static HandledError handledError(final Throwable exception) {
+        if (exception instanceof UnsupportedOperationException) {
+            final NotImplementedHandler handler = new NotImplementedHandler();
+            return new HandledError(exception, HandlingContext.empty(), handler,
+                    handler.handle((UnsupportedOperationException) exception), FINGERPRINTER);
+        }
+        return new HandledError(exception, HandlingContext.empty(), FALLBACK_HANDLER,
+                FALLBACK_HANDLER.handle(exception), FINGERPRINTER);
+    }
+
+    /**
+     * Creates an {@link ErrorHandler} of the {@link #LISTENED_PACKAGE}.
+     *
+     * @param beanFactory The bean factory of the {@link ErrorHandlerFactory}.
+     * @return The created {@link ErrorHandler}.
+     */
+    private static ErrorHandler create(final StaticListableBeanFactory beanFactory) {
+        return new ErrorHandlerFactory(TestingErrorHandlers.class.getClassLoader(), beanFactory)
+                .createErrorHandler(LISTENED_PACKAGE);
+    }
+}
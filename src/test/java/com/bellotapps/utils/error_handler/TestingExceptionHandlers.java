@@ -16,6 +16,21 @@
 
 package com.bellotapps.utils.error_handler;
 
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
 /**
  * Class containing some {@link ExceptionHandler} implementations.
  */
@@ -31,6 +46,21 @@ public class TestingExceptionHandlers {
         }
     }
 
+    /**
+     * An {@link ExceptionHandler} for {@link NullPointerException} used to override {@link NullPointerExceptionHandler},
+     * that declines those whose message is "parent".
+     */
+    public static class OverridingNullPointerExceptionHandler
+            implements ExceptionHandler<NullPointerException, String> {
+        @Override
+        public HandlingResult<String> handle(NullPointerException exception) {
+            if ("parent".equals(exception.getMessage())) {
+                return HandlingResult.decline();
+            }
+            return HandlingResult.withPayload(404, "overridden");
+        }
+    }
+
     /**
      * An {@link ExceptionHandler} for {@link IllegalArgumentException}.
      */
@@ -60,4 +90,318 @@ public class TestingExceptionHandlers {
             return HandlingResult.withPayload(500, "a throwable was not caught");
         }
     }
+
+    /**
+     * Key extractor for {@link SQLException}s, shared by the {@link SQLException} keyed handlers.
+     */
+    private static final Function<SQLException, String> SQL_STATE = SQLException::getSQLState;
+
+    /**
+     * An {@link ExceptionHandler} for {@link SQLException}.
+     */
+    public static class SQLExceptionHandler implements ExceptionHandler<SQLException, String> {
+        @Override
+        public HandlingResult<String> handle(SQLException exception) {
+            return HandlingResult.withPayload(500, "sql exception");
+        }
+    }
+
+    /**
+     * A {@link KeyedExceptionHandler} for unique violation {@link SQLException}s.
+     */
+    public static class UniqueViolationHandler implements KeyedExceptionHandler<SQLException, String, String> {
+        @Override
+        public Function<SQLException, String> getKeyExtractor() {
+            return SQL_STATE;
+        }
+
+        @Override
+        public String getKeyName() {
+            return "sqlState";
+        }
+
+        @Override
+        public Set<String> getKeys() {
+            return Collections.singleton("23505");
+        }
+
+        @Override
+        public HandlingResult<String> handle(SQLException exception) {
+            return HandlingResult.withPayload(409, "unique violation");
+        }
+    }
+
+    /**
+     * A {@link KeyedExceptionHandler} for connection error {@link SQLException}s.
+     */
+    public static class ConnectionErrorHandler implements KeyedExceptionHandler<SQLException, String, String> {
+        @Override
+        public Function<SQLException, String> getKeyExtractor() {
+            return SQLException::getSQLState; // Not the same object, but the same key name
+        }
+
+        @Override
+        public String getKeyName() {
+            return "sqlState";
+        }
+
+        @Override
+        public Set<String> getKeys() {
+            return Collections.singleton("08006");
+        }
+
+        @Override
+        public HandlingResult<String> handle(SQLException exception) {
+            return HandlingResult.withPayload(503, "connection error");
+        }
+    }
+
+    /**
+     * An {@link IntKeyedExceptionHandler} for deadlock {@link SQLException}s (using vendor codes).
+     */
+    public static class DeadlockHandler implements IntKeyedExceptionHandler<SQLException, String> {
+        @Override
+        public ToIntFunction<SQLException> getKeyExtractor() {
+            return SQLException::getErrorCode;
+        }
+
+        @Override
+        public int[] getKeys() {
+            return new int[]{1205, 1213, 40001};
+        }
+
+        @Override
+        public HandlingResult<String> handle(SQLException exception) {
+            return HandlingResult.withPayload(503, "deadlock");
+        }
+    }
+
+    /**
+     * A {@link KeyedExceptionHandler} for {@link IllegalStateException}s, by message
+     * (with no fallback handler for {@link IllegalStateException}).
+     */
+    public static class IllegalStateByMessageHandler
+            implements KeyedExceptionHandler<IllegalStateException, String, String> {
+        @Override
+        public Function<IllegalStateException, String> getKeyExtractor() {
+            return IllegalStateException::getMessage;
+        }
+
+        @Override
+        public Set<String> getKeys() {
+            return Collections.singleton("keyed");
+        }
+
+        @Override
+        public HandlingResult<String> handle(IllegalStateException exception) {
+            return HandlingResult.withPayload(422, "keyed illegal state");
+        }
+    }
+
+    /**
+     * A {@link MessagePatternExceptionHandler} for {@link IllegalStateException}s caused by broken connections.
+     */
+    public static class BrokenConnectionHandler
+            implements MessagePatternExceptionHandler<IllegalStateException, String> {
+        @Override
+        public Set<MessagePattern> getPatterns() {
+            return new LinkedHashSet<>(Arrays.asList(MessagePattern.literal("connection reset"),
+                    MessagePattern.literal("broken pipe")));
+        }
+
+        @Override
+        public HandlingResult<String> handle(IllegalStateException exception) {
+            return HandlingResult.withPayload(503, "broken connection");
+        }
+    }
+
+    /**
+     * A {@link MessagePatternExceptionHandler} for {@link IllegalStateException}s caused by timeouts.
+     */
+    public static class TimeoutMessageHandler implements MessagePatternExceptionHandler<IllegalStateException, String> {
+        @Override
+        public Set<MessagePattern> getPatterns() {
+            return Collections.singleton(MessagePattern.regex("(?i)timed out after \\d+ ?ms"));
+        }
+
+        @Override
+        public HandlingResult<String> handle(IllegalStateException exception) {
+            return HandlingResult.withPayload(504, "timeout");
+        }
+    }
+
+    /**
+     * An {@link ExceptionHandler} for {@link NumberFormatException} that declines those without message.
+     */
+    public static class DecliningNumberFormatExceptionHandler
+            implements ExceptionHandler<NumberFormatException, String> {
+        @Override
+        public HandlingResult<String> handle(NumberFormatException exception) {
+            if (exception.getMessage() == null) {
+                return HandlingResult.decline();
+            }
+            return HandlingResult.withPayload(400, "not a number");
+        }
+    }
+
+    /**
+     * A {@link KeyedExceptionHandler} for {@link SQLException}s that declines all of them.
+     */
+    public static class DecliningSqlStateHandler implements KeyedExceptionHandler<SQLException, String, String> {
+        @Override
+        public Function<SQLException, String> getKeyExtractor() {
+            return SQL_STATE;
+        }
+
+        @Override
+        public String getKeyName() {
+            return "sqlState";
+        }
+
+        @Override
+        public Set<String> getKeys() {
+            return Collections.singleton("23505");
+        }
+
+        @Override
+        public HandlingResult<String> handle(SQLException exception) {
+            return HandlingResult.decline();
+        }
+    }
+
+    /**
+     * An {@link ExceptionHandler} for {@link Throwable} that declines all of them.
+     */
+    public static class DecliningThrowableHandler implements ExceptionHandler<Throwable, String> {
+        @Override
+        public HandlingResult<String> handle(Throwable exception) {
+            return HandlingResult.decline();
+        }
+    }
+
+    /**
+     * A {@link VariantExceptionHandler} for {@link UnsupportedOperationException},
+     * with constant JSON and plain text variants (in English and Spanish), that counts how many times it encodes.
+     */
+    public static class UnsupportedOperationVariantsHandler
+            implements VariantExceptionHandler<UnsupportedOperationException> {
+
+        /**
+         * The amount of times a variant was encoded.
+         */
+        private final AtomicInteger encodings = new AtomicInteger();
+
+        @Override
+        public List<MimeType> getProducibleMediaTypes() {
+            return Arrays.asList(MimeTypeUtils.APPLICATION_JSON, MimeTypeUtils.TEXT_PLAIN);
+        }
+
+        @Override
+        public HandlingResult<EncodedEntity> handle(UnsupportedOperationException exception,
+                                                    MimeType mediaType, Locale locale) {
+            encodings.incrementAndGet();
+            final String message = "es".equals(locale.getLanguage()) ? "no soportado" : "unsupported";
+            final String body = mediaType.equals(MimeTypeUtils.APPLICATION_JSON) ?
+                    "{\"message\":\"" + message + "\"}" : message;
+            return HandlingResult.withPayload(501, EncodedEntity.of(mediaType, body));
+        }
+
+        @Override
+        public boolean isConstant(MimeType mediaType) {
+            return true;
+        }
+
+        /**
+         * @return The amount of times a variant was encoded.
+         */
+        public int getEncodings() {
+            return encodings.get();
+        }
+    }
+
+    /**
+     * A {@link BudgetedExceptionHandler} for {@link IllegalStateException}, with a budget of 50 milliseconds,
+     * that sleeps when the message is "slow" (counting the times it is interrupted), and throws when it is "fail".
+     */
+    public static class BudgetedIllegalStateHandler implements BudgetedExceptionHandler<IllegalStateException, String> {
+
+        /**
+         * The amount of times a slow call was interrupted (by any instance).
+         */
+        private static final AtomicInteger INTERRUPTIONS = new AtomicInteger();
+
+        /**
+         * @return The amount of times a slow call was interrupted (by any instance).
+         */
+        public static int getInterruptions() {
+            return INTERRUPTIONS.get();
+        }
+
+        @Override
+        public Duration getBudget() {
+            return Duration.ofMillis(50);
+        }
+
+        @Override
+        public HandlingResult<String> getFallbackResult(IllegalStateException exception) {
+            return HandlingResult.withPayload(503, "fallback");
+        }
+
+        @Override
+        public HandlingResult<String> handle(IllegalStateException exception) {
+            if ("slow".equals(exception.getMessage())) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    INTERRUPTIONS.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                }
+            } else if ("fail".equals(exception.getMessage())) {
+                throw new UnsupportedOperationException("Failing handler");
+            }
+            return HandlingResult.withPayload(409, "illegal state");
+        }
+    }
+
+    /**
+     * An exception declared as retryable after 30 seconds.
+     */
+    @RetryHint(retryable = true, retryAfterSeconds = 30)
+    public static class RetryableException extends RuntimeException {
+        public RetryableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * An {@link ExceptionHandler} for {@link RetryableException} that returns a constant result,
+     * unless the message is "explicit", in which case it sets its own retry policy.
+     */
+    public static class RetryableExceptionHandler implements ExceptionHandler<RetryableException, String> {
+
+        /**
+         * The constant result.
+         */
+        public static final HandlingResult<String> RESULT = HandlingResult.withPayload(503, "busy");
+
+        @Override
+        public HandlingResult<String> handle(RetryableException exception) {
+            if ("explicit".equals(exception.getMessage())) {
+                return RESULT.withRetryPolicy(RetryPolicy.RETRYABLE.withBackoff(Duration.ofMillis(100)));
+            }
+            return RESULT;
+        }
+    }
+
+    /**
+     * An {@link ExceptionHandler} for {@link IllegalArgumentException} declared as not retryable.
+     */
+    @RetryHint(retryable = false)
+    public static class NotRetryableIllegalArgumentHandler
+            implements ExceptionHandler<IllegalArgumentException, String> {
+        @Override
+        public HandlingResult<String> handle(IllegalArgumentException exception) {
+            return HandlingResult.withPayload(400, "Illegal argument");
+        }
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.aggregation;
+
+import com.bellotapps.utils.error_handler.TestingErrorHandlers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Testing class for {@link ErrorAggregator}.
+ */
+public class ErrorAggregatorTest {
+
+    private static final Duration WINDOW_DURATION = Duration.ofSeconds(10);
+
+    private static final int WINDOWS = 6;
+
+    private AtomicLong now;
+
+    private ErrorAggregator aggregator;
+
+    @Before
+    public void setUp() {
+        this.now = new AtomicLong(1_000_000);
+        this.aggregator = new ErrorAggregator(WINDOW_DURATION, WINDOWS, 8, 256, 4, now::get);
+    }
+
+    @Test
+    public void testHeavyHittersAreFoundAmongNoise() {
+        final IllegalStateException frequent = new IllegalStateException("Order 1234 not found");
+        for (int i = 0; i < 500; i++) {
+            handle(frequent, 1);
+            if (i % 5 == 0) {
+                handle(new UnsupportedOperationException(), 1);
+            } else {
+                handle(new IllegalArgumentException("Unexpected value " + toLetters(i)), 1);
+            }
+        }
+
+        final ErrorAggregateSnapshot snapshot = aggregator.snapshot(2);
+        Assert.assertEquals(1000, snapshot.getTotal());
+        Assert.assertEquals(2, snapshot.getExceptionTypes().size());
+        Assert.assertEquals(IllegalStateException.class, snapshot.getExceptionTypes().get(0).getKey());
+        Assert.assertEquals(IllegalArgumentException.class, snapshot.getExceptionTypes().get(1).getKey());
+        Assert.assertEquals("The frequent fingerprint was not found",
+                frequent.getClass(), snapshot.getFingerprints().get(0).getKey().getExceptionClass());
+        Assert.assertTrue("The count must not fall below the real one",
+                snapshot.getFingerprints().get(0).getCount() >= 500);
+        Assert.assertTrue("The count is too inaccurate", snapshot.getFingerprints().get(0).getCount() < 550);
+    }
+
+    @Test
+    public void testOldWindowsAreDiscarded() {
+        handle(new IllegalStateException(), 10);
+        now.addAndGet(WINDOW_DURATION.toMillis());
+        handle(new IllegalArgumentException(), 5);
+
+        ErrorAggregateSnapshot snapshot = aggregator.snapshot(10);
+        Assert.assertEquals(15, snapshot.getTotal());
+        Assert.assertEquals(10, snapshot.getExceptionTypes().get(0).getCount());
+        Assert.assertEquals(5, snapshot.getExceptionTypes().get(1).getCount());
+
+        // The first window is no longer in the period
+        now.addAndGet((WINDOWS - 1) * WINDOW_DURATION.toMillis());
+        snapshot = aggregator.snapshot(10);
+        Assert.assertEquals(5, snapshot.getTotal());
+        Assert.assertEquals(1, snapshot.getExceptionTypes().size());
+        Assert.assertEquals(IllegalArgumentException.class, snapshot.getExceptionTypes().get(0).getKey());
+
+        // The first window is reused
+        handle(new UnsupportedOperationException(), 3);
+        snapshot = aggregator.snapshot(10);
+        Assert.assertEquals(8, snapshot.getTotal());
+        Assert.assertEquals(2, snapshot.getExceptionTypes().size());
+    }
+
+    /**
+     * Notifies the {@code aggregator} that the given {@code exception} was handled the given amount of {@code times}.
+     *
+     * @param exception The exception to be handled.
+     * @param times     The amount of times it is handled.
+     */
+    private void handle(final Throwable exception, final int times) {
+        for (int i = 0; i < times; i++) {
+            aggregator.onHandledError(TestingErrorHandlers.handledError(exception));
+        }
+    }
+
+    /**
+     * Turns the given {@code value} into a word without digits (so the fingerprinter does not normalize it).
+     *
+     * @param value The value.
+     * @return The word.
+     */
+    private static String toLetters(final int value) {
+        final StringBuilder word = new StringBuilder();
+        int remaining = value;
+        do {
+            word.append((char) ('a' + remaining % 26));
+            remaining /= 26;
+        } while (remaining > 0);
+        return word.toString();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.boundary;
+
+import com.bellotapps.utils.error_handler.HandlingResult;
+import com.bellotapps.utils.error_handler.TestingErrorHandlers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Testing class for {@link ErrorBoundary} and {@link Outcome}.
+ */
+public class ErrorBoundaryTest {
+
+    private ErrorBoundary boundary;
+
+    @Before
+    public void setUp() {
+        this.boundary = new ErrorBoundary(TestingErrorHandlers.withoutListeners());
+    }
+
+    @Test
+    public void testSuccessfulCallsReturnTheirValue() {
+        final Outcome<String> outcome = boundary.call(() -> "value");
+        Assert.assertTrue(outcome.isSuccess());
+        Assert.assertEquals("value", outcome.getValue());
+        Assert.assertFalse(outcome.getFailure().isPresent());
+        Assert.assertSame("Null values allocated an outcome", boundary.get(() -> null), boundary.get(() -> null));
+        Assert.assertEquals("value", boundary.get(() -> "value", result -> "failed"));
+    }
+
+    @Test
+    public void testFailedCallsAreHandled() {
+        final UnsupportedOperationException exception = new UnsupportedOperationException("unsupported");
+        final Outcome<String> outcome = boundary.get(() -> {
+            throw exception;
+        });
+        Assert.assertFalse(outcome.isSuccess());
+        Assert.assertSame(exception, outcome.getException().orElse(null));
+        Assert.assertEquals(501, outcome.getFailure().map(HandlingResult::getHttpErrorCode).orElse(-1).intValue());
+        Assert.assertEquals("failed", outcome.orElse("failed"));
+        // Test checked exceptions
+        final int status = boundary.call(() -> {
+            throw new IOException("checked");
+        }, HandlingResult::getHttpErrorCode);
+        Assert.assertEquals(500, status);
+    }
+
+    @Test
+    public void testInterruptedCallsRestoreTheInterruptStatus() {
+        final Outcome<Object> outcome = boundary.decorate(() -> {
+            throw new InterruptedException();
+        }).get();
+        Assert.assertTrue("The interrupt status was not restored", Thread.interrupted());
+        Assert.assertFalse(outcome.isSuccess());
+    }
+
+    @Test
+    public void testFailedStagesAreUnwrappedAndHandled() {
+        final CompletableFuture<String> failed = CompletableFuture.supplyAsync(() -> {
+            throw new UnsupportedOperationException("unsupported");
+        });
+        final Outcome<String> outcome = boundary.outcomeOf(failed).toCompletableFuture().join();
+        Assert.assertTrue(outcome.getException().orElse(null) instanceof UnsupportedOperationException);
+        Assert.assertEquals("501", failed.exceptionally(boundary.exceptionally(result ->
+                String.valueOf(result.getHttpErrorCode()))).join());
+        Assert.assertEquals("value", boundary.outcomeOf(CompletableFuture.completedFuture("value"))
+                .toCompletableFuture().join().getValue());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testErrorsArePropagated() {
+        boundary.get(() -> {
+            throw new AssertionError("error");
+        });
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.cluster;
+
+import com.bellotapps.utils.error_handler.TestingErrorHandlers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Testing class for {@link ClusterErrorCounter}.
+ */
+public class ClusterErrorCounterTest {
+
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final List<ClusterErrorCounter> counters = new LinkedList<>();
+
+    @After
+    public void tearDown() {
+        counters.forEach(ClusterErrorCounter::close);
+    }
+
+    @Test
+    public void testCountsAreMergedAcrossTheCluster() throws IOException {
+        final LoopbackClusterTransport.Group group = new LoopbackClusterTransport.Group();
+        final ClusterErrorCounter first = newCounter("first", new LoopbackClusterTransport(group), 10);
+        final ClusterErrorCounter second = newCounter("second", new LoopbackClusterTransport(group), 10);
+        handle(first, new IllegalStateException(), 3);
+        handle(second, new IllegalStateException(), 2);
+        handle(second, new UnsupportedOperationException(), 1);
+
+        first.publish();
+        second.publish();
+        second.publish(); // Nothing changed, so nothing is sent (and duplicates would be merged anyway)
+
+        final Map<String, Long> expected = new HashMap<>();
+        expected.put(IllegalStateException.class.getName(), 5L);
+        expected.put(UnsupportedOperationException.class.getName(), 1L);
+        Assert.assertEquals(expected, first.getClusterCounts());
+        Assert.assertEquals(expected, second.getClusterCounts());
+        Assert.assertEquals(Collections.singleton("second"), first.getPeers());
+        Assert.assertEquals(Long.valueOf(3), first.getLocalCounts().get(IllegalStateException.class.getName()));
+    }
+
+    @Test
+    public void testOnlyChangedCountersArePublishedBetweenFullStates() throws IOException {
+        final List<CounterMessage> messages = new LinkedList<>();
+        final ClusterErrorCounter counter = newCounter("node", new CapturingTransport(messages), 3);
+        handle(counter, new IllegalStateException(), 2);
+        handle(counter, new UnsupportedOperationException(), 1);
+
+        counter.publish(); // Full state
+        handle(counter, new IllegalStateException(), 1);
+        counter.publish(); // Delta
+        counter.publish(); // Nothing changed
+        counter.publish(); // Full state again
+
+        Assert.assertEquals(3, messages.size());
+        Assert.assertEquals(2, messages.get(0).getCounts().size());
+        Assert.assertEquals(Collections.singletonMap(IllegalStateException.class.getName(), 3L),
+                messages.get(1).getCounts());
+        Assert.assertEquals(2, messages.get(2).getCounts().size());
+        Assert.assertEquals("node", messages.get(2).getNodeId());
+    }
+
+    @Test
+    public void testStatesAreSplitIntoMessagesThatFit() throws IOException {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            counts.put("com.example.Exception" + i, (long) i << 20);
+        }
+        final List<byte[]> encoded = CounterMessage.encode("node", counts, 256);
+        Assert.assertTrue("The state was not split", encoded.size() > 1);
+        final Map<String, Long> decoded = new LinkedHashMap<>();
+        for (final byte[] message : encoded) {
+            Assert.assertTrue("A message is too large", message.length <= 256);
+            decoded.putAll(CounterMessage.decode(message).getCounts());
+        }
+        Assert.assertEquals(counts, decoded);
+    }
+
+    @Test
+    public void testCountsAreExchangedThroughMulticastInTheSameHost() throws IOException, InterruptedException {
+        final int port;
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        final InetAddress group = InetAddress.getByName(MulticastClusterTransport.DEFAULT_GROUP);
+        final ClusterErrorCounter first = newCounter("first", new MulticastClusterTransport(group, port, 0), 10);
+        final ClusterErrorCounter second = newCounter("second", new MulticastClusterTransport(group, port, 0), 10);
+        handle(first, new IllegalStateException(), 3);
+        handle(second, new IllegalStateException(), 4);
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!Long.valueOf(7).equals(first.getClusterCounts().get(IllegalStateException.class.getName()))
+                && System.currentTimeMillis() < deadline) {
+            first.publish();
+            second.publish();
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(Long.valueOf(7), first.getClusterCounts().get(IllegalStateException.class.getName()));
+        Assert.assertEquals(Long.valueOf(7), second.getClusterCounts().get(IllegalStateException.class.getName()));
+        Assert.assertEquals(0, first.getInvalidMessages());
+    }
+
+    /**
+     * Creates a {@link ClusterErrorCounter} that is only published on demand (and closed after the test).
+     *
+     * @param nodeId            The id of the node.
+     * @param transport         The {@link ClusterTransport}.
+     * @param fullStateInterval The amount of publications after which the whole state is published again.
+     * @return The created {@link ClusterErrorCounter}.
+     * @throws IOException If the transport can not be started.
+     */
+    private ClusterErrorCounter newCounter(final String nodeId, final ClusterTransport transport,
+                                           final int fullStateInterval) throws IOException {
+        final ClusterErrorCounter counter = new ClusterErrorCounter(nodeId, transport, NEVER, fullStateInterval);
+        counters.add(counter);
+        return counter;
+    }
+
+    /**
+     * Notifies the given {@code counter} that the given {@code exception} was handled
+     * the given amount of {@code times}.
+     *
+     * @param counter   The {@link ClusterErrorCounter} to be notified.
+     * @param exception The handled exception.
+     * @param times     The amount of times it was handled.
+     */
+    private static void handle(final ClusterErrorCounter counter, final Throwable exception, final int times) {
+        for (int i = 0; i < times; i++) {
+            counter.onHandledError(TestingErrorHandlers.handledError(exception));
+        }
+    }
+
+    /**
+     * {@link ClusterTransport} that keeps the sent messages, decoded.
+     */
+    private static final class CapturingTransport implements ClusterTransport {
+
+        private final List<CounterMessage> messages;
+
+        private CapturingTransport(final List<CounterMessage> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void start(final Consumer<byte[]> receiver) {
+        }
+
+        @Override
+        public void send(final byte[] message) throws IOException {
+            messages.add(CounterMessage.decode(message));
+        }
+    }
+}
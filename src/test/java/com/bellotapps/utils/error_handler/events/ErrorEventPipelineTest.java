@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.events;
+
+import com.bellotapps.utils.error_handler.HandledError;
+import com.bellotapps.utils.error_handler.TestingErrorHandlers;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Testing class for {@link ErrorEventPipeline}.
+ */
+public class ErrorEventPipelineTest {
+
+    @Test
+    public void testHandledErrorsArePostedInBatches() throws IOException {
+        final List<String> lines = new CopyOnWriteArrayList<>();
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/events", exchange -> {
+            final String body = StreamUtils.copyToString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+            lines.addAll(Arrays.asList(body.split("\n")));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            final URL url = new URL("http", "localhost", server.getAddress().getPort(), "/events");
+            final ErrorEventPipeline pipeline =
+                    new ErrorEventPipeline(Collections.singletonList(new HttpErrorEventSink(url)));
+            for (int i = 0; i < 100; i++) {
+                pipeline.onHandledError(
+                        TestingErrorHandlers.handledError(new IllegalStateException("Order " + i + " \"failed\"")));
+            }
+            pipeline.close();
+
+            Assert.assertEquals("Not all events were published", 100, pipeline.getPublishedEvents());
+            Assert.assertEquals("Not all events were posted", 100, lines.size());
+            Assert.assertEquals("Events were posted with different fingerprints", 1, lines.stream()
+                    .map(line -> line.replaceAll(".*\"fingerprint\":\"([0-9a-f]{16})\".*", "$1"))
+                    .distinct()
+                    .count());
+            Assert.assertTrue("The message was not escaped",
+                    lines.get(0).contains("\"message\":\"Order 0 \\\"failed\\\"\""));
+            Assert.assertTrue("The status was not posted", lines.get(0).contains("\"status\":500"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testEventsAreDroppedWhenTheBufferIsFull() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> written = new CopyOnWriteArrayList<>();
+        final ErrorEventSink blockedSink = batch -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.addAll(batch.stream().map(ErrorEvent::getMessage).collect(Collectors.toList()));
+        };
+        final ErrorEventPipeline pipeline =
+                new ErrorEventPipeline(Collections.singletonList(blockedSink), 4, 1, OverflowPolicy.DROP);
+        for (int i = 0; i < 20; i++) {
+            pipeline.onHandledError(TestingErrorHandlers.handledError(new IllegalStateException(Integer.toString(i))));
+        }
+        release.countDown();
+        pipeline.close();
+
+        Assert.assertTrue("No events were dropped", pipeline.getDroppedEvents() > 0);
+        Assert.assertEquals("Dropped events were not counted",
+                20, pipeline.getPublishedEvents() + pipeline.getDroppedEvents());
+        Assert.assertEquals("Published events were not written", pipeline.getPublishedEvents(), written.size());
+    }
+
+    @Test
+    public void testEventsPublishedWhileClosingAreWritten() throws InterruptedException {
+        final LongAdder written = new LongAdder();
+        final ErrorEventPipeline pipeline =
+                new ErrorEventPipeline(Collections.singletonList(batch -> written.add(batch.size())));
+        final CountDownLatch filling = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BlockingException exception = new BlockingException(filling, release);
+        final HandledError handledError = TestingErrorHandlers.handledError(exception);
+        handledError.getFingerprint(); // Reads the message before blocking is armed
+        exception.armed = true;
+        final Thread publisher = new Thread(() -> pipeline.onHandledError(handledError));
+        publisher.start();
+        Assert.assertTrue("The event was not being filled", filling.await(10, TimeUnit.SECONDS));
+
+        // Close while the publisher is filling its slot
+        final Thread closer = new Thread(pipeline::close);
+        closer.start();
+        Thread.sleep(100);
+        release.countDown();
+        publisher.join();
+        closer.join();
+
+        Assert.assertEquals("The event was not published", 1, pipeline.getPublishedEvents());
+        Assert.assertEquals("An event published while closing was lost", 1, written.sum());
+    }
+
+    /**
+     * An exception whose message blocks once armed, so a publisher can be held while filling its slot.
+     */
+    private static final class BlockingException extends IllegalStateException {
+
+        private final CountDownLatch filling;
+
+        private final CountDownLatch release;
+
+        private volatile boolean armed;
+
+        private BlockingException(final CountDownLatch filling, final CountDownLatch release) {
+            super("failure");
+            this.filling = filling;
+            this.release = release;
+        }
+
+        @Override
+        public String getMessage() {
+            if (armed) {
+                filling.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.getMessage();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.journal;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.TestingErrorHandlers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Testing class for {@link ErrorJournal} and {@link ErrorJournalReader}.
+ */
+public class ErrorJournalTest {
+
+    private static final int RECORDS_PER_SEGMENT = 8;
+
+    private static final int SEGMENT_SIZE =
+            ErrorJournal.HEADER_SIZE + RECORDS_PER_SEGMENT * ErrorJournal.RECORD_SIZE;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHandledErrorsAreJournaled() throws IOException {
+        final Path directory = temporaryFolder.getRoot().toPath();
+        try (final ErrorJournal journal = new ErrorJournal(directory, SEGMENT_SIZE, 10)) {
+            final ErrorHandler errorHandler = TestingErrorHandlers.withListener(journal);
+            for (int i = 0; i < 25; i++) {
+                errorHandler.handle(i % 2 == 0 ? new IllegalStateException("Order " + i) : new Error());
+            }
+        }
+
+        final List<JournalRecord> records = new ErrorJournalReader(directory).stream().collect(Collectors.toList());
+        Assert.assertEquals("Not all records were read", 25, records.size());
+        Assert.assertEquals(IllegalStateException.class.getName(), records.get(0).getExceptionClassName());
+        Assert.assertEquals(Error.class.getName(), records.get(1).getExceptionClassName());
+        Assert.assertEquals(500, records.get(0).getHttpErrorCode());
+        Assert.assertTrue("The handler was not recorded",
+                records.get(0).getHandlerClassName().startsWith(
+                        "com.bellotapps.utils.error_handler.ErrorHandlerImpl"));
+        Assert.assertEquals("The fingerprint was not recorded",
+                records.get(0).getFingerprint(), records.get(2).getFingerprint());
+    }
+
+    @Test
+    public void testOldSegmentsAreDeletedAndJournalsAreContinued() throws IOException {
+        final Path directory = temporaryFolder.getRoot().toPath();
+        try (final ErrorJournal journal = new ErrorJournal(directory, SEGMENT_SIZE, 3)) {
+            for (int i = 0; i < 45; i++) {
+                journal.onHandledError(TestingErrorHandlers.handledError(new IllegalStateException()));
+            }
+        }
+        // Segments 0, 1 and 2 are deleted
+        Assert.assertEquals("Old segments were not deleted", 3, ErrorJournalReader.listSegments(directory).size());
+        Assert.assertEquals(21, new ErrorJournalReader(directory).stream().count());
+
+        try (final ErrorJournal journal = new ErrorJournal(directory, SEGMENT_SIZE, 3)) {
+            journal.onHandledError(TestingErrorHandlers.handledError(new IllegalArgumentException()));
+        }
+        // Segment 3 is deleted to make room for segment 6
+        Assert.assertEquals("Old segments were not deleted when continuing the journal",
+                3, ErrorJournalReader.listSegments(directory).size());
+        final List<JournalRecord> records = new ErrorJournalReader(directory).stream().collect(Collectors.toList());
+        Assert.assertEquals("The journal was not continued", 14, records.size());
+        Assert.assertEquals(IllegalStateException.class.getName(), records.get(0).getExceptionClassName());
+        Assert.assertEquals(IllegalArgumentException.class.getName(), records.get(13).getExceptionClassName());
+    }
+}
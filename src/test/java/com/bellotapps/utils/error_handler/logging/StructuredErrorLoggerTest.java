@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.logging;
+
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.TestingErrorHandlers;
+import com.bellotapps.utils.error_handler.listened.NotImplementedHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Testing class for {@link StructuredErrorLogger} and {@link LogLineEncoder}.
+ */
+public class StructuredErrorLoggerTest {
+
+    @Test
+    public void testHandledErrorsAreLoggedAsFields() {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final ErrorHandler errorHandler = TestingErrorHandlers.withListener(new StructuredErrorLogger(outputStream));
+
+        errorHandler.handle(new UnsupportedOperationException("Order \"1234\" not found"));
+
+        final String line = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(line.matches("ts=\\d+ exception=java\\.lang\\.UnsupportedOperationException"
+                + " handler=" + NotImplementedHandler.class.getName().replace(".", "\\.")
+                + " status=501 fingerprint=[0-9a-f]{16} thread=\\S+"
+                + " message=\"Order \\\\\"1234\\\\\" not found\"\n"));
+    }
+
+    @Test
+    public void testValuesAreEncodedAndTruncated() throws IOException {
+        final LogLineEncoder encoder = new LogLineEncoder(40);
+        encoder.reset().field("a", -1234).hexField("b", 0xABL).field("c", "\u00f1=");
+        Assert.assertEquals("a=-1234 b=00000000000000ab c=\"\u00f1=\"", encoder.toLineString());
+
+        encoder.reset().field("message", "a message that does not fit in the line");
+        Assert.assertTrue(encoder.isTruncated());
+        Assert.assertEquals("message=\"a message that does not fit in ...", encoder.toLineString());
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encoder.reset().field("empty", null);
+        encoder.writeLineTo(outputStream);
+        Assert.assertEquals("empty=\"\"\n", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testThreadNamesAreEncodedOnce() throws InterruptedException {
+        final LogLineEncoder encoder = new LogLineEncoder(24);
+        final String[] lines = new String[3];
+        final Thread thread = new Thread(() -> {
+            lines[0] = encoder.reset().threadNameField("thread").toLineString();
+            Thread.currentThread().setName("renamed");
+            lines[1] = encoder.reset().threadNameField("thread").toLineString();
+            lines[2] = encoder.reset().field("a", "0123456789").threadNameField("thread").toLineString();
+        }, "worker \"1\"");
+        thread.start();
+        thread.join();
+        Assert.assertEquals("thread=\"worker \\\"1\\\"\"", lines[0]);
+        Assert.assertEquals("The cached name was not reused", lines[0], lines[1]);
+        Assert.assertEquals("a=0123456789 thread=...", lines[2]);
+        Assert.assertNotEquals("Another thread got the cached name",
+                lines[0], encoder.reset().threadNameField("thread").toLineString());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.problem;
+
+import com.bellotapps.utils.error_handler.EncodedEntity;
+import com.bellotapps.utils.error_handler.HandlingResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Testing class for {@link ProblemTemplate}, {@link Problem} and {@link ProblemExceptionHandler}.
+ */
+public class ProblemTest {
+
+    private static final ProblemTemplate OUT_OF_STOCK =
+            ProblemTemplate.of(409, "https://example.com/problems/out-of-stock", "Out of stock")
+                    .withExtension("retryable", false);
+
+    @Test
+    public void testTemplateIsSplicedWithTheOccurrenceMembers() throws IOException {
+        final Map<String, Object> extensions = new LinkedHashMap<>();
+        extensions.put("sku", "A-\"1\"");
+        extensions.put("available", 0);
+        final Problem problem = OUT_OF_STOCK.newProblem("Only 0 left", "/orders/12", extensions);
+
+        final String expected = "{\"type\":\"https://example.com/problems/out-of-stock\",\"title\":\"Out of stock\","
+                + "\"status\":409,\"retryable\":false,\"detail\":\"Only 0 left\",\"instance\":\"/orders/12\","
+                + "\"sku\":\"A-\\\"1\\\"\",\"available\":0}";
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        problem.writeTo(outputStream);
+        Assert.assertEquals(expected, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals(outputStream.size(), problem.getLength());
+        Assert.assertEquals(expected, problem.toString());
+        Assert.assertArrayEquals(outputStream.toByteArray(), problem.toEncodedEntity().toByteArray());
+        Assert.assertEquals(Problem.MEDIA_TYPE, problem.toEncodedEntity().getMediaType());
+    }
+
+    @Test
+    public void testProblemsWithoutOccurrenceMembersAreTheConstantEntity() {
+        final ProblemTemplate template = ProblemTemplate.of(404, "Not Found");
+        final EncodedEntity entity = template.newProblem(null).toEncodedEntity();
+        Assert.assertSame(template.asEncodedEntity(), entity);
+        Assert.assertEquals("{\"type\":\"about:blank\",\"title\":\"Not Found\",\"status\":404}",
+                new String(entity.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReservedMembersCanNotBeExtensions() {
+        assertRejected(() -> OUT_OF_STOCK.withExtension("status", 500));
+        assertRejected(() -> OUT_OF_STOCK.newProblem(null, null, Collections.singletonMap("detail", "x")));
+        assertRejected(() -> OUT_OF_STOCK.newProblem(null, null, Collections.singletonMap("retryable", true)));
+    }
+
+    @Test
+    public void testHandlerCreatesProblemsFromItsTemplate() {
+        final ProblemExceptionHandler<IllegalStateException> handler = () -> OUT_OF_STOCK;
+        final HandlingResult<Problem> result = handler.handle(new IllegalStateException("Sold out"));
+        Assert.assertEquals(409, result.getHttpErrorCode());
+        Assert.assertSame(OUT_OF_STOCK, result.getErrorRepresentationEntity().getTemplate());
+        Assert.assertEquals("Sold out", result.getErrorRepresentationEntity().getDetail());
+    }
+
+    /**
+     * Asserts that the given {@code action} is rejected with an {@link IllegalArgumentException}.
+     *
+     * @param action The action.
+     */
+    private static void assertRejected(final Runnable action) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        Assert.fail("The action was not rejected");
+    }
+}
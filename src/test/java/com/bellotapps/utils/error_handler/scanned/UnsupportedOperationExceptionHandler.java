@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.scanned;
+
+import com.bellotapps.utils.error_handler.*;
+
+/**
+ * An {@link ExceptionHandler} for {@link UnsupportedOperationException},
+ * found by package scanning, that uses an {@link ErrorMessageResolver} (if there is a message source).
+ */
+@ExceptionHandlerObject
+public class UnsupportedOperationExceptionHandler
+        implements ContextualExceptionHandler<UnsupportedOperationException, String>, ErrorMessageResolverAware {
+
+    private ErrorMessageResolver errorMessageResolver;
+
+    @Override
+    public void setErrorMessageResolver(ErrorMessageResolver errorMessageResolver) {
+        this.errorMessageResolver = errorMessageResolver;
+    }
+
+    @Override
+    public HandlingResult<String> handle(UnsupportedOperationException exception, HandlingContext context) {
+        if (errorMessageResolver == null) {
+            return HandlingResult.withPayload(501, "Unsupported: " + exception.getMessage());
+        }
+        return HandlingResult.withPayload(501,
+                errorMessageResolver.getMessage("error.unsupported", context.getLocale(), exception.getMessage()));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.scoped;
+
+import com.bellotapps.utils.error_handler.*;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A per-thread {@link VariantExceptionHandler} for {@link UnsupportedOperationException}, found by package scanning,
+ * whose variants are constant.
+ */
+@ExceptionHandlerObject(scope = HandlerScope.PER_THREAD)
+public class PerThreadVariantsHandler implements VariantExceptionHandler<UnsupportedOperationException> {
+
+    /**
+     * The amount of times a variant was encoded (by any instance).
+     */
+    public static final AtomicInteger ENCODINGS = new AtomicInteger();
+
+    @Override
+    public List<MimeType> getProducibleMediaTypes() {
+        return Collections.singletonList(MimeTypeUtils.TEXT_PLAIN);
+    }
+
+    @Override
+    public HandlingResult<EncodedEntity> handle(UnsupportedOperationException exception,
+                                                MimeType mediaType, Locale locale) {
+        ENCODINGS.incrementAndGet();
+        return HandlingResult.withPayload(501, EncodedEntity.of(mediaType, "unsupported"));
+    }
+
+    @Override
+    public boolean isConstant(MimeType mediaType) {
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 BellotApps
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bellotapps.utils.error_handler.scoped;
+
+import com.bellotapps.utils.error_handler.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pooled {@link ExceptionHandler} for {@link IllegalStateException}, found by package scanning,
+ * that reuses a (non thread safe) buffer, failing if it is used by more than one thread at a time.
+ */
+@ExceptionHandlerObject(scope = HandlerScope.POOLED, poolSize = 2)
+public class PooledHandler implements ExceptionHandler<IllegalStateException, String> {
+
+    /**
+     * The amount of created instances.
+     */
+    public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    private volatile boolean inUse;
+
+    public PooledHandler() {
+        INSTANCES.incrementAndGet();
+    }
+
+    @Override
+    public HandlingResult<String> handle(IllegalStateException exception) {
+        if (inUse) {
+            throw new AssertionError("The handler is being used by another thread");
+        }
+        inUse = true;
+        try {
+            buffer.setLength(0);
+            buffer.append("Conflict: ").append(exception.getMessage());
+            Thread.yield();
+            return HandlingResult.withPayload(409, buffer.toString());
+        } finally {
+            inUse = false;
+        }
+    }
+}